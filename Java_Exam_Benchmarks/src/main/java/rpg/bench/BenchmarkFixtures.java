@@ -0,0 +1,92 @@
+package rpg.bench;
+
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factory.Mage;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import java.util.logging.Level;
+
+/**
+ * BenchmarkFixtures - Shared setup of the combat benchmarks
+ * <p>
+ * Benchmarks measure the game code, not the console: game text goes to a
+ * NullOutput and the game logger only keeps warnings. Log messages are
+ * still built by the game code, as they are in production. Benchmarks that
+ * measure the cost of logging itself pass their own level to
+ * {@link #quiet(Level)}.
+ * </p>
+ */
+final class BenchmarkFixtures {
+
+    static final CharacterFactory CHARACTER_FACTORY = new CharacterFactory();
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Silences game text and info logging for the benchmark JVM
+     */
+    static void quiet() {
+        quiet(Level.WARNING);
+    }
+
+    /**
+     * Silences game text and sets the game logger's level for the benchmark JVM
+     *
+     * @param logLevel The level of the game logger; FINE also logs every hit
+     */
+    static void quiet(Level logLevel) {
+        OutputContext.setDefault(NullOutput.INSTANCE);
+        GameLogger.getInstance().getLogger().setLevel(logLevel);
+    }
+
+    /**
+     * Creates a hero with an inventory of the given size
+     * <p>
+     * The inventory cycles through weapons, armor and potions; the last
+     * weapon and the last armor are equipped, so attacks go through the
+     * equipment bonus.
+     * </p>
+     *
+     * @param heroClass "warrior" or "mage"
+     * @param inventorySize Number of items in the inventory
+     * @return The hero
+     */
+    static Character createHero(String heroClass, int inventorySize) {
+        Character hero = CHARACTER_FACTORY.createCharacter(heroClass, "Bench");
+        if (hero == null) {
+            throw new IllegalArgumentException("Unknown hero class: " + heroClass);
+        }
+
+        Item weapon = null;
+        Item armor = null;
+        for (int i = 0; i < inventorySize; i++) {
+            Item item = switch (i % 3) {
+                case 0 -> weapon = new Item("Sword " + i, Item.ItemType.WEAPON, 10 + i, 1 + i % 5);
+                case 1 -> armor = new Item("Armor " + i, Item.ItemType.ARMOR, 10 + i, 1 + i % 3);
+                default -> new Item("Potion " + i, Item.ItemType.POTION, 5, 0);
+            };
+            hero.addItem(item);
+        }
+        if (weapon != null) {
+            hero.equipItem(weapon);
+        }
+        if (armor != null) {
+            hero.equipItem(armor);
+        }
+        return hero;
+    }
+
+    /**
+     * Restores the hero to full health, stamina and mana
+     *
+     * @param hero The hero to restore
+     */
+    static void restore(Character hero) {
+        int mana = hero instanceof Mage mage ? mage.getMaxMana() : 0;
+        CHARACTER_FACTORY.applyCombatState(hero, hero.getMaxHealth(), hero.getMaxStamina(), mana);
+    }
+}
@@ -0,0 +1,54 @@
+package rpg.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner - Runs the combat benchmarks the way releases are compared
+ * <p>
+ * Runs every benchmark of this module (or those matching the JMH command
+ * line, e.g. {@code FullFight}) with the GC profiler, which reports the
+ * allocation rate and bytes allocated per operation, and writes the results
+ * to {@code target/jmh-result.json}. Keeping that file per release gives
+ * numbers to compare release over release.
+ * </p>
+ * <p>
+ * Game text is always discarded. The game logger is raised to WARNING in
+ * CombatTurnBenchmark and EquipmentBenchmark, so their numbers exclude
+ * logging; FullFightBenchmark runs each pairing at INFO and at FINE, the
+ * latter including the cost of logging every hit.
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param args JMH command line options; with no benchmark pattern, every benchmark of the module runs
+     * @throws RunnerException If a benchmark fails
+     * @throws CommandLineOptionException If the options cannot be parsed
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include("rpg\\.bench\\..*Benchmark");
+        }
+        Options options = builder
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
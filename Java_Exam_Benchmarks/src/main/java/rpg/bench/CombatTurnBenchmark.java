@@ -0,0 +1,96 @@
+package rpg.bench;
+
+import rpg.combat.CombatSystem;
+import rpg.factory.Character;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.factoryMonster.MonsterFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CombatTurnBenchmark - Latency of the single-turn combat operations
+ * <p>
+ * Covers Warrior.attack, Mage.attack, AbstractMonster.attack (which rolls
+ * its damage with calculateDamage) and the two CombatSystem entry points.
+ * Every operation first restores the combatants, so each call measures a
+ * full-strength attack instead of running out of stamina or mana; the
+ * restore is a few field writes and is part of every measurement alike.
+ * </p>
+ * <p>
+ * The inventory size is a parameter, so the equipment bonus is computed
+ * from small and large inventories.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CombatTurnBenchmark {
+
+    @Param({"0", "10", "100", "1000"})
+    public int inventorySize;
+
+    private Character warrior;
+    private Character mage;
+    private AbstractMonster goblin;
+    private AbstractMonster troll;
+    private CombatSystem combatSystem;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quiet();
+        warrior = BenchmarkFixtures.createHero("warrior", inventorySize);
+        mage = BenchmarkFixtures.createHero("mage", inventorySize);
+        MonsterFactory monsterFactory = new MonsterFactory();
+        goblin = monsterFactory.createMonster("goblin");
+        troll = monsterFactory.createMonster("troll");
+        combatSystem = new CombatSystem();
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public int warriorAttack() {
+        BenchmarkFixtures.restore(warrior);
+        return warrior.attack(random);
+    }
+
+    @Benchmark
+    public int mageAttack() {
+        BenchmarkFixtures.restore(mage);
+        return mage.attack(random);
+    }
+
+    @Benchmark
+    public int monsterAttack() {
+        return troll.attack(random);
+    }
+
+    @Benchmark
+    public int executeAttack() {
+        BenchmarkFixtures.restore(warrior);
+        goblin.setHealth(goblin.getMaxHealth());
+        combatSystem.executeAttack(warrior, goblin, random);
+        return goblin.getHealth();
+    }
+
+    @Benchmark
+    public int executeMonsterAttack() {
+        BenchmarkFixtures.restore(warrior);
+        combatSystem.executeMonsterAttack(troll, warrior, random);
+        return warrior.getHealth();
+    }
+}
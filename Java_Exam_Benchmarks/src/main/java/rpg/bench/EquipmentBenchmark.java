@@ -0,0 +1,65 @@
+package rpg.bench;
+
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.iterator.Item;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EquipmentBenchmark - Cost of changing equipment and reading the bonus
+ * <p>
+ * Swapping weapons goes through the inventory lookup and the equipment
+ * observer that keeps CharacterStats up to date; reading the effective
+ * damage is what every attack does. Both are measured against inventories
+ * of increasing size.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EquipmentBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int inventorySize;
+
+    private Character hero;
+    private Item[] weapons;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quiet();
+        hero = BenchmarkFixtures.createHero("warrior", inventorySize);
+        weapons = hero instanceof AbstractCharacter character
+                ? character.getInventory().getAllItems().stream()
+                        .filter(item -> item.getType() == Item.ItemType.WEAPON)
+                        .toArray(Item[]::new)
+                : new Item[0];
+    }
+
+    @Benchmark
+    public int swapWeapon() {
+        hero.equipItem(weapons[next]);
+        next = (next + 1) % weapons.length;
+        return ((AbstractCharacter) hero).getStats().getEffectiveDamage();
+    }
+
+    @Benchmark
+    public int effectiveDamage() {
+        return ((AbstractCharacter) hero).getStats().getEffectiveDamage();
+    }
+}
@@ -0,0 +1,89 @@
+package rpg.bench;
+
+import rpg.combat.CombatSystem;
+import rpg.factory.Character;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.factoryMonster.MonsterFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FullFightBenchmark - Throughput of complete fights for every pairing
+ * <p>
+ * Each operation copies the hero, creates a fresh monster and fights until
+ * one side falls, with the same turn order as DungeonExplorer and
+ * CombatSimulator. Object creation is part of the measurement, as it is
+ * for every fight in the game; run with the GC profiler to see the
+ * allocation rate per fight.
+ * </p>
+ * <p>
+ * The logLevel parameter runs every pairing twice: at INFO, the game's
+ * default, per-hit messages are skipped; at FINE every hit is formatted
+ * and written through the game logger's console handler, which shows what
+ * combat logging costs. Redirect stderr when running the FINE variant.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FullFightBenchmark {
+
+    // Safety limit for fights that cannot end (e.g. zero damage on both sides)
+    private static final int MAX_TURNS = 10_000;
+
+    @Param({"warrior", "mage"})
+    public String heroClass;
+
+    @Param({"goblin", "troll"})
+    public String monsterType;
+
+    @Param({"0", "100"})
+    public int inventorySize;
+
+    @Param({"INFO", "FINE"})
+    public String logLevel;
+
+    private Character template;
+    private MonsterFactory monsterFactory;
+    private CombatSystem combatSystem;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.quiet(Level.parse(logLevel));
+        template = BenchmarkFixtures.createHero(heroClass, inventorySize);
+        monsterFactory = new MonsterFactory();
+        combatSystem = new CombatSystem();
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public boolean fight() {
+        Character hero = BenchmarkFixtures.CHARACTER_FACTORY.createCopy(template);
+        AbstractMonster monster = monsterFactory.createMonster(monsterType);
+
+        int turns = 0;
+        while (hero.isAlive() && monster.isAlive() && turns++ < MAX_TURNS) {
+            combatSystem.executeAttack(hero, monster, random);
+            if (monster.isAlive()) {
+                combatSystem.executeMonsterAttack(monster, hero, random);
+            }
+        }
+        return hero.isAlive();
+    }
+}
@@ -1,5 +1,6 @@
 package rpg;
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 import java.util.logging.Logger;
 
 /**
@@ -17,7 +18,7 @@ public class App {
         } catch (Exception e) {
             // Final exception shield
             logger.severe("Unhandled exception in main: " + e.getMessage());
-            System.out.println("Si è verificato un errore critico. L'applicazione verrà chiusa.");
+            OutputContext.get().println("Si è verificato un errore critico. L'applicazione verrà chiusa.");
             System.exit(1);
         }
     }
@@ -3,6 +3,7 @@ package rpg;
 import rpg.menu.CharacterMenu.ReturnToMainMenuException;
 import rpg.menu.MainMenu;
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 import rpg.observer.GameUIObserver;
 import rpg.observer.StaminaRecoverySystem;
 
@@ -58,7 +59,7 @@ public class GameManager {
             
         } catch (Exception e) {
             logger.severe("Critical application error: " + e.getMessage());
-            System.out.println("Si è verificato un errore critico. L'applicazione verrà chiusa.");
+            OutputContext.get().println("Si è verificato un errore critico. L'applicazione verrà chiusa.");
             System.exit(1);
         }
     }
@@ -111,8 +112,8 @@ public class GameManager {
      * </p>
      */
     private void showWelcome() {
-        System.out.println("=== RPG ADVENTURE GAME ===");
-        System.out.println("Un gioco di ruolo testuale in Java");
+        OutputContext.get().println("=== RPG ADVENTURE GAME ===");
+        OutputContext.get().println("Un gioco di ruolo testuale in Java");
     }
     
     /**
@@ -140,15 +141,15 @@ public class GameManager {
                 keepRunning = false;
             } catch (ReturnToMainMenuException e) {
                 logger.info("Returned to main menu from character menu");
-                System.out.println("\n--- Tornato al Menu Principale ---\n");
+                OutputContext.get().println("\n--- Tornato al Menu Principale ---\n");
             } catch (Exception e) {
                 logger.severe("Error in main menu loop: " + e.getMessage());
-                System.out.println("Errore nel menu principale.");
+                OutputContext.get().println("Errore nel menu principale.");
                 keepRunning = false;
             }
         }
 
-        System.out.println("\nGrazie per aver giocato!");
+        OutputContext.get().println("\nGrazie per aver giocato!");
         logger.info("Application terminated normally");
     }
 }
\ No newline at end of file
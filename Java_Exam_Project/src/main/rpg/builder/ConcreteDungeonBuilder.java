@@ -19,6 +19,7 @@ public class ConcreteDungeonBuilder implements DungeonBuilder {
     private String description;
     private int goldReward;
     private String monsterType;
+    private int monsterCount;
     
     /**
      * Resets the builder to its default state
@@ -31,6 +32,7 @@ public class ConcreteDungeonBuilder implements DungeonBuilder {
         this.description = "A mysterious dungeon";
         this.goldReward = 50;
         this.monsterType = "goblin";
+        this.monsterCount = 1;
         logger.fine("DungeonBuilder reset");
         return this;
     }
@@ -87,6 +89,19 @@ public class ConcreteDungeonBuilder implements DungeonBuilder {
         return this;
     }
     
+    /**
+     * Sets the number of monsters fought at once in the dungeon
+     * 
+     * @param monsterCount The number of monsters (1 for a single monster)
+     * @return The builder instance for method chaining
+     */
+    @Override
+    public DungeonBuilder setMonsterCount(int monsterCount) {
+        this.monsterCount = monsterCount;
+        logger.fine("Dungeon monster count set: " + monsterCount);
+        return this;
+    }
+    
     /**
      * Builds and returns a new Dungeon instance with the configured properties
      * 
@@ -95,6 +110,6 @@ public class ConcreteDungeonBuilder implements DungeonBuilder {
     @Override
     public Dungeon build() {
         logger.info("Building dungeon: " + name);
-        return new Dungeon(name, description, goldReward, monsterType);
+        return new Dungeon(name, description, goldReward, monsterType, monsterCount);
     }
 }
\ No newline at end of file
@@ -8,7 +8,8 @@ import java.util.logging.Logger;
  * Dungeon - Represents a dungeon in the game
  * <p>
  * This class is the product of the Builder pattern. It represents a dungeon
- * with various properties like name, description, gold reward, and monster type.
+ * with various properties like name, description, gold reward, monster type and
+ * number of monsters.
  * Instances of this class are created using the DungeonBuilder.
  * </p>
  */
@@ -20,6 +21,7 @@ public class Dungeon {
     private final String description;
     private final int goldReward;
     private final String monsterType;
+    private final int monsterCount;
     
     /**
      * Constructor for creating a new Dungeon
@@ -31,13 +33,15 @@ public class Dungeon {
      * @param description The description of the dungeon
      * @param goldReward The gold reward for completing the dungeon
      * @param monsterType The type of monster that inhabits the dungeon
+     * @param monsterCount The number of monsters fought at once
      */
-    Dungeon(String name, String description, int goldReward, String monsterType) {
+    Dungeon(String name, String description, int goldReward, String monsterType, int monsterCount) {
         this.name = name;
         this.description = description;
         this.goldReward = goldReward;
         this.monsterType = monsterType;
-        logger.info("Dungeon created: " + name + " with monster type " + monsterType);
+        this.monsterCount = Math.max(1, monsterCount);
+        logger.info("Dungeon created: " + name + " with " + this.monsterCount + " monsters of type " + monsterType);
     }
     
     /**
@@ -76,6 +80,15 @@ public class Dungeon {
         return monsterType;
     }
     
+    /**
+     * Gets the number of monsters fought at once in the dungeon
+     * 
+     * @return The monster count (1 for a single monster)
+     */
+    public int getMonsterCount() {
+        return monsterCount;
+    }
+    
     /**
      * Returns a string representation of the dungeon
      * 
@@ -48,6 +48,14 @@ public interface DungeonBuilder {
      */
     DungeonBuilder setMonsterType(String monsterType);
     
+    /**
+     * Sets the number of monsters fought at once in the dungeon
+     * 
+     * @param monsterCount The number of monsters (1 for a single monster)
+     * @return The builder instance for method chaining
+     */
+    DungeonBuilder setMonsterCount(int monsterCount);
+    
     /**
      * Builds and returns a new Dungeon instance with the configured properties
      * 
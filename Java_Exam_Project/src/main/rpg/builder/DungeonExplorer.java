@@ -1,16 +1,23 @@
 package rpg.builder;
 
+import rpg.combat.CombatJournal;
 import rpg.combat.CombatSystem;
+import rpg.combat.InitiativeScheduler;
 import rpg.factory.Character;
 import rpg.factoryMonster.AbstractMonster;
 import rpg.factoryMonster.MonsterFactory;
 import rpg.iterator.Item;
 import rpg.observer.StaminaRecoverySystem;
+import rpg.random.RandomService;
 import rpg.logger.GameLogger;
 import rpg.rpgSecurity.ExceptionHandler;
+import rpg.output.OutputContext;
 import java.util.logging.Logger;
+import java.io.InputStream;
 import java.util.Scanner;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 /**
  * DungeonExplorer - Manages the exploration of a dungeon
@@ -19,6 +26,11 @@ import java.util.List;
  * and execute a dungeon exploration. It handles the combat between the character and
  * monsters found in the dungeon.
  * </p>
+ * <p>
+ * Dungeons with more than one monster are fought as a horde: turn order
+ * comes from an InitiativeScheduler driven by the speed of every combatant,
+ * and the character always attacks the first monster still standing.
+ * </p>
  */
 public class DungeonExplorer {
     
@@ -26,6 +38,8 @@ public class DungeonExplorer {
     
     private Character character;
     private Dungeon dungeon;
+    private RandomGenerator random;
+    private CombatJournal journal;
     private final Scanner scanner;
     private final CombatSystem combatSystem;
     private final MonsterFactory monsterFactory;
@@ -34,7 +48,19 @@ public class DungeonExplorer {
      * Constructor that initializes the explorer with required components
      */
     public DungeonExplorer() {
-        this.scanner = new Scanner(System.in);
+        this(System.in);
+    }
+    
+    /**
+     * Constructor for an explorer that reads the player's commands from a given input
+     * <p>
+     * Used by ExplorationExecutor to give every session its own input.
+     * </p>
+     * 
+     * @param input The input the player's commands are read from
+     */
+    public DungeonExplorer(InputStream input) {
+        this.scanner = new Scanner(input);
         this.combatSystem = new CombatSystem();
         this.monsterFactory = new MonsterFactory();
     }
@@ -61,6 +87,39 @@ public class DungeonExplorer {
         return this;
     }
     
+    /**
+     * Sets the random generator used for the fights of this exploration
+     * <p>
+     * When no generator is set, a new stream of the default RandomService
+     * is used and its id is logged, so the exploration can be replayed.
+     * </p>
+     * 
+     * @param random The random generator to use
+     * @return The explorer instance for method chaining
+     */
+    public DungeonExplorer withRandom(RandomGenerator random) {
+        this.random = random;
+        return this;
+    }
+    
+    /**
+     * Sets the journal that records the fight of this exploration
+     * <p>
+     * The fight can then be checked with CombatReplayer. Only single-monster
+     * fights are recorded, as the replayer follows their turn order.
+     * Replaying requires the default random stream: when a generator is set
+     * with {@link #withRandom(RandomGenerator)}, the fight is recorded
+     * without a stream id and cannot be replayed.
+     * </p>
+     * 
+     * @param journal The journal to record into
+     * @return The explorer instance for method chaining
+     */
+    public DungeonExplorer withJournal(CombatJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+    
     /**
      * Starts the dungeon exploration
      * <p>
@@ -77,21 +136,46 @@ public class DungeonExplorer {
         }
         
         logger.info(character.getName() + " explores " + dungeon.getName());
-        System.out.println("\nYou are exploring " + dungeon.getName());
-        System.out.println(dungeon.getDescription());
+        long masterSeed = 0;
+        long streamId = -1;
+        if (random == null) {
+            RandomService randomService = RandomService.getDefault();
+            masterSeed = randomService.getMasterSeed();
+            streamId = randomService.nextStreamId();
+            random = randomService.streamFor(streamId);
+            logger.info("Exploration random stream: seed " + randomService.getMasterSeed() + ", stream " + streamId);
+        }
+        OutputContext.get().println("\nYou are exploring " + dungeon.getName());
+        OutputContext.get().println(dungeon.getDescription());
+        
+        if (dungeon.getMonsterCount() > 1) {
+            boolean victory = hordeCombat(dungeon.getMonsterCount());
+            if (victory) {
+                StaminaRecoverySystem.recoverStamina(character);
+            }
+            return victory;
+        }
         
         // Create a monster
         AbstractMonster monster = monsterFactory.createMonster(dungeon.getMonsterType());
         if (monster == null) {
             logger.warning("No monster created for type: " + dungeon.getMonsterType());
-            System.out.println("There are no monsters here.");
+            OutputContext.get().println("There are no monsters here.");
             return false;
         }
         
-        System.out.println("\nYou encountered a " + monster.getType() + "!");
+        OutputContext.get().println("\nYou encountered a " + monster.getType() + "!");
         
         // Fight
-        boolean victory = combat(monster);
+        RandomGenerator fightRandom = random;
+        if (journal != null) {
+            combatSystem.setJournal(journal);
+            fightRandom = journal.beginFight(masterSeed, streamId, random, character, monster);
+        }
+        boolean victory = combat(monster, fightRandom);
+        if (journal != null && (!monster.isAlive() || !character.isAlive())) {
+            journal.endFight(victory);
+        }
         
         // Recover stamina after the dungeon
         if (victory) {
@@ -109,48 +193,39 @@ public class DungeonExplorer {
      * </p>
      * 
      * @param monster The monster to fight against
+     * @param random The random generator of the fight
      * @return true if the character won the combat, false otherwise
      */
-    private boolean combat(AbstractMonster monster) {
+    private boolean combat(AbstractMonster monster, RandomGenerator random) {
         try {
             while (monster.isAlive() && character.isAlive()) {
                 // Show status
-                System.out.println("\nHP: " + character.getHealth() + "/" + character.getMaxHealth());
-                System.out.println("Enemy: " + monster.getHealth() + " HP");
+                OutputContext.get().println("\nHP: " + character.getHealth() + "/" + character.getMaxHealth());
+                OutputContext.get().println("Enemy: " + monster.getHealth() + " HP");
                 
                 // Player's turn
-                System.out.println("\n1. Attack");
-                System.out.print("What do you do? ");
+                OutputContext.get().println("\n1. Attack");
+                OutputContext.get().print("What do you do? ");
                 scanner.nextLine();
                 
-                combatSystem.executeAttack(character, monster);
+                combatSystem.executeAttack(character, monster, random);
                 
                 // Check if the monster is dead
                 if (!monster.isAlive()) {
                     logger.info(character.getName() + " defeated " + monster.getType());
-                    System.out.println("\nYou won!");
-                    System.out.println("You earned " + dungeon.getGoldReward() + " gold!");
-                    
-                    // Add dropped items to the character's inventory
-                    List<Item> droppedItems = monster.getDroppedItems();
-                    if (!droppedItems.isEmpty()) {
-                        System.out.println("\nYou found:");
-                        for (Item item : droppedItems) {
-                            character.addItem(item);
-                            // Confirmation message is already shown in the addItem method
-                        }
-                    }
-                    
+                    OutputContext.get().println("\nYou won!");
+                    OutputContext.get().println("You earned " + dungeon.getGoldReward() + " gold!");
+                    collectDrops(monster, random);
                     return true;
                 }
                 
                 // Monster's turn
-                combatSystem.executeMonsterAttack(monster, character);
+                combatSystem.executeMonsterAttack(monster, character, random);
                 
                 // Check if the character is dead
                 if (!character.isAlive()) {
                     logger.info(character.getName() + " was defeated by " + monster.getType());
-                    System.out.println("\nYou have been defeated!");
+                    OutputContext.get().println("\nYou have been defeated!");
                     return false;
                 }
             }
@@ -162,4 +237,105 @@ public class DungeonExplorer {
             return false;
         }
     }
+    
+    /**
+     * Handles the combat between the character and a horde of monsters
+     * <p>
+     * Every combatant acts when the InitiativeScheduler says so: fast
+     * monsters strike more often than slow ones. On its turn the character
+     * attacks the first monster still alive; defeated monsters are removed
+     * from the scheduler lazily, so each action costs O(log n) whatever the
+     * size of the horde.
+     * </p>
+     * 
+     * @param count The number of monsters in the horde
+     * @return true if the character defeated every monster, false otherwise
+     */
+    private boolean hordeCombat(int count) {
+        List<AbstractMonster> monsters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AbstractMonster monster = monsterFactory.createMonster(dungeon.getMonsterType());
+            if (monster == null) {
+                logger.warning("No monster created for type: " + dungeon.getMonsterType());
+                OutputContext.get().println("There are no monsters here.");
+                return false;
+            }
+            monsters.add(monster);
+        }
+        OutputContext.get().println("\nYou encountered " + count + " " + monsters.get(0).getType() + "s!");
+        
+        // Id 0 is the character, id i + 1 is monsters.get(i)
+        InitiativeScheduler scheduler = new InitiativeScheduler(count + 1);
+        int characterId = scheduler.add(character.getSpeed());
+        for (AbstractMonster monster : monsters) {
+            scheduler.add(monster.getSpeed());
+        }
+        
+        try {
+            int target = 0;
+            while (character.isAlive() && scheduler.getActiveCount() > 1) {
+                int id = scheduler.next();
+                if (id != characterId) {
+                    // Monster's turn
+                    AbstractMonster monster = monsters.get(id - 1);
+                    combatSystem.executeMonsterAttack(monster, character, random);
+                    if (!character.isAlive()) {
+                        logger.info(character.getName() + " was defeated by " + monster.getType());
+                        OutputContext.get().println("\nYou have been defeated!");
+                        return false;
+                    }
+                    continue;
+                }
+                
+                // Player's turn: attack the first monster still standing
+                while (!scheduler.isActive(target + 1)) {
+                    target++;
+                }
+                AbstractMonster monster = monsters.get(target);
+                OutputContext.get().println("\nHP: " + character.getHealth() + "/" + character.getMaxHealth());
+                OutputContext.get().println("Enemies left: " + (scheduler.getActiveCount() - 1)
+                        + " - target: " + monster.getHealth() + " HP");
+                OutputContext.get().println("\n1. Attack");
+                OutputContext.get().print("What do you do? ");
+                scanner.nextLine();
+                
+                combatSystem.executeAttack(character, monster, random);
+                if (!monster.isAlive()) {
+                    scheduler.remove(target + 1);
+                    logger.info(character.getName() + " defeated " + monster.getType() + " #" + (target + 1));
+                    OutputContext.get().println("You defeated the " + monster.getType() + "!");
+                    collectDrops(monster, random);
+                }
+            }
+            
+            if (!character.isAlive()) {
+                return false;
+            }
+            logger.info(character.getName() + " defeated a horde of " + count + " " + dungeon.getMonsterType());
+            OutputContext.get().println("\nYou won!");
+            OutputContext.get().println("You earned " + dungeon.getGoldReward() + " gold!");
+            return true;
+        } catch (Exception e) {
+            logger.severe("Error during combat: " + e.getMessage());
+            ExceptionHandler.handleException(e, "An error occurred during combat.");
+            return false;
+        }
+    }
+    
+    /**
+     * Adds the items dropped by a defeated monster to the character's inventory
+     * 
+     * @param monster The defeated monster
+     * @param random The random generator of the fight
+     */
+    private void collectDrops(AbstractMonster monster, RandomGenerator random) {
+        List<Item> droppedItems = monster.getDroppedItems(random);
+        if (!droppedItems.isEmpty()) {
+            OutputContext.get().println("\nYou found:");
+            for (Item item : droppedItems) {
+                character.addItem(item);
+                // Confirmation message is already shown in the addItem method
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package rpg.builder;
+
+import rpg.factory.Character;
+import rpg.logger.GameLogger;
+import rpg.output.GameOutput;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import rpg.random.RandomContext;
+import rpg.random.RandomService;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
+
+/**
+ * ExplorationExecutor - Runs many dungeon explorations at the same time
+ * <p>
+ * Every exploration session runs a DungeonExplorer on its own virtual
+ * thread, with its own context:
+ * <ul>
+ *   <li>input: the stream the player's commands are read from</li>
+ *   <li>output: the GameOutput bound to the thread with OutputContext</li>
+ *   <li>random: a stream of the executor's RandomService, bound with RandomContext</li>
+ * </ul>
+ * A session blocked waiting for its player's input parks its virtual thread
+ * and does not hold a platform thread, so tens of thousands of sessions can
+ * run in one JVM.
+ * </p>
+ * <p>
+ * Stream ids are reserved in submission order, so a set of sessions
+ * submitted in the same order with the same master seed fights the same
+ * fights. A character can only be in one session at a time, as characters
+ * are not thread-safe.
+ * </p>
+ */
+public class ExplorationExecutor implements AutoCloseable {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    private final ExecutorService executor;
+    private final RandomService randomService;
+    private final Set<Character> exploring = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates an executor using the game-wide RandomService
+     */
+    public ExplorationExecutor() {
+        this(RandomService.getDefault());
+    }
+
+    /**
+     * Creates an executor whose sessions draw their random streams from the given service
+     *
+     * @param randomService The service providing one stream per session
+     */
+    public ExplorationExecutor(RandomService randomService) {
+        if (randomService == null) {
+            throw new IllegalArgumentException("Random service cannot be null");
+        }
+        this.randomService = randomService;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Starts an exploration session
+     *
+     * @param character The character exploring the dungeon
+     * @param dungeon The dungeon to explore
+     * @param input The input the player's commands are read from
+     * @param output The output receiving the session's messages (null to discard them)
+     * @return A future completed with the result of DungeonExplorer.build()
+     * @throws IllegalArgumentException If the character, dungeon or input is null
+     * @throws IllegalStateException If the character is already exploring
+     */
+    public CompletableFuture<Boolean> submit(Character character, Dungeon dungeon, InputStream input,
+                                             GameOutput output) {
+        if (character == null || dungeon == null || input == null) {
+            throw new IllegalArgumentException("Character, dungeon and input are required");
+        }
+        if (!exploring.add(character)) {
+            throw new IllegalStateException(character.getName() + " is already exploring a dungeon");
+        }
+
+        long streamId = randomService.nextStreamId();
+        GameOutput sessionOutput = output != null ? output : NullOutput.INSTANCE;
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return runSession(character, dungeon, input, sessionOutput, streamId);
+                } finally {
+                    exploring.remove(character);
+                }
+            }, executor);
+        } catch (RuntimeException e) {
+            exploring.remove(character);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of sessions currently running or waiting to run
+     *
+     * @return The number of active sessions
+     */
+    public int getActiveSessions() {
+        return exploring.size();
+    }
+
+    /**
+     * Waits for the running sessions to finish and releases the executor
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Runs one session on the current virtual thread
+     *
+     * @param character The character exploring the dungeon
+     * @param dungeon The dungeon to explore
+     * @param input The session's input
+     * @param output The session's output
+     * @param streamId The id of the session's random stream
+     * @return true if the character survived the exploration
+     */
+    private boolean runSession(Character character, Dungeon dungeon, InputStream input, GameOutput output,
+                               long streamId) {
+        RandomGenerator random = randomService.streamFor(streamId);
+        logger.fine("Exploration session for " + character.getName() + ": seed "
+                + randomService.getMasterSeed() + ", stream " + streamId);
+        return OutputContext.callWith(output, () -> RandomContext.callWith(random, () ->
+                new DungeonExplorer(input)
+                        .withCharacter(character)
+                        .withDungeon(dungeon)
+                        .withRandom(random)
+                        .build()));
+    }
+}
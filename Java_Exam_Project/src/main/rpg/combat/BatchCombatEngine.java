@@ -0,0 +1,339 @@
+package rpg.combat;
+
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factory.Mage;
+import rpg.factory.Warrior;
+import rpg.factoryMonster.AbstractMonster;
+import java.util.Arrays;
+
+/**
+ * BatchCombatEngine - Resolves thousands of encounters with primitive arrays
+ * <p>
+ * Instead of walking Character and AbstractMonster objects, this engine
+ * stores the state of every encounter in parallel primitive arrays
+ * (structure of arrays): health, stamina, mana and damage of the hero,
+ * health, damage and variance of the monster. {@link #tick()} advances all
+ * encounters by one turn in a single tight loop over these arrays, with no
+ * virtual calls, no allocation and sequential memory access.
+ * </p>
+ * <p>
+ * The rules are the same as CombatSystem and DungeonExplorer: the hero
+ * attacks first, then the monster strikes back if it survived. Each
+ * encounter has its own SplitMix64 random state, so results are
+ * reproducible from the seed given at import time (the sequence differs
+ * from the object-based combat, which uses SplittableRandom).
+ * </p>
+ * <p>
+ * Encounters are imported from existing Warrior, Mage and monster objects
+ * with {@link #add(Character, AbstractMonster, long)} and written back with
+ * {@link #exportTo(int, Character, AbstractMonster)}. This class is not
+ * thread-safe.
+ * </p>
+ */
+public class BatchCombatEngine {
+
+    /** Encounter still in progress */
+    public static final byte ONGOING = 0;
+    /** Encounter won by the hero */
+    public static final byte HERO_WON = 1;
+    /** Encounter won by the monster */
+    public static final byte MONSTER_WON = 2;
+
+    private static final byte WARRIOR = 0;
+    private static final byte MAGE = 1;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final CharacterFactory characterFactory = new CharacterFactory();
+
+    private int size;
+    private byte[] heroClass;
+    private int[] heroHealth;
+    private int[] heroStamina;
+    private int[] heroMana;
+    private int[] heroDamage;
+    private int[] monsterHealth;
+    private int[] monsterDamage;
+    private int[] monsterVariance;
+    private int[] turns;
+    private byte[] status;
+    private long[] randomState;
+
+    /**
+     * Creates an engine with room for the given number of encounters
+     *
+     * @param initialCapacity Number of encounters to allocate space for
+     */
+    public BatchCombatEngine(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        heroClass = new byte[capacity];
+        heroHealth = new int[capacity];
+        heroStamina = new int[capacity];
+        heroMana = new int[capacity];
+        heroDamage = new int[capacity];
+        monsterHealth = new int[capacity];
+        monsterDamage = new int[capacity];
+        monsterVariance = new int[capacity];
+        turns = new int[capacity];
+        status = new byte[capacity];
+        randomState = new long[capacity];
+    }
+
+    /**
+     * Imports an encounter between a hero and a monster
+     * <p>
+     * The current state of both objects is copied into the arrays; the
+     * objects themselves are not modified until {@link #exportTo} is called.
+     * Equipment bonuses are folded into the hero's damage.
+     * </p>
+     *
+     * @param hero The hero (Warrior or Mage)
+     * @param monster The monster (e.g. Goblin or Troll)
+     * @param seed Seed of the encounter's random state
+     * @return The index of the encounter
+     * @throws IllegalArgumentException If the hero type is not supported
+     */
+    public int add(Character hero, AbstractMonster monster, long seed) {
+        if (!(hero instanceof Warrior) && !(hero instanceof Mage)) {
+            throw new IllegalArgumentException("Unsupported hero type for batch combat");
+        }
+        if (monster == null) {
+            throw new IllegalArgumentException("Monster cannot be null");
+        }
+        if (size == status.length) {
+            grow();
+        }
+
+        int lane = size++;
+        heroClass[lane] = hero instanceof Mage ? MAGE : WARRIOR;
+        heroHealth[lane] = hero.getHealth();
+        heroStamina[lane] = hero.getStamina();
+        heroMana[lane] = hero instanceof Mage mage ? mage.getMana() : 0;
+        heroDamage[lane] = ((AbstractCharacter) hero).getStats().getEffectiveDamage();
+        monsterHealth[lane] = monster.getHealth();
+        monsterDamage[lane] = monster.getBaseDamage();
+        monsterVariance[lane] = (int) (monster.getBaseDamage() * 0.2);
+        turns[lane] = 0;
+        status[lane] = !hero.isAlive() ? MONSTER_WON : (!monster.isAlive() ? HERO_WON : ONGOING);
+        randomState[lane] = seed;
+        return lane;
+    }
+
+    /**
+     * Advances every ongoing encounter by one turn
+     *
+     * @return The number of encounters still ongoing after this turn
+     */
+    public int tick() {
+        final byte[] heroClass = this.heroClass;
+        final int[] heroHealth = this.heroHealth;
+        final int[] heroStamina = this.heroStamina;
+        final int[] heroMana = this.heroMana;
+        final int[] heroDamage = this.heroDamage;
+        final int[] monsterHealth = this.monsterHealth;
+        final int[] monsterDamage = this.monsterDamage;
+        final int[] monsterVariance = this.monsterVariance;
+        final int[] turns = this.turns;
+        final byte[] status = this.status;
+        final long[] randomState = this.randomState;
+
+        int ongoing = 0;
+        for (int i = 0; i < size; i++) {
+            if (status[i] != ONGOING) {
+                continue;
+            }
+            turns[i]++;
+
+            // Hero attack: same costs and rolls as Warrior.attack() and Mage.attack()
+            long state = randomState[i] + GOLDEN_GAMMA;
+            int roll = (int) mix64(state) >>> 1;
+            int stamina = heroStamina[i];
+            int damage;
+            if (heroClass[i] == WARRIOR) {
+                boolean canAttack = stamina >= 5;
+                damage = canAttack ? Math.max(1, heroDamage[i] + roll % 5) : 0;
+                heroStamina[i] = canAttack ? stamina - 5 : stamina;
+            } else {
+                boolean canAttack = stamina >= 3;
+                boolean spell = canAttack && heroMana[i] >= 10;
+                damage = !canAttack ? 0 : (spell ? heroDamage[i] + 5 + roll % 10 : heroDamage[i] + roll % 3);
+                heroStamina[i] = canAttack ? stamina - 3 : stamina;
+                heroMana[i] = spell ? heroMana[i] - 10 : heroMana[i];
+            }
+
+            int monsterLeft = Math.max(0, monsterHealth[i] - damage);
+            monsterHealth[i] = monsterLeft;
+            if (monsterLeft == 0) {
+                status[i] = HERO_WON;
+                randomState[i] = state;
+                continue;
+            }
+
+            // Monster attack: same roll as AbstractMonster.calculateDamage()
+            state += GOLDEN_GAMMA;
+            int variance = monsterVariance[i];
+            int variation = ((int) mix64(state) >>> 1) % (2 * variance + 1) - variance;
+            int heroLeft = Math.max(0, heroHealth[i] - Math.max(1, monsterDamage[i] + variation));
+            heroHealth[i] = heroLeft;
+            randomState[i] = state;
+
+            if (heroLeft == 0) {
+                status[i] = MONSTER_WON;
+            } else {
+                ongoing++;
+            }
+        }
+        return ongoing;
+    }
+
+    /**
+     * Runs turns until every encounter is finished or the turn limit is reached
+     * <p>
+     * Uses the same bound as the fight loops: a turn is only run while an
+     * encounter is ongoing and fewer than maxTurns turns have been run.
+     * </p>
+     *
+     * @param maxTurns Maximum number of turns to run
+     * @return The number of turns actually run
+     */
+    public int runToCompletion(int maxTurns) {
+        int ongoing = countOngoing();
+        int turnsRun = 0;
+        while (ongoing > 0 && turnsRun < maxTurns) {
+            turnsRun++;
+            ongoing = tick();
+        }
+        return turnsRun;
+    }
+
+    /**
+     * Counts the encounters that are not finished yet
+     *
+     * @return The number of ongoing encounters
+     */
+    private int countOngoing() {
+        int ongoing = 0;
+        for (int i = 0; i < size; i++) {
+            if (status[i] == ONGOING) {
+                ongoing++;
+            }
+        }
+        return ongoing;
+    }
+
+    /**
+     * Writes the state of an encounter back to the hero and monster objects
+     *
+     * @param lane The encounter index returned by {@link #add}
+     * @param hero The hero object to update
+     * @param monster The monster object to update
+     */
+    public void exportTo(int lane, Character hero, AbstractMonster monster) {
+        checkLane(lane);
+        characterFactory.applyCombatState(hero, heroHealth[lane], heroStamina[lane], heroMana[lane]);
+        monster.setHealth(monsterHealth[lane]);
+    }
+
+    /**
+     * Removes all encounters, keeping the allocated arrays
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the number of imported encounters
+     *
+     * @return The number of encounters
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the status of an encounter
+     *
+     * @param lane The encounter index
+     * @return ONGOING, HERO_WON or MONSTER_WON
+     */
+    public byte getStatus(int lane) {
+        checkLane(lane);
+        return status[lane];
+    }
+
+    /**
+     * Gets the number of turns an encounter has lasted so far
+     *
+     * @param lane The encounter index
+     * @return The number of turns
+     */
+    public int getTurns(int lane) {
+        checkLane(lane);
+        return turns[lane];
+    }
+
+    /**
+     * Gets the hero's current health in an encounter
+     *
+     * @param lane The encounter index
+     * @return The hero's health
+     */
+    public int getHeroHealth(int lane) {
+        checkLane(lane);
+        return heroHealth[lane];
+    }
+
+    /**
+     * Gets the monster's current health in an encounter
+     *
+     * @param lane The encounter index
+     * @return The monster's health
+     */
+    public int getMonsterHealth(int lane) {
+        checkLane(lane);
+        return monsterHealth[lane];
+    }
+
+    /**
+     * Validates an encounter index
+     *
+     * @param lane The index to check
+     * @throws IndexOutOfBoundsException If the index is not a valid encounter
+     */
+    private void checkLane(int lane) {
+        if (lane < 0 || lane >= size) {
+            throw new IndexOutOfBoundsException("No encounter at index " + lane);
+        }
+    }
+
+    /**
+     * Doubles the capacity of every array
+     */
+    private void grow() {
+        int capacity = status.length * 2;
+        heroClass = Arrays.copyOf(heroClass, capacity);
+        heroHealth = Arrays.copyOf(heroHealth, capacity);
+        heroStamina = Arrays.copyOf(heroStamina, capacity);
+        heroMana = Arrays.copyOf(heroMana, capacity);
+        heroDamage = Arrays.copyOf(heroDamage, capacity);
+        monsterHealth = Arrays.copyOf(monsterHealth, capacity);
+        monsterDamage = Arrays.copyOf(monsterDamage, capacity);
+        monsterVariance = Arrays.copyOf(monsterVariance, capacity);
+        turns = Arrays.copyOf(turns, capacity);
+        status = Arrays.copyOf(status, capacity);
+        randomState = Arrays.copyOf(randomState, capacity);
+    }
+
+    /**
+     * SplitMix64 output function
+     *
+     * @param z The random state
+     * @return A well mixed 64-bit value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
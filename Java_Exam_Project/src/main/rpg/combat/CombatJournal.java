@@ -0,0 +1,335 @@
+package rpg.combat;
+
+import rpg.factory.Character;
+import rpg.factory.Mage;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.logger.GameLogger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
+
+/**
+ * CombatJournal - Compact binary trace of fights
+ * <p>
+ * Every fight event is encoded as a fixed-size record (see JournalRecord)
+ * into a buffer allocated once when the journal is created, so recording a
+ * hit costs a handful of primitive writes instead of building log strings.
+ * </p>
+ * <p>
+ * A journal either keeps its records in memory, where the buffer works as
+ * a ring and the oldest records are overwritten once it is full, or is
+ * backed by a file, where the buffer is written to disk as one block each
+ * time it fills up and on {@link #flush()}.
+ * </p>
+ * <p>
+ * The random draws of a fight are captured by wrapping its generator:
+ * {@link #beginFight(long, long, RandomGenerator, Character, AbstractMonster)}
+ * returns the generator the fight must use. The fight can later be checked
+ * with CombatReplayer.
+ * This class is not thread-safe; every exploration uses its own journal.
+ * </p>
+ */
+public class CombatJournal implements AutoCloseable {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    /** Default number of records held by the buffer */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final RecordingRandom recorder = new RecordingRandom();
+    private boolean wrapped;
+    private int fightId = -1;
+    private int turn;
+    private long recordCount;
+
+    /**
+     * Creates an in-memory journal holding the last records written
+     *
+     * @param capacity Number of records kept in the ring buffer
+     */
+    public CombatJournal(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Creates a journal that appends its records to a file
+     *
+     * @param file The journal file (created if missing)
+     * @param capacity Number of records per block written to disk
+     * @throws IOException If the file cannot be opened
+     */
+    public CombatJournal(Path file, int capacity) throws IOException {
+        this(capacity, FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        logger.info("Combat journal opened: " + file);
+    }
+
+    private CombatJournal(int capacity, FileChannel channel) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Journal capacity must be positive");
+        }
+        this.buffer = ByteBuffer.allocateDirect(capacity * JournalRecord.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+    }
+
+    /**
+     * Starts a new fight
+     * <p>
+     * The master seed and stream id identify the random stream of the fight
+     * (see RandomService); together with the starting state of both sides
+     * this is all the replayer needs to re-run it. Use a negative stream id
+     * when the stream cannot be recreated.
+     * </p>
+     *
+     * @param masterSeed The master seed of the random service
+     * @param streamId The id of the fight's random stream
+     * @param random The random generator of the fight
+     * @param character The character, in its state at the start of the fight
+     * @param monster The monster, in its state at the start of the fight
+     * @return The generator the fight must use, so that its draws are recorded
+     */
+    public RandomGenerator beginFight(long masterSeed, long streamId, RandomGenerator random,
+                                      Character character, AbstractMonster monster) {
+        fightId++;
+        turn = 0;
+        recorder.reset(random);
+
+        int position = reserve(JournalRecord.FIGHT_START);
+        buffer.putLong(position + 12, masterSeed);
+        buffer.putLong(position + 20, streamId);
+
+        position = reserve(JournalRecord.FIGHT_STATE);
+        buffer.putInt(position + 12, character.getHealth());
+        buffer.putInt(position + 16, character.getStamina());
+        buffer.putInt(position + 20, character instanceof Mage mage ? mage.getMana() : 0);
+        buffer.putInt(position + 24, monster.getHealth());
+        return recorder;
+    }
+
+    /**
+     * Records one attack
+     * <p>
+     * A new turn starts with every attack of the character. The random draws
+     * made since the previous record are attributed to this attack.
+     * </p>
+     *
+     * @param attacker JournalRecord.HERO or JournalRecord.MONSTER
+     * @param damage The damage rolled by the attacker (0 for a miss)
+     * @param healthAfter The target's health after the hit
+     */
+    public void recordAttack(byte attacker, int damage, int healthAfter) {
+        if (attacker == JournalRecord.HERO) {
+            turn++;
+        }
+        int position = reserve(JournalRecord.ATTACK);
+        buffer.put(position + 9, attacker);
+        buffer.put(position + 10, attacker == JournalRecord.HERO ? JournalRecord.MONSTER : JournalRecord.HERO);
+        buffer.put(position + 11, (byte) Math.min(255, recorder.draws));
+        buffer.putInt(position + 12, damage);
+        buffer.putInt(position + 16, healthAfter);
+        buffer.putInt(position + 20, recorder.lastDraw);
+        recorder.draws = 0;
+        recorder.lastDraw = 0;
+    }
+
+    /**
+     * Ends the current fight
+     *
+     * @param heroWon Whether the character won the fight
+     */
+    public void endFight(boolean heroWon) {
+        int position = reserve(JournalRecord.FIGHT_END);
+        buffer.put(position + 9, heroWon ? JournalRecord.HERO : JournalRecord.MONSTER);
+    }
+
+    /**
+     * Gets the total number of records written since the journal was created
+     *
+     * @return The record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Decodes the records currently held in memory, oldest first
+     * <p>
+     * For a file-backed journal these are the records not yet flushed.
+     * </p>
+     *
+     * @return The buffered records
+     */
+    public List<JournalRecord> getRecords() {
+        List<JournalRecord> records = new ArrayList<>();
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = buffer.position();
+        if (wrapped) {
+            view.position(end);
+            while (view.position() < view.capacity()) {
+                records.add(JournalRecord.decode(view));
+            }
+        }
+        view.position(0);
+        while (view.position() < end) {
+            records.add(JournalRecord.decode(view));
+        }
+        return records;
+    }
+
+    /**
+     * Writes the buffered records to the journal file
+     * <p>
+     * Does nothing for in-memory journals.
+     * </p>
+     *
+     * @throws IOException If writing fails
+     */
+    public void flush() throws IOException {
+        if (channel == null || buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes the remaining records and closes the journal file
+     *
+     * @throws IOException If writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads every record of a journal file
+     *
+     * @param file The journal file
+     * @return The records, in the order they were written
+     * @throws IOException If the file cannot be read or is truncated
+     */
+    public static List<JournalRecord> read(Path file) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.remaining() % JournalRecord.SIZE != 0) {
+            throw new IOException("Truncated combat journal: " + file);
+        }
+        List<JournalRecord> records = new ArrayList<>(data.remaining() / JournalRecord.SIZE);
+        while (data.hasRemaining()) {
+            records.add(JournalRecord.decode(data));
+        }
+        return records;
+    }
+
+    /**
+     * Reserves space for one record, flushing or wrapping a full buffer
+     * <p>
+     * The record is cleared and its header (fight id, turn, type) written.
+     * </p>
+     *
+     * @param type The record type
+     * @return The position of the record in the buffer
+     */
+    private int reserve(byte type) {
+        if (!buffer.hasRemaining()) {
+            if (channel != null) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot write combat journal", e);
+                }
+            } else {
+                buffer.clear();
+                wrapped = true;
+            }
+        }
+        int position = buffer.position();
+        buffer.putLong(position, 0L).putLong(position + 8, 0L)
+                .putLong(position + 16, 0L).putLong(position + 24, 0L);
+        buffer.putInt(position, fightId).putInt(position + 4, turn).put(position + 8, type);
+        buffer.position(position + JournalRecord.SIZE);
+        recordCount++;
+        return position;
+    }
+
+    /**
+     * RecordingRandom - Counts the draws made by a fight
+     * <p>
+     * Bounded draws are delegated unchanged, so a journaled fight rolls
+     * exactly the same numbers as one without a journal.
+     * </p>
+     */
+    private static final class RecordingRandom implements RandomGenerator {
+        private RandomGenerator delegate;
+        private int draws;
+        private int lastDraw;
+
+        void reset(RandomGenerator random) {
+            if (random == null) {
+                throw new IllegalArgumentException("Random generator cannot be null");
+            }
+            delegate = random instanceof RecordingRandom recording ? recording.delegate : random;
+            draws = 0;
+            lastDraw = 0;
+        }
+
+        @Override
+        public long nextLong() {
+            long value = delegate.nextLong();
+            draws++;
+            lastDraw = (int) value;
+            return value;
+        }
+
+        @Override
+        public int nextInt() {
+            int value = delegate.nextInt();
+            draws++;
+            lastDraw = value;
+            return value;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            int value = delegate.nextInt(bound);
+            draws++;
+            lastDraw = value;
+            return value;
+        }
+
+        @Override
+        public int nextInt(int origin, int bound) {
+            int value = delegate.nextInt(origin, bound);
+            draws++;
+            lastDraw = value;
+            return value;
+        }
+
+        @Override
+        public double nextDouble() {
+            double value = delegate.nextDouble();
+            draws++;
+            lastDraw = (int) Double.doubleToRawLongBits(value);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package rpg.combat;
+
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.factoryMonster.MonsterFactory;
+import rpg.logger.GameLogger;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import rpg.random.RandomService;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
+
+/**
+ * CombatReplayer - Re-runs journaled fights and checks them against the journal
+ * <p>
+ * Every fight of a journal is replayed through a CombatSystem from its
+ * recorded random stream and starting state, following the same turn order
+ * as DungeonExplorer. The replay is journaled as well, and its records must
+ * match the original ones exactly: any difference in damage, health or
+ * random draws means the fight did not happen as the rules say.
+ * </p>
+ * <p>
+ * The journal does not store the character's class, base damage or
+ * equipment, so the replay needs a template of the character as it was
+ * during the fights (e.g. loaded from the save sent with a bug report).
+ * </p>
+ */
+public class CombatReplayer {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    // Safety limit for fights that cannot end (e.g. zero damage on both sides)
+    private static final int MAX_TURNS = 10_000;
+
+    private final CharacterFactory characterFactory = new CharacterFactory();
+    private final MonsterFactory monsterFactory = new MonsterFactory();
+
+    /**
+     * Replays every fight of a journal file
+     *
+     * @param file The journal file
+     * @param template The character that fought, in its class and equipment
+     * @param monsterType The monster type of the fights
+     * @return The outcome of the replay
+     * @throws IOException If the journal cannot be read
+     */
+    public Report replay(Path file, Character template, String monsterType) throws IOException {
+        return replay(CombatJournal.read(file), template, monsterType);
+    }
+
+    /**
+     * Replays every fight of a list of journal records
+     * <p>
+     * Records before the first fight start (e.g. the tail of a fight
+     * overwritten in an in-memory ring) are ignored. Fights whose random
+     * stream was not recorded are skipped.
+     * </p>
+     *
+     * @param records The journal records, in the order they were written
+     * @param template The character that fought, in its class and equipment
+     * @param monsterType The monster type of the fights
+     * @return The outcome of the replay
+     */
+    public Report replay(List<JournalRecord> records, Character template, String monsterType) {
+        if (records == null || template == null || monsterType == null) {
+            throw new IllegalArgumentException("Records, template and monster type are required");
+        }
+
+        Report report = new Report();
+        int start = nextFightStart(records, 0);
+        while (start < records.size()) {
+            int end = nextFightStart(records, start + 1);
+            List<JournalRecord> fight = records.subList(start, end);
+            if (fight.size() < 2 || fight.get(0).getStreamId() < 0
+                    || fight.get(1).getType() != JournalRecord.FIGHT_STATE) {
+                report.skipped++;
+            } else {
+                String mismatch = OutputContext.callWith(NullOutput.INSTANCE,
+                        () -> replayFight(fight, template, monsterType));
+                report.replayed++;
+                if (mismatch != null) {
+                    report.mismatches.add(mismatch);
+                }
+            }
+            start = end;
+        }
+
+        logger.info("Combat replay finished: " + report);
+        return report;
+    }
+
+    /**
+     * Replays one fight and compares it with its records
+     *
+     * @param recorded The records of the fight, starting with FIGHT_START and FIGHT_STATE
+     * @param template The character that fought
+     * @param monsterType The monster type
+     * @return A description of the first difference, or null if the replay matches
+     */
+    private String replayFight(List<JournalRecord> recorded, Character template, String monsterType) {
+        JournalRecord start = recorded.get(0);
+        JournalRecord state = recorded.get(1);
+
+        Character hero = characterFactory.createCopy(template);
+        AbstractMonster monster = monsterFactory.createMonster(monsterType);
+        if (hero == null || monster == null) {
+            throw new IllegalArgumentException("Cannot replay " + template.getName() + " vs " + monsterType);
+        }
+        characterFactory.applyCombatState(hero, state.getHeroHealth(), state.getHeroStamina(), state.getHeroMana());
+        monster.setHealth(state.getMonsterHealth());
+
+        CombatJournal journal = new CombatJournal(recorded.size() + 2);
+        CombatSystem combatSystem = new CombatSystem();
+        combatSystem.setJournal(journal);
+        RandomGenerator random = journal.beginFight(start.getMasterSeed(), start.getStreamId(),
+                new RandomService(start.getMasterSeed()).streamFor(start.getStreamId()), hero, monster);
+
+        int turns = 0;
+        while (hero.isAlive() && monster.isAlive() && turns < MAX_TURNS
+                && journal.getRecordCount() < recorded.size()) {
+            turns++;
+            combatSystem.executeAttack(hero, monster, random);
+            if (monster.isAlive()) {
+                combatSystem.executeMonsterAttack(monster, hero, random);
+            }
+        }
+        if (!hero.isAlive() || !monster.isAlive()) {
+            journal.endFight(hero.isAlive());
+        }
+
+        List<JournalRecord> replayed = journal.getRecords();
+        boolean complete = recorded.get(recorded.size() - 1).getType() == JournalRecord.FIGHT_END;
+        int compared = complete ? Math.max(recorded.size(), replayed.size()) : recorded.size();
+        for (int i = 0; i < compared; i++) {
+            JournalRecord expected = i < recorded.size() ? recorded.get(i) : null;
+            JournalRecord actual = i < replayed.size() ? replayed.get(i) : null;
+            if (expected == null || !expected.sameEventAs(actual)) {
+                return "Fight #" + start.getFightId() + ": expected " + expected + ", replayed " + actual;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the next fight start record
+     *
+     * @param records The journal records
+     * @param from The index to search from
+     * @return The index of the next FIGHT_START record, or the list size if none
+     */
+    private static int nextFightStart(List<JournalRecord> records, int from) {
+        for (int i = from; i < records.size(); i++) {
+            if (records.get(i).getType() == JournalRecord.FIGHT_START) {
+                return i;
+            }
+        }
+        return records.size();
+    }
+
+    /**
+     * Report - Outcome of a replay
+     */
+    public static final class Report {
+        private int replayed;
+        private int skipped;
+        private final List<String> mismatches = new ArrayList<>();
+
+        /**
+         * Checks whether every replayed fight matched its journal
+         *
+         * @return true if no mismatch was found
+         */
+        public boolean isConsistent() {
+            return mismatches.isEmpty();
+        }
+
+        /**
+         * Gets the number of fights replayed
+         *
+         * @return The replayed fight count
+         */
+        public int getReplayedFights() {
+            return replayed;
+        }
+
+        /**
+         * Gets the number of fights that could not be replayed
+         *
+         * @return The skipped fight count
+         */
+        public int getSkippedFights() {
+            return skipped;
+        }
+
+        /**
+         * Gets the differences found between the journal and the replay
+         *
+         * @return A read-only list of mismatch descriptions
+         */
+        public List<String> getMismatches() {
+            return Collections.unmodifiableList(mismatches);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d fights replayed, %d skipped, %d mismatches",
+                    replayed, skipped, mismatches.size());
+        }
+    }
+}
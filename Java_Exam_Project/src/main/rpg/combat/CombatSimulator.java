@@ -0,0 +1,252 @@
+package rpg.combat;
+
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.factoryMonster.MonsterFactory;
+import rpg.logger.GameLogger;
+import rpg.output.GameOutput;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import rpg.random.RandomService;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
+
+/**
+ * CombatSimulator - Runs headless fights for game balancing
+ * <p>
+ * This class runs many fights between copies of a character and freshly
+ * created monsters without any user interaction. Fights follow the same
+ * rules as DungeonExplorer (the character attacks first, then the monster
+ * strikes back) and go through the CombatSystem, so balance numbers match
+ * what players experience.
+ * </p>
+ * <p>
+ * Fights are split across all available cores with the fork/join framework.
+ * Each task works on its own copy of the character and its own monster,
+ * and partial results are merged when the tasks complete.
+ * </p>
+ * <p>
+ * Every fight draws its damage rolls from its own random stream, derived
+ * from the simulator's master seed and the fight number. Simulations are
+ * therefore reproducible and scale across threads without contention.
+ * </p>
+ * <p>
+ * Combat messages are discarded by default: fights run with a NullOutput.
+ * The per-hit log messages are at FINE level and guarded, so with the
+ * default INFO level they are neither formatted nor sent to the shared
+ * console handler. Running with -Dgame.log.level=FINE brings them back,
+ * at the cost of formatting and serializing every hit through the handler.
+ * </p>
+ */
+public class CombatSimulator {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    // Fights run sequentially by a single fork/join task
+    private static final int FIGHTS_PER_TASK = 256;
+
+    // Safety limit for fights that cannot end (e.g. zero damage on both sides)
+    private static final int MAX_TURNS = 10_000;
+
+    private final ForkJoinPool pool;
+    private final CombatSystem combatSystem;
+    private final CharacterFactory characterFactory;
+    private final MonsterFactory monsterFactory;
+    private int recordedCurves = 100;
+    private GameOutput output = NullOutput.INSTANCE;
+    private RandomService randomService = RandomService.getDefault();
+
+    /**
+     * Creates a simulator that uses the common fork/join pool
+     */
+    public CombatSimulator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a simulator that runs its fights on the given pool
+     *
+     * @param pool The fork/join pool to run fights on
+     */
+    public CombatSimulator(ForkJoinPool pool) {
+        this.pool = pool;
+        this.combatSystem = new CombatSystem();
+        this.characterFactory = new CharacterFactory();
+        this.monsterFactory = new MonsterFactory();
+    }
+
+    /**
+     * Sets how many fights keep their full health curve
+     * <p>
+     * Only the first fights of a simulation record their health curves,
+     * so that millions of fights do not keep millions of arrays alive.
+     * </p>
+     *
+     * @param recordedCurves Number of fights whose health curves are kept
+     * @return The simulator instance for method chaining
+     */
+    public CombatSimulator withRecordedCurves(int recordedCurves) {
+        this.recordedCurves = Math.max(0, recordedCurves);
+        return this;
+    }
+
+    /**
+     * Sets the output that receives the combat messages of simulated fights
+     *
+     * @param output The output to use (NullOutput by default)
+     * @return The simulator instance for method chaining
+     */
+    public CombatSimulator withOutput(GameOutput output) {
+        this.output = output != null ? output : NullOutput.INSTANCE;
+        return this;
+    }
+
+    /**
+     * Sets the master seed of the random streams used by the fights
+     * <p>
+     * Two simulations with the same seed, template and monster type
+     * produce exactly the same results.
+     * </p>
+     *
+     * @param seed The master seed
+     * @return The simulator instance for method chaining
+     */
+    public CombatSimulator withSeed(long seed) {
+        this.randomService = new RandomService(seed);
+        return this;
+    }
+
+    /**
+     * Simulates a number of fights against one monster type
+     *
+     * @param template The character to copy for every fight (never modified)
+     * @param monsterType The monster type, as accepted by MonsterFactory
+     * @param fights Number of fights to run
+     * @return The aggregated result of all fights
+     * @throws IllegalArgumentException If the template or monster type is invalid
+     */
+    public SimulationResult simulate(Character template, String monsterType, int fights) {
+        if (template == null || monsterType == null) {
+            throw new IllegalArgumentException("Template and monster type are required");
+        }
+        if (fights < 0) {
+            throw new IllegalArgumentException("Fight count cannot be negative");
+        }
+
+        logger.info("Simulating " + fights + " fights: " + template.getName() + " vs " + monsterType);
+        SimulationResult result = pool.invoke(ForkJoinTask.adapt(() -> runFights(template, monsterType, 0, fights)));
+        logger.info("Simulation finished: " + result);
+        return result;
+    }
+
+    /**
+     * Simulates the same number of fights against several monster types
+     *
+     * @param template The character to copy for every fight (never modified)
+     * @param fights Number of fights per monster type
+     * @param monsterTypes The monster types to fight, e.g. one per dungeon
+     * @return Results keyed by monster type, in the order given
+     */
+    public Map<String, SimulationResult> simulateDungeons(Character template, int fights, String... monsterTypes) {
+        Map<String, SimulationResult> results = new LinkedHashMap<>();
+        for (String monsterType : monsterTypes) {
+            results.put(monsterType, simulate(template, monsterType, fights));
+        }
+        return results;
+    }
+
+    /**
+     * Runs a single fight and records it in the given result
+     *
+     * @param fight The fight number, which selects the random stream
+     * @param template The character to copy
+     * @param monsterType The monster type to create
+     * @param recordCurve Whether to keep the health curve of this fight
+     * @param result The result to record into
+     */
+    private void runFight(int fight, Character template, String monsterType, boolean recordCurve,
+                          SimulationResult result) {
+        RandomGenerator random = randomService.streamFor(fight);
+        Character hero = characterFactory.createCopy(template);
+        AbstractMonster monster = monsterFactory.createMonster(monsterType);
+        if (hero == null || monster == null) {
+            throw new IllegalArgumentException("Cannot simulate " + template.getName() + " vs " + monsterType);
+        }
+
+        int[] heroCurve = recordCurve ? new int[16] : null;
+        int[] monsterCurve = recordCurve ? new int[16] : null;
+        if (recordCurve) {
+            heroCurve[0] = hero.getHealth();
+            monsterCurve[0] = monster.getHealth();
+        }
+
+        int turns = 0;
+        while (hero.isAlive() && monster.isAlive() && turns < MAX_TURNS) {
+            turns++;
+
+            int monsterHealth = monster.getHealth();
+            combatSystem.executeAttack(hero, monster, random);
+            result.recordDamageDealt(monsterHealth - monster.getHealth());
+
+            if (monster.isAlive()) {
+                int heroHealth = hero.getHealth();
+                combatSystem.executeMonsterAttack(monster, hero, random);
+                result.recordDamageTaken(heroHealth - hero.getHealth());
+            }
+
+            if (recordCurve) {
+                if (turns >= heroCurve.length) {
+                    heroCurve = Arrays.copyOf(heroCurve, heroCurve.length * 2);
+                    monsterCurve = Arrays.copyOf(monsterCurve, monsterCurve.length * 2);
+                }
+                heroCurve[turns] = hero.getHealth();
+                monsterCurve[turns] = monster.getHealth();
+            }
+        }
+
+        result.recordFight(hero.isAlive() && !monster.isAlive(), turns);
+        if (recordCurve) {
+            result.addHpCurve(new SimulationResult.HpCurve(
+                    Arrays.copyOf(heroCurve, turns + 1), Arrays.copyOf(monsterCurve, turns + 1)));
+        }
+    }
+
+    /**
+     * Runs a range of fights as a fork/join computation
+     * <p>
+     * Large ranges are split in two halves until they are small enough
+     * to be run sequentially. The right half is forked as a task built from
+     * a lambda, the left half runs on the current worker and is merged
+     * first, so health curves stay in fight order.
+     * </p>
+     *
+     * @param template The character to copy
+     * @param monsterType The monster type to create
+     * @param from The first fight of the range
+     * @param to The fight after the last one of the range
+     * @return The result of the fights in the range
+     */
+    private SimulationResult runFights(Character template, String monsterType, int from, int to) {
+        if (to - from <= FIGHTS_PER_TASK) {
+            return OutputContext.callWith(output, () -> {
+                SimulationResult result = new SimulationResult(monsterType);
+                for (int fight = from; fight < to; fight++) {
+                    runFight(fight, template, monsterType, fight < recordedCurves, result);
+                }
+                return result;
+            });
+        }
+
+        int middle = (from + to) >>> 1;
+        ForkJoinTask<SimulationResult> right =
+                ForkJoinTask.adapt(() -> runFights(template, monsterType, middle, to)).fork();
+        SimulationResult leftResult = runFights(template, monsterType, from, middle);
+        return leftResult.merge(right.join());
+    }
+}
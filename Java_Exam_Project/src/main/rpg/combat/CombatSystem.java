@@ -3,7 +3,11 @@ package rpg.combat;
 import rpg.factory.Character;
 import rpg.factoryMonster.AbstractMonster;
 import rpg.logger.GameLogger;
+import rpg.output.GameOutput;
+import rpg.output.OutputContext;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 
 /**
  * CombatSystem - Implements a simplified combat system
@@ -15,12 +19,37 @@ import java.util.logging.Logger;
 public class CombatSystem {
     
     private static final Logger logger = GameLogger.getLogger();
+
+    private CombatJournal journal;
+
+    /**
+     * Sets the journal that records the attacks executed by this combat system
+     * <p>
+     * Every attack is then written as a binary record (damage, health after
+     * the hit, random draws) in addition to the usual messages.
+     * </p>
+     *
+     * @param journal The journal to record into, or null to stop recording
+     */
+    public void setJournal(CombatJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Gets the journal attached to this combat system
+     *
+     * @return The journal, or null if attacks are not recorded
+     */
+    public CombatJournal getJournal() {
+        return journal;
+    }
     
     /**
      * Executes an attack from a character against a monster
      * <p>
      * This method handles the character's attack, calculates damage,
      * and applies it to the monster if the attack is successful.
+     * Damage rolls use the random generator of the current thread.
      * </p>
      * 
      * @param character The character performing the attack
@@ -32,16 +61,27 @@ public class CombatSystem {
             return;
         }
         
-        int damage = character.attack();
-        if (damage > 0) {
-            monster.takeDamage(damage);
-            logger.info(character.getName() + " dealt " + damage + " damage to " + monster.getType());
-            System.out.println("You dealt " + damage + " damage!");
-        } else {
-            logger.info(character.getName() + " missed the target");
-            System.out.println("You missed the target!");
+        applyCharacterDamage(character, monster, character.attack());
+    }
+
+    /**
+     * Executes an attack from a character against a monster with a given random generator
+     * <p>
+     * Using the random stream of the fight makes the attack reproducible:
+     * the same stream always produces the same damage rolls.
+     * </p>
+     * 
+     * @param character The character performing the attack
+     * @param monster The monster being attacked
+     * @param random The random generator of the current fight
+     */
+    public void executeAttack(Character character, AbstractMonster monster, RandomGenerator random) {
+        if (character == null || monster == null || random == null) {
+            logger.warning("Attack failed: character, monster or random generator is null");
+            return;
         }
 
+        applyCharacterDamage(character, monster, character.attack(random));
     }
     
     /**
@@ -49,6 +89,7 @@ public class CombatSystem {
      * <p>
      * This method handles the monster's attack, calculates damage,
      * and applies it to the character if the attack is successful.
+     * Damage rolls use the random generator of the current thread.
      * </p>
      * 
      * @param monster The monster performing the attack
@@ -60,15 +101,78 @@ public class CombatSystem {
             return;
         }
         
-        int damage = monster.attack();
+        applyMonsterDamage(monster, character, monster.attack());
+    }
+
+    /**
+     * Executes an attack from a monster against a character with a given random generator
+     * 
+     * @param monster The monster performing the attack
+     * @param character The character being attacked
+     * @param random The random generator of the current fight
+     */
+    public void executeMonsterAttack(AbstractMonster monster, Character character, RandomGenerator random) {
+        if (monster == null || character == null || random == null) {
+            logger.warning("Monster attack failed: monster, character or random generator is null");
+            return;
+        }
+
+        applyMonsterDamage(monster, character, monster.attack(random));
+    }
+
+    /**
+     * Applies the damage of a character attack to a monster
+     * 
+     * @param character The character that attacked
+     * @param monster The monster being attacked
+     * @param damage The damage rolled by the character
+     */
+    private void applyCharacterDamage(Character character, AbstractMonster monster, int damage) {
         if (damage > 0) {
-            character.takeDamage(damage);
-            logger.info(monster.getType() + " dealt " + damage + " damage to " + character.getName());
-            System.out.println(monster.getType() + " dealt " + damage + " damage to you!");
+            monster.takeDamage(damage);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(character.getName() + " dealt " + damage + " damage to " + monster.getType());
+            }
+            GameOutput out = OutputContext.get();
+            if (out.isEnabled()) {
+                out.println("You dealt " + damage + " damage!");
+            }
         } else {
-            logger.info(monster.getType() + " missed the attack");
-            System.out.println(monster.getType() + " missed the attack!");
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(character.getName() + " missed the target");
+            }
+            OutputContext.get().println("You missed the target!");
         }
+        if (journal != null) {
+            journal.recordAttack(JournalRecord.HERO, Math.max(0, damage), monster.getHealth());
+        }
+    }
 
+    /**
+     * Applies the damage of a monster attack to a character
+     * 
+     * @param monster The monster that attacked
+     * @param character The character being attacked
+     * @param damage The damage rolled by the monster
+     */
+    private void applyMonsterDamage(AbstractMonster monster, Character character, int damage) {
+        if (damage > 0) {
+            character.takeDamage(damage);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(monster.getType() + " dealt " + damage + " damage to " + character.getName());
+            }
+            GameOutput out = OutputContext.get();
+            if (out.isEnabled()) {
+                out.println(monster.getType() + " dealt " + damage + " damage to you!");
+            }
+        } else {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(monster.getType() + " missed the attack");
+            }
+            OutputContext.get().println(monster.getType() + " missed the attack!");
+        }
+        if (journal != null) {
+            journal.recordAttack(JournalRecord.MONSTER, Math.max(0, damage), character.getHealth());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package rpg.combat;
+
+import java.util.Arrays;
+
+/**
+ * InitiativeScheduler - Decides who acts next in a fight with many combatants
+ * <p>
+ * Every combatant acts once every {@code ACTION_COST / speed} time units, so
+ * a combatant twice as fast acts twice as often. The next action time of
+ * every combatant is kept in a binary min-heap of primitive long keys with
+ * a parallel array of combatant ids: choosing the next combatant and
+ * rescheduling it costs O(log n), with no allocation and no boxing.
+ * Combatants with the same action time act in the order they were added.
+ * </p>
+ * <p>
+ * Dead combatants are removed lazily: {@link #remove(int)} only marks them
+ * inactive, and their heap entry is discarded when it reaches the top.
+ * Nothing is ever rescanned, so hordes of hundreds of monsters stay cheap.
+ * This class is not thread-safe.
+ * </p>
+ */
+public class InitiativeScheduler {
+
+    /** Time units of one action at speed 1 */
+    public static final int ACTION_COST = 1200;
+
+    private long[] keys;
+    private int[] ids;
+    private int heapSize;
+
+    private int[] delays;
+    private boolean[] active;
+    private int combatants;
+    private int activeCount;
+    private long time;
+
+    /**
+     * Creates a scheduler with room for the given number of combatants
+     *
+     * @param expectedCombatants Number of combatants to allocate space for
+     */
+    public InitiativeScheduler(int expectedCombatants) {
+        int capacity = Math.max(4, expectedCombatants);
+        keys = new long[capacity];
+        ids = new int[capacity];
+        delays = new int[capacity];
+        active = new boolean[capacity];
+    }
+
+    /**
+     * Adds a combatant, whose first action comes one delay after the current time
+     *
+     * @param speed The combatant's speed (values below 1 count as 1)
+     * @return The id of the combatant, starting at 0 in the order of addition
+     */
+    public int add(int speed) {
+        if (combatants == active.length) {
+            int capacity = active.length * 2;
+            delays = Arrays.copyOf(delays, capacity);
+            active = Arrays.copyOf(active, capacity);
+        }
+        if (heapSize == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+
+        int id = combatants++;
+        delays[id] = Math.max(1, ACTION_COST / Math.max(1, speed));
+        active[id] = true;
+        activeCount++;
+
+        keys[heapSize] = time + delays[id];
+        ids[heapSize] = id;
+        siftUp(heapSize++);
+        return id;
+    }
+
+    /**
+     * Selects the combatant that acts next and schedules its following action
+     *
+     * @return The id of the combatant, or -1 if no combatant is active
+     */
+    public int next() {
+        while (heapSize > 0) {
+            int id = ids[0];
+            if (!active[id]) {
+                // Lazy deletion: drop the stale entry of a removed combatant
+                heapSize--;
+                keys[0] = keys[heapSize];
+                ids[0] = ids[heapSize];
+                siftDown(0);
+                continue;
+            }
+            time = keys[0];
+            keys[0] = time + delays[id];
+            siftDown(0);
+            return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a combatant (e.g. when it dies)
+     * <p>
+     * The combatant's heap entry is discarded the next time it reaches the
+     * top of the heap.
+     * </p>
+     *
+     * @param id The id of the combatant
+     */
+    public void remove(int id) {
+        checkId(id);
+        if (active[id]) {
+            active[id] = false;
+            activeCount--;
+        }
+    }
+
+    /**
+     * Checks whether a combatant is still in the fight
+     *
+     * @param id The id of the combatant
+     * @return true if the combatant has not been removed
+     */
+    public boolean isActive(int id) {
+        checkId(id);
+        return active[id];
+    }
+
+    /**
+     * Gets the number of combatants still in the fight
+     *
+     * @return The number of active combatants
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Gets the time of the last action
+     *
+     * @return The current time, in action time units
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Validates a combatant id
+     *
+     * @param id The id to check
+     * @throws IndexOutOfBoundsException If no combatant has this id
+     */
+    private void checkId(int id) {
+        if (id < 0 || id >= combatants) {
+            throw new IndexOutOfBoundsException("No combatant with id " + id);
+        }
+    }
+
+    /**
+     * Orders heap entries by action time, then by id
+     */
+    private boolean before(int i, int j) {
+        return keys[i] < keys[j] || (keys[i] == keys[j] && ids[i] < ids[j]);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && before(left, smallest)) {
+                smallest = left;
+            }
+            if (right < heapSize && before(right, smallest)) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
@@ -0,0 +1,254 @@
+package rpg.combat;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * JournalRecord - One decoded record of a CombatJournal
+ * <p>
+ * Every record occupies {@link #SIZE} bytes in the journal: fight id and
+ * turn (ints), type, attacker, target and number of random draws (bytes),
+ * followed by four ints whose meaning depends on the type:
+ * <ul>
+ *   <li>{@link #FIGHT_START}: master seed and stream id (longs) of the fight's random stream</li>
+ *   <li>{@link #FIGHT_STATE}: health, stamina and mana of the character, health of the monster</li>
+ *   <li>{@link #ATTACK}: damage, target health after the hit, last random draw</li>
+ *   <li>{@link #FIGHT_END}: no data, the winner is stored as attacker</li>
+ * </ul>
+ * </p>
+ */
+public final class JournalRecord {
+
+    /** Size of an encoded record in bytes */
+    public static final int SIZE = 32;
+
+    /** Record type: start of a fight */
+    public static final byte FIGHT_START = 1;
+    /** Record type: state of both sides when the fight starts */
+    public static final byte FIGHT_STATE = 2;
+    /** Record type: one attack */
+    public static final byte ATTACK = 3;
+    /** Record type: end of a fight */
+    public static final byte FIGHT_END = 4;
+
+    /** Participant code for the character */
+    public static final byte HERO = 0;
+    /** Participant code for the monster */
+    public static final byte MONSTER = 1;
+
+    private final byte type;
+    private final int fightId;
+    private final int turn;
+    private final byte attacker;
+    private final byte target;
+    private final int randomDraws;
+    private final int[] data;
+
+    private JournalRecord(byte type, int fightId, int turn, byte attacker, byte target, int randomDraws,
+                          int[] data) {
+        this.type = type;
+        this.fightId = fightId;
+        this.turn = turn;
+        this.attacker = attacker;
+        this.target = target;
+        this.randomDraws = randomDraws;
+        this.data = data;
+    }
+
+    /**
+     * Decodes the record at the current position of a buffer
+     *
+     * @param buffer The buffer to read from; its position advances by SIZE bytes
+     * @return The decoded record
+     */
+    static JournalRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.position(start + SIZE);
+        return new JournalRecord(buffer.get(start + 8), buffer.getInt(start), buffer.getInt(start + 4),
+                buffer.get(start + 9), buffer.get(start + 10), buffer.get(start + 11) & 0xFF,
+                new int[] {buffer.getInt(start + 12), buffer.getInt(start + 16),
+                        buffer.getInt(start + 20), buffer.getInt(start + 24)});
+    }
+
+    /**
+     * Gets the type of the record
+     *
+     * @return FIGHT_START, FIGHT_STATE, ATTACK or FIGHT_END
+     */
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * Gets the id of the fight the record belongs to
+     *
+     * @return The fight id
+     */
+    public int getFightId() {
+        return fightId;
+    }
+
+    /**
+     * Gets the turn of the record
+     *
+     * @return The turn number, 0 before the first attack
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets the attacker, or the winner of a FIGHT_END record
+     *
+     * @return HERO or MONSTER
+     */
+    public byte getAttacker() {
+        return attacker;
+    }
+
+    /**
+     * Gets the target of an attack
+     *
+     * @return HERO or MONSTER
+     */
+    public byte getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets the number of random values drawn by an attack
+     *
+     * @return The number of draws
+     */
+    public int getRandomDraws() {
+        return randomDraws;
+    }
+
+    /**
+     * Gets the damage of an ATTACK record
+     *
+     * @return The damage dealt
+     */
+    public int getDamage() {
+        return data[0];
+    }
+
+    /**
+     * Gets the target's health after an ATTACK record
+     *
+     * @return The remaining health
+     */
+    public int getHealthAfter() {
+        return data[1];
+    }
+
+    /**
+     * Gets the last random value drawn by an ATTACK record
+     *
+     * @return The last draw
+     */
+    public int getLastDraw() {
+        return data[2];
+    }
+
+    /**
+     * Gets the master seed of a FIGHT_START record
+     *
+     * @return The master seed of the fight's random stream
+     */
+    public long getMasterSeed() {
+        return toLong(data[0], data[1]);
+    }
+
+    /**
+     * Gets the stream id of a FIGHT_START record
+     *
+     * @return The stream id of the fight's random stream
+     */
+    public long getStreamId() {
+        return toLong(data[2], data[3]);
+    }
+
+    /**
+     * Gets the character's health in a FIGHT_STATE record
+     *
+     * @return The starting health
+     */
+    public int getHeroHealth() {
+        return data[0];
+    }
+
+    /**
+     * Gets the character's stamina in a FIGHT_STATE record
+     *
+     * @return The starting stamina
+     */
+    public int getHeroStamina() {
+        return data[1];
+    }
+
+    /**
+     * Gets the character's mana in a FIGHT_STATE record
+     *
+     * @return The starting mana, 0 for a warrior
+     */
+    public int getHeroMana() {
+        return data[2];
+    }
+
+    /**
+     * Gets the monster's health in a FIGHT_STATE record
+     *
+     * @return The starting health
+     */
+    public int getMonsterHealth() {
+        return data[3];
+    }
+
+    /**
+     * Compares the content of two records, ignoring the fight id
+     *
+     * @param other The record to compare with
+     * @return true if both records describe the same event
+     */
+    public boolean sameEventAs(JournalRecord other) {
+        return other != null && type == other.type && turn == other.turn
+                && attacker == other.attacker && target == other.target
+                && randomDraws == other.randomDraws && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof JournalRecord record)) return false;
+        return fightId == record.fightId && sameEventAs(record);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, fightId, turn, attacker, target, randomDraws, Arrays.hashCode(data));
+    }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case FIGHT_START -> String.format("#%d start seed=%d stream=%d", fightId, getMasterSeed(), getStreamId());
+            case FIGHT_STATE -> String.format("#%d state hero %d HP %d stamina %d mana, monster %d HP",
+                    fightId, getHeroHealth(), getHeroStamina(), getHeroMana(), getMonsterHealth());
+            case ATTACK -> String.format("#%d turn %d: %s hits %s for %d (hp %d, %d draws, last %d)",
+                    fightId, turn, name(attacker), name(target), getDamage(), getHealthAfter(),
+                    randomDraws, getLastDraw());
+            case FIGHT_END -> String.format("#%d end turn %d: %s wins", fightId, turn, name(attacker));
+            default -> "#" + fightId + " unknown record type " + type;
+        };
+    }
+
+    private static String name(byte participant) {
+        return participant == HERO ? "hero" : "monster";
+    }
+
+    private static long toLong(int low, int high) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+}
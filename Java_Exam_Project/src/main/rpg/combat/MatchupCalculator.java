@@ -0,0 +1,256 @@
+package rpg.combat;
+
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.Mage;
+import rpg.factory.Warrior;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.factoryMonster.MonsterFactory;
+import rpg.logger.GameLogger;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * MatchupCalculator - Computes exact fight odds without simulation
+ * <p>
+ * All damage rolls in the game are small uniform distributions:
+ * <ul>
+ *   <li>Warrior: base damage + equipment + 0..4 (5 stamina per attack)</li>
+ *   <li>Mage: base damage + equipment + 5 + 0..9 while mana lasts (10 mana),
+ *       then base damage + equipment + 0..2 (3 stamina per attack)</li>
+ *   <li>Monsters: base damage plus or minus 20%, at least 1</li>
+ * </ul>
+ * The outcome of a fight can therefore be computed exactly by dynamic
+ * programming over the states (character health, monster health, stamina,
+ * mana), following the same turn order as DungeonExplorer.
+ * </p>
+ * <p>
+ * Results are cached per stat key (class, stats, equipment bonus and
+ * monster type), so menus can display the odds of a matchup instantly
+ * after the first computation.
+ * </p>
+ */
+public class MatchupCalculator {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    // Each state component is packed in 16 bits of the state key, health below the sign bit
+    private static final int MAX_STAT = 0x7FFF;
+
+    // Largest number of reachable states solved exactly for one matchup
+    private static final int MAX_STATES = 1_000_000;
+
+    private final MonsterFactory monsterFactory = new MonsterFactory();
+    private final Map<String, int[]> monsterStats = new ConcurrentHashMap<>();
+    private final Map<StatKey, MatchupOdds> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Computes the exact odds of a character against a monster type
+     *
+     * @param character The character, in its current state
+     * @param monsterType The monster type, as accepted by MonsterFactory
+     * @return The win probability and expected number of turns
+     * @throws IllegalArgumentException If the character or monster type is not supported
+     */
+    public MatchupOdds calculate(Character character, String monsterType) {
+        if (!(character instanceof Warrior) && !(character instanceof Mage)) {
+            throw new IllegalArgumentException("Unsupported character for matchup calculation");
+        }
+        int[] monster = getMonsterStats(monsterType);
+
+        int mana = character instanceof Mage mage ? mage.getMana() : 0;
+        StatKey key = new StatKey(character instanceof Mage, character.getHealth(), character.getStamina(),
+                mana, ((AbstractCharacter) character).getStats().getEffectiveDamage(), monster[0], monster[1]);
+
+        return cache.computeIfAbsent(key, k -> {
+            MatchupOdds odds = new Solver(k).solve();
+            logger.fine("Matchup computed for " + character.getName() + " vs " + monsterType + ": " + odds);
+            return odds;
+        });
+    }
+
+    /**
+     * Gets the number of matchups currently cached
+     *
+     * @return The cache size
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the health and base damage of a monster type, creating a sample monster once
+     *
+     * @param monsterType The monster type
+     * @return Array holding {health, baseDamage}
+     */
+    private int[] getMonsterStats(String monsterType) {
+        if (monsterType == null) {
+            throw new IllegalArgumentException("Monster type cannot be null");
+        }
+        return monsterStats.computeIfAbsent(monsterType.toLowerCase(), type -> {
+            // MonsterFactory falls back to a Goblin for unknown types
+            AbstractMonster sample = monsterFactory.createMonster(type);
+            if (sample == null || !sample.getType().equalsIgnoreCase(type)) {
+                throw new IllegalArgumentException("Unknown monster type: " + type);
+            }
+            return new int[] {sample.getHealth(), sample.getBaseDamage()};
+        });
+    }
+
+    /**
+     * StatKey - Everything that determines the outcome of a matchup
+     */
+    private record StatKey(boolean mage, int health, int stamina, int mana, int damage,
+                           int monsterHealth, int monsterDamage) {
+    }
+
+    /**
+     * Solver - Dynamic programming over the states of one matchup
+     * <p>
+     * Every turn that does not end the fight costs the character at least
+     * one health point (monster damage is at least 1), so the state graph
+     * is acyclic and ordered by health. The solver first collects the
+     * states reachable from the start, then evaluates them bottom-up in
+     * order of increasing health, so no recursion is needed however large
+     * the stats are. Matchups with more than MAX_STATES reachable states
+     * are rejected.
+     * </p>
+     */
+    private static final class Solver {
+        // Successor markers for a turn that ends the fight
+        private static final long WIN = -1;
+        private static final long LOSS = -2;
+
+        private final StatKey key;
+        private final int monsterVariance;
+        private final Map<Long, double[]> values = new HashMap<>();
+
+        Solver(StatKey key) {
+            if (key.health() > MAX_STAT || key.stamina() > MAX_STAT
+                    || key.mana() > MAX_STAT || key.monsterHealth() > MAX_STAT) {
+                throw new IllegalArgumentException("Stats too large for exact matchup calculation");
+            }
+            this.key = key;
+            this.monsterVariance = (int) (key.monsterDamage() * 0.2);
+        }
+
+        MatchupOdds solve() {
+            if (key.health() <= 0) {
+                return new MatchupOdds(0.0, 0.0);
+            }
+            long start = state(key.health(), key.monsterHealth(), key.stamina(), key.mana());
+
+            // Forward pass: collect every reachable state
+            ArrayDeque<Long> pending = new ArrayDeque<>();
+            values.put(start, null);
+            pending.add(start);
+            while (!pending.isEmpty()) {
+                turn(pending.poll(), (probability, next) -> {
+                    if (next >= 0 && !values.containsKey(next)) {
+                        if (values.size() >= MAX_STATES) {
+                            throw new IllegalArgumentException("Matchup too large for exact calculation");
+                        }
+                        values.put(next, null);
+                        pending.add(next);
+                    }
+                });
+            }
+
+            // Health is in the top bits of a state, so ascending states come after their successors
+            long[] order = values.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            for (long state : order) {
+                double[] acc = new double[2];
+                turn(state, (probability, next) -> {
+                    if (next == WIN) {
+                        acc[0] += probability;
+                        acc[1] += probability;
+                    } else if (next == LOSS) {
+                        acc[1] += probability;
+                    } else {
+                        double[] value = values.get(next);
+                        acc[0] += probability * value[0];
+                        acc[1] += probability * (1 + value[1]);
+                    }
+                });
+                values.put(state, acc);
+            }
+            double[] result = values.get(start);
+            return new MatchupOdds(result[0], result[1]);
+        }
+
+        /**
+         * Packs a state at the start of a turn into a non-negative key
+         */
+        private static long state(int health, int monsterHealth, int stamina, int mana) {
+            return ((long) health << 48) | ((long) monsterHealth << 32) | ((long) stamina << 16) | mana;
+        }
+
+        /**
+         * Reports every outcome of one turn (character attack and monster reply) from a state
+         */
+        private void turn(long state, Outcome outcome) {
+            int health = (int) (state >>> 48);
+            int monsterHealth = (int) (state >>> 32) & 0xFFFF;
+            int stamina = (int) (state >>> 16) & 0xFFFF;
+            int mana = (int) state & 0xFFFF;
+
+            if (key.mage()) {
+                if (stamina < 3) {
+                    characterOutcome(outcome, 1.0, 0, health, monsterHealth, stamina, mana);
+                } else if (mana >= 10) {
+                    for (int roll = 0; roll < 10; roll++) {
+                        characterOutcome(outcome, 0.1, key.damage() + 5 + roll, health, monsterHealth,
+                                stamina - 3, mana - 10);
+                    }
+                } else {
+                    for (int roll = 0; roll < 3; roll++) {
+                        characterOutcome(outcome, 1.0 / 3, key.damage() + roll, health, monsterHealth,
+                                stamina - 3, mana);
+                    }
+                }
+            } else if (stamina < 5) {
+                characterOutcome(outcome, 1.0, 0, health, monsterHealth, stamina, mana);
+            } else {
+                for (int roll = 0; roll < 5; roll++) {
+                    characterOutcome(outcome, 0.2, Math.max(1, key.damage() + roll), health, monsterHealth,
+                            stamina - 5, mana);
+                }
+            }
+        }
+
+        /**
+         * Reports the outcomes of one character attack, including the monster's reply
+         */
+        private void characterOutcome(Outcome outcome, double probability, int damage, int health,
+                                      int monsterHealth, int stamina, int mana) {
+            int remaining = damage > 0 ? monsterHealth - damage : monsterHealth;
+            if (remaining <= 0) {
+                outcome.accept(probability, WIN);
+                return;
+            }
+
+            double rollProbability = probability / (2 * monsterVariance + 1);
+            for (int roll = -monsterVariance; roll <= monsterVariance; roll++) {
+                int monsterDamage = Math.max(1, key.monsterDamage() + roll);
+                int healthLeft = health - monsterDamage;
+                if (healthLeft <= 0) {
+                    outcome.accept(rollProbability, LOSS);
+                } else {
+                    outcome.accept(rollProbability, state(healthLeft, remaining, stamina, mana));
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcome - Receives one outcome of a turn: its probability and the next state, WIN or LOSS
+     */
+    @FunctionalInterface
+    private interface Outcome {
+        void accept(double probability, long next);
+    }
+}
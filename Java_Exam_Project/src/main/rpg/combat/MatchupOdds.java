@@ -0,0 +1,53 @@
+package rpg.combat;
+
+/**
+ * MatchupOdds - Exact outcome of a character versus monster matchup
+ * <p>
+ * Instances are produced by the MatchupCalculator and are immutable,
+ * so they can be cached and shared between threads.
+ * </p>
+ */
+public final class MatchupOdds {
+
+    private final double winProbability;
+    private final double expectedTurns;
+
+    /**
+     * Creates the odds of a matchup
+     *
+     * @param winProbability Probability that the character wins
+     * @param expectedTurns Expected number of turns before the fight ends
+     */
+    MatchupOdds(double winProbability, double expectedTurns) {
+        this.winProbability = winProbability;
+        this.expectedTurns = expectedTurns;
+    }
+
+    /**
+     * Gets the probability that the character wins the fight
+     *
+     * @return The win probability between 0.0 and 1.0
+     */
+    public double getWinProbability() {
+        return winProbability;
+    }
+
+    /**
+     * Gets the expected length of the fight
+     *
+     * @return The expected number of turns
+     */
+    public double getExpectedTurns() {
+        return expectedTurns;
+    }
+
+    /**
+     * Returns a summary of the odds
+     *
+     * @return A formatted string with win probability and expected turns
+     */
+    @Override
+    public String toString() {
+        return String.format("win %.1f%%, %.1f turns expected", winProbability * 100, expectedTurns);
+    }
+}
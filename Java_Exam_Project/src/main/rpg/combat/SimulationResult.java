@@ -0,0 +1,270 @@
+package rpg.combat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SimulationResult - Aggregated outcome of a batch of simulated fights
+ * <p>
+ * This class collects the statistics produced by the CombatSimulator:
+ * number of fights and victories, the distribution of fight lengths,
+ * the distribution of damage dealt and taken per attack, and the health
+ * curves of a limited number of fights.
+ * </p>
+ * <p>
+ * Distributions are stored as histograms indexed by value, so that
+ * results computed on different threads can be merged cheaply.
+ * </p>
+ */
+public class SimulationResult {
+
+    private final String monsterType;
+    private long fights;
+    private long wins;
+    private long totalTurns;
+    private long[] turnHistogram = new long[0];
+    private long[] damageDealtHistogram = new long[0];
+    private long[] damageTakenHistogram = new long[0];
+    private final List<HpCurve> hpCurves = new ArrayList<>();
+
+    /**
+     * Creates an empty result for a monster type
+     *
+     * @param monsterType The monster type the fights were run against
+     */
+    SimulationResult(String monsterType) {
+        this.monsterType = monsterType;
+    }
+
+    /**
+     * Records the outcome of a single fight
+     *
+     * @param won true if the character won the fight
+     * @param turns Number of turns the fight lasted
+     */
+    void recordFight(boolean won, int turns) {
+        fights++;
+        if (won) {
+            wins++;
+        }
+        totalTurns += turns;
+        turnHistogram = increment(turnHistogram, turns);
+    }
+
+    /**
+     * Records the damage dealt by the character in one attack
+     *
+     * @param damage The damage dealt (0 for a missed or failed attack)
+     */
+    void recordDamageDealt(int damage) {
+        damageDealtHistogram = increment(damageDealtHistogram, damage);
+    }
+
+    /**
+     * Records the damage taken by the character in one monster attack
+     *
+     * @param damage The damage taken
+     */
+    void recordDamageTaken(int damage) {
+        damageTakenHistogram = increment(damageTakenHistogram, damage);
+    }
+
+    /**
+     * Stores the health curve of a fight
+     *
+     * @param curve The curve to store
+     */
+    void addHpCurve(HpCurve curve) {
+        hpCurves.add(curve);
+    }
+
+    /**
+     * Merges another partial result into this one
+     * <p>
+     * Health curves of the other result are appended after the curves
+     * of this result, so merging partial results in fight order keeps
+     * the curves in fight order.
+     * </p>
+     *
+     * @param other The partial result to merge
+     * @return This result, for chaining
+     */
+    SimulationResult merge(SimulationResult other) {
+        fights += other.fights;
+        wins += other.wins;
+        totalTurns += other.totalTurns;
+        turnHistogram = add(turnHistogram, other.turnHistogram);
+        damageDealtHistogram = add(damageDealtHistogram, other.damageDealtHistogram);
+        damageTakenHistogram = add(damageTakenHistogram, other.damageTakenHistogram);
+        hpCurves.addAll(other.hpCurves);
+        return this;
+    }
+
+    /**
+     * Gets the monster type the fights were run against
+     *
+     * @return The monster type
+     */
+    public String getMonsterType() {
+        return monsterType;
+    }
+
+    /**
+     * Gets the number of simulated fights
+     *
+     * @return The number of fights
+     */
+    public long getFights() {
+        return fights;
+    }
+
+    /**
+     * Gets the number of fights won by the character
+     *
+     * @return The number of victories
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the fraction of fights won by the character
+     *
+     * @return The win rate between 0.0 and 1.0
+     */
+    public double getWinRate() {
+        return fights == 0 ? 0.0 : (double) wins / fights;
+    }
+
+    /**
+     * Gets the average number of turns per fight
+     *
+     * @return The average fight length in turns
+     */
+    public double getAverageTurns() {
+        return fights == 0 ? 0.0 : (double) totalTurns / fights;
+    }
+
+    /**
+     * Gets the distribution of fight lengths
+     *
+     * @return Array where index i holds the number of fights that lasted i turns
+     */
+    public long[] getTurnDistribution() {
+        return turnHistogram.clone();
+    }
+
+    /**
+     * Gets the distribution of damage dealt by the character per attack
+     *
+     * @return Array where index i holds the number of attacks that dealt i damage
+     */
+    public long[] getDamageDealtDistribution() {
+        return damageDealtHistogram.clone();
+    }
+
+    /**
+     * Gets the distribution of damage taken by the character per monster attack
+     *
+     * @return Array where index i holds the number of monster attacks that dealt i damage
+     */
+    public long[] getDamageTakenDistribution() {
+        return damageTakenHistogram.clone();
+    }
+
+    /**
+     * Gets the recorded health curves, in fight order
+     *
+     * @return An unmodifiable list of health curves
+     */
+    public List<HpCurve> getHpCurves() {
+        return Collections.unmodifiableList(hpCurves);
+    }
+
+    /**
+     * Returns a summary of the simulation
+     *
+     * @return A formatted string with the main statistics
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d fights, win rate %.2f%%, average turns %.2f",
+                monsterType, fights, getWinRate() * 100, getAverageTurns());
+    }
+
+    /**
+     * Increments a histogram bucket, growing the array if needed
+     *
+     * @param histogram The histogram to update
+     * @param value The bucket to increment
+     * @return The updated histogram (may be a new array)
+     */
+    private static long[] increment(long[] histogram, int value) {
+        int bucket = Math.max(0, value);
+        if (bucket >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, Math.max(bucket + 1, histogram.length * 2));
+        }
+        histogram[bucket]++;
+        return histogram;
+    }
+
+    /**
+     * Adds two histograms bucket by bucket
+     *
+     * @param target The histogram to add to
+     * @param source The histogram to add
+     * @return The summed histogram (may be a new array)
+     */
+    private static long[] add(long[] target, long[] source) {
+        if (source.length > target.length) {
+            target = Arrays.copyOf(target, source.length);
+        }
+        for (int i = 0; i < source.length; i++) {
+            target[i] += source[i];
+        }
+        return target;
+    }
+
+    /**
+     * HpCurve - Health of both fighters after every turn of a fight
+     * <p>
+     * Index 0 holds the health at the start of the fight, index i the
+     * health at the end of turn i.
+     * </p>
+     */
+    public static final class HpCurve {
+        private final int[] characterHealth;
+        private final int[] monsterHealth;
+
+        /**
+         * Creates a health curve
+         *
+         * @param characterHealth The character's health per turn
+         * @param monsterHealth The monster's health per turn
+         */
+        HpCurve(int[] characterHealth, int[] monsterHealth) {
+            this.characterHealth = characterHealth;
+            this.monsterHealth = monsterHealth;
+        }
+
+        /**
+         * Gets the character's health per turn
+         *
+         * @return A copy of the character's health curve
+         */
+        public int[] getCharacterHealth() {
+            return characterHealth.clone();
+        }
+
+        /**
+         * Gets the monster's health per turn
+         *
+         * @return A copy of the monster's health curve
+         */
+        public int[] getMonsterHealth() {
+            return monsterHealth.clone();
+        }
+    }
+}
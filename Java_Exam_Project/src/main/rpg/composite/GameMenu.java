@@ -1,5 +1,6 @@
 package rpg.composite;
 
+import rpg.output.OutputContext;
 import rpg.rpgSecurity.InputValidator;
 import java.util.Scanner;
 import java.util.List;
@@ -66,7 +67,7 @@ public class GameMenu implements MenuComponent {
             display();
 
             // Get user choice
-            System.out.print("\nYour choice: ");
+            OutputContext.get().print("\nYour choice: ");
             String input = scanner.nextLine();
 
             // Determine the maximum number of options
@@ -80,7 +81,7 @@ public class GameMenu implements MenuComponent {
             Integer choice = InputValidator.validateMenuChoice(input, maxOptions);
 
             if (choice == null) {
-                System.out.println("Invalid choice! Please try again.");
+                OutputContext.get().println("Invalid choice! Please try again.");
                 continue;
             }
 
@@ -107,7 +108,7 @@ public class GameMenu implements MenuComponent {
                 
                 // If it was an action (not a submenu), we might want to pause
                 if (!(selected instanceof GameMenu)) {
-                    System.out.println("\nPress Enter to continue...");
+                    OutputContext.get().println("\nPress Enter to continue...");
                     scanner.nextLine();
                 }
             }
@@ -123,21 +124,21 @@ public class GameMenu implements MenuComponent {
      */
     @Override
     public void display() {
-        System.out.println("\n=== " + title.toUpperCase() + " ===");
+        OutputContext.get().println("\n=== " + title.toUpperCase() + " ===");
 
         for (int i = 0; i < menuItems.size(); i++) {
-            System.out.print((i + 1) + ". ");
+            OutputContext.get().print((i + 1) + ". ");
             menuItems.get(i).display();
         }
 
         // Show the appropriate exit option based on the menu type
         if (title.contains("Menu Principale") || title.equals("RPG Adventure Game - Menu Principale")) {
-            System.out.println("0. Exit");
+            OutputContext.get().println("0. Exit");
         } else if (!(title.contains("Menu Personaggio") || 
                    title.contains("Esplora Dungeon") || 
                    title.contains("Inventario"))) {
             // Only show "0. Back" for menus that don't already have a return option
-            System.out.println("0. Back");
+            OutputContext.get().println("0. Back");
         }
 
     }
@@ -156,7 +157,7 @@ public class GameMenu implements MenuComponent {
      * Helper method to exit the game
      */
     private void exitGame() {
-        System.out.println("\nGrazie per aver giocato!");
+        OutputContext.get().println("\nGrazie per aver giocato!");
         System.exit(0);
     }
 }
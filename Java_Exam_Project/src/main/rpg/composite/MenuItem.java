@@ -1,5 +1,7 @@
 package rpg.composite;
 
+import rpg.output.OutputContext;
+
 /**
  * MenuItem - Leaf node in the Composite pattern
  * <p>
@@ -45,7 +47,7 @@ public class MenuItem implements MenuComponent {
      */
     @Override
     public void display() {
-        System.out.println(name);
+        OutputContext.get().println(name);
     }
     
     /**
@@ -1,6 +1,10 @@
 package rpg.factory;
 
+import rpg.iterator.Inventory;
 import rpg.iterator.Item;
+import rpg.output.GameOutput;
+import rpg.output.OutputContext;
+import rpg.random.RandomContext;
 
 /**
  * Base class for all characters
@@ -12,6 +16,9 @@ import rpg.iterator.Item;
  * </p>
  */
 public abstract class AbstractCharacter implements Character {
+
+    /** Speed of characters, on the same scale as monster speed */
+    public static final int DEFAULT_SPEED = 10;
     
     protected String name;
     protected int health;
@@ -21,6 +28,9 @@ public abstract class AbstractCharacter implements Character {
     protected int baseDamage;
     protected int money;
     protected int level;
+    protected int speed;
+    protected final CharacterStats stats;
+    private CharacterChangeListener changeListener;
 
     /**
      * Constructor for creating a new character
@@ -39,6 +49,25 @@ public abstract class AbstractCharacter implements Character {
         this.baseDamage = Math.max(1, baseDamage);
         this.money = 100;
         this.level = 1;
+        this.speed = DEFAULT_SPEED;
+        this.stats = new CharacterStats(this.baseDamage);
+    }
+
+    /**
+     * Recomputes the derived stats after base statistics were changed directly
+     */
+    final void refreshStats() {
+        stats.refresh(baseDamage, getInventory());
+    }
+
+    /**
+     * Performs an attack with the random generator of the current thread
+     * 
+     * @return The amount of damage dealt by the attack
+     */
+    @Override
+    public int attack() {
+        return attack(RandomContext.get());
     }
 
     /**
@@ -53,11 +82,16 @@ public abstract class AbstractCharacter implements Character {
         }
 
         this.health = Math.max(0, this.health - damage);
-        System.out.printf("%s takes %d damage! Health: %d/%d%n",
-                name, damage, health, maxHealth);
+        notifyStatsChanged();
+
+        GameOutput out = OutputContext.get();
+        if (out.isEnabled()) {
+            out.printf("%s takes %d damage! Health: %d/%d%n",
+                    name, damage, health, maxHealth);
 
-        if (!isAlive()) {
-            System.out.printf("%s has been defeated!%n", name);
+            if (!isAlive()) {
+                out.printf("%s has been defeated!%n", name);
+            }
         }
     }
 
@@ -85,8 +119,8 @@ public abstract class AbstractCharacter implements Character {
             stamina = Math.min(maxStamina, stamina + amount);
             
             int restored = stamina - oldStamina;
-            if (restored > 0) {
-                System.out.printf("%s restored %d stamina. Stamina: %d/%d%n", 
+            if (restored > 0 && OutputContext.get().isEnabled()) {
+                OutputContext.get().printf("%s restored %d stamina. Stamina: %d/%d%n", 
                         name, restored, stamina, maxStamina);
             }
         } else if (amount < 0) {
@@ -95,11 +129,14 @@ public abstract class AbstractCharacter implements Character {
             stamina = Math.max(0, stamina - reduction);
             
             int reduced = oldStamina - stamina;
-            if (reduced > 0) {
-                System.out.printf("%s used %d stamina. Stamina: %d/%d%n", 
+            if (reduced > 0 && OutputContext.get().isEnabled()) {
+                OutputContext.get().printf("%s used %d stamina. Stamina: %d/%d%n", 
                         name, reduced, stamina, maxStamina);
             }
         }
+        if (stamina != oldStamina) {
+            notifyStatsChanged();
+        }
     }
 
     /**
@@ -108,7 +145,8 @@ public abstract class AbstractCharacter implements Character {
     @Override
     public void rest() {
         stamina = maxStamina;
-        System.out.printf("%s rests and recovers stamina.%n", name);
+        notifyStatsChanged();
+        OutputContext.get().printf("%s rests and recovers stamina.%n", name);
     }
 
     /**
@@ -117,15 +155,42 @@ public abstract class AbstractCharacter implements Character {
     @Override
     public void train() {
         if (money < 50) {
-            System.out.println("Not enough money to train!");
+            OutputContext.get().println("Not enough money to train!");
             return;
         }
         
         money -= 50;
         performTraining();
         level++;
+        refreshStats();
+        notifyStatsChanged();
         
-        System.out.printf("%s is now level %d!%n", name, level);
+        OutputContext.get().printf("%s is now level %d!%n", name, level);
+    }
+
+    /**
+     * Sets the listener notified after every change to the character's statistics
+     * <p>
+     * Item changes are reported by the inventory's own listener.
+     * </p>
+     * 
+     * @param listener The listener to notify, or null to remove it
+     */
+    public void setChangeListener(CharacterChangeListener listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Notifies the change listener, if any, that statistics have changed
+     * <p>
+     * Subclasses call this after changing fields directly (e.g. stamina
+     * spent by an attack).
+     * </p>
+     */
+    protected void notifyStatsChanged() {
+        if (changeListener != null) {
+            changeListener.onStatsChanged(this);
+        }
     }
 
     /**
@@ -155,6 +220,22 @@ public abstract class AbstractCharacter implements Character {
     @Override
     public abstract void showInventory();
 
+    /**
+     * Gets the character's inventory
+     * 
+     * @return The inventory holding the character's items
+     */
+    public abstract Inventory getInventory();
+
+    /**
+     * Gets the character's derived stats
+     * 
+     * @return The stats sheet, kept up to date with equipment and training
+     */
+    public CharacterStats getStats() {
+        return stats;
+    }
+
     /**
      * Gets the character's name
      * 
@@ -234,4 +315,14 @@ public abstract class AbstractCharacter implements Character {
     public int getLevel() {
         return level;
     }
+
+    /**
+     * Gets the character's speed
+     * 
+     * @return The speed (higher acts more often)
+     */
+    @Override
+    public int getSpeed() {
+        return speed;
+    }
 }
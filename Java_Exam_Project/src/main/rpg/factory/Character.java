@@ -1,6 +1,7 @@
 package rpg.factory;
 
 import rpg.iterator.Item;
+import java.util.random.RandomGenerator;
 
 /**
  * Character interface - defines what every character can do
@@ -15,10 +16,22 @@ public interface Character {
 
     /**
      * Performs an attack and calculates damage
+     * <p>
+     * Random rolls use the generator bound to the current thread
+     * (see RandomContext).
+     * </p>
      * 
      * @return The amount of damage dealt by the attack
      */
     int attack();
+
+    /**
+     * Performs an attack using the given random generator for damage rolls
+     * 
+     * @param random The random generator of the current fight
+     * @return The amount of damage dealt by the attack
+     */
+    int attack(RandomGenerator random);
     
     /**
      * Takes damage from an attack
@@ -125,4 +138,11 @@ public interface Character {
      * @return The character's level
      */
     int getLevel();
+
+    /**
+     * Gets the character's speed, which drives its initiative in group fights
+     * 
+     * @return The speed (higher acts more often)
+     */
+    int getSpeed();
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package rpg.factory;
+
+/**
+ * Observer Pattern - Interface for changes to a character's statistics
+ * <p>
+ * A character notifies its listener after every change to its health,
+ * stamina, mana, damage, money or level (damage taken, attacks, rest,
+ * training). This lets persistence record each change as it happens
+ * instead of rewriting the whole character.
+ * </p>
+ */
+public interface CharacterChangeListener {
+
+    /**
+     * Called after one or more statistics of the character have changed
+     * 
+     * @param character The character whose statistics changed
+     */
+    void onStatsChanged(AbstractCharacter character);
+}
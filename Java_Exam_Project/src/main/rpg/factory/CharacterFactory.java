@@ -1,6 +1,9 @@
 package rpg.factory;
 
+import rpg.iterator.Inventory;
+import rpg.iterator.Item;
 import rpg.rpgSecurity.InputValidator;
+import rpg.output.OutputContext;
 import java.util.logging.Logger;
 
 /**
@@ -37,7 +40,7 @@ public class CharacterFactory {
         String sanitizedType = InputValidator.sanitizeInput(type);
         if (sanitizedType.isEmpty()) {
             logger.warning("Character creation failed: empty type");
-            System.out.println("Character type cannot be empty!");
+            OutputContext.get().println("Character type cannot be empty!");
             return null;
         }
         
@@ -52,12 +55,12 @@ public class CharacterFactory {
                 return new Mage(validatedName);
             } else {
                 logger.warning("Character creation failed: invalid type: " + sanitizedType);
-                System.out.println("Invalid character type!");
+                OutputContext.get().println("Invalid character type!");
                 return null;
             }
         } catch (Exception e) {
             logger.severe("Error creating character: " + e.getMessage());
-            System.out.println("Error creating character: " + e.getMessage());
+            OutputContext.get().println("Error creating character: " + e.getMessage());
             return null;
         }
     }
@@ -66,9 +69,9 @@ public class CharacterFactory {
      * Shows available character types to the user
      */
     public void showAvailableTypes() {
-        System.out.println("Available character types:");
-        System.out.println("- warrior: Strong fighter with high health");
-        System.out.println("- mage: Magic user with spells");
+        OutputContext.get().println("Available character types:");
+        OutputContext.get().println("- warrior: Strong fighter with high health");
+        OutputContext.get().println("- mage: Magic user with spells");
     }
     
     /**
@@ -154,6 +157,168 @@ public class CharacterFactory {
         }
     }
     
+    /**
+     * Recreates a saved character in a single step, without logging
+     * <p>
+     * Meant for loading saves in bulk: the character is built once with all
+     * its values, and the name is checked with the same rules as
+     * InputValidator.validateCharacterName but without per-character log
+     * lines or console messages. Mana values are ignored for warriors.
+     * </p>
+     * 
+     * @param type The type of character ("warrior" or "mage")
+     * @param name The name of the character
+     * @param health The health value
+     * @param maxHealth The maximum health value
+     * @param stamina The stamina value
+     * @param maxStamina The maximum stamina value
+     * @param baseDamage The base damage value
+     * @param money The money amount
+     * @param level The character level
+     * @param mana The mana value (mages only)
+     * @param maxMana The maximum mana value (mages only)
+     * @return The recreated character
+     * @throws IllegalArgumentException If the type is unknown or the name is invalid
+     */
+    public Character restoreCharacter(String type, String name, int health, int maxHealth, int stamina,
+                                      int maxStamina, int baseDamage, int money, int level, int mana,
+                                      int maxMana) {
+        String trimmed = name != null ? name.trim() : "";
+        if (trimmed.length() < 2 || trimmed.length() > 20) {
+            throw new IllegalArgumentException("Invalid character name: " + name);
+        }
+
+        AbstractCharacter character;
+        if ("warrior".equalsIgnoreCase(type)) {
+            character = new Warrior(trimmed);
+        } else if ("mage".equalsIgnoreCase(type)) {
+            Mage mage = new Mage(trimmed);
+            mage.mana = Math.max(0, mana);
+            mage.maxMana = Math.max(1, maxMana);
+            character = mage;
+        } else {
+            throw new IllegalArgumentException("Invalid character type: " + type);
+        }
+        customizeCharacter(character, health, maxHealth, stamina, maxStamina, baseDamage, money, level);
+        return character;
+    }
+
+    /**
+     * Creates an independent copy of an existing character
+     * <p>
+     * The copy has the same class, statistics, mana and items as the template,
+     * with the same items equipped. Changes made to the copy (damage taken,
+     * stamina spent, items added) never affect the template, which makes this
+     * method suitable for running many fights from the same starting point.
+     * </p>
+     * 
+     * @param template The character to copy
+     * @return A new Character with the same state as the template, or null if the template is not supported
+     */
+    public Character createCopy(Character template) {
+        if (!(template instanceof AbstractCharacter source)) {
+            logger.warning("Character copy failed: unsupported template");
+            return null;
+        }
+
+        AbstractCharacter copy;
+        if (source instanceof Mage mage) {
+            Mage mageCopy = new Mage(source.name);
+            mageCopy.mana = mage.mana;
+            mageCopy.maxMana = mage.maxMana;
+            copy = mageCopy;
+        } else if (source instanceof Warrior) {
+            copy = new Warrior(source.name);
+        } else {
+            logger.warning("Character copy failed: unknown type " + source.getClass().getSimpleName());
+            return null;
+        }
+
+        copy.health = source.health;
+        copy.maxHealth = source.maxHealth;
+        copy.stamina = source.stamina;
+        copy.maxStamina = source.maxStamina;
+        copy.baseDamage = source.baseDamage;
+        copy.money = source.money;
+        copy.level = source.level;
+        copy.refreshStats();
+
+        Inventory sourceInventory = source.getInventory();
+        Inventory copyInventory = copy.getInventory();
+        if (sourceInventory != null && copyInventory != null) {
+            for (Item item : sourceInventory.getAllItems()) {
+                copyInventory.addItem(item);
+                if (sourceInventory.isEquipped(item)) {
+                    copyInventory.equipItem(item);
+                }
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Applies combat state computed outside the character objects
+     * <p>
+     * Used by engines that resolve fights on primitive copies of the
+     * character's state (e.g. BatchCombatEngine) to write the result back.
+     * Values are clamped to the character's maximums; mana is ignored for
+     * characters that have none.
+     * </p>
+     * 
+     * @param character The character to update
+     * @param health The new health value
+     * @param stamina The new stamina value
+     * @param mana The new mana value (mages only)
+     */
+    public void applyCombatState(Character character, int health, int stamina, int mana) {
+        if (!(character instanceof AbstractCharacter target)) {
+            logger.warning("Cannot apply combat state: unsupported character");
+            return;
+        }
+
+        target.health = Math.max(0, Math.min(target.maxHealth, health));
+        target.stamina = Math.max(0, Math.min(target.maxStamina, stamina));
+        if (target instanceof Mage mage) {
+            mage.mana = Math.max(0, Math.min(mage.maxMana, mana));
+        }
+        target.notifyStatsChanged();
+    }
+
+    /**
+     * Sets every statistic of a character at once
+     * <p>
+     * Used to restore a character from recorded state, e.g. when a mutation
+     * journal is replayed. Mana values are ignored for characters that have
+     * none.
+     * </p>
+     * 
+     * @param character The character to update
+     * @param health The health value to set
+     * @param maxHealth The maximum health value to set
+     * @param stamina The stamina value to set
+     * @param maxStamina The maximum stamina value to set
+     * @param baseDamage The base damage value to set
+     * @param money The money amount to set
+     * @param level The level to set
+     * @param mana The mana value to set (mages only)
+     * @param maxMana The maximum mana value to set (mages only)
+     */
+    public void applyStats(Character character, int health, int maxHealth, int stamina, int maxStamina,
+                           int baseDamage, int money, int level, int mana, int maxMana) {
+        if (!(character instanceof AbstractCharacter target)) {
+            logger.warning("Cannot apply stats: unsupported character");
+            return;
+        }
+
+        if (target instanceof Mage mage) {
+            mage.maxMana = Math.max(1, maxMana);
+            mage.mana = Math.max(0, Math.min(mage.maxMana, mana));
+        }
+        customizeCharacter(target, health, maxHealth, stamina, maxStamina, baseDamage, money, level);
+        target.notifyStatsChanged();
+    }
+
     /**
      * Helper method to customize character attributes
      * 
@@ -176,5 +341,6 @@ public class CharacterFactory {
         character.baseDamage = Math.max(1, baseDamage);
         character.money = Math.max(0, money);
         character.level = Math.max(1, level);
+        character.refreshStats();
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package rpg.factory;
+
+import rpg.iterator.EquipmentObserver;
+import rpg.iterator.Inventory;
+
+/**
+ * CharacterStats - Derived statistics of a character
+ * <p>
+ * This component holds the values that are derived from a character's
+ * base statistics and equipment, such as the equipment bonus and the
+ * effective damage used by attacks. Values are recomputed only when
+ * their inputs change (equipment change, training, level change or
+ * direct stat updates by the factory), so reading them is a plain field
+ * access whose cost does not depend on how many items are equipped.
+ * </p>
+ * <p>
+ * The component observes the character's inventory to be notified of
+ * equipment changes. It keeps its own copy of the base damage rather than
+ * a reference to the character, so it can be created while the character
+ * is still being constructed.
+ * </p>
+ */
+public class CharacterStats implements EquipmentObserver {
+
+    private int baseDamage;
+    private int equipmentBonus;
+    private int effectiveDamage;
+
+    /**
+     * Creates the stats sheet of a character
+     * 
+     * @param baseDamage The character's base damage
+     */
+    CharacterStats(int baseDamage) {
+        this.baseDamage = baseDamage;
+        this.effectiveDamage = baseDamage;
+    }
+
+    /**
+     * Connects the character's inventory to this stats sheet
+     * <p>
+     * Subclasses call this once their inventory has been created, so that
+     * equipment changes update the derived stats.
+     * </p>
+     * 
+     * @param inventory The character's inventory
+     */
+    void bind(Inventory inventory) {
+        inventory.setEquipmentObserver(this);
+        refresh(baseDamage, inventory);
+    }
+
+    /**
+     * Recomputes all derived values from the character's current state
+     * 
+     * @param baseDamage The character's base damage
+     * @param inventory The character's inventory, or null if it has none
+     */
+    void refresh(int baseDamage, Inventory inventory) {
+        this.baseDamage = baseDamage;
+        equipmentBonus = inventory != null ? inventory.getTotalStatBonus() : 0;
+        effectiveDamage = baseDamage + equipmentBonus;
+    }
+
+    /**
+     * Updates the derived values after an equipment change
+     * 
+     * @param inventory The inventory whose equipment changed
+     * @param totalStatBonus The new total stat bonus
+     */
+    @Override
+    public void onEquipmentChanged(Inventory inventory, int totalStatBonus) {
+        equipmentBonus = totalStatBonus;
+        effectiveDamage = baseDamage + totalStatBonus;
+    }
+
+    /**
+     * Gets the total bonus granted by equipped items
+     * 
+     * @return The equipment bonus
+     */
+    public int getEquipmentBonus() {
+        return equipmentBonus;
+    }
+
+    /**
+     * Gets the damage of an attack before random rolls
+     * 
+     * @return Base damage plus equipment bonus
+     */
+    public int getEffectiveDamage() {
+        return effectiveDamage;
+    }
+}
@@ -2,7 +2,9 @@ package rpg.factory;
 
 import rpg.iterator.Item;
 import rpg.iterator.Inventory;
-import java.util.Random;
+import rpg.output.GameOutput;
+import rpg.output.OutputContext;
+import java.util.random.RandomGenerator;
 
 /**
  * Mage character class
@@ -15,7 +17,6 @@ import java.util.Random;
  */
 public class Mage extends AbstractCharacter {
 
-  private static final Random random = new Random();
   int mana;
   int maxMana;
   private final Inventory inventory;
@@ -30,6 +31,7 @@ public class Mage extends AbstractCharacter {
     this.mana = 50;
     this.maxMana = 50;
     this.inventory = new Inventory(20);
+    stats.bind(inventory);
   }
 
   /**
@@ -39,30 +41,42 @@ public class Mage extends AbstractCharacter {
    * perform weaker staff attacks when low on mana.
    * </p>
    * 
+   * @param random The random generator used for the damage roll
    * @return Damage dealt by the attack, or 0 if the attack fails
    */
   @Override
-  public int attack() {
+  public int attack(RandomGenerator random) {
+    GameOutput out = OutputContext.get();
     if (stamina < 3) {
-      System.out.printf("%s is too tired!%n", name);
+      if (out.isEnabled()) {
+        out.printf("%s is too tired!%n", name);
+      }
       return 0;
     }
 
+    // One notification covers the stamina and, for a spell, the mana spent
     stamina -= 3;
+    boolean spell = mana >= 10;
+    if (spell) {
+      mana -= 10;
+    }
+    notifyStatsChanged();
 
-    int equipmentBonus = inventory != null ? inventory.getTotalStatBonus() : 0;
-    int baseAttack = baseDamage + equipmentBonus;
+    int baseAttack = stats.getEffectiveDamage();
 
     // Mana-based attack logic
-    if (mana >= 10) {
-      mana -= 10;
+    if (spell) {
       int magicDamage = baseAttack + 5 + random.nextInt(10);
-      System.out.printf("%s casts a spell for %d damage! Mana: %d/%d%n",
-              name, magicDamage, mana, maxMana);
+      if (out.isEnabled()) {
+        out.printf("%s casts a spell for %d damage! Mana: %d/%d%n",
+                name, magicDamage, mana, maxMana);
+      }
       return magicDamage;
     } else {
       int staffDamage = baseAttack + random.nextInt(3);
-      System.out.printf("%s attacks with staff for %d damage!%n", name, staffDamage);
+      if (out.isEnabled()) {
+        out.printf("%s attacks with staff for %d damage!%n", name, staffDamage);
+      }
       return staffDamage;
     }
   }
@@ -76,7 +90,7 @@ public class Mage extends AbstractCharacter {
     maxMana += 10;
     mana = maxMana;
     maxStamina += 5;
-    System.out.printf("%s studies magic!%n", name);
+    OutputContext.get().printf("%s studies magic!%n", name);
   }
 
   /**
@@ -86,7 +100,8 @@ public class Mage extends AbstractCharacter {
   public void rest() {
     super.rest();
     this.mana = maxMana;
-    System.out.printf("%s meditates and restores mana!%n", name);
+    notifyStatsChanged();
+    OutputContext.get().printf("%s meditates and restores mana!%n", name);
   }
 
   /**
@@ -101,12 +116,12 @@ public class Mage extends AbstractCharacter {
     }
 
     if (!inventory.getAllItems().contains(item)) {
-      System.out.println("Item not in inventory!");
+      OutputContext.get().println("Item not in inventory!");
       return;
     }
 
     inventory.equipItem(item);
-    System.out.printf("%s equipped %s!%n", name, item.getName());
+    OutputContext.get().printf("%s equipped %s!%n", name, item.getName());
   }
 
   /**
@@ -121,7 +136,7 @@ public class Mage extends AbstractCharacter {
     }
 
     if (inventory.addItem(item)) {
-      System.out.printf("%s added %s!%n", name, item.getName());
+      OutputContext.get().printf("%s added %s!%n", name, item.getName());
     }
   }
 
@@ -134,14 +149,24 @@ public class Mage extends AbstractCharacter {
       return;
     }
 
-    System.out.printf("\n=== %s's Equipment ===%n", name);
+    OutputContext.get().printf("\n=== %s's Equipment ===%n", name);
     inventory.displayInventory();
 
-    int totalBonus = inventory.getTotalStatBonus();
+    int totalBonus = stats.getEquipmentBonus();
     if (totalBonus > 0) {
-      System.out.printf("Magic bonus: +%d power%n", totalBonus);
+      OutputContext.get().printf("Magic bonus: +%d power%n", totalBonus);
     }
-    System.out.printf("Mana: %d/%d%n", mana, maxMana);
+    OutputContext.get().printf("Mana: %d/%d%n", mana, maxMana);
+  }
+
+  /**
+   * Gets the mage's inventory
+   * 
+   * @return The mage's inventory
+   */
+  @Override
+  public Inventory getInventory() {
+    return inventory;
   }
 
   /**
@@ -178,13 +203,8 @@ public class Mage extends AbstractCharacter {
    */
   @Override
   public String toString() {
-    int totalDamage = baseDamage;
-    if (inventory != null) {
-      totalDamage += inventory.getTotalStatBonus();
-    }
-
     return String.format("Mage %s [HP: %d/%d, Stamina: %d/%d, Mana: %d/%d, Power: %d, Money: %d, Level: %d]",
             name, health, maxHealth, stamina, maxStamina,
-            mana, maxMana, totalDamage, money, level);
+            mana, maxMana, stats.getEffectiveDamage(), money, level);
   }
 }
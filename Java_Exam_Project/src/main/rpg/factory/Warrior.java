@@ -2,7 +2,9 @@ package rpg.factory;
 
 import rpg.iterator.Item;
 import rpg.iterator.Inventory;
-import java.util.Random;
+import rpg.output.GameOutput;
+import rpg.output.OutputContext;
+import java.util.random.RandomGenerator;
 
 /**
  * Warrior character class
@@ -14,7 +16,6 @@ import java.util.Random;
  */
 public class Warrior extends AbstractCharacter {
 
-    private static final Random random = new Random();
     private final Inventory inventory;
 
     /**
@@ -25,26 +26,33 @@ public class Warrior extends AbstractCharacter {
     public Warrior(String name) {
         super(name, 120, 100, 15);
         this.inventory = new Inventory(25);
+        stats.bind(inventory);
     }
 
     /**
      * Performs a warrior attack
      * 
+     * @param random The random generator used for the damage roll
      * @return Damage dealt by the attack, or 0 if the attack fails
      */
     @Override
-    public int attack() {
+    public int attack(RandomGenerator random) {
+        GameOutput out = OutputContext.get();
         if (stamina < 5) {
-            System.out.printf("%s is too tired to attack!%n", name);
+            if (out.isEnabled()) {
+                out.printf("%s is too tired to attack!%n", name);
+            }
             return 0;
         }
 
         stamina -= 5;
+        notifyStatsChanged();
 
-        int equipmentBonus = inventory != null ? inventory.getTotalStatBonus() : 0;
-        int damage = baseDamage + equipmentBonus + random.nextInt(5);
-        
-        System.out.printf("%s attacks for %d damage!%n", name, damage);
+        int damage = stats.getEffectiveDamage() + random.nextInt(5);
+
+        if (out.isEnabled()) {
+            out.printf("%s attacks for %d damage!%n", name, damage);
+        }
         return Math.max(1, damage);
     }
 
@@ -56,7 +64,7 @@ public class Warrior extends AbstractCharacter {
         baseDamage += 2;
         maxHealth += 5;
         health = maxHealth;
-        System.out.printf("%s trains with weapons!%n", name);
+        OutputContext.get().printf("%s trains with weapons!%n", name);
     }
 
     /**
@@ -71,12 +79,12 @@ public class Warrior extends AbstractCharacter {
         }
 
         if (!inventory.getAllItems().contains(item)) {
-            System.out.println("Item not in inventory!");
+            OutputContext.get().println("Item not in inventory!");
             return;
         }
 
         inventory.equipItem(item);
-        System.out.printf("%s equipped %s!%n", name, item.getName());
+        OutputContext.get().printf("%s equipped %s!%n", name, item.getName());
     }
 
     /**
@@ -91,7 +99,7 @@ public class Warrior extends AbstractCharacter {
         }
 
         if (inventory.addItem(item)) {
-            System.out.printf("%s added %s!%n", name, item.getName());
+            OutputContext.get().printf("%s added %s!%n", name, item.getName());
         }
     }
 
@@ -104,15 +112,25 @@ public class Warrior extends AbstractCharacter {
             return;
         }
 
-        System.out.printf("\n=== %s's Equipment ===%n", name);
+        OutputContext.get().printf("\n=== %s's Equipment ===%n", name);
         inventory.displayInventory();
 
-        int totalBonus = inventory.getTotalStatBonus();
+        int totalBonus = stats.getEquipmentBonus();
         if (totalBonus > 0) {
-            System.out.printf("Equipment bonus: +%d damage%n", totalBonus);
+            OutputContext.get().printf("Equipment bonus: +%d damage%n", totalBonus);
         }
     }
 
+    /**
+     * Gets the warrior's inventory
+     * 
+     * @return The warrior's inventory
+     */
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
     /**
      * Gets the warrior's stamina recovery rate
      * 
@@ -129,12 +147,7 @@ public class Warrior extends AbstractCharacter {
      */
     @Override
     public String toString() {
-        int totalDamage = baseDamage;
-        if (inventory != null) {
-            totalDamage += inventory.getTotalStatBonus();
-        }
-
         return String.format("Warrior %s [HP: %d/%d, Stamina: %d/%d, Damage: %d, Money: %d, Level: %d]",
-                name, health, maxHealth, stamina, maxStamina, totalDamage, money, level);
+                name, health, maxHealth, stamina, maxStamina, stats.getEffectiveDamage(), money, level);
     }
 }
@@ -3,8 +3,12 @@ package rpg.factoryMonster;
 import rpg.iterator.Item;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Random;
 import rpg.logger.GameLogger;
+import rpg.output.GameOutput;
+import rpg.output.OutputContext;
+import rpg.random.RandomContext;
+import java.util.random.RandomGenerator;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -22,6 +26,9 @@ public abstract class AbstractMonster {
 
     private static final Logger logger = GameLogger.getLogger();
 
+    /** Speed of monsters that do not set their own */
+    public static final int DEFAULT_SPEED = 10;
+
     // Base statistics common to all monsters
     protected String name;
     protected String type;
@@ -29,14 +36,12 @@ public abstract class AbstractMonster {
     protected int maxHealth;
     protected int baseDamage;
     protected int goldDrop;
+    protected int speed = DEFAULT_SPEED; // Initiative: higher speed acts more often
 
     // Item drop system
     protected List<Item> possibleDrops;
     protected int dropChance; // Drop probability percentage (0-100)
 
-    // Random number generator for damage variations and drops
-    protected static final Random random = new Random();
-
     /**
      * Protected constructor - only subclasses can create monsters
      *
@@ -70,18 +75,31 @@ public abstract class AbstractMonster {
         this.possibleDrops = new ArrayList<>();
     }
 
+    /**
+     * Monster attack with the random generator of the current thread
+     *
+     * @return the damage inflicted by the attack
+     */
+    public int attack() {
+        return attack(RandomContext.get());
+    }
+
     /**
      * Monster attack - base behavior
      * Subclasses can override this method for special behaviors
      *
+     * @param random The random generator of the current fight
      * @return the damage inflicted by the attack
      */
-    public int attack() {
+    public int attack(RandomGenerator random) {
         // Calculate damage with a small random variation
-        int damage = calculateDamage();
+        int damage = calculateDamage(random);
 
         // Attack message - subclasses can customize it
-        System.out.printf("%s %s attacks for %d damage!%n", type, name, damage);
+        GameOutput out = OutputContext.get();
+        if (out.isEnabled()) {
+            out.printf("%s %s attacks for %d damage!%n", type, name, damage);
+        }
 
         return damage;
     }
@@ -90,9 +108,10 @@ public abstract class AbstractMonster {
      * Calculates attack damage with random variation
      * Protected method that subclasses can override
      * 
+     * @param random The random generator used for the variation
      * @return The calculated damage amount
      */
-    protected int calculateDamage() {
+    protected int calculateDamage(RandomGenerator random) {
         // Random variation of ±20% of base damage
         int variance = (int)(baseDamage * 0.2); // 20% of base damage
         int variation = random.nextInt(variance * 2 + 1) - variance; // From -variance to +variance
@@ -108,25 +127,46 @@ public abstract class AbstractMonster {
     public void takeDamage(int damage) {
         if (damage < 0) {
             logger.warning("Invalid negative damage attempted: " + damage + " on " + type + " " + name);
-            System.out.println("Invalid damage ignored");
+            OutputContext.get().println("Invalid damage ignored");
             return;
         }
 
         int oldHealth = this.health;
         this.health = Math.max(0, this.health - damage);
         
-        logger.info(type + " " + name + " took " + damage + " damage. Health: " + oldHealth + " -> " + health);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine(type + " " + name + " took " + damage + " damage. Health: " + oldHealth + " -> " + health);
+        }
 
-        System.out.printf("%s %s takes %d damage! Health: %d/%d%n",
-                type, name, damage, health, maxHealth);
+        GameOutput out = OutputContext.get();
+        if (out.isEnabled()) {
+            out.printf("%s %s takes %d damage! Health: %d/%d%n",
+                    type, name, damage, health, maxHealth);
+        }
 
         if (!isAlive()) {
-            logger.info(type + " " + name + " was defeated");
-            System.out.printf("%s %s has been defeated!%n", type, name);
+            logger.fine(type + " " + name + " was defeated");
+            if (out.isEnabled()) {
+                out.printf("%s %s has been defeated!%n", type, name);
+            }
             onDefeat(); // Call defeat method
         }
     }
 
+    /**
+     * Sets the monster's health directly
+     * <p>
+     * Used to write back state computed outside the monster object, e.g. by
+     * the batch combat engine. No messages are printed and onDefeat() is not
+     * called. The value is clamped between 0 and the maximum health.
+     * </p>
+     *
+     * @param health The new health value
+     */
+    public void setHealth(int health) {
+        this.health = Math.max(0, Math.min(maxHealth, health));
+    }
+
     /**
      * Checks if the monster is still alive
      *
@@ -163,6 +203,16 @@ public abstract class AbstractMonster {
      * @return list of actually dropped items
      */
     public List<Item> getDroppedItems() {
+        return getDroppedItems(RandomContext.get());
+    }
+
+    /**
+     * Calculates items dropped by the monster using the given random generator
+     *
+     * @param random The random generator of the current fight
+     * @return list of actually dropped items
+     */
+    public List<Item> getDroppedItems(RandomGenerator random) {
         List<Item> actualDrops = new ArrayList<>();
 
         // If no possible drops, return empty list
@@ -227,6 +277,15 @@ public abstract class AbstractMonster {
         return baseDamage;
     }
 
+    /**
+     * Gets the monster's speed, which drives its initiative in group fights
+     *
+     * @return The speed (higher acts more often)
+     */
+    public int getSpeed() {
+        return speed;
+    }
+
     /**
      * Gets the gold dropped when defeated
      * 
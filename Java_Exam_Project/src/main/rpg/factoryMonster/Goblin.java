@@ -3,7 +3,9 @@ package rpg.factoryMonster;
 
 import rpg.iterator.Item;
 import rpg.logger.GameLogger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 
 /**
  * Goblin - Basic monster of the Goblin Cave
@@ -30,20 +32,25 @@ public class Goblin extends AbstractMonster {
                 50              // 50% drop chance
         );
         
+        speed = 12; // Goblins are quick
+
         // Add a possible drop
         addPossibleDrop(new Item("Health Potion", Item.ItemType.POTION, 15, 0));
-        logger.info("Goblin created with " + health + " HP");
+        logger.fine("Goblin created with " + health + " HP");
     }
     
     /**
      * Goblin attack implementation
      * 
+     * @param random The random generator of the current fight
      * @return The damage dealt by the attack
      */
     @Override
-    public int attack() {
-        int damage = super.attack();
-        logger.info("Goblin attacks for " + damage + " damage");
+    public int attack(RandomGenerator random) {
+        int damage = super.attack(random);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Goblin attacks for " + damage + " damage");
+        }
         return damage;
     }
     
@@ -33,11 +33,11 @@ public class MonsterFactory {
 
             return switch (type.toLowerCase()) {
                 case "goblin" -> {
-                    logger.info("Creating Goblin");
+                    logger.fine("Creating Goblin");
                     yield new Goblin();
                 }
                 case "troll" -> {
-                    logger.info("Creating Troll");
+                    logger.fine("Creating Troll");
                     yield new Troll();
                 }
                 default -> {
@@ -2,7 +2,9 @@ package rpg.factoryMonster;
 
 import rpg.iterator.Item;
 import rpg.logger.GameLogger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 
 /**
  * Troll - Monster of the Swamp of Trolls
@@ -29,21 +31,26 @@ public class Troll extends AbstractMonster {
                 50              // 50% drop chance
         );
 
+        speed = 6; // Trolls are slow
+
         // Add possible drops
         addPossibleDrop(new Item("Large Health Potion", Item.ItemType.POTION, 30, 0));
         addPossibleDrop(new Item("Club", Item.ItemType.WEAPON, 50, 3));
-        logger.info("Troll created with " + health + " HP");
+        logger.fine("Troll created with " + health + " HP");
     }
     
     /**
      * Troll attack implementation
      * 
+     * @param random The random generator of the current fight
      * @return The damage dealt by the attack
      */
     @Override
-    public int attack() {
-        int damage = super.attack();
-        logger.info("Troll attacks for " + damage + " damage");
+    public int attack(RandomGenerator random) {
+        int damage = super.attack(random);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Troll attacks for " + damage + " damage");
+        }
         return damage;
     }
     
@@ -0,0 +1,21 @@
+package rpg.iterator;
+
+/**
+ * Observer Pattern - Interface for equipment changes
+ * <p>
+ * An inventory notifies its observer every time the set of equipped
+ * items changes, passing the new total stat bonus. This allows values
+ * derived from equipment (such as a character's effective damage) to be
+ * updated once per change instead of being recomputed on every use.
+ * </p>
+ */
+public interface EquipmentObserver {
+
+    /**
+     * Called after an item has been equipped or unequipped
+     * 
+     * @param inventory The inventory whose equipment changed
+     * @param totalStatBonus The new total stat bonus of the equipped items
+     */
+    void onEquipmentChanged(Inventory inventory, int totalStatBonus);
+}
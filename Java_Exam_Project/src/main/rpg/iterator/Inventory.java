@@ -1,6 +1,7 @@
 package rpg.iterator;
 
 import rpg.strategy.InventorySortStrategy;
+import rpg.output.OutputContext;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -29,6 +30,16 @@ public class Inventory implements Iterable<Item> {
 
     private final int maxCapacity;
 
+    // Running totals, updated on every change so that reading them never iterates
+    private int totalValue;
+    private int totalStatBonus;
+
+    // Observer notified when the equipped items change
+    private EquipmentObserver equipmentObserver;
+
+    // Listener notified of every added, equipped or removed item (e.g. a mutation journal)
+    private InventoryListener inventoryListener;
+
     /**
      * Constructor with configurable capacity
      *
@@ -57,7 +68,11 @@ public class Inventory implements Iterable<Item> {
 
         // Capacity check removed as inventory is no longer limited
         items.add(item);
-        System.out.println("Added " + item.getName() + " to inventory");
+        totalValue += item.getValue();
+        OutputContext.get().println("Added " + item.getName() + " to inventory");
+        if (inventoryListener != null) {
+            inventoryListener.onItemAdded(this, item);
+        }
         return true;
     }
 
@@ -73,21 +88,47 @@ public class Inventory implements Iterable<Item> {
         }
 
         if (!items.contains(item)) {
-            System.out.println("Item not in inventory!");
+            OutputContext.get().println("Item not in inventory!");
             return false;
         }
 
         // Unequip current item of same type if any
         Item currentEquipped = equippedItems.get(item.getType());
         if (currentEquipped != null) {
-            System.out.println("Unequipping " + currentEquipped.getName());
+            OutputContext.get().println("Unequipping " + currentEquipped.getName());
         }
 
         equippedItems.put(item.getType(), item);
-        System.out.println("Equipped " + item.getName());
+        totalStatBonus += item.getStatBonus() - (currentEquipped != null ? currentEquipped.getStatBonus() : 0);
+        OutputContext.get().println("Equipped " + item.getName());
+
+        if (equipmentObserver != null) {
+            equipmentObserver.onEquipmentChanged(this, totalStatBonus);
+        }
+        if (inventoryListener != null) {
+            inventoryListener.onItemEquipped(this, item);
+        }
         return true;
     }
 
+    /**
+     * Sets the observer notified when equipped items change
+     * 
+     * @param observer The observer to notify, or null to remove it
+     */
+    public void setEquipmentObserver(EquipmentObserver observer) {
+        this.equipmentObserver = observer;
+    }
+
+    /**
+     * Sets the listener notified when items are added, equipped or removed
+     * 
+     * @param listener The listener to notify, or null to remove it
+     */
+    public void setInventoryListener(InventoryListener listener) {
+        this.inventoryListener = listener;
+    }
+
     /**
      * Checks if an item is currently equipped
      * 
@@ -105,9 +146,7 @@ public class Inventory implements Iterable<Item> {
      * @return The total gold value of all items in the inventory
      */
     public int getTotalValue() {
-        return items.stream()
-                .mapToInt(Item::getValue)
-                .sum();
+        return totalValue;
     }
 
     /**
@@ -116,9 +155,7 @@ public class Inventory implements Iterable<Item> {
      * @return The total stat bonus from all equipped items
      */
     public int getTotalStatBonus() {
-        return equippedItems.values().stream()
-                .mapToInt(Item::getStatBonus)
-                .sum();
+        return totalStatBonus;
     }
 
 
@@ -179,7 +216,11 @@ public class Inventory implements Iterable<Item> {
             if (currentIndex <= 0) {
                 throw new IllegalStateException("Cannot remove before calling next()");
             }
-            items.remove(--currentIndex);
+            Item removed = items.remove(--currentIndex);
+            totalValue -= removed.getValue();
+            if (inventoryListener != null) {
+                inventoryListener.onItemRemoved(Inventory.this, removed);
+            }
         }
     }
 
@@ -191,12 +232,12 @@ public class Inventory implements Iterable<Item> {
      * </p>
      */
     public void displayInventory() {
-        System.out.println("\n=== INVENTORY ===");
-        System.out.println("Total items: " + items.size());
-        System.out.println("Total value: " + getTotalValue() + " gold");
+        OutputContext.get().println("\n=== INVENTORY ===");
+        OutputContext.get().println("Total items: " + items.size());
+        OutputContext.get().println("Total value: " + getTotalValue() + " gold");
 
         if (items.isEmpty()) {
-            System.out.println("Inventory is empty");
+            OutputContext.get().println("Inventory is empty");
             return;
         }
 
@@ -207,10 +248,10 @@ public class Inventory implements Iterable<Item> {
         for (Item.ItemType type : Item.ItemType.values()) {
             List<Item> typeItems = itemsByType.get(type);
             if (typeItems != null && !typeItems.isEmpty()) {
-                System.out.println("\n" + type.getDisplayName() + "s:");
+                OutputContext.get().println("\n" + type.getDisplayName() + "s:");
                 for (Item item : typeItems) {
                     String equipped = isEquipped(item) ? " [EQUIPPED]" : "";
-                    System.out.println("  - " + item + equipped);
+                    OutputContext.get().println("  - " + item + equipped);
                 }
             }
         }
@@ -0,0 +1,35 @@
+package rpg.iterator;
+
+/**
+ * Observer Pattern - Interface for changes to the content of an inventory
+ * <p>
+ * Unlike the EquipmentObserver, which only receives the new stat bonus,
+ * the listener is told exactly which item was added, equipped or removed.
+ * </p>
+ */
+public interface InventoryListener {
+
+    /**
+     * Called after an item has been added to the inventory
+     * 
+     * @param inventory The inventory the item was added to
+     * @param item The added item
+     */
+    void onItemAdded(Inventory inventory, Item item);
+
+    /**
+     * Called after an item has been equipped
+     * 
+     * @param inventory The inventory holding the item
+     * @param item The equipped item
+     */
+    void onItemEquipped(Inventory inventory, Item item);
+
+    /**
+     * Called after an item has been removed from the inventory
+     * 
+     * @param inventory The inventory the item was removed from
+     * @param item The removed item
+     */
+    void onItemRemoved(Inventory inventory, Item item);
+}
@@ -19,6 +19,11 @@ import java.util.logging.SimpleFormatter;
  * This prevents logging issues from causing application failures.
  * </p>
  * <p>
+ * The level defaults to INFO and can be changed with the game.log.level
+ * system property (e.g. -Dgame.log.level=FINE). Per-hit combat messages
+ * are logged at FINE, so fights do not format them unless asked to.
+ * </p>
+ * <p>
  * Usage example:
  * <pre>
  * private static final Logger logger = GameLogger.getInstance().getLogger();
@@ -86,7 +91,7 @@ public class GameLogger {
             handler.setFormatter(new SimpleFormatter());
 
             gameLogger.addHandler(handler);
-            gameLogger.setLevel(Level.ALL);
+            gameLogger.setLevel(configuredLevel());
 
         } catch (Exception e) {
             // Fallback: if handler setup fails, still return working logger
@@ -96,6 +101,20 @@ public class GameLogger {
         return gameLogger;
     }
 
+    /**
+     * Reads the logging level from the game.log.level system property
+     *
+     * @return The configured level, or INFO if unset or invalid
+     */
+    private static Level configuredLevel() {
+        try {
+            return Level.parse(System.getProperty("game.log.level", "INFO"));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Warning: Invalid game.log.level, using INFO");
+            return Level.INFO;
+        }
+    }
+
     /**
      * Gets the logger instance
      * <p>
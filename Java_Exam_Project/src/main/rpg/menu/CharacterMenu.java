@@ -3,12 +3,16 @@ package rpg.menu;
 import rpg.composite.GameMenu;
 import rpg.composite.MenuItem;
 import rpg.factory.Character;
-import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.GroupCommitSaver;
 import rpg.rpgSecurity.InputValidator;
 import rpg.logger.GameLogger;
+import rpg.output.GameOutput;
+import rpg.output.OutputContext;
 
 import rpg.rpgSecurity.ExceptionHandler;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
@@ -47,7 +51,7 @@ public class CharacterMenu {
 
         if (!character.isAlive()) {
             logger.warning("Character is dead, returning to main menu: " + character.getName());
-            System.out.println("Il tuo personaggio è morto! Ritorno al menu principale.");
+            OutputContext.get().println("Il tuo personaggio è morto! Ritorno al menu principale.");
             throw new ReturnToMainMenuException();
         }
 
@@ -95,11 +99,11 @@ public class CharacterMenu {
      * @param character The character to train
      */
     private static void trainCharacter(Character character) {
-        System.out.println("\n=== ALLENAMENTO ===");
-        System.out.println("Personaggio: " + character);
+        OutputContext.get().println("\n=== ALLENAMENTO ===");
+        OutputContext.get().println("Personaggio: " + character);
 
         if (character.getStamina() < 10) {
-            System.out.println("Non hai abbastanza stamina per allenarti! (Serve almeno 10)");
+            OutputContext.get().println("Non hai abbastanza stamina per allenarti! (Serve almeno 10)");
             return;
         }
 
@@ -114,9 +118,9 @@ public class CharacterMenu {
         
         character.train();
 
-        System.out.println("Allenamento completato!");
-        System.out.println("Danno aumentato da " + oldDamage + " a " + character.getBaseDamage());
-        System.out.println("Stamina consumata: -10 (Stamina attuale: " + character.getStamina() + ")");
+        OutputContext.get().println("Allenamento completato!");
+        OutputContext.get().println("Danno aumentato da " + oldDamage + " a " + character.getBaseDamage());
+        OutputContext.get().println("Stamina consumata: -10 (Stamina attuale: " + character.getStamina() + ")");
 
         logger.info("Character trained: " + character.getName());
     }
@@ -153,12 +157,12 @@ public class CharacterMenu {
      * @param character The character to rest
      */
     private static void restCharacter(Character character) {
-        System.out.println("\n=== RIPOSO ===");
-        System.out.println("Stato attuale: " + character);
+        OutputContext.get().println("\n=== RIPOSO ===");
+        OutputContext.get().println("Stato attuale: " + character);
 
         if (character.getHealth() == character.getMaxHealth() &&
                 character.getStamina() == character.getMaxStamina()) {
-            System.out.println("Sei già completamente riposato!");
+            OutputContext.get().println("Sei già completamente riposato!");
             return;
         }
 
@@ -170,12 +174,12 @@ public class CharacterMenu {
         int healthRecovered = character.getHealth() - oldHealth;
         int staminaRecovered = character.getStamina() - oldStamina;
 
-        System.out.println("Riposo completato!");
+        OutputContext.get().println("Riposo completato!");
         if (healthRecovered > 0) {
-            System.out.println("Vita recuperata: +" + healthRecovered);
+            OutputContext.get().println("Vita recuperata: +" + healthRecovered);
         }
         if (staminaRecovered > 0) {
-            System.out.println("Stamina recuperata: +" + staminaRecovered);
+            OutputContext.get().println("Stamina recuperata: +" + staminaRecovered);
         }
 
         logger.info("Character rested: " + character.getName());
@@ -184,28 +188,37 @@ public class CharacterMenu {
     /**
      * Saves character and returns to main menu
      * <p>
-     * Prompts the user for a save file name, saves the character to that file,
-     * and returns to the main menu if the save is successful.
+     * Prompts the user for a save file name, queues the save with the
+     * game-wide GroupCommitSaver and returns to the main menu at once. The
+     * file is written in the background with the saves made at the same
+     * time; a failed write is reported when it happens.
      * </p>
      * 
      * @param character The character to save
      */
     private static void saveAndReturnToMain(Character character) {
-        System.out.println("\n=== SALVATAGGIO ===");
-        System.out.print("Nome del salvataggio: ");
+        OutputContext.get().println("\n=== SALVATAGGIO ===");
+        OutputContext.get().print("Nome del salvataggio: ");
         String filename = InputValidator.sanitizeInput(scanner.nextLine());
 
         if (!filename.isEmpty()) {
-            boolean success = CharacterManagement.saveCharacter(character, filename);
-            if (success) {
-                System.out.println("Personaggio salvato!");
-                logger.info("Character saved: " + character.getName());
+            CompletableFuture<Path> saved = GroupCommitSaver.getDefault().save(character, filename);
+            if (!saved.isCompletedExceptionally()) {
+                GameOutput out = OutputContext.get(); // The callback runs on the saver thread
+                saved.whenComplete((file, error) -> {
+                    if (error != null) {
+                        out.println("\nErrore nel salvataggio di " + character.getName() + "!");
+                    } else {
+                        out.println("\nPersonaggio salvato!");
+                    }
+                });
+                logger.info("Character save queued: " + character.getName());
                 throw new ReturnToMainMenuException();
             } else {
-                System.out.println("Errore nel salvataggio!");
+                OutputContext.get().println("Errore nel salvataggio!");
             }
         } else {
-            System.out.println("Nome non valido!");
+            OutputContext.get().println("Nome non valido!");
         }
     }
 
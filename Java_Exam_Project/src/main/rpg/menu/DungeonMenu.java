@@ -8,8 +8,11 @@ import rpg.builder.ConcreteDungeonBuilder;
 import rpg.builder.Dungeon;
 import rpg.builder.DungeonBuilder;
 import rpg.builder.DungeonExplorer;
+import rpg.combat.MatchupCalculator;
+import rpg.combat.MatchupOdds;
 import rpg.menu.CharacterMenu.ReturnToMainMenuException;
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 import rpg.rpgSecurity.ExceptionHandler;
 import java.util.logging.Logger;
 
@@ -29,6 +32,7 @@ import java.util.logging.Logger;
 public class DungeonMenu {
     private static final Logger logger = GameLogger.getLogger();
     private static final DungeonBuilder dungeonBuilder = new ConcreteDungeonBuilder();
+    private static final MatchupCalculator matchupCalculator = new MatchupCalculator();
     
     /**
      * Shows dungeon menu
@@ -52,6 +56,7 @@ public class DungeonMenu {
             
             menu.add(new MenuItem("Goblin Cave", () -> enterGoblinCave(character)));
             menu.add(new MenuItem("Swamp of Trolls", () -> enterSwamp(character)));
+            menu.add(new MenuItem("Goblin Warren", () -> enterGoblinWarren(character)));
             menu.add(new MenuItem("Torna al menu personaggio", () -> {}));
             
             menu.execute();
@@ -74,7 +79,7 @@ public class DungeonMenu {
      * @param character The character that will explore the dungeon
      */
     private static void enterGoblinCave(Character character) {
-        System.out.println("\n=== GOBLIN CAVE ===");
+        OutputContext.get().println("\n=== GOBLIN CAVE ===");
         logger.info(character.getName() + " entra nella Goblin Cave");
         
         Dungeon goblinCave = buildDungeon("Goblin Cave", "Una grotta piena di goblin.", 100, "goblin");
@@ -91,13 +96,36 @@ public class DungeonMenu {
      * @param character The character that will explore the dungeon
      */
     private static void enterSwamp(Character character) {
-        System.out.println("\n=== SWAMP OF TROLLS ===");
+        OutputContext.get().println("\n=== SWAMP OF TROLLS ===");
         logger.info(character.getName() + " entra nella Swamp of Trolls");
         
         Dungeon swamp = buildDungeon("Swamp of Trolls", "Una palude pericolosa con troll.", 200, "troll");
         exploreDungeon(character, swamp);
     }
     
+    /**
+     * Enters Goblin Warren dungeon
+     * <p>
+     * Creates a Goblin Warren dungeon instance, where the character fights
+     * a whole horde of goblins at once, and initiates the exploration.
+     * </p>
+     * 
+     * @param character The character that will explore the dungeon
+     */
+    private static void enterGoblinWarren(Character character) {
+        OutputContext.get().println("\n=== GOBLIN WARREN ===");
+        logger.info(character.getName() + " entra nella Goblin Warren");
+        
+        Dungeon warren = dungeonBuilder.reset()
+                .setName("Goblin Warren")
+                .setDescription("Un labirinto di cunicoli brulicante di goblin.")
+                .setGoldReward(300)
+                .setMonsterType("goblin")
+                .setMonsterCount(12)
+                .build();
+        exploreDungeon(character, warren);
+    }
+    
     /**
      * Builds a dungeon with specified parameters
      * <p>
@@ -131,9 +159,33 @@ public class DungeonMenu {
      * @param dungeon The dungeon to explore
      */
     private static void exploreDungeon(Character character, Dungeon dungeon) {
+        showOdds(character, dungeon);
         new DungeonExplorer()
                 .withCharacter(character)
                 .withDungeon(dungeon)
                 .build();
     }
+
+    /**
+     * Shows the character's odds against the dungeon's monster
+     * <p>
+     * Uses the MatchupCalculator, which caches results per stat key, so
+     * the odds are shown instantly for matchups already computed.
+     * </p>
+     * 
+     * @param character The character that will explore the dungeon
+     * @param dungeon The dungeon to explore
+     */
+    private static void showOdds(Character character, Dungeon dungeon) {
+        if (dungeon.getMonsterCount() > 1) {
+            return; // Odds are computed for single-monster fights only
+        }
+        try {
+            MatchupOdds odds = matchupCalculator.calculate(character, dungeon.getMonsterType());
+            OutputContext.get().printf("Probabilità di vittoria: %.1f%% (turni previsti: %.1f)%n",
+                    odds.getWinProbability() * 100, odds.getExpectedTurns());
+        } catch (Exception e) {
+            logger.warning("Impossibile calcolare le probabilità: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import rpg.strategy.SortByTypeStrategy;
 import rpg.strategy.SortByValueStrategy;
 import rpg.strategy.InventorySortStrategy;
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 
 import java.util.List;
 import java.util.Map;
@@ -62,7 +63,7 @@ public class InventoryMenu {
             menu.execute();
         } catch (Exception e) {
             logger.severe("Error in inventory menu: " + e.getMessage());
-            System.out.println("Errore nel menu inventario.");
+            OutputContext.get().println("Errore nel menu inventario.");
         }
     }
 
@@ -79,17 +80,17 @@ public class InventoryMenu {
      * @param title The title to display for the item list
      */
     private static void showItems(Character character, InventorySortStrategy strategy, String title) {
-        System.out.println("\n=== " + title + " ===");
+        OutputContext.get().println("\n=== " + title + " ===");
         Inventory inventory = getCharacterInventory(character);
         
         if (inventory == null) {
-            System.out.println("Errore nell'accesso all’inventario!");
+            OutputContext.get().println("Errore nell'accesso all’inventario!");
             return;
         }
 
         List<Item> items = inventory.getAllItems();
         if (items.isEmpty()) {
-            System.out.println("L'inventario è vuoto.");
+            OutputContext.get().println("L'inventario è vuoto.");
             return;
         }
 
@@ -125,16 +126,16 @@ public class InventoryMenu {
         for (Item.ItemType type : Item.ItemType.values()) {
             List<Item> itemsOfType = itemsByType.get(type);
             if (itemsOfType != null && !itemsOfType.isEmpty()) {
-                System.out.println("\n📦 " + type.getDisplayName().toUpperCase() + "S:");
+                OutputContext.get().println("\n📦 " + type.getDisplayName().toUpperCase() + "S:");
                 for (Item item : itemsOfType) {
                     String bonus = item.getStatBonus() > 0 ? " (+" + item.getStatBonus() + ")" : "";
-                    System.out.printf("  • %s - %d oro%s%n", item.getName(), item.getValue(), bonus);
+                    OutputContext.get().printf("  • %s - %d oro%s%n", item.getName(), item.getValue(), bonus);
                 }
             }
         }
         
-        System.out.println("\nTotale oggetti: " + inventory.getSize());
-        System.out.println("Valore totale: " + inventory.getTotalValue() + " oro");
+        OutputContext.get().println("\nTotale oggetti: " + inventory.getSize());
+        OutputContext.get().println("Valore totale: " + inventory.getTotalValue() + " oro");
     }
 
     /**
@@ -148,15 +149,15 @@ public class InventoryMenu {
      * @param inventory The inventory containing the items
      */
     private static void displayItems(List<Item> items, Inventory inventory) {
-        System.out.println("Oggetti nell'inventario: " + items.size());
+        OutputContext.get().println("Oggetti nell'inventario: " + items.size());
         
         int index = 1;
         for (Item item : items) {
-            System.out.printf("%d. %s [%s] - Valore: %d oro%n",
+            OutputContext.get().printf("%d. %s [%s] - Valore: %d oro%n",
                     index++, item.getName(), item.getType().getDisplayName(), item.getValue());
         }
 
-        System.out.println("\nValore totale: " + inventory.getTotalValue() + " oro");
+        OutputContext.get().println("\nValore totale: " + inventory.getTotalValue() + " oro");
     }
 
     /**
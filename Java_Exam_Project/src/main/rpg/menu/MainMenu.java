@@ -6,9 +6,12 @@ import rpg.composite.MenuItem;
 import rpg.factory.Character;
 import rpg.factory.CharacterFactory;
 import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.SaveManifest;
 import rpg.rpgSecurity.InputValidator;
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 
+import java.util.List;
 import java.util.Scanner;
 import java.util.logging.Logger;
 
@@ -63,15 +66,15 @@ public class MainMenu {
      * </p>
      */
     private static void createNewCharacter() {
-        System.out.println("\n=== CREA NUOVO PERSONAGGIO ===");
+        OutputContext.get().println("\n=== CREA NUOVO PERSONAGGIO ===");
 
         CharacterFactory factory = new CharacterFactory();
         factory.showAvailableTypes();
 
-        System.out.print("\nTipo (warrior/mage): ");
+        OutputContext.get().print("\nTipo (warrior/mage): ");
         String type = InputValidator.sanitizeInput(scanner.nextLine());
 
-        System.out.print("Nome: ");
+        OutputContext.get().print("Nome: ");
         String name = InputValidator.validateCharacterName(scanner.nextLine());
 
         if (name == null) {
@@ -81,11 +84,11 @@ public class MainMenu {
         Character character = factory.createCharacter(type, name);
 
         if (character != null) {
-            System.out.println("Personaggio creato: " + character.getName());
+            OutputContext.get().println("Personaggio creato: " + character.getName());
             logger.info("Character created: " + character.getName());
             CharacterMenu.showCharacterMenu(character);
         } else {
-            System.out.println("Creazione fallita!");
+            OutputContext.get().println("Creazione fallita!");
         }
     }
 
@@ -98,26 +101,28 @@ public class MainMenu {
      * </p>
      */
     private static void loadCharacter() {
-        System.out.println("\n=== CARICA PERSONAGGIO ===");
+        OutputContext.get().println("\n=== CARICA PERSONAGGIO ===");
 
-        String[] saves = CharacterManagement.listSaveFiles();
-        if (saves.length == 0) {
-            System.out.println("Nessun salvataggio trovato!");
+        List<SaveManifest.Entry> saves = CharacterManagement.listSaves();
+        if (saves.isEmpty()) {
+            OutputContext.get().println("Nessun salvataggio trovato!");
             return;
         }
 
-        System.out.println("Salvataggi disponibili:");
-        for (int i = 0; i < saves.length; i++) {
-            System.out.println((i + 1) + ". " + saves[i]);
+        OutputContext.get().println("Salvataggi disponibili:");
+        for (int i = 0; i < saves.size(); i++) {
+            SaveManifest.Entry save = saves.get(i);
+            OutputContext.get().println((i + 1) + ". " + save.getSaveName() + " - " + save.getCharacterName()
+                    + " (" + save.getCharacterClass() + ", livello " + save.getLevel() + ")");
         }
 
-        System.out.print("\nScegli (1-" + saves.length + "): ");
-        Integer choice = InputValidator.validateMenuChoice(scanner.nextLine(), saves.length);
+        OutputContext.get().print("\nScegli (1-" + saves.size() + "): ");
+        Integer choice = InputValidator.validateMenuChoice(scanner.nextLine(), saves.size());
 
         if (choice != null && choice > 0) {
-            Character loaded = CharacterManagement.loadCharacter(saves[choice - 1]);
+            Character loaded = CharacterManagement.loadCharacter(saves.get(choice - 1).getSaveName());
             if (loaded != null) {
-                System.out.println("Personaggio caricato: " + loaded.getName());
+                OutputContext.get().println("Personaggio caricato: " + loaded.getName());
                 CharacterMenu.showCharacterMenu(loaded);
             }
         }
@@ -130,7 +135,7 @@ public class MainMenu {
      * </p>
      */
     private static void exitGame() {
-        System.out.println("\nGrazie per aver giocato!");
+        OutputContext.get().println("\nGrazie per aver giocato!");
         logger.info("Game exited by user");
         System.exit(0);
     }
@@ -2,9 +2,11 @@ package rpg.observer;
 
 import rpg.factory.Character;
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 import java.util.logging.Logger;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * GameUIObserver - Concrete implementation of StaminaObserver
@@ -14,7 +16,7 @@ import java.util.ArrayList;
  * allowing it to receive notifications when a character's stamina changes.
  * </p>
  * <p>
- * The GameUIObserver maintains a list of characters it is observing and
+ * The GameUIObserver maintains a set of characters it is observing and
  * provides visual feedback to the player about stamina changes through
  * console output. In a full game implementation, this would update
  * graphical UI elements like stamina bars.
@@ -23,7 +25,9 @@ import java.util.ArrayList;
 public class GameUIObserver implements StaminaObserver {
 
     private static final Logger logger = GameLogger.getLogger();
-    private final List<Character> observedCharacters = new ArrayList<>();
+    // Weak, synchronized set: notified from concurrent explorations, never keeps characters alive
+    private final Set<Character> observedCharacters =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
     /**
      * Constructor for GameUIObserver
@@ -50,14 +54,12 @@ public class GameUIObserver implements StaminaObserver {
      */
     @Override
     public void onStaminaChanged(Character character, int oldStamina, int newStamina) {
-        if (!observedCharacters.contains(character)) {
-            observedCharacters.add(character);
-        }
+        observedCharacters.add(character);
         
         int diff = newStamina - oldStamina;
         String change = diff > 0 ? "increased" : "decreased";
         
-        System.out.println("[UI] " + character.getName() + " stamina " + 
+        OutputContext.get().println("[UI] " + character.getName() + " stamina " + 
                 change + " by " + Math.abs(diff));
         
         logger.info(character.getName() + " stamina " + change + ": " + oldStamina + " -> " + newStamina);
@@ -76,11 +78,9 @@ public class GameUIObserver implements StaminaObserver {
      */
     @Override
     public void onStaminaRecovered(Character character, int recoveredAmount) {
-        if (!observedCharacters.contains(character)) {
-            observedCharacters.add(character);
-        }
+        observedCharacters.add(character);
         
-        System.out.println("[UI] " + character.getName() + " recovers " + recoveredAmount + " stamina");
+        OutputContext.get().println("[UI] " + character.getName() + " recovers " + recoveredAmount + " stamina");
         logger.info(character.getName() + " recovers " + recoveredAmount + " stamina");
     }
 }
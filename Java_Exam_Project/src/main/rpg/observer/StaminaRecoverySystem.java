@@ -3,8 +3,7 @@ package rpg.observer;
 import rpg.factory.Character;
 import rpg.logger.GameLogger;
 import java.util.logging.Logger;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * StaminaRecoverySystem - Implements the stamina recovery mechanism
@@ -19,11 +18,15 @@ import java.util.List;
  * but could be extended to support variable recovery rates based on
  * character attributes or game conditions.
  * </p>
+ * <p>
+ * The observer list is copy-on-write: observers are registered once at
+ * startup, while recoveries are notified concurrently by every exploration.
+ * </p>
  */
 public class StaminaRecoverySystem {
     
     private static final Logger logger = GameLogger.getLogger();
-    private static final List<StaminaObserver> observers = new ArrayList<>();
+    private static final CopyOnWriteArrayList<StaminaObserver> observers = new CopyOnWriteArrayList<>();
     
     /**
      * Adds an observer to the stamina recovery system
@@ -35,8 +38,7 @@ public class StaminaRecoverySystem {
      * @param observer The observer to add
      */
     public static void addObserver(GameUIObserver observer) {
-        if (observer != null && !observers.contains(observer)) {
-            observers.add(observer);
+        if (observer != null && observers.addIfAbsent(observer)) {
             logger.info("Observer added to stamina recovery system");
         }
     }
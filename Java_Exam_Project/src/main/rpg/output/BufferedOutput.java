@@ -0,0 +1,67 @@
+package rpg.output;
+
+import java.io.PrintStream;
+
+/**
+ * BufferedOutput - GameOutput collecting text in memory
+ * <p>
+ * Messages are appended to an internal buffer instead of being printed.
+ * The collected text can be read back (e.g. by tests or a server sending
+ * it to a remote client) or flushed to a stream in a single write.
+ * </p>
+ * <p>
+ * This class is not thread-safe: each session or thread should use its
+ * own buffer.
+ * </p>
+ */
+public class BufferedOutput implements GameOutput {
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void print(String text) {
+        buffer.append(text);
+    }
+
+    @Override
+    public void println(String text) {
+        buffer.append(text).append(System.lineSeparator());
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+        buffer.append(String.format(format, args));
+    }
+
+    /**
+     * Gets all text collected since the last clear
+     * 
+     * @return The buffered text
+     */
+    public String getText() {
+        return buffer.toString();
+    }
+
+    /**
+     * Discards the buffered text
+     */
+    public void clear() {
+        buffer.setLength(0);
+    }
+
+    /**
+     * Writes the buffered text to a stream and clears the buffer
+     * 
+     * @param stream The stream to write to
+     */
+    public void flushTo(PrintStream stream) {
+        stream.print(buffer);
+        stream.flush();
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,51 @@
+package rpg.output;
+
+import java.io.PrintStream;
+
+/**
+ * ConsoleOutput - GameOutput writing to a PrintStream
+ * <p>
+ * This is the default output of the interactive game. It writes every
+ * message to System.out, or to any other PrintStream it is given.
+ * </p>
+ */
+public class ConsoleOutput implements GameOutput {
+
+    private final PrintStream stream;
+
+    /**
+     * Creates an output that writes to System.out
+     */
+    public ConsoleOutput() {
+        this(System.out);
+    }
+
+    /**
+     * Creates an output that writes to the given stream
+     * 
+     * @param stream The stream to write to
+     */
+    public ConsoleOutput(PrintStream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void print(String text) {
+        stream.print(text);
+    }
+
+    @Override
+    public void println(String text) {
+        stream.println(text);
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+        stream.printf(format, args);
+    }
+}
@@ -0,0 +1,53 @@
+package rpg.output;
+
+/**
+ * GameOutput - Destination for all text produced by the game
+ * <p>
+ * This interface abstracts the console so that game components do not
+ * write to System.out directly. The interactive game uses a console
+ * implementation, tests and tools can capture text with a buffered
+ * implementation, and simulations can discard it entirely.
+ * </p>
+ * <p>
+ * Callers on hot paths should check {@link #isEnabled()} before building
+ * a message, so that a disabled output costs neither formatting nor
+ * argument boxing:
+ * <pre>
+ * GameOutput out = OutputContext.get();
+ * if (out.isEnabled()) {
+ *     out.printf("%s attacks for %d damage!%n", name, damage);
+ * }
+ * </pre>
+ * </p>
+ */
+public interface GameOutput {
+
+    /**
+     * Checks whether text written to this output is actually used
+     * 
+     * @return true if messages should be built and written, false if they are discarded
+     */
+    boolean isEnabled();
+
+    /**
+     * Writes text without a line terminator
+     * 
+     * @param text The text to write
+     */
+    void print(String text);
+
+    /**
+     * Writes a line of text
+     * 
+     * @param text The line to write
+     */
+    void println(String text);
+
+    /**
+     * Writes formatted text, using the same syntax as String.format
+     * 
+     * @param format The format string
+     * @param args The format arguments
+     */
+    void printf(String format, Object... args);
+}
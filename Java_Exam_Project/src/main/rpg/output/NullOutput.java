@@ -0,0 +1,37 @@
+package rpg.output;
+
+/**
+ * NullOutput - GameOutput that discards everything
+ * <p>
+ * This output reports itself as disabled, so guarded call sites skip
+ * message formatting entirely. It is used by simulations and servers
+ * that never show the text produced by combat.
+ * </p>
+ */
+public final class NullOutput implements GameOutput {
+
+    /**
+     * Shared instance - the class has no state
+     */
+    public static final NullOutput INSTANCE = new NullOutput();
+
+    private NullOutput() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void print(String text) {
+    }
+
+    @Override
+    public void println(String text) {
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+    }
+}
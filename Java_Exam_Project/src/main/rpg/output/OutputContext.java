@@ -0,0 +1,88 @@
+package rpg.output;
+
+import java.util.function.Supplier;
+
+/**
+ * OutputContext - Resolves the GameOutput used by the current thread
+ * <p>
+ * Game components obtain their output through {@link #get()} instead of
+ * using System.out. By default every thread shares the console output;
+ * a thread can switch to another output for the duration of a task with
+ * {@link #runWith(GameOutput, Runnable)}, so that simulations running on
+ * worker threads do not affect the interactive console.
+ * </p>
+ */
+public final class OutputContext {
+
+    private static volatile GameOutput defaultOutput = new ConsoleOutput();
+    private static final ThreadLocal<GameOutput> current = new ThreadLocal<>();
+
+    private OutputContext() {
+    }
+
+    /**
+     * Gets the output for the current thread
+     * 
+     * @return The thread's output, or the default output if none is set
+     */
+    public static GameOutput get() {
+        GameOutput output = current.get();
+        return output != null ? output : defaultOutput;
+    }
+
+    /**
+     * Replaces the output used by threads that have no output of their own
+     * 
+     * @param output The new default output
+     * @throws IllegalArgumentException If output is null
+     */
+    public static void setDefault(GameOutput output) {
+        if (output == null) {
+            throw new IllegalArgumentException("Output cannot be null");
+        }
+        defaultOutput = output;
+    }
+
+    /**
+     * Runs a task with a specific output on the current thread
+     * <p>
+     * The previous output of the thread is restored when the task ends,
+     * even if it throws.
+     * </p>
+     * 
+     * @param output The output to use while the task runs
+     * @param task The task to run
+     */
+    public static void runWith(GameOutput output, Runnable task) {
+        callWith(output, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Computes a value with a specific output on the current thread
+     * <p>
+     * The previous output of the thread is restored when the task ends,
+     * even if it throws.
+     * </p>
+     * 
+     * @param <T> The type of the computed value
+     * @param output The output to use while the task runs
+     * @param task The task to run
+     * @return The value returned by the task
+     */
+    public static <T> T callWith(GameOutput output, Supplier<T> task) {
+        GameOutput previous = current.get();
+        current.set(output);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
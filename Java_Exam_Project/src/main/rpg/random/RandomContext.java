@@ -0,0 +1,72 @@
+package rpg.random;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * RandomContext - Resolves the random generator used by the current thread
+ * <p>
+ * Methods such as Character.attack() that are not given a generator
+ * explicitly use the generator of the current thread. A fight or session
+ * can bind its own reproducible stream with
+ * {@link #runWith(RandomGenerator, Runnable)}; otherwise the contention-free
+ * ThreadLocalRandom of the thread is used.
+ * </p>
+ */
+public final class RandomContext {
+
+    private static final ThreadLocal<RandomGenerator> current = new ThreadLocal<>();
+
+    private RandomContext() {
+    }
+
+    /**
+     * Gets the random generator for the current thread
+     * 
+     * @return The thread's bound generator, or ThreadLocalRandom if none is bound
+     */
+    public static RandomGenerator get() {
+        RandomGenerator random = current.get();
+        return random != null ? random : ThreadLocalRandom.current();
+    }
+
+    /**
+     * Runs a task with a specific random generator on the current thread
+     * 
+     * @param random The generator to use while the task runs
+     * @param task The task to run
+     */
+    public static void runWith(RandomGenerator random, Runnable task) {
+        callWith(random, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Computes a value with a specific random generator on the current thread
+     * <p>
+     * The previous generator of the thread is restored when the task ends,
+     * even if it throws.
+     * </p>
+     * 
+     * @param <T> The type of the computed value
+     * @param random The generator to use while the task runs
+     * @param task The task to run
+     * @return The value returned by the task
+     */
+    public static <T> T callWith(RandomGenerator random, Supplier<T> task) {
+        RandomGenerator previous = current.get();
+        current.set(random);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+}
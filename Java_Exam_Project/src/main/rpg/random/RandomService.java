@@ -0,0 +1,122 @@
+package rpg.random;
+
+import rpg.logger.GameLogger;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * RandomService - Source of reproducible random number streams
+ * <p>
+ * Every fight or game session gets its own SplittableRandom stream,
+ * derived from a master seed and a stream id. Streams are independent
+ * objects, so parallel fights never contend on a shared seed, and any
+ * fight can be replayed bit for bit by recreating its stream from the
+ * same master seed and stream id.
+ * </p>
+ * <p>
+ * The default service is seeded from the "game.random.seed" system
+ * property, or from a random value if the property is not set. The seed
+ * is logged at startup so that production fights can be reproduced.
+ * </p>
+ */
+public class RandomService {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    // Golden ratio increment used by SplittableRandom to spread stream ids
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static volatile RandomService defaultService;
+
+    private final long masterSeed;
+    private final AtomicLong nextStreamId = new AtomicLong();
+
+    /**
+     * Creates a service with a fixed master seed
+     * 
+     * @param masterSeed The seed all streams are derived from
+     */
+    public RandomService(long masterSeed) {
+        this.masterSeed = masterSeed;
+    }
+
+    /**
+     * Gets the game-wide service
+     * <p>
+     * The service is created on first use, using the "game.random.seed"
+     * system property as master seed when present.
+     * </p>
+     * 
+     * @return The default RandomService
+     */
+    public static RandomService getDefault() {
+        if (defaultService == null) {
+            synchronized (RandomService.class) {
+                if (defaultService == null) {
+                    long seed = Long.getLong("game.random.seed", new SplittableRandom().nextLong());
+                    logger.info("Random service master seed: " + seed);
+                    defaultService = new RandomService(seed);
+                }
+            }
+        }
+        return defaultService;
+    }
+
+    /**
+     * Gets the master seed of this service
+     * 
+     * @return The master seed
+     */
+    public long getMasterSeed() {
+        return masterSeed;
+    }
+
+    /**
+     * Reserves a new stream id
+     * <p>
+     * Use this to give a new fight or session a stream that no other
+     * fight of this service will use.
+     * </p>
+     * 
+     * @return A stream id unique within this service
+     */
+    public long nextStreamId() {
+        return nextStreamId.getAndIncrement();
+    }
+
+    /**
+     * Creates the random stream with the given id
+     * <p>
+     * Calling this method twice with the same id returns two generators
+     * producing exactly the same sequence of values.
+     * </p>
+     * 
+     * @param streamId The stream id
+     * @return A new generator for that stream
+     */
+    public SplittableRandom streamFor(long streamId) {
+        return new SplittableRandom(mix64(masterSeed + GOLDEN_GAMMA * (streamId + 1)));
+    }
+
+    /**
+     * Creates the random stream for a new fight or session
+     * 
+     * @return A new generator with a fresh stream id
+     */
+    public SplittableRandom newStream() {
+        return streamFor(nextStreamId());
+    }
+
+    /**
+     * Scrambles the bits of a seed (David Stafford's variant 13)
+     * 
+     * @param z The value to scramble
+     * @return The scrambled value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,64 @@
+package rpg.rpgIO;
+
+/**
+ * AsyncSaver - Writes saves in the background, one at a time
+ * <p>
+ * {@link #save(Character, String)} encodes a snapshot of the character on
+ * the caller's thread, queues it and returns at once with a future of the
+ * written file. A single writer thread writes the queued saves in order with
+ * CharacterManagement's atomic write (temporary file, fsync policy, rename),
+ * without waiting for other saves to batch them; GroupCommitSaver writes
+ * them in batches instead.
+ * </p>
+ * <p>
+ * Saves are coalesced: while a save is still queued, a new save of the same
+ * name replaces its snapshot and shares its future, so an autosave storm
+ * writes each save once with its latest content. A save that is already
+ * being written is followed by the new one.
+ * </p>
+ */
+public class AsyncSaver extends BackgroundSaver {
+
+  private static AsyncSaver defaultSaver;
+
+  /**
+   * Creates a saver with the configured fsync policy
+   */
+  public AsyncSaver() {
+    this(FsyncPolicy.configured());
+  }
+
+  /**
+   * Creates a saver
+   *
+   * @param policy When the writer forces saves to the disk
+   */
+  public AsyncSaver(FsyncPolicy policy) {
+    super("save-writer", policy, 0, 1);
+  }
+
+  /**
+   * Gets the game-wide saver
+   * <p>
+   * It is created on first use and drained when the JVM shuts down, so
+   * queued saves are not lost when the game exits.
+   * </p>
+   *
+   * @return The shared saver
+   */
+  public static synchronized AsyncSaver getDefault() {
+    if (defaultSaver == null) {
+      defaultSaver = registerDefault(new AsyncSaver());
+    }
+    return defaultSaver;
+  }
+
+  /**
+   * Gets the number of saves written; lower than the requested saves when saves were coalesced
+   *
+   * @return The number of successful writes
+   */
+  public long getWrittenSaves() {
+    return writtenSaves();
+  }
+}
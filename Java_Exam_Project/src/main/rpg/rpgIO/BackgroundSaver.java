@@ -0,0 +1,311 @@
+package rpg.rpgIO;
+
+import rpg.factory.Character;
+import rpg.logger.GameLogger;
+import rpg.rpgSecurity.InputValidator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * BackgroundSaver - Queue of saves written in batches by one thread
+ * <p>
+ * {@link #save(Character, String)} encodes a snapshot of the character on
+ * the caller's thread, queues it and returns at once with a future of the
+ * written file. The writer thread, started by the first save, waits up to
+ * the batch window once a save is queued, or until the batch is full, then
+ * writes the queued saves in order with CharacterManagement.writeSaves and
+ * completes their futures. Saves queued while a batch is being written form
+ * the next batch.
+ * </p>
+ * <p>
+ * While a save is still queued, a new save of the same name replaces its
+ * snapshot and shares its future. If the writer thread stops before
+ * writing the queued saves, their futures fail and later saves are refused.
+ * </p>
+ * <p>
+ * The game-wide savers of AsyncSaver and GroupCommitSaver are registered
+ * here, so {@link #flushDefaults()} waits for every save requested so far.
+ * </p>
+ */
+abstract class BackgroundSaver implements AutoCloseable {
+
+  private static final Logger logger = GameLogger.getLogger();
+  private static final List<BackgroundSaver> defaults = new CopyOnWriteArrayList<>();
+
+  private final String name;
+  private final FsyncPolicy policy;
+  private final long windowNanos;
+  private final int batchSize;
+  private final Map<String, PendingSave> pending = new LinkedHashMap<>();
+  private Thread writer;
+  private long firstQueued;
+  private boolean writing;
+  private boolean closed;
+  private long requestedSaves;
+  private long writtenSaves;
+  private long batches;
+
+  /**
+   * A queued save
+   */
+  private static final class PendingSave {
+    private final CompletableFuture<Path> future = new CompletableFuture<>();
+    private ByteBuffer data;
+
+    private PendingSave(ByteBuffer data) {
+      this.data = data;
+    }
+  }
+
+  /**
+   * Creates a saver; its writer thread starts with the first save
+   *
+   * @param name The name of the writer thread
+   * @param policy When a batch is forced to the disk
+   * @param windowMillis How long to wait for a batch to fill after its first save (0 to not wait)
+   * @param batchSize The largest number of saves written together
+   */
+  BackgroundSaver(String name, FsyncPolicy policy, long windowMillis, int batchSize) {
+    if (policy == null || windowMillis < 0 || batchSize < 1) {
+      throw new IllegalArgumentException("Invalid saver settings");
+    }
+    this.name = name;
+    this.policy = policy;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Makes a saver game-wide: it is flushed before saves are read and drained when the JVM shuts down
+   *
+   * @param saver The saver
+   * @return The same saver
+   */
+  static <T extends BackgroundSaver> T registerDefault(T saver) {
+    BackgroundSaver registered = saver;
+    Runtime.getRuntime().addShutdownHook(new Thread(saver::close, registered.name + "-shutdown"));
+    defaults.add(registered);
+    return saver;
+  }
+
+  /**
+   * Waits for the queued saves of the game-wide savers that were ever used
+   * <p>
+   * Called before reading saves, so a save queued by the player is seen
+   * by the next load.
+   * </p>
+   */
+  static void flushDefaults() {
+    for (BackgroundSaver saver : defaults) {
+      saver.flush();
+    }
+  }
+
+  /**
+   * Queues a save of a character
+   *
+   * @param character The character to save; its current state is captured before returning
+   * @param filename The name of the save (without extension)
+   * @return A future completed with the written file once its batch is written as the fsync
+   *     policy asks, or exceptionally if the batch fails
+   */
+  public CompletableFuture<Path> save(Character character, String filename) {
+    if (character == null || filename == null) {
+      return CompletableFuture.failedFuture(
+          new IllegalArgumentException("Character and filename are required"));
+    }
+    String saveName = InputValidator.sanitizeFilename(filename);
+    if (saveName.isEmpty()) {
+      return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid filename"));
+    }
+    ByteBuffer data;
+    try {
+      data = SaveCodec.encode(character);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    synchronized (this) {
+      if (closed) {
+        return CompletableFuture.failedFuture(new IllegalStateException("Saver is closed"));
+      }
+      if (writer == null) {
+        writer = Thread.ofPlatform().daemon().name(name).start(this::writeLoop);
+      }
+      requestedSaves++;
+      PendingSave queued = pending.get(saveName);
+      if (queued != null) {
+        queued.data = data;
+        return queued.future;
+      }
+      PendingSave save = new PendingSave(data);
+      if (pending.isEmpty()) {
+        firstQueued = System.nanoTime();
+      }
+      pending.put(saveName, save);
+      // Wake the writer for the first save of a batch and when the batch is full
+      if (pending.size() == 1 || pending.size() >= batchSize) {
+        notifyAll();
+      }
+      return save.future;
+    }
+  }
+
+  /**
+   * Waits until every queued save has been written
+   */
+  public synchronized void flush() {
+    try {
+      while (!pending.isEmpty() || writing) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the number of saves requested
+   *
+   * @return The number of accepted calls to save()
+   */
+  public synchronized long getRequestedSaves() {
+    return requestedSaves;
+  }
+
+  /**
+   * Gets the fsync policy of the saver
+   *
+   * @return The policy
+   */
+  public FsyncPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Writes the queued saves and stops the writer; later saves are refused
+   */
+  @Override
+  public void close() {
+    Thread thread;
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+      thread = writer;
+    }
+    if (thread == null) {
+      return;
+    }
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the number of saves written
+   *
+   * @return The number of saves in successful batches
+   */
+  synchronized long writtenSaves() {
+    return writtenSaves;
+  }
+
+  /**
+   * Gets the number of batches written
+   *
+   * @return The number of successful batches
+   */
+  synchronized long batches() {
+    return batches;
+  }
+
+  private void writeLoop() {
+    while (true) {
+      Map<String, ByteBuffer> saves = new LinkedHashMap<>();
+      List<CompletableFuture<Path>> futures = new ArrayList<>();
+      synchronized (this) {
+        try {
+          while (pending.isEmpty() && !closed) {
+            wait();
+          }
+          // Let the batch fill until the window closes
+          long left = firstQueued + windowNanos - System.nanoTime();
+          while (pending.size() < batchSize && !closed && left > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+            left = firstQueued + windowNanos - System.nanoTime();
+          }
+        } catch (InterruptedException e) {
+          logger.warning("Save writer " + name + " interrupted");
+          abandonPending(e);
+          return;
+        }
+        if (pending.isEmpty()) {
+          return;
+        }
+        Iterator<Map.Entry<String, PendingSave>> next = pending.entrySet().iterator();
+        while (next.hasNext() && saves.size() < batchSize) {
+          Map.Entry<String, PendingSave> save = next.next();
+          saves.put(save.getKey(), save.getValue().data);
+          futures.add(save.getValue().future);
+          next.remove();
+        }
+        // Saves left over from a full batch have waited long enough: firstQueued stays in the past
+        writing = true;
+      }
+
+      try {
+        Map<String, Path> files = CharacterManagement.writeSaves(saves, policy);
+        synchronized (this) {
+          writtenSaves += saves.size();
+          batches++;
+        }
+        logger.fine("Background batch of " + saves.size() + " saves written by " + name);
+        int i = 0;
+        for (String saveName : saves.keySet()) {
+          futures.get(i++).complete(files.get(saveName));
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.severe("Background batch of " + saves.size() + " saves failed: " + e.getMessage());
+        for (CompletableFuture<Path> future : futures) {
+          future.completeExceptionally(e);
+        }
+      } finally {
+        synchronized (this) {
+          writing = false;
+          notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Fails the queued saves when the writer stops before writing them
+   * <p>
+   * Later saves are refused, and flush() returns instead of waiting for
+   * saves that no thread will write.
+   * </p>
+   *
+   * @param cause Why the writer stopped
+   */
+  private synchronized void abandonPending(Exception cause) {
+    closed = true;
+    for (Map.Entry<String, PendingSave> save : pending.entrySet()) {
+      save.getValue().future.completeExceptionally(
+          new IOException("Save writer stopped before writing " + save.getKey(), cause));
+    }
+    pending.clear();
+    notifyAll();
+  }
+}
@@ -0,0 +1,171 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * BulkTasks - Runs one task per save on a fixed number of workers
+ * <p>
+ * Workers are fed from a bounded queue: when the queue is full the thread
+ * submitting the tasks runs one itself, so listing a million saves never
+ * keeps more than a few dozen tasks in memory. Each batch of tasks waits
+ * for its own tasks only and counts the saves whose task failed, keeping
+ * the names of the first ones. Used by RosterLoader and IntegrityScanner.
+ * </p>
+ */
+final class BulkTasks implements AutoCloseable {
+
+  /** Number of failed save names kept by a batch */
+  static final int MAX_REPORTED_SAVES = 100;
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private final ThreadPoolExecutor executor;
+  private final String name;
+  private final Level failureLevel;
+  private final String failureMessage;
+
+  /**
+   * Work done for one save
+   */
+  @FunctionalInterface
+  interface SaveTask {
+    void run() throws IOException;
+  }
+
+  /**
+   * Creates the workers
+   *
+   * @param name The name of the workers, also used in error messages
+   * @param parallelism The number of worker threads
+   * @param failureLevel The level failed tasks are logged at
+   * @param failureMessage The start of the message logged for a failed task
+   */
+  BulkTasks(String name, int parallelism, Level failureLevel, String failureMessage) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1");
+    }
+    this.name = name;
+    this.failureLevel = failureLevel;
+    this.failureMessage = failureMessage;
+    AtomicInteger threads = new AtomicInteger();
+    executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(parallelism * 4), task -> {
+          Thread thread = new Thread(task, name + "-" + threads.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   * Starts a batch of tasks
+   *
+   * @return The new batch
+   */
+  Batch batch() {
+    return new Batch();
+  }
+
+  /**
+   * Stops the worker threads
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  /**
+   * Tasks submitted together and awaited together
+   */
+  final class Batch {
+    private final Phaser pending = new Phaser(1);
+    private final AtomicLong failed = new AtomicLong();
+    private final List<String> failedSaves = Collections.synchronizedList(new ArrayList<>());
+    private final long start = System.nanoTime();
+
+    private Batch() {
+    }
+
+    /**
+     * Runs a task on a worker, or on the caller if the queue is full
+     *
+     * @param saveName The save the task works on
+     * @param task The task; an exception counts the save as failed
+     * @throws IllegalStateException If the workers were stopped
+     */
+    void submit(String saveName, SaveTask task) {
+      if (executor.isShutdown()) {
+        throw new IllegalStateException(name + " is closed");
+      }
+      pending.register();
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (IOException | RuntimeException e) {
+          if (logger.isLoggable(failureLevel)) {
+            logger.log(failureLevel, failureMessage + " " + saveName + ": " + e.getMessage());
+          }
+          failed(saveName);
+        } finally {
+          pending.arriveAndDeregister();
+        }
+      });
+    }
+
+    /**
+     * Counts a save as failed
+     *
+     * @param saveName The save name
+     */
+    void failed(String saveName) {
+      if (failed.incrementAndGet() <= MAX_REPORTED_SAVES) {
+        failedSaves.add(saveName);
+      }
+    }
+
+    /**
+     * Waits for every task submitted so far
+     */
+    void await() {
+      pending.arriveAndAwaitAdvance();
+    }
+
+    /**
+     * Gets the number of failed saves
+     *
+     * @return The failed count
+     */
+    long getFailed() {
+      return failed.get();
+    }
+
+    /**
+     * Gets the names of the first failed saves
+     *
+     * @return A copy of the failed save names
+     */
+    List<String> getFailedSaves() {
+      return List.copyOf(failedSaves);
+    }
+
+    /**
+     * Gets the time since the batch started
+     *
+     * @return The elapsed milliseconds
+     */
+    long elapsedMillis() {
+      return (System.nanoTime() - start) / 1_000_000;
+    }
+  }
+}
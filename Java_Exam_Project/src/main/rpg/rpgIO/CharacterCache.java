@@ -0,0 +1,241 @@
+package rpg.rpgIO;
+
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * CharacterCache - Keeps recently loaded characters in memory
+ * <p>
+ * Entries are keyed by save name and stamped with the version of the save
+ * they were decoded from: modification time and length for save files,
+ * store version and length for slot stores. A lookup whose stamp differs
+ * from the cached one is a miss and drops the stale entry, so a save
+ * rewritten by another process is read again.
+ * </p>
+ * <p>
+ * The cache is bounded by the total size of the cached saves, not by their
+ * count, and evicts the least recently used entry first. Cached characters
+ * are never handed out: every hit returns a copy made with
+ * CharacterFactory.createCopy, so a player changing a loaded character
+ * cannot change what the next load returns. Copies are made with a
+ * NullOutput, so rebuilding the inventory does not print a line per item.
+ * </p>
+ */
+public class CharacterCache {
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  /** Default size budget, in bytes of encoded saves */
+  public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+  private final long maxBytes;
+  private final CharacterFactory factory = new CharacterFactory();
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * A cached character with the stamp of its save
+   */
+  private static final class Entry {
+    private final Character character;
+    private final long version;
+    private final long length;
+    private final int weight;
+
+    private Entry(Character character, long version, long length, int weight) {
+      this.character = character;
+      this.version = version;
+      this.length = length;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Creates a cache with the default size budget
+   */
+  public CharacterCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Creates a cache
+   *
+   * @param maxBytes The maximum total size of the cached saves; 0 disables the cache
+   */
+  public CharacterCache(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Cache size cannot be negative");
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Looks up a character
+   *
+   * @param saveName The save name
+   * @param version The modification time of the save file, or the store version of the save
+   * @param length The length of the save in bytes
+   * @return A copy of the cached character, or null if it is not cached or its save changed
+   */
+  public synchronized Character get(String saveName, long version, long length) {
+    Entry entry = entries.get(saveName);
+    if (entry == null || entry.version != version || entry.length != length) {
+      if (entry != null) {
+        remove(saveName);
+      }
+      misses++;
+      return null;
+    }
+    hits++;
+    return copy(entry.character);
+  }
+
+  /**
+   * Caches a character just loaded
+   * <p>
+   * The cache keeps its own copy, so the caller may keep using the
+   * character it passes. Saves larger than the whole budget are not
+   * cached.
+   * </p>
+   *
+   * @param saveName The save name
+   * @param character The loaded character
+   * @param version The modification time of the save file, or the store version of the save
+   * @param length The length of the save in bytes
+   */
+  public void put(String saveName, Character character, long version, long length) {
+    put(saveName, character, version, length, length);
+  }
+
+  /**
+   * Caches a character just loaded, whose stamp is not its length
+   * <p>
+   * Used for repositories that cannot tell the length of a save without
+   * reading it: the stamp is the version alone (length 0) and the entry
+   * counts for the size of the save it was decoded from.
+   * </p>
+   *
+   * @param saveName The save name
+   * @param character The loaded character
+   * @param version The store version of the save
+   * @param length The length stamp, as later passed to {@link #get}
+   * @param size The length of the save in bytes, counted against the budget
+   */
+  public synchronized void put(String saveName, Character character, long version, long length, long size) {
+    if (character == null || size > maxBytes) {
+      return;
+    }
+    Character copy = copy(character);
+    if (copy == null) {
+      return;
+    }
+    remove(saveName);
+    int weight = (int) Math.max(1, size);
+    entries.put(saveName, new Entry(copy, version, length, weight));
+    cachedBytes += weight;
+
+    Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+    while (cachedBytes > maxBytes && eldest.hasNext()) {
+      Entry evicted = eldest.next().getValue();
+      eldest.remove();
+      cachedBytes -= evicted.weight;
+      evictions++;
+    }
+  }
+
+  /**
+   * Copies a character without printing the items added and equipped on the way
+   */
+  private Character copy(Character character) {
+    return OutputContext.callWith(NullOutput.INSTANCE, () -> factory.createCopy(character));
+  }
+
+  /**
+   * Drops a cached character, e.g. because its save was rewritten
+   *
+   * @param saveName The save name
+   */
+  public synchronized void invalidate(String saveName) {
+    remove(saveName);
+  }
+
+  /**
+   * Drops every cached character
+   */
+  public synchronized void clear() {
+    entries.clear();
+    cachedBytes = 0;
+    logger.fine("Character cache cleared");
+  }
+
+  /**
+   * Gets the number of lookups answered from the cache
+   *
+   * @return The hit count
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of lookups that had to load the save
+   *
+   * @return The miss count (stale entries included)
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of entries dropped to stay within the size budget
+   *
+   * @return The eviction count
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Gets the number of cached characters
+   *
+   * @return The entry count
+   */
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the total size of the cached saves
+   *
+   * @return The size in bytes
+   */
+  public synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+
+  /**
+   * Gets the size budget
+   *
+   * @return The maximum total size in bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  private void remove(String saveName) {
+    Entry removed = entries.remove(saveName);
+    if (removed != null) {
+      cachedBytes -= removed.weight;
+    }
+  }
+}
@@ -3,12 +3,32 @@ package rpg.rpgIO;
 import rpg.factory.Character;
 import rpg.factory.CharacterFactory;
 import rpg.factory.Mage;
+import rpg.output.OutputContext;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import rpg.logger.GameLogger;
 import rpg.rpgSecurity.InputValidator;
 import rpg.rpgSecurity.ExceptionHandler;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Logger;
 
 /**
@@ -20,8 +40,55 @@ import java.util.logging.Logger;
  * continue later.
  * </p>
  * <p>
- * The implementation uses Properties to store character data in a simple
- * text-based format, with appropriate error handling and security measures.
+ * Characters are saved with the binary SaveCodec, which also stores the
+ * inventory and equipped items. Older saves written as Properties text are
+ * recognized by their missing magic number and still load through the
+ * legacy path.
+ * </p>
+ * <p>
+ * Saves can also target a {@link CharacterRepository} instead of one file
+ * each: set it with {@link #setRepository(CharacterRepository)}, or start
+ * the game with {@code -Dgame.save.store=slots} to keep all characters in
+ * the memory-mapped {@link SlotSaveStore} {@code SAVE_DIR/characters.slots},
+ * or with {@code -Dgame.save.store=lsm} to use the {@link LsmSaveStore}
+ * directory {@code SAVE_DIR/characters.lsm}.
+ * </p>
+ * <p>
+ * Save files are indexed by a {@link SaveManifest}, so listing the saves
+ * with their character class and level reads one file instead of
+ * scanning the directory and opening every save.
+ * </p>
+ * <p>
+ * Loaded characters are kept in a {@link CharacterCache}: loading a save
+ * that has not changed since it was last loaded returns a copy of the
+ * cached character without reading the file. The cache budget is set with
+ * {@code -Dgame.save.cache.bytes} (0 disables it).
+ * </p>
+ * <p>
+ * Saves that are rarely played can be moved to a compressed
+ * {@link SaveArchive} with {@link #archiveSaves(Collection)}. An archived
+ * save is no longer listed, but loading it by name moves it back to the
+ * save directory first.
+ * </p>
+ * <p>
+ * With {@code -Dgame.save.layout=sharded} save files are spread over two
+ * levels of hash-named subdirectories (see {@link SaveLayout}); their path
+ * is computed from the save name, so no directory is ever scanned to find
+ * a save.
+ * </p>
+ * <p>
+ * With {@code -Dgame.save.history=true} every save is also recorded in a
+ * {@link SaveHistory} in {@code SAVE_DIR/history}, which keeps all its
+ * versions as deltas; {@link #listVersions(String)} and
+ * {@link #loadVersion(String, int)} roll a character back.
+ * </p>
+ * <p>
+ * Saves go through the game-wide {@link GroupCommitSaver}, so saves made
+ * at the same time are written as one batch. A batch of save files is
+ * made durable by one force of the {@link SaveCommitLog}
+ * {@code SAVE_DIR/saves.commit} rather than one force per file and
+ * directory; saves a crash lost or tore are written again from the log
+ * before saves are next read.
  * </p>
  */
 public class CharacterManagement {
@@ -29,10 +96,159 @@ public class CharacterManagement {
   // Use external configuration instead of hardcoded values
   private static final String SAVE_DIR = System.getProperty("game.save.dir", "saves");
   private static final String FILE_EXT = System.getProperty("game.save.ext", ".save");
+  private static final SaveLayout LAYOUT = SaveLayout.configured();
+  private static final String SLOT_STORE_FILE = "characters.slots";
+  private static final String LSM_STORE_DIR = "characters.lsm";
   private static final Logger logger = GameLogger.getLogger();
 
+  private static volatile CharacterRepository repository;
+  private static volatile boolean repositoryConfigured;
+  private static SaveManifest manifest;
+  private static boolean manifestFailed;
+  private static SaveArchive archive;
+  private static volatile SaveHistory history;
+  private static final ReadWriteLock saveLock = new ReentrantReadWriteLock();
+  private static volatile boolean historyConfigured;
+  private static final Object commitLogLock = new Object();
+  private static volatile SaveCommitLog commitLog;
+  private static boolean commitLogFailed;
+  private static final CharacterCache cache =
+      new CharacterCache(Long.getLong("game.save.cache.bytes", CharacterCache.DEFAULT_MAX_BYTES));
+
+  /**
+   * Makes saves and loads use a repository instead of one file per save
+   *
+   * @param store The repository to use, or null to go back to one file per save
+   */
+  public static void setRepository(CharacterRepository store) {
+    repository = store;
+    repositoryConfigured = true;
+    cache.clear();
+  }
+
+  /**
+   * Gets the repository saves are written to
+   * <p>
+   * If no repository was set, the {@code game.save.store} property picks
+   * one in the save directory on first use: {@code slots} for a slot
+   * store, {@code lsm} for a log-structured store.
+   * </p>
+   *
+   * @return The repository, or null if saves use one file each
+   */
+  public static CharacterRepository getRepository() {
+    if (!repositoryConfigured) {
+      synchronized (CharacterManagement.class) {
+        if (!repositoryConfigured) {
+          String kind = System.getProperty("game.save.store");
+          try {
+            if ("slots".equalsIgnoreCase(kind)) {
+              Files.createDirectories(Path.of(SAVE_DIR));
+              repository = new SlotSaveStore(Path.of(SAVE_DIR, SLOT_STORE_FILE));
+            } else if ("lsm".equalsIgnoreCase(kind)) {
+              repository = new LsmSaveStore(Path.of(SAVE_DIR, LSM_STORE_DIR));
+            }
+          } catch (IOException e) {
+            logger.severe("Cannot open " + kind + " store, using save files: " + e.getMessage());
+          }
+          repositoryConfigured = true;
+        }
+      }
+    }
+    return repository;
+  }
+
+  /**
+   * Makes saves and loads use a slot store instead of one file per save
+   *
+   * @param store The store to use, or null to go back to one file per save
+   */
+  public static void setSlotStore(SlotSaveStore store) {
+    setRepository(store);
+  }
+
+  /**
+   * Gets the slot store saves are written to
+   *
+   * @return The slot store, or null if saves use one file each or another repository
+   */
+  public static SlotSaveStore getSlotStore() {
+    return getRepository() instanceof SlotSaveStore store ? store : null;
+  }
+
+  /**
+   * Makes every save also be recorded in a history
+   *
+   * @param saveHistory The history to use, or null to keep no history
+   */
+  public static void setHistory(SaveHistory saveHistory) {
+    history = saveHistory;
+    historyConfigured = true;
+  }
+
+  /**
+   * Gets the history saves are recorded in
+   * <p>
+   * If no history was set and the {@code game.save.history} property is
+   * {@code true}, the history directory in the save directory is used,
+   * with a full copy every {@code game.save.history.snapshot} versions.
+   * </p>
+   *
+   * @return The history, or null if no history is kept
+   */
+  public static SaveHistory getHistory() {
+    if (!historyConfigured) {
+      synchronized (CharacterManagement.class) {
+        if (!historyConfigured) {
+          if (Boolean.getBoolean("game.save.history")) {
+            history = new SaveHistory(Path.of(SAVE_DIR, "history"),
+                Integer.getInteger("game.save.history.snapshot", SaveHistory.DEFAULT_SNAPSHOT_INTERVAL));
+          }
+          historyConfigured = true;
+        }
+      }
+    }
+    return history;
+  }
+
+  /**
+   * Gets the cache of loaded characters, e.g. to read its counters
+   *
+   * @return The cache used by loadCharacter
+   */
+  public static CharacterCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Gets the manifest of the save directory
+   * <p>
+   * The manifest is opened on first use and then watched for changes made
+   * outside the game.
+   * </p>
+   *
+   * @return The manifest, or null if it cannot be opened
+   */
+  static synchronized SaveManifest getManifest() {
+    if (manifest == null && !manifestFailed) {
+      try {
+        manifest = new SaveManifest(Path.of(SAVE_DIR), FILE_EXT, LAYOUT);
+        manifest.startWatching();
+      } catch (IOException | RuntimeException e) {
+        logger.severe("Cannot open save manifest, listing the save directory: " + e.getMessage());
+        manifestFailed = true;
+      }
+    }
+    return manifest;
+  }
+
   /**
    * Saves a character to a file
+   * <p>
+   * The save is queued with the game-wide GroupCommitSaver, which writes
+   * it together with the saves made at the same time; this method returns
+   * once its batch is durable.
+   * </p>
    *
    * @param character The character to save
    * @param filename The name of the save file (without extension)
@@ -44,7 +260,7 @@ public class CharacterManagement {
 
     if (character == null || filename == null) {
       logger.warning("Save failed: null character or filename");
-      System.out.println("Error saving!");
+      OutputContext.get().println("Error saving!");
       return false;
     }
 
@@ -52,77 +268,295 @@ public class CharacterManagement {
     String safeFilename = InputValidator.sanitizeFilename(filename);
     if (safeFilename.isEmpty()) {
       logger.warning("Save failed: invalid filename after sanitization");
-      System.out.println("Invalid filename!");
+      OutputContext.get().println("Invalid filename!");
       return false;
     }
 
     try {
-      // Create saves directory if needed
-      File dir = new File(SAVE_DIR);
-      if (!dir.exists()) {
-        boolean created =
-            dir.mkdirs(); // Use mkdirs instead of mkdir to create parent directories if needed
-        logger.info("Save directory created: " + created);
-        if (!created) {
-          logger.warning("Failed to create save directory");
-          System.out.println("Failed to create save directory!");
-          return false;
-        }
-      }
-
-      Properties props = new Properties();
-
-      // Save basic info with null checks
-      props.setProperty("name", character.getName() != null ? character.getName() : "Unknown");
-      props.setProperty("type", character.getClass().getSimpleName());
-      props.setProperty("health", String.valueOf(Math.max(0, character.getHealth())));
-      props.setProperty("maxHealth", String.valueOf(Math.max(1, character.getMaxHealth())));
-      props.setProperty("stamina", String.valueOf(Math.max(0, character.getStamina())));
-      props.setProperty("maxStamina", String.valueOf(Math.max(1, character.getMaxStamina())));
-      props.setProperty("damage", String.valueOf(Math.max(0, character.getBaseDamage())));
-      props.setProperty("money", String.valueOf(Math.max(0, character.getMoney())));
-      props.setProperty("level", String.valueOf(Math.max(1, character.getLevel())));
-
-      // Save mage mana if needed
-      if (character instanceof Mage) {
-        Mage mage = (Mage) character;
-        props.setProperty("mana", String.valueOf(Math.max(0, mage.getMana())));
-        props.setProperty("maxMana", String.valueOf(Math.max(1, mage.getMaxMana())));
-        logger.info("Saved mage-specific data for: " + character.getName());
-      }
-
-      // Write to file - add extension if not already present
-      String fullFilename = safeFilename;
-      if (!fullFilename.endsWith(FILE_EXT)) {
-        fullFilename += FILE_EXT;
-      }
-
-      File saveFile = new File(SAVE_DIR + "/" + fullFilename);
-      try (FileOutputStream out = new FileOutputStream(saveFile)) {
-        props.store(out, "Character Save");
-        logger.info(
-            "Character saved successfully: "
-                + character.getName()
-                + " to "
-                + saveFile.getAbsolutePath());
-        System.out.println("Character saved to " + saveFile.getAbsolutePath());
-        return true;
-      } catch (IOException e) {
-        logger.severe("File write error: " + e.getMessage());
-        ExceptionHandler.handleSaveLoadError(e);
-        return false;
-      } catch (Exception e) {
-        logger.severe("Unexpected error during save: " + e.getMessage());
+      Path saved = GroupCommitSaver.getDefault().save(character, safeFilename).get();
+      logger.info(
+          "Character saved successfully: "
+              + character.getName()
+              + " to "
+              + saved.toAbsolutePath());
+      OutputContext.get().println("Character saved to " + saved.toAbsolutePath());
+      return true;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException cause) {
+        logger.severe("File write error: " + cause.getMessage());
+        ExceptionHandler.handleSaveLoadError(cause);
+      } else {
+        logger.severe("Unexpected error during save: " + e.getCause().getMessage());
         ExceptionHandler.handleException(e, "Save failed!");
-        return false;
       }
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warning("Save interrupted: " + safeFilename);
+      return false;
     } catch (Exception e) {
-      logger.severe("Unexpected error preparing save: " + e.getMessage());
+      logger.severe("Unexpected error during save: " + e.getMessage());
       ExceptionHandler.handleException(e, "Save failed!");
       return false;
     }
   }
 
+  /**
+   * Writes an encoded save to the repository or to its save file
+   * <p>
+   * A save file is never written in place: the data goes to a temporary
+   * file in the save directory, which is forced to the disk as the fsync
+   * policy asks and then atomically renamed over the old save. A crash
+   * leaves either the old save or the new one, never a torn file.
+   * </p>
+   *
+   * @param saveName The sanitized save name
+   * @param data The encoded save (not modified)
+   * @param policy When to force the data to the disk
+   * @return The file the save was written to
+   * @throws IOException If the save cannot be written
+   */
+  static Path writeSave(String saveName, ByteBuffer data, FsyncPolicy policy) throws IOException {
+    return writeSaves(Map.of(saveName, data), policy).get(saveName);
+  }
+
+  /**
+   * Writes a batch of encoded saves and makes them durable together
+   * <p>
+   * In a repository the saves are stored and the repository is flushed
+   * once for the whole batch. Save files are each written to a temporary
+   * file, then all renamed. The batch is first appended to the commit
+   * log, which the DATA and FULL policies force once for all the files;
+   * neither the files nor their directories are forced. Without a commit
+   * log, each file is forced as the policy asks, and under FULL each save
+   * directory once after the last rename. If a rename fails, the saves renamed before it are kept. Written
+   * saves are then recorded in the history, if one is kept; a history
+   * that cannot be written is logged but does not fail the save.
+   * </p>
+   *
+   * @param saves The sanitized save names and their encoded saves (not modified)
+   * @param policy When to force the data to the disk
+   * @return The file each save was written to, by save name
+   * @throws IOException If a save cannot be written
+   */
+  static Map<String, Path> writeSaves(Map<String, ByteBuffer> saves, FsyncPolicy policy) throws IOException {
+    // Opened before the lock: opening it may repair torn saves, which pauses saves
+    SaveCommitLog log = getRepository() == null ? getCommitLog(policy != FsyncPolicy.NONE) : null;
+    saveLock.readLock().lock();
+    try {
+      Map<String, Path> written = storeSaves(saves, policy, log);
+      SaveHistory saveHistory = getHistory();
+      if (saveHistory != null) {
+        for (String saveName : written.keySet()) {
+          try {
+            saveHistory.record(saveName, saves.get(saveName), policy != FsyncPolicy.NONE);
+          } catch (IOException e) {
+            logger.warning("Cannot record history of " + saveName + ": " + e.getMessage());
+          }
+        }
+      }
+      return written;
+    } finally {
+      saveLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the lock that holds back every save while it is held
+   * <p>
+   * Saves already being written finish before it is acquired, so the
+   * save directory does not change while it is held; SaveBackup holds it
+   * for the few milliseconds it takes to link a snapshot.
+   * </p>
+   *
+   * @return The lock pausing saves
+   */
+  static Lock savePause() {
+    return saveLock.writeLock();
+  }
+
+  private static Map<String, Path> storeSaves(Map<String, ByteBuffer> saves, FsyncPolicy policy,
+      SaveCommitLog log) throws IOException {
+    for (String saveName : saves.keySet()) {
+      cache.invalidate(saveName);
+    }
+    Map<String, Path> written = new LinkedHashMap<>();
+    CharacterRepository store = getRepository();
+    if (store != null) {
+      for (Map.Entry<String, ByteBuffer> save : saves.entrySet()) {
+        store.put(save.getKey(), save.getValue());
+        written.put(save.getKey(), store.getFile());
+      }
+      if (policy != FsyncPolicy.NONE) {
+        store.flush();
+      }
+      return written;
+    }
+
+    if (log != null) {
+      log.append(saves, policy);
+    }
+    boolean forceFiles = policy != FsyncPolicy.NONE && log == null;
+    Map<String, Path> temps = new LinkedHashMap<>();
+    Set<Path> dirs = new LinkedHashSet<>();
+    try {
+      for (Map.Entry<String, ByteBuffer> save : saves.entrySet()) {
+        Path dir = savePath(save.getKey()).getParent();
+        Files.createDirectories(dir);
+        dirs.add(dir);
+        Path temp = Files.createTempFile(dir, save.getKey() + "-", ".tmp");
+        temps.put(save.getKey(), temp);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+          ByteBuffer source = save.getValue().duplicate();
+          while (source.hasRemaining()) {
+            channel.write(source);
+          }
+          if (forceFiles) {
+            channel.force(policy == FsyncPolicy.FULL);
+          }
+        }
+      }
+      for (Map.Entry<String, Path> temp : temps.entrySet()) {
+        Path target = savePath(temp.getKey());
+        Files.move(temp.getValue(), target, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        written.put(temp.getKey(), target);
+      }
+    } catch (IOException | RuntimeException e) {
+      for (Path temp : temps.values()) {
+        Files.deleteIfExists(temp);
+      }
+      throw e;
+    } finally {
+      if (log != null) {
+        log.written(written.values());
+      }
+    }
+    if (policy == FsyncPolicy.FULL && log == null) {
+      for (Path dir : dirs) {
+        forceDirectory(dir);
+      }
+    }
+    for (Map.Entry<String, Path> target : written.entrySet()) {
+      updateManifest(target.getKey(), target.getValue().toFile(), saves.get(target.getKey()));
+    }
+    return written;
+  }
+
+  /**
+   * Forces a directory entry change (the rename of a save) to the disk
+   * <p>
+   * Not every platform can open a directory; there the rename is left to
+   * the file system.
+   * </p>
+   */
+  static void forceDirectory(Path dir) {
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      logger.fine("Cannot force save directory: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Makes every save requested so far readable
+   * <p>
+   * Waits for the queued saves of the game-wide savers and, the first time
+   * save files are read, repairs the saves a crash left torn. Called before
+   * reading saves.
+   * </p>
+   */
+  static void awaitSaves() {
+    BackgroundSaver.flushDefaults();
+    if (getRepository() == null) {
+      getCommitLog(false);
+    }
+  }
+
+  /**
+   * Gets the commit log of the save files
+   * <p>
+   * When the log is opened, the save files it holds are checked: those a
+   * crash left torn are written again, the others are forced, and the log
+   * is emptied.
+   * </p>
+   *
+   * @param create false to only open a log left by an earlier run
+   * @return The log, or null if there is none or it cannot be opened (each save file is then forced)
+   */
+  private static SaveCommitLog getCommitLog(boolean create) {
+    synchronized (commitLogLock) {
+      if (commitLog == null && !commitLogFailed) {
+        Path file = Path.of(SAVE_DIR, SaveCommitLog.FILE_NAME);
+        if (!create && !Files.exists(file)) {
+          return null;
+        }
+        SaveCommitLog log = null;
+        try {
+          Files.createDirectories(file.getParent());
+          log = new SaveCommitLog(file);
+          recoverSaves(log);
+          commitLog = log;
+        } catch (IOException | RuntimeException e) {
+          logger.severe("Cannot open save commit log, forcing each save file: " + e.getMessage());
+          commitLogFailed = true;
+          if (log != null) {
+            try {
+              log.close();
+            } catch (IOException closeError) {
+              logger.fine("Cannot close save commit log: " + closeError.getMessage());
+            }
+          }
+        }
+      }
+      return commitLog;
+    }
+  }
+
+  /**
+   * Writes again the saves a crash lost since the last checkpoint of the commit log
+   * <p>
+   * Every save file is written through the log while it is open, so the
+   * latest logged copy of a save is its last acknowledged content: a file
+   * that is missing or differs from it lost its rename or its data in the
+   * crash and is rewritten from the log. Deleted saves are skipped. Saves
+   * are paused meanwhile.
+   * </p>
+   */
+  private static void recoverSaves(SaveCommitLog log) throws IOException {
+    Map<String, ByteBuffer> logged = log.read();
+    Map<String, ByteBuffer> torn = new LinkedHashMap<>();
+    List<Path> intact = new ArrayList<>();
+    Lock pause = savePause();
+    pause.lock();
+    try {
+      for (Map.Entry<String, ByteBuffer> save : logged.entrySet()) {
+        if (!save.getValue().hasRemaining()) {
+          continue; // Deleted
+        }
+        Path saveFile = savePath(save.getKey());
+        ByteBuffer current;
+        try {
+          current = readFully(saveFile.toFile());
+        } catch (NoSuchFileException e) {
+          current = null;
+        }
+        if (save.getValue().equals(current)) {
+          intact.add(saveFile);
+        } else {
+          logger.warning("Restoring save lost in a crash from the commit log: " + save.getKey());
+          torn.put(save.getKey(), save.getValue());
+        }
+      }
+      if (!torn.isEmpty()) {
+        storeSaves(torn, FsyncPolicy.FULL, null);
+      }
+      log.checkpoint(intact);
+    } finally {
+      pause.unlock();
+    }
+  }
+
   /**
    * Loads a character from a file
    *
@@ -134,7 +568,7 @@ public class CharacterManagement {
 
     if (filename == null || filename.trim().isEmpty()) {
       logger.warning("Load failed: invalid filename");
-      System.out.println("Invalid filename!");
+      OutputContext.get().println("Invalid filename!");
       return null;
     }
 
@@ -142,24 +576,68 @@ public class CharacterManagement {
     String safeFilename = InputValidator.sanitizeFilename(filename.trim());
     if (safeFilename.isEmpty()) {
       logger.warning("Load failed: invalid filename");
-      System.out.println("Invalid filename!");
+      OutputContext.get().println("Invalid filename!");
       return null;
     }
 
-    Properties props = new Properties();
-    File saveFile = new File(SAVE_DIR + "/" + safeFilename + FILE_EXT);
+    awaitSaves(); // A save still queued must be seen by this load
+    CharacterRepository store = getRepository();
+    File saveFile = savePath(safeFilename).toFile();
 
-    // Verify the file exists before attempting to load it
-    if (!saveFile.exists()) {
+    // Stamp the save, which also verifies it exists before attempting to load it
+    long version;
+    long length;
+    if (store instanceof SlotSaveStore slots) {
+      version = slots.getVersion(safeFilename);
+      length = slots.getLength(safeFilename);
+    } else if (store != null) {
+      // Versions of other repositories are unique per write, so they are the whole stamp
+      try {
+        version = store.getVersion(safeFilename);
+      } catch (IOException e) {
+        logger.severe("Repository read error: " + e.getMessage());
+        ExceptionHandler.handleSaveLoadError(e);
+        return null;
+      }
+      length = version < 0 ? -1 : 0;
+    } else {
+      try {
+        BasicFileAttributes attributes =
+            Files.readAttributes(saveFile.toPath(), BasicFileAttributes.class);
+        version = attributes.lastModifiedTime().toMillis();
+        length = attributes.size();
+      } catch (IOException e) {
+        version = -1;
+        length = -1;
+      }
+    }
+    if (length < 0 && store == null && restoreSave(safeFilename)) {
+      return loadCharacter(safeFilename);
+    }
+    if (length < 0) {
+      if (store == null) {
+        forgetSave(safeFilename);
+      }
       logger.warning("Save file not found: " + safeFilename);
-      System.out.println("Save file not found!");
+      OutputContext.get().println("Save file not found!");
       return null;
     }
 
-    try (FileInputStream in = new FileInputStream(saveFile)) {
-      props.load(in);
+    Character cached = cache.get(safeFilename, version, length);
+    if (cached != null) {
+      logger.info("Character loaded from cache: " + cached.getName());
+      OutputContext.get().println("Character loaded: " + cached.getName());
+      return cached;
+    }
+
+    ByteBuffer data;
+    try {
+      data = store != null ? store.get(safeFilename) : readFully(saveFile);
+      if (data == null) {
+        throw new FileNotFoundException(safeFilename);
+      }
       logger.info("File loaded successfully: " + safeFilename);
-    } catch (FileNotFoundException e) {
+    } catch (FileNotFoundException | NoSuchFileException e) {
       logger.warning("Save file not found: " + safeFilename);
       ExceptionHandler.handleSaveLoadError(e);
       return null;
@@ -169,13 +647,85 @@ public class CharacterManagement {
       return null;
     }
 
+    Character character;
+    if (SaveCodec.isBinarySave(data)) {
+      try {
+        character = SaveCodec.decode(data, new CharacterFactory());
+        logger.info("Character loaded successfully: " + character.getName());
+        OutputContext.get().println("Character loaded: " + character.getName());
+      } catch (IOException e) {
+        logger.severe("Corrupted binary save " + safeFilename + ": " + e.getMessage());
+        OutputContext.get().println("Bad save file!");
+        return null;
+      }
+    } else {
+      character = loadLegacyCharacter(data);
+    }
+    cache.put(safeFilename, character, version, length, data.limit());
+    return character;
+  }
+
+  /**
+   * Loads a character from a legacy Properties save
+   * <p>
+   * Saves written before the binary format are plain Properties text;
+   * they are parsed here so that existing players keep their characters.
+   * Legacy saves carry no inventory.
+   * </p>
+   * <p>
+   * Saves in the layout Properties.store writes are read by
+   * LegacySaveReader in one pass over the bytes and the character is built
+   * once; any other save goes through Properties as before.
+   * </p>
+   *
+   * @param data The content of the save file
+   * @return The loaded character, or null if loading failed
+   */
+  private static Character loadLegacyCharacter(ByteBuffer data) {
+    LegacySaveReader.LegacySave save = LegacySaveReader.parse(data);
+    if (save == null) {
+      logger.fine("Legacy save in an unusual layout, reading it with Properties");
+      return loadLegacyProperties(data);
+    }
+
+    String name = InputValidator.validateCharacterName(save.name);
+    if (name == null) {
+      logger.warning("Character factory returned null");
+      OutputContext.get().println("Failed to create character!");
+      return null;
+    }
+    Character character = new CharacterFactory().restoreCharacter(save.getType(), name, save.health,
+        save.maxHealth, save.stamina, save.maxStamina, save.damage, save.money, save.level, save.mana,
+        save.maxMana);
+    logger.info("Character loaded successfully: " + name);
+    OutputContext.get().println("Character loaded: " + name);
+    return character;
+  }
+
+  /**
+   * Loads a character from a legacy save with Properties
+   *
+   * @param data The content of the save file
+   * @return The loaded character, or null if loading failed
+   */
+  private static Character loadLegacyProperties(ByteBuffer data) {
+    Properties props = new Properties();
+    try {
+      props.load(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(),
+          data.remaining()));
+    } catch (IOException e) {
+      logger.severe("File read error: " + e.getMessage());
+      ExceptionHandler.handleSaveLoadError(e);
+      return null;
+    }
+
     try {
       String name = props.getProperty("name");
       String type = props.getProperty("type");
 
       if (name == null || type == null) {
         logger.warning("Corrupted save file - missing name or type");
-        System.out.println("Bad save file!");
+        OutputContext.get().println("Bad save file!");
         return null;
       }
 
@@ -188,7 +738,7 @@ public class CharacterManagement {
 
       if (character == null) {
         logger.warning("Character factory returned null");
-        System.out.println("Failed to create character!");
+        OutputContext.get().println("Failed to create character!");
         return null;
       }
 
@@ -236,16 +786,442 @@ public class CharacterManagement {
       }
 
       logger.info("Character loaded successfully: " + name);
-      System.out.println("Character loaded: " + name);
+      OutputContext.get().println("Character loaded: " + name);
       return character;
 
     } catch (Exception e) {
       logger.severe("Error recreating character: " + e.getMessage());
-      System.out.println("Load failed!");
+      OutputContext.get().println("Load failed!");
       return null;
     }
   }
 
+  /**
+   * Decodes a save of either format without logging or console messages
+   * <p>
+   * Used by bulk loaders. Unlike loadCharacter, a legacy save whose numbers
+   * cannot be parsed is rejected rather than loaded with default values.
+   * </p>
+   *
+   * @param data The content of the save (its position is not changed)
+   * @param factory The factory used to create the character
+   * @return The decoded character
+   * @throws IOException If the content is not a valid save
+   */
+  static Character decodeSave(ByteBuffer data, CharacterFactory factory) throws IOException {
+    if (SaveCodec.isBinarySave(data)) {
+      return SaveCodec.decode(data.duplicate(), factory);
+    }
+    LegacySaveReader.LegacySave save = LegacySaveReader.parse(data);
+    if (save != null) {
+      try {
+        return factory.restoreCharacter(save.getType(), save.name, save.health, save.maxHealth,
+            save.stamina, save.maxStamina, save.damage, save.money, save.level, save.mana, save.maxMana);
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Invalid legacy save: " + e.getMessage(), e);
+      }
+    }
+    Properties props = new Properties();
+    props.load(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(),
+        data.remaining()));
+    String name = props.getProperty("name");
+    String type = props.getProperty("type");
+    if (name == null || type == null) {
+      throw new IOException("Missing name or type in legacy save");
+    }
+    try {
+      return factory.restoreCharacter(
+          type.equals("Warrior") ? "warrior" : "mage",
+          name,
+          Integer.parseInt(props.getProperty("health", "0")),
+          Integer.parseInt(props.getProperty("maxHealth", "0")),
+          Integer.parseInt(props.getProperty("stamina", "0")),
+          Integer.parseInt(props.getProperty("maxStamina", "0")),
+          Integer.parseInt(props.getProperty("damage", "0")),
+          Integer.parseInt(props.getProperty("money", "0")),
+          Integer.parseInt(props.getProperty("level", "1")),
+          Integer.parseInt(props.getProperty("mana", "50")),
+          Integer.parseInt(props.getProperty("maxMana", "50")));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid legacy save: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Gets the directory holding the save files
+   *
+   * @return The save directory
+   */
+  static Path saveDirectory() {
+    return Path.of(SAVE_DIR);
+  }
+
+  /**
+   * Gets the layout of the save files in the save directory
+   *
+   * @return The configured layout
+   */
+  static SaveLayout saveLayout() {
+    return LAYOUT;
+  }
+
+  /**
+   * Gets the path of a save file
+   *
+   * @param saveName The sanitized save name
+   * @return The path of the save file in the configured layout
+   */
+  static Path savePath(String saveName) {
+    return LAYOUT.resolve(Path.of(SAVE_DIR), saveName, FILE_EXT);
+  }
+
+  /**
+   * Gets the extension of the save files
+   *
+   * @return The extension, e.g. ".save"
+   */
+  static String fileExtension() {
+    return FILE_EXT;
+  }
+
+  /**
+   * Reads a whole save file into a buffer
+   * <p>
+   * The buffer is sized from the file length, so the content normally
+   * arrives with a single read() call.
+   * </p>
+   *
+   * @param file The file to read
+   * @return A heap buffer holding the file content
+   * @throws IOException If the file cannot be read
+   */
+  static ByteBuffer readFully(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Save file too large: " + file.getName());
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // Keep reading until the buffer is full or the file ends
+      }
+      return buffer.flip();
+    }
+  }
+
+  /**
+   * Records a save just written in the manifest
+   * <p>
+   * A failure only costs the manifest entry, which is repaired later, so it
+   * does not fail the save.
+   * </p>
+   */
+  private static void updateManifest(String saveName, File saveFile, ByteBuffer data) {
+    SaveManifest saves = getManifest();
+    if (saves == null) {
+      return;
+    }
+    try {
+      saves.put(SaveManifest.summarize(saveName, data, saveFile.length(), saveFile.lastModified()));
+    } catch (IOException e) {
+      logger.warning("Cannot update save manifest for " + saveName + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Removes a save that is gone from the cache and the manifest, and logs its deletion
+   */
+  static void forgetSave(String saveName) {
+    logDeletions(List.of(saveName));
+    forgetEntry(saveName);
+  }
+
+  /**
+   * Logs deleted save files in the commit log, so a log left by a crash does not bring them back
+   * <p>
+   * Only a log already open is used: saves are read, and the log opened,
+   * before they are deleted. A deletion that cannot be logged is logged as
+   * an error but does not fail the caller.
+   * </p>
+   */
+  private static void logDeletions(Collection<String> saveNames) {
+    SaveCommitLog log = commitLog;
+    if (log == null) {
+      return;
+    }
+    try {
+      log.delete(saveNames);
+    } catch (IOException e) {
+      logger.severe("Cannot log deleted saves " + saveNames + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Removes a save that is gone from the cache and the manifest
+   */
+  private static void forgetEntry(String saveName) {
+    cache.invalidate(saveName);
+    SaveManifest saves = getManifest();
+    if (saves == null) {
+      return;
+    }
+    try {
+      saves.remove(saveName);
+    } catch (IOException e) {
+      logger.warning("Cannot update save manifest for " + saveName + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Moves saves from the save directory to the save archive
+   * <p>
+   * The saves are written to the archive with one write and forced to the
+   * disk before their files are deleted, so a crash never loses a save. If
+   * there is no archive yet, its dictionary is trained from these saves.
+   * Saves are paused meanwhile, so a save written while archiving is never
+   * deleted in place of the archived one. Saves in a repository cannot be
+   * archived.
+   * </p>
+   *
+   * @param saveNames The names of the saves to archive
+   * @return The number of saves archived
+   */
+  public static int archiveSaves(Collection<String> saveNames) {
+    logger.info("Archiving " + saveNames.size() + " saves");
+    awaitSaves();
+    if (getRepository() != null) {
+      logger.warning("Saves in a repository cannot be archived");
+      return 0;
+    }
+
+    Lock pause = savePause();
+    pause.lock();
+    try {
+      return archiveFiles(saveNames);
+    } finally {
+      pause.unlock();
+    }
+  }
+
+  /**
+   * Moves save files to the save archive while saves are paused
+   */
+  private static int archiveFiles(Collection<String> saveNames) {
+    Map<String, ByteBuffer> saves = new LinkedHashMap<>();
+    for (String name : saveNames) {
+      String safeFilename = InputValidator.sanitizeFilename(name);
+      File saveFile = savePath(safeFilename).toFile();
+      if (safeFilename.isEmpty() || !saveFile.exists()) {
+        logger.warning("Cannot archive missing save: " + name);
+        continue;
+      }
+      try {
+        saves.put(safeFilename, readFully(saveFile));
+      } catch (IOException e) {
+        logger.warning("Cannot archive unreadable save " + safeFilename + ": " + e.getMessage());
+      }
+    }
+    if (saves.isEmpty()) {
+      return 0;
+    }
+
+    try {
+      SaveArchive saveArchive = getArchive(saves.values());
+      saveArchive.putAll(saves);
+      saveArchive.flush();
+    } catch (IOException e) {
+      logger.severe("Save archive write error: " + e.getMessage());
+      ExceptionHandler.handleSaveLoadError(e);
+      return 0;
+    }
+
+    logDeletions(saves.keySet());
+    for (String saveName : saves.keySet()) {
+      try {
+        Files.deleteIfExists(savePath(saveName));
+      } catch (IOException e) {
+        logger.warning("Archived save left in the save directory: " + saveName);
+      }
+      forgetEntry(saveName);
+    }
+    logger.info("Archived " + saves.size() + " saves");
+    compactArchive();
+    return saves.size();
+  }
+
+  /**
+   * Moves a save from the save archive back to the save directory
+   *
+   * @param filename The name of the save (without extension)
+   * @return true if the save was restored, false if it is not archived or cannot be written
+   */
+  public static boolean restoreSave(String filename) {
+    String safeFilename = InputValidator.sanitizeFilename(filename);
+    if (safeFilename.isEmpty() || !Files.exists(Path.of(SAVE_DIR, SaveArchive.FILE_NAME))) {
+      return false;
+    }
+    try {
+      SaveArchive saveArchive = getArchive(null);
+      ByteBuffer data = saveArchive.get(safeFilename);
+      if (data == null) {
+        return false;
+      }
+      writeSave(safeFilename, data, FsyncPolicy.configured());
+      saveArchive.remove(safeFilename);
+      logger.info("Save restored from the archive: " + safeFilename);
+      compactArchive();
+      return true;
+    } catch (IOException e) {
+      logger.severe("Cannot restore archived save " + safeFilename + ": " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Compacts the save archive once removed and replaced saves take more room than the live ones
+   * <p>
+   * A failed compaction leaves the archive as it was, so it is only logged.
+   * </p>
+   */
+  private static void compactArchive() {
+    try {
+      SaveArchive saveArchive = getArchive(null);
+      if (saveArchive.needsCompaction()) {
+        saveArchive.compact();
+      }
+    } catch (IOException e) {
+      logger.warning("Cannot compact save archive: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Gets the save archive, creating it if needed
+   *
+   * @param samples Saves to train the dictionary of a new archive from, or null to only open one
+   * @return The archive
+   * @throws IOException If the archive cannot be opened or created
+   */
+  private static synchronized SaveArchive getArchive(Collection<ByteBuffer> samples)
+      throws IOException {
+    if (archive == null) {
+      Path file = Path.of(SAVE_DIR, SaveArchive.FILE_NAME);
+      byte[] dictionary = null;
+      if (samples != null && !Files.exists(file)) {
+        Files.createDirectories(file.getParent());
+        dictionary = SaveArchive.trainDictionary(samples, SaveArchive.MAX_DICTIONARY_SIZE);
+      }
+      archive = new SaveArchive(file, dictionary);
+    }
+    return archive;
+  }
+
+  /**
+   * Lists the recorded versions of a save
+   *
+   * @param filename The name of the save (without extension)
+   * @return The versions, oldest first; empty if no history is kept or the save has none
+   */
+  public static List<SaveHistory.Version> listVersions(String filename) {
+    SaveHistory saveHistory = getHistory();
+    String safeFilename = filename != null ? InputValidator.sanitizeFilename(filename.trim()) : "";
+    if (saveHistory == null || safeFilename.isEmpty()) {
+      return List.of();
+    }
+    awaitSaves();
+    try {
+      return saveHistory.versions(safeFilename);
+    } catch (IOException e) {
+      logger.severe("Cannot read history of " + safeFilename + ": " + e.getMessage());
+      return List.of();
+    }
+  }
+
+  /**
+   * Loads a character as it was in an earlier version of its save
+   * <p>
+   * The current save is not changed; saving the returned character makes
+   * it the newest version.
+   * </p>
+   *
+   * @param filename The name of the save (without extension)
+   * @param version The version number, as listed by {@link #listVersions(String)}
+   * @return The character, or null if there is no such version or it cannot be read
+   */
+  public static Character loadVersion(String filename, int version) {
+    logger.info("Attempting to load version " + version + " of: " + filename);
+    SaveHistory saveHistory = getHistory();
+    String safeFilename = filename != null ? InputValidator.sanitizeFilename(filename.trim()) : "";
+    if (saveHistory == null || safeFilename.isEmpty()) {
+      logger.warning("Load failed: no history for " + filename);
+      OutputContext.get().println("No saved versions!");
+      return null;
+    }
+    awaitSaves();
+    try {
+      ByteBuffer data = saveHistory.load(safeFilename, version);
+      if (data == null) {
+        logger.warning("Save version not found: " + safeFilename + " v" + version);
+        OutputContext.get().println("Save version not found!");
+        return null;
+      }
+      Character character = decodeSave(data, new CharacterFactory());
+      logger.info("Character version loaded: " + character.getName() + " v" + version);
+      OutputContext.get().println("Character loaded: " + character.getName() + " (version " + version + ")");
+      return character;
+    } catch (IOException e) {
+      logger.severe("Save history read error: " + e.getMessage());
+      ExceptionHandler.handleSaveLoadError(e);
+      return null;
+    }
+  }
+
+  /**
+   * Lists all saves with their character name, class and level
+   * <p>
+   * Save files are listed from the manifest; saves in a repository are
+   * summarized from the repository.
+   * </p>
+   *
+   * @return The saves, ordered by save name
+   */
+  public static List<SaveManifest.Entry> listSaves() {
+    logger.info("Listing saves");
+    awaitSaves();
+
+    CharacterRepository store = getRepository();
+    if (store != null) {
+      List<SaveManifest.Entry> saves = new ArrayList<>();
+      Set<String> keys;
+      try {
+        keys = store.keys();
+      } catch (IOException e) {
+        logger.severe("Cannot list repository: " + e.getMessage());
+        return saves;
+      }
+      for (String key : keys) {
+        try {
+          ByteBuffer data = store.get(key);
+          if (data != null) {
+            saves.add(SaveManifest.summarize(key, data, data.remaining(), 0L));
+          }
+        } catch (IOException e) {
+          logger.warning("Unreadable save in repository: " + key);
+        }
+      }
+      return saves;
+    }
+
+    SaveManifest saves = getManifest();
+    if (saves != null) {
+      return saves.getEntries();
+    }
+    List<SaveManifest.Entry> entries = new ArrayList<>();
+    for (String name : listSaveFiles()) {
+      entries.add(new SaveManifest.Entry(name, name, "?", 0, 0L, 0L));
+    }
+    return entries;
+  }
+
   /**
    * Lists all save files in the save directory
    *
@@ -253,27 +1229,35 @@ public class CharacterManagement {
    */
   public static String[] listSaveFiles() {
     logger.info("Listing save files");
+    awaitSaves();
 
-    try {
-      File dir = new File(SAVE_DIR);
-      if (!dir.exists()) {
-        logger.info("Save directory doesn't exist");
+    CharacterRepository store = getRepository();
+    if (store != null) {
+      try {
+        return store.keys().toArray(new String[0]);
+      } catch (IOException e) {
+        logger.severe("Cannot list repository: " + e.getMessage());
         return new String[0];
       }
+    }
 
-      File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_EXT));
-      if (files == null) {
-        logger.warning("Could not list files in save directory");
+    SaveManifest saves = getManifest();
+    if (saves != null) {
+      return saves.getEntries().stream().map(SaveManifest.Entry::getSaveName).toArray(String[]::new);
+    }
+
+    try {
+      Path dir = Path.of(SAVE_DIR);
+      if (!Files.isDirectory(dir)) {
+        logger.info("Save directory doesn't exist");
         return new String[0];
       }
 
-      String[] names = new String[files.length];
-      for (int i = 0; i < files.length; i++) {
-        names[i] = files[i].getName().replace(FILE_EXT, "");
-      }
+      List<String> names = new ArrayList<>();
+      LAYOUT.forEachSave(dir, FILE_EXT, (saveName, saveFile) -> names.add(saveName));
 
-      logger.info("Found " + names.length + " save files");
-      return names;
+      logger.info("Found " + names.size() + " save files");
+      return names.toArray(new String[0]);
     } catch (Exception e) {
       logger.severe("Error listing save files: " + e.getMessage());
       return new String[0];
@@ -0,0 +1,121 @@
+package rpg.rpgIO;
+
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * CharacterRepository - Storage of encoded saves by save name
+ * <p>
+ * CharacterManagement writes saves to one file each unless a repository is
+ * set, in which case every save, load and listing goes through it. Saves
+ * are stored in their SaveCodec encoding; {@link #save} and {@link #load}
+ * convert from and to characters.
+ * </p>
+ * <p>
+ * Implementations: {@link SlotSaveStore} (one memory-mapped file of fixed
+ * slots) and {@link LsmSaveStore} (log-structured merge store for
+ * write-heavy workloads).
+ * </p>
+ */
+public interface CharacterRepository extends Closeable {
+
+  /**
+   * Stores a save, replacing the previous save with the same name
+   *
+   * @param saveName The save name
+   * @param data The encoded save, from its position to its limit (not modified)
+   * @throws IOException If the save cannot be written
+   */
+  void put(String saveName, ByteBuffer data) throws IOException;
+
+  /**
+   * Reads a save
+   *
+   * @param saveName The save name
+   * @return A buffer holding the save, or null if there is no save with this name
+   * @throws IOException If the save cannot be read
+   */
+  ByteBuffer get(String saveName) throws IOException;
+
+  /**
+   * Removes a save
+   *
+   * @param saveName The save name
+   * @return true if a save was removed
+   * @throws IOException If the removal cannot be written
+   */
+  boolean remove(String saveName) throws IOException;
+
+  /**
+   * Checks whether a save exists
+   *
+   * @param saveName The save name
+   * @return true if there is a save with this name
+   * @throws IOException If the repository cannot be read
+   */
+  boolean contains(String saveName) throws IOException;
+
+  /**
+   * Gets the names of all saves, in alphabetical order
+   *
+   * @return A copy of the save names
+   * @throws IOException If the repository cannot be read
+   */
+  Set<String> keys() throws IOException;
+
+  /**
+   * Gets the version of a save
+   * <p>
+   * The version changes every time the save is written, so a reader can
+   * tell whether a copy it kept is still current.
+   * </p>
+   *
+   * @param saveName The save name
+   * @return The version, or -1 if there is no save with this name
+   * @throws IOException If the repository cannot be read
+   */
+  long getVersion(String saveName) throws IOException;
+
+  /**
+   * Forces the saves written so far to the disk
+   *
+   * @throws IOException If the data cannot be forced
+   */
+  void flush() throws IOException;
+
+  /**
+   * Gets the file or directory holding the saves
+   *
+   * @return The path of the repository
+   */
+  Path getFile();
+
+  /**
+   * Encodes and stores a character
+   *
+   * @param saveName The save name
+   * @param character The character to save
+   * @throws IOException If the save cannot be written
+   */
+  default void save(String saveName, Character character) throws IOException {
+    put(saveName, SaveCodec.encode(character));
+  }
+
+  /**
+   * Reads and decodes a character, without logging or console messages
+   *
+   * @param saveName The save name
+   * @param factory The factory used to create the character
+   * @return The character, or null if there is no save with this name
+   * @throws IOException If the save cannot be read or decoded
+   */
+  default Character load(String saveName, CharacterFactory factory) throws IOException {
+    ByteBuffer data = get(saveName);
+    return data != null ? CharacterManagement.decodeSave(data, factory) : null;
+  }
+}
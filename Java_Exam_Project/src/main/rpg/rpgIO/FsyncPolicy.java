@@ -0,0 +1,38 @@
+package rpg.rpgIO;
+
+import java.util.Locale;
+
+/**
+ * FsyncPolicy - How hard a save is pushed to the disk before it counts as written
+ * <p>
+ * The policy is chosen with the {@code game.save.fsync} property
+ * ({@code none}, {@code data} or {@code full}); the default is
+ * {@code data}. Save files are forced through the save commit log, one
+ * force per batch; without it, each file is forced.
+ * </p>
+ */
+public enum FsyncPolicy {
+
+  /** Leave the data to the operating system: fastest, a crash can lose recent saves */
+  NONE,
+
+  /** Force the save content before it replaces the old save */
+  DATA,
+
+  /** Force the content and metadata, then the directory holding the renamed save */
+  FULL;
+
+  /**
+   * Gets the policy configured with the {@code game.save.fsync} property
+   *
+   * @return The configured policy, or DATA if the property is missing or unknown
+   */
+  public static FsyncPolicy configured() {
+    String value = System.getProperty("game.save.fsync", "data");
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return DATA;
+    }
+  }
+}
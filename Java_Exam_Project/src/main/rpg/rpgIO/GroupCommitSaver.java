@@ -0,0 +1,118 @@
+package rpg.rpgIO;
+
+import rpg.factory.Character;
+import rpg.logger.GameLogger;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * GroupCommitSaver - Makes concurrent saves durable in batches
+ * <p>
+ * Saves requested by many threads at once are collected by a single
+ * committer thread: once a save is queued, the committer waits up to the
+ * batch window for more saves, or until the batch is full, then writes the
+ * whole batch with CharacterManagement.writeSaves. In a repository this is
+ * one flush for the batch instead of one per save; save files share one
+ * force of the save commit log under the DATA policy, and the directory
+ * forces under the FULL policy. Saves queued while a batch is being
+ * committed form the next batch, so the busier the game, the larger the
+ * batches.
+ * </p>
+ * <p>
+ * A caller is told its save is written only once the batch holding it is
+ * on the disk: {@link #commit(Character, String)} blocks until then, and
+ * the future of {@link #save(Character, String)} completes then. Two saves
+ * of the same name in one batch are coalesced into the latest one.
+ * </p>
+ * <p>
+ * The game-wide saver returned by {@link #getDefault()} writes the saves
+ * of CharacterManagement.saveCharacter and of the character menu. The
+ * window and batch size are set with the {@code game.save.group.window.ms}
+ * and {@code game.save.group.batch} properties.
+ * </p>
+ */
+public class GroupCommitSaver extends BackgroundSaver {
+
+  /** Default time the committer waits for a batch to fill, in milliseconds */
+  public static final long DEFAULT_WINDOW_MILLIS = 2;
+
+  /** Default largest number of saves committed together */
+  public static final int DEFAULT_BATCH_SIZE = 128;
+
+  private static final Logger logger = GameLogger.getLogger();
+  private static GroupCommitSaver defaultSaver;
+
+  /**
+   * Creates a saver with the configured fsync policy, window and batch size
+   */
+  public GroupCommitSaver() {
+    this(FsyncPolicy.configured(), Long.getLong("game.save.group.window.ms", DEFAULT_WINDOW_MILLIS),
+        Integer.getInteger("game.save.group.batch", DEFAULT_BATCH_SIZE));
+  }
+
+  /**
+   * Creates a saver
+   *
+   * @param policy When a batch is forced to the disk
+   * @param windowMillis How long to wait for a batch to fill after its first save (0 to not wait)
+   * @param batchSize The largest number of saves committed together
+   */
+  public GroupCommitSaver(FsyncPolicy policy, long windowMillis, int batchSize) {
+    super("save-committer", policy, windowMillis, batchSize);
+  }
+
+  /**
+   * Gets the game-wide saver
+   * <p>
+   * It is created with the configured settings on first use and drained
+   * when the JVM shuts down, so queued saves are not lost when the game
+   * exits.
+   * </p>
+   *
+   * @return The shared saver
+   */
+  public static synchronized GroupCommitSaver getDefault() {
+    if (defaultSaver == null) {
+      defaultSaver = registerDefault(new GroupCommitSaver());
+    }
+    return defaultSaver;
+  }
+
+  /**
+   * Saves a character and waits until its batch is durable
+   *
+   * @param character The character to save
+   * @param filename The name of the save (without extension)
+   * @return true if the save was written, false otherwise
+   */
+  public boolean commit(Character character, String filename) {
+    try {
+      save(character, filename).get();
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      logger.warning("Group save of " + filename + " failed: " + e.getCause().getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Gets the number of saves committed; lower than the requested saves when saves were coalesced
+   *
+   * @return The number of saves written in successful batches
+   */
+  public long getCommittedSaves() {
+    return writtenSaves();
+  }
+
+  /**
+   * Gets the number of batches committed, which is the number of times the saves were forced
+   *
+   * @return The number of successful batches
+   */
+  public long getBatches() {
+    return batches();
+  }
+}
@@ -0,0 +1,415 @@
+package rpg.rpgIO;
+
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * IntegrityScanner - Verifies every save in parallel, e.g. after a crash
+ * <p>
+ * Saves of the current format end with a CRC-32C of their content (see
+ * SaveCodec), so checking one is a single pass over its bytes: save files
+ * of 64 KB or more are memory-mapped, smaller ones are read with one call
+ * into a direct buffer of the worker thread, and the checksum is computed
+ * on that buffer by the processor's CRC instruction. Older saves without a
+ * checksum are fully decoded instead and reported as unverified when they
+ * decode. Saves are spread over a fixed number of workers fed from a
+ * bounded queue, as in RosterLoader.
+ * </p>
+ * <p>
+ * A corrupt save is reported, and with a quarantine directory it is also
+ * moved there (save files) or copied there and removed (repositories), so
+ * the game no longer lists or loads it but nothing is deleted. Saves of the
+ * game quarantined by {@link #scanSaves(boolean)} also leave the character
+ * cache and the save manifest.
+ * </p>
+ * <p>
+ * Run it from the command line:
+ * {@code java rpg.rpgIO.IntegrityScanner saves [extension] [--quarantine]}
+ * </p>
+ */
+public class IntegrityScanner implements AutoCloseable {
+
+  /** Name of the quarantine directory inside the save directory */
+  public static final String QUARANTINE_DIR = "quarantine";
+
+  private static final Logger logger = GameLogger.getLogger();
+  private static final int MAP_THRESHOLD = 64 * 1024;
+
+  private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MAP_THRESHOLD));
+
+  private final BulkTasks tasks;
+  private final CharacterFactory factory = new CharacterFactory();
+
+  /**
+   * Status - Outcome of the check of one save
+   */
+  public enum Status {
+    /** The checksum matches */
+    VALID,
+    /** An older save without a checksum that decodes */
+    UNVERIFIED,
+    /** The checksum does not match, or a save without a checksum does not decode */
+    CORRUPT
+  }
+
+  /**
+   * Report - Outcome of a scan
+   */
+  public static final class Report {
+    private final long valid;
+    private final long unverified;
+    private final long corrupt;
+    private final long quarantined;
+    private final long bytes;
+    private final List<String> corruptSaves;
+
+    private Report(long valid, long unverified, long corrupt, long quarantined, long bytes,
+        List<String> corruptSaves) {
+      this.valid = valid;
+      this.unverified = unverified;
+      this.corrupt = corrupt;
+      this.quarantined = quarantined;
+      this.bytes = bytes;
+      this.corruptSaves = corruptSaves;
+    }
+
+    /**
+     * Gets the number of saves checked
+     *
+     * @return The scanned count
+     */
+    public long getScanned() {
+      return valid + unverified + corrupt;
+    }
+
+    /**
+     * Gets the number of saves whose checksum matches
+     *
+     * @return The valid count
+     */
+    public long getValid() {
+      return valid;
+    }
+
+    /**
+     * Gets the number of saves without a checksum that decode
+     *
+     * @return The unverified count
+     */
+    public long getUnverified() {
+      return unverified;
+    }
+
+    /**
+     * Gets the number of corrupt or unreadable saves
+     *
+     * @return The corrupt count
+     */
+    public long getCorrupt() {
+      return corrupt;
+    }
+
+    /**
+     * Gets the number of corrupt saves moved to the quarantine directory
+     *
+     * @return The quarantined count
+     */
+    public long getQuarantined() {
+      return quarantined;
+    }
+
+    /**
+     * Gets the number of bytes checked
+     *
+     * @return The scanned bytes
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * Gets the names of the first corrupt saves (at most 100)
+     *
+     * @return The corrupt save names
+     */
+    public List<String> getCorruptSaves() {
+      return corruptSaves;
+    }
+  }
+
+  /**
+   * Creates a scanner with one worker per available processor
+   */
+  public IntegrityScanner() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a scanner
+   *
+   * @param parallelism The number of worker threads
+   */
+  public IntegrityScanner(int parallelism) {
+    tasks = new BulkTasks("integrity-scanner", parallelism, Level.WARNING, "Cannot check save");
+  }
+
+  /**
+   * Scans the saves from the command line
+   *
+   * @param args The save directory, optionally the extension, and --quarantine to move corrupt saves
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      System.out.println("Usage: IntegrityScanner <save directory> [extension] [--quarantine]");
+      return;
+    }
+    boolean quarantine = List.of(args).contains("--quarantine");
+    String extension = args.length > 1 && !args[1].equals("--quarantine") ? args[1] : ".save";
+    Path directory = Path.of(args[0]);
+    try (IntegrityScanner scanner = new IntegrityScanner()) {
+      Report report = scanner.scanDirectory(directory, extension, SaveLayout.configured(),
+          quarantine ? directory.resolve(QUARANTINE_DIR) : null);
+      System.out.println(report.getScanned() + " saves checked: " + report.getValid() + " valid, "
+          + report.getUnverified() + " without checksum, " + report.getCorrupt() + " corrupt, "
+          + report.getQuarantined() + " quarantined");
+      report.getCorruptSaves().forEach(saveName -> System.out.println("Corrupt: " + saveName));
+    } catch (IOException e) {
+      System.out.println("Scan failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Checks one save
+   *
+   * @param data The buffer holding exactly the save (not modified)
+   * @param factory The factory used to decode saves without a checksum
+   * @return The status of the save
+   */
+  public static Status check(ByteBuffer data, CharacterFactory factory) {
+    if (SaveCodec.hasChecksum(data)) {
+      return SaveCodec.checksumMatches(data) ? Status.VALID : Status.CORRUPT;
+    }
+    ByteBuffer heap = data;
+    if (!data.hasArray()) {
+      // Legacy saves are parsed from a heap array
+      heap = ByteBuffer.allocate(data.remaining()).put(data.duplicate()).flip();
+    }
+    try {
+      CharacterManagement.decodeSave(heap, factory);
+      return Status.UNVERIFIED;
+    } catch (IOException | RuntimeException e) {
+      return Status.CORRUPT;
+    }
+  }
+
+  /**
+   * Scans the saves of the game: its repository if one is used, else its save directory
+   *
+   * @param quarantine true to move corrupt saves to the quarantine directory of the save directory
+   * @return The outcome of the scan
+   * @throws IOException If the saves cannot be listed
+   */
+  public Report scanSaves(boolean quarantine) throws IOException {
+    CharacterManagement.awaitSaves();
+    Path directory = CharacterManagement.saveDirectory();
+    Path quarantineDir = quarantine ? directory.resolve(QUARANTINE_DIR) : null;
+    CharacterRepository store = CharacterManagement.getRepository();
+    if (store != null) {
+      return scanRepository(store, quarantineDir, CharacterManagement::forgetSave);
+    }
+    if (!Files.isDirectory(directory)) {
+      return new Report(0, 0, 0, 0, 0, List.of());
+    }
+    return scanDirectory(directory, CharacterManagement.fileExtension(), CharacterManagement.saveLayout(),
+        quarantineDir, CharacterManagement::forgetSave);
+  }
+
+  /**
+   * Scans every save file of a save directory
+   *
+   * @param directory The save directory
+   * @param extension The extension of the save files, e.g. ".save"
+   * @param layout Where the save files are placed in the directory
+   * @param quarantine The directory corrupt saves are moved to, or null to only report them
+   * @return The outcome of the scan
+   * @throws IOException If a directory cannot be listed
+   */
+  public Report scanDirectory(Path directory, String extension, SaveLayout layout, Path quarantine)
+      throws IOException {
+    return scanDirectory(directory, extension, layout, quarantine, saveName -> { });
+  }
+
+  /**
+   * Scans every save file of a save directory, telling the caller about quarantined saves
+   */
+  private Report scanDirectory(Path directory, String extension, SaveLayout layout, Path quarantine,
+      Consumer<String> quarantined) throws IOException {
+    Scan scan = new Scan();
+    try {
+      layout.forEachSave(directory, extension, (saveName, file) -> scan.submit(saveName, () -> {
+        Status status = checkFile(file, scan);
+        if (status == Status.CORRUPT && quarantine != null) {
+          Files.createDirectories(quarantine);
+          Files.move(file, quarantineTarget(quarantine, saveName, extension), StandardCopyOption.ATOMIC_MOVE);
+          quarantined.accept(saveName);
+          scan.quarantined.incrementAndGet();
+          logger.warning("Corrupt save quarantined: " + file);
+        }
+        return status;
+      }));
+    } finally {
+      scan.await();
+    }
+    return scan.report(directory.toString());
+  }
+
+  /**
+   * Scans every save of a repository
+   *
+   * @param store The repository to scan
+   * @param quarantine The directory corrupt saves are copied to before being removed, or null to
+   *     only report them
+   * @return The outcome of the scan
+   * @throws IOException If the repository cannot be listed
+   */
+  public Report scanRepository(CharacterRepository store, Path quarantine) throws IOException {
+    return scanRepository(store, quarantine, saveName -> { });
+  }
+
+  /**
+   * Scans every save of a repository, telling the caller about quarantined saves
+   */
+  private Report scanRepository(CharacterRepository store, Path quarantine, Consumer<String> quarantined)
+      throws IOException {
+    Scan scan = new Scan();
+    try {
+      for (String key : store.keys()) {
+        scan.submit(key, () -> {
+          ByteBuffer data = store.get(key);
+          if (data == null) {
+            return null; // Removed while scanning
+          }
+          scan.bytes.addAndGet(data.remaining());
+          Status status = check(data, factory);
+          if (status == Status.CORRUPT && quarantine != null) {
+            Files.createDirectories(quarantine);
+            Files.write(quarantineTarget(quarantine, key, ".save"), bytes(data));
+            store.remove(key);
+            quarantined.accept(key);
+            scan.quarantined.incrementAndGet();
+            logger.warning("Corrupt save quarantined from repository: " + key);
+          }
+          return status;
+        });
+      }
+    } finally {
+      scan.await();
+    }
+    return scan.report(store.getFile().toString());
+  }
+
+  /**
+   * Stops the worker threads
+   */
+  @Override
+  public void close() {
+    tasks.close();
+  }
+
+  /**
+   * Checks a save file, mapped if it is large and read into the thread's buffer if not
+   */
+  private Status checkFile(Path file, Scan scan) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      scan.bytes.addAndGet(size);
+      if (size == 0 || size > Integer.MAX_VALUE) {
+        return Status.CORRUPT;
+      }
+      ByteBuffer data;
+      if (size >= MAP_THRESHOLD) {
+        data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } else {
+        data = READ_BUFFER.get().clear().limit((int) size);
+        while (data.hasRemaining()) {
+          if (channel.read(data, data.position()) < 0) {
+            return Status.CORRUPT; // Shrunk while reading
+          }
+        }
+        data.flip();
+      }
+      return check(data, factory);
+    }
+  }
+
+  private static Path quarantineTarget(Path quarantine, String saveName, String extension) {
+    Path target = quarantine.resolve(saveName + extension);
+    for (int copy = 1; Files.exists(target); copy++) {
+      target = quarantine.resolve(saveName + "." + copy + extension);
+    }
+    return target;
+  }
+
+  private static byte[] bytes(ByteBuffer data) {
+    byte[] bytes = new byte[data.remaining()];
+    data.get(data.position(), bytes);
+    return bytes;
+  }
+
+  /**
+   * Checks one save and may quarantine it; returns null if the save is gone
+   */
+  @FunctionalInterface
+  private interface SaveCheck {
+    Status run() throws IOException;
+  }
+
+  /**
+   * State of one scan
+   */
+  private final class Scan {
+    private final BulkTasks.Batch batch = tasks.batch();
+    private final AtomicLong valid = new AtomicLong();
+    private final AtomicLong unverified = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private void submit(String saveName, SaveCheck check) {
+      batch.submit(saveName, () -> {
+        Status status = check.run();
+        if (status == Status.VALID) {
+          valid.incrementAndGet();
+        } else if (status == Status.UNVERIFIED) {
+          unverified.incrementAndGet();
+        } else if (status == Status.CORRUPT) {
+          batch.failed(saveName);
+        }
+      });
+    }
+
+    private void await() {
+      batch.await();
+    }
+
+    private Report report(String source) {
+      logger.info("Integrity scan of " + source + ": " + valid.get() + " valid, " + unverified.get()
+          + " without checksum, " + batch.getFailed() + " corrupt, " + quarantined.get() + " quarantined, "
+          + bytes.get() + " bytes, " + batch.elapsedMillis() + " ms");
+      return new Report(valid.get(), unverified.get(), batch.getFailed(), quarantined.get(), bytes.get(),
+          batch.getFailedSaves());
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package rpg.rpgIO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * LegacySaveReader - Fast reader for legacy Properties saves
+ * <p>
+ * Legacy saves were written by Properties.store, so they all look alike:
+ * comment lines, then one {@code key=value} line per field with no
+ * escapes. This reader scans the bytes of such a save once, matches the
+ * keys byte by byte and parses the numbers in place; the only object it
+ * creates besides the result is the name String.
+ * </p>
+ * <p>
+ * It is strict on purpose: anything Properties.store would not have
+ * written for a character (escapes, other separators, leading spaces,
+ * unknown keys, numbers out of range, a missing name or type) makes it
+ * give up, and the caller reads the save with Properties instead, so
+ * unusual saves load exactly as before.
+ * </p>
+ */
+final class LegacySaveReader {
+
+  private static final byte[][] KEYS = {
+      ascii("name"), ascii("type"), ascii("health"), ascii("maxHealth"), ascii("stamina"),
+      ascii("maxStamina"), ascii("damage"), ascii("money"), ascii("level"), ascii("mana"),
+      ascii("maxMana")
+  };
+  private static final int NAME = 0;
+  private static final int TYPE = 1;
+  private static final int HEALTH = 2;
+  private static final int MAX_HEALTH = 3;
+  private static final int STAMINA = 4;
+  private static final int MAX_STAMINA = 5;
+  private static final int DAMAGE = 6;
+  private static final int MONEY = 7;
+  private static final int LEVEL = 8;
+  private static final int MANA = 9;
+  private static final int MAX_MANA = 10;
+
+  private static final byte[] WARRIOR = ascii("Warrior");
+  private static final byte[] MAGE = ascii("Mage");
+
+  /**
+   * LegacySave - The fields of a legacy save
+   * <p>
+   * Missing fields keep the defaults the Properties loader used.
+   * </p>
+   */
+  static final class LegacySave {
+    String name;
+    boolean warrior;
+    int health;
+    int maxHealth;
+    int stamina;
+    int maxStamina;
+    int damage;
+    int money;
+    int level = 1;
+    int mana = 50;
+    int maxMana = 50;
+    private boolean hasMana;
+    private boolean hasMaxMana;
+
+    /**
+     * Gets the type name used by CharacterFactory
+     *
+     * @return "warrior" or "mage"
+     */
+    String getType() {
+      return warrior ? "warrior" : "mage";
+    }
+  }
+
+  private LegacySaveReader() {
+  }
+
+  /**
+   * Parses a legacy save in the layout written by Properties.store
+   *
+   * @param data The content of the save (its position is not changed)
+   * @return The fields of the save, or null if the save must be read with Properties
+   */
+  static LegacySave parse(ByteBuffer data) {
+    byte[] bytes;
+    int pos;
+    int limit;
+    if (data.hasArray()) {
+      bytes = data.array();
+      pos = data.arrayOffset() + data.position();
+      limit = data.arrayOffset() + data.limit();
+    } else {
+      bytes = new byte[data.remaining()];
+      data.get(data.position(), bytes);
+      pos = 0;
+      limit = bytes.length;
+    }
+
+    LegacySave save = new LegacySave();
+    boolean hasType = false;
+    int mana = save.mana;
+    int maxMana = save.maxMana;
+
+    while (pos < limit) {
+      byte first = bytes[pos];
+      if (first == '\n' || first == '\r') {
+        pos++;
+        continue;
+      }
+      boolean comment = first == '#' || first == '!';
+      int separator = -1;
+      int lineEnd = pos;
+      while (lineEnd < limit && bytes[lineEnd] != '\n' && bytes[lineEnd] != '\r') {
+        if (separator < 0 && bytes[lineEnd] == '=') {
+          separator = lineEnd;
+        }
+        lineEnd++;
+      }
+      if (comment) {
+        pos = lineEnd;
+        continue;
+      }
+      if (separator < 0) {
+        return null;
+      }
+      int key = key(bytes, pos, separator);
+      int valueStart = separator + 1;
+      if (key < 0 || !plainValue(bytes, valueStart, lineEnd)) {
+        return null;
+      }
+
+      if (key == NAME) {
+        save.name = new String(bytes, valueStart, lineEnd - valueStart, StandardCharsets.ISO_8859_1);
+      } else if (key == TYPE) {
+        if (equals(bytes, valueStart, lineEnd, WARRIOR)) {
+          save.warrior = true;
+        } else if (equals(bytes, valueStart, lineEnd, MAGE)) {
+          save.warrior = false;
+        } else {
+          return null;
+        }
+        hasType = true;
+      } else {
+        long value = parseInt(bytes, valueStart, lineEnd);
+        if (value == Long.MIN_VALUE) {
+          return null;
+        }
+        int number = (int) value;
+        switch (key) {
+          case HEALTH -> save.health = number;
+          case MAX_HEALTH -> save.maxHealth = number;
+          case STAMINA -> save.stamina = number;
+          case MAX_STAMINA -> save.maxStamina = number;
+          case DAMAGE -> save.damage = number;
+          case MONEY -> save.money = number;
+          case LEVEL -> save.level = number;
+          case MANA -> {
+            mana = number;
+            save.hasMana = true;
+          }
+          default -> {
+            maxMana = number;
+            save.hasMaxMana = true;
+          }
+        }
+      }
+      pos = lineEnd;
+    }
+
+    if (save.name == null || !hasType) {
+      return null;
+    }
+    // Like the Properties loader, mana is only restored when both values were saved
+    if (save.hasMana && save.hasMaxMana) {
+      save.mana = mana;
+      save.maxMana = maxMana;
+    }
+    return save;
+  }
+
+  /**
+   * Finds which known key the bytes spell
+   *
+   * @return The key index, or -1 if the key is unknown
+   */
+  private static int key(byte[] bytes, int start, int end) {
+    for (int i = 0; i < KEYS.length; i++) {
+      if (equals(bytes, start, end, KEYS[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks that a value reads the same with Properties: no escapes, no leading blanks
+   */
+  private static boolean plainValue(byte[] bytes, int start, int end) {
+    if (start < end) {
+      byte first = bytes[start];
+      if (first == ' ' || first == '\t' || first == '\f') {
+        return false;
+      }
+    }
+    for (int i = start; i < end; i++) {
+      if (bytes[i] == '\\') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses a decimal int the way Integer.parseInt would
+   *
+   * @return The value, or Long.MIN_VALUE if Integer.parseInt would fail
+   */
+  private static long parseInt(byte[] bytes, int start, int end) {
+    boolean negative = start < end && bytes[start] == '-';
+    int pos = negative || (start < end && bytes[start] == '+') ? start + 1 : start;
+    if (pos == end || end - pos > 10) {
+      return Long.MIN_VALUE;
+    }
+    long value = 0;
+    for (; pos < end; pos++) {
+      int digit = bytes[pos] - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + digit;
+    }
+    value = negative ? -value : value;
+    return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+  }
+
+  private static boolean equals(byte[] bytes, int start, int end, byte[] expected) {
+    if (end - start != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < expected.length; i++) {
+      if (bytes[start + i] != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
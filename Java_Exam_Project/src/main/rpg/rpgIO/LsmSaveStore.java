@@ -0,0 +1,747 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * LsmSaveStore - Log-structured merge store for saves
+ * <p>
+ * Every write is appended to a write-ahead log and applied to a sorted
+ * in-memory table, so a save costs one sequential write whatever the
+ * number of saves. When the table reaches its size limit it is frozen and
+ * written by a background thread as a sorted, immutable segment file (see
+ * LsmSegment), and its log is deleted once the rename of the segment has
+ * been forced to the disk. When there are too many segments
+ * they are merged in the background into one, dropping replaced and
+ * removed saves, so lookups keep touching a bounded number of files.
+ * </p>
+ * <p>
+ * A lookup checks the live table, the table being written, then the
+ * segments from newest to oldest; each segment answers from its bloom
+ * filter and sparse index with at most one read. On open, the segments are
+ * loaded and the logs are replayed into the table; a log record cut short
+ * by a crash is dropped. The store keeps all its files in one directory:
+ * {@code wal-N.log} logs and {@code segment-N.sst} segments, merged
+ * segments being named {@code segment-N-M.sst} after the range of segments
+ * they replace.
+ * </p>
+ */
+public class LsmSaveStore implements CharacterRepository {
+
+  /** Default size of the in-memory table before it is written to a segment */
+  public static final long DEFAULT_MEMTABLE_BYTES = 1024 * 1024;
+
+  private static final int COMPACTION_TRIGGER = 6;
+  private static final int RECORD_OVERHEAD = 48;
+  private static final long FLUSH_RETRY_SECONDS = 1;
+  private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)(?:-(\\d+))?\\.sst");
+  private static final Pattern WAL_NAME = Pattern.compile("wal-(\\d+)\\.log");
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private final Path directory;
+  private final long memtableLimit;
+  private final ScheduledExecutorService maintenance;
+  private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+  private final Object compactionLock = new Object();
+
+  // Replaced under the store lock, read without it by lookups
+  private volatile ConcurrentSkipListMap<String, LsmSegment.Record> memtable = new ConcurrentSkipListMap<>();
+  private volatile NavigableMap<String, LsmSegment.Record> immutable;
+  private volatile List<Segment> segments = List.of();
+  private long memtableBytes;
+  private List<Path> memtableLogs = new ArrayList<>();
+  private List<Path> immutableLogs = List.of();
+  private FileChannel log;
+  private long sequence;
+  private long nextFileId = 1;
+  private boolean compactionQueued;
+  private boolean closed;
+  private long flushCount;
+  private long compactionCount;
+
+  /**
+   * A segment with the range of segment ids it replaces
+   */
+  private static final class Segment {
+    private final LsmSegment file;
+    private final long firstId;
+
+    private Segment(LsmSegment file, long firstId) {
+      this.file = file;
+      this.firstId = firstId;
+    }
+
+    private long id() {
+      return file.getId();
+    }
+  }
+
+  /**
+   * Opens a store with the default table size
+   *
+   * @param directory The directory of the store, created if missing
+   * @throws IOException If the store cannot be opened
+   */
+  public LsmSaveStore(Path directory) throws IOException {
+    this(directory, DEFAULT_MEMTABLE_BYTES);
+  }
+
+  /**
+   * Opens a store
+   *
+   * @param directory The directory of the store, created if missing
+   * @param memtableBytes The size of the in-memory table before it is written to a segment
+   * @throws IOException If the store cannot be opened
+   */
+  public LsmSaveStore(Path directory, long memtableBytes) throws IOException {
+    if (directory == null || memtableBytes < 1) {
+      throw new IllegalArgumentException("Store directory and a positive table size are required");
+    }
+    this.directory = directory;
+    this.memtableLimit = memtableBytes;
+    Files.createDirectories(directory);
+    openSegments();
+    replayLogs();
+    log = openLog();
+    this.maintenance = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "lsm-maintenance");
+      thread.setDaemon(true);
+      return thread;
+    });
+    logger.info("LSM store opened: " + directory + " (" + segments.size() + " segments, "
+        + memtable.size() + " saves in the log)");
+  }
+
+  @Override
+  public void put(String saveName, ByteBuffer data) throws IOException {
+    if (data.remaining() == 0) {
+      throw new IllegalArgumentException("Save data cannot be empty");
+    }
+    byte[] value = new byte[data.remaining()];
+    data.get(data.position(), value);
+    write(saveName, value);
+  }
+
+  @Override
+  public ByteBuffer get(String saveName) throws IOException {
+    LsmSegment.Record record = find(saveName);
+    return record != null && record.value != null ? ByteBuffer.wrap(record.value.clone()) : null;
+  }
+
+  @Override
+  public boolean remove(String saveName) throws IOException {
+    if (!contains(saveName)) {
+      return false;
+    }
+    write(saveName, null);
+    return true;
+  }
+
+  @Override
+  public boolean contains(String saveName) throws IOException {
+    LsmSegment.Record record = find(saveName);
+    return record != null && record.value != null;
+  }
+
+  @Override
+  public long getVersion(String saveName) throws IOException {
+    LsmSegment.Record record = find(saveName);
+    return record != null && record.value != null ? record.sequence : -1;
+  }
+
+  @Override
+  public Set<String> keys() throws IOException {
+    TreeMap<String, Boolean> live = new TreeMap<>();
+    segmentLock.readLock().lock();
+    try {
+      List<Segment> current = segments;
+      for (int i = current.size() - 1; i >= 0; i--) {
+        Iterator<LsmSegment.Record> records = current.get(i).file.iterator();
+        while (records.hasNext()) {
+          LsmSegment.Record record = records.next();
+          live.put(record.key, record.value != null);
+        }
+      }
+    } catch (IllegalStateException e) {
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      segmentLock.readLock().unlock();
+    }
+    NavigableMap<String, LsmSegment.Record> frozen = immutable;
+    if (frozen != null) {
+      frozen.values().forEach(record -> live.put(record.key, record.value != null));
+    }
+    memtable.values().forEach(record -> live.put(record.key, record.value != null));
+
+    Set<String> keys = new TreeSet<>();
+    live.forEach((key, present) -> {
+      if (present) {
+        keys.add(key);
+      }
+    });
+    return keys;
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if (!closed) {
+      log.force(false);
+    }
+  }
+
+  @Override
+  public Path getFile() {
+    return directory;
+  }
+
+  /**
+   * Writes the in-memory table to a segment now and waits for it
+   *
+   * @throws IOException If the segment cannot be written
+   */
+  public void flushMemtable() throws IOException {
+    Future<?> done;
+    synchronized (this) {
+      ensureOpen();
+      while (immutable != null) {
+        waitForFlush();
+      }
+      if (memtable.isEmpty()) {
+        return;
+      }
+      done = rotate();
+    }
+    try {
+      done.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IOException("Cannot write segment: " + e.getCause().getMessage(), e.getCause());
+    }
+    synchronized (this) {
+      if (immutable != null) {
+        throw new IOException("Cannot write segment of " + directory);
+      }
+    }
+  }
+
+  /**
+   * Merges every segment into one
+   * <p>
+   * Replaced saves and removed saves are dropped. This runs by itself in
+   * the background when segments pile up.
+   * </p>
+   *
+   * @throws IOException If the merged segment cannot be written
+   */
+  public void compact() throws IOException {
+    synchronized (compactionLock) {
+      List<Segment> inputs = segments;
+      if (inputs.size() < 2) {
+        return;
+      }
+      long id = inputs.get(0).id();
+      long firstId = inputs.get(inputs.size() - 1).firstId;
+      Path target = directory.resolve(String.format("segment-%08d-%08d.sst", id, firstId));
+      Path temp = directory.resolve(target.getFileName() + ".tmp");
+      int bound = 0;
+      for (Segment input : inputs) {
+        bound += input.file.getRecordCount();
+      }
+      try {
+        LsmSegment.write(temp, merge(inputs), bound);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The merged segment must survive a crash before its inputs are deleted
+        CharacterManagement.forceDirectory(directory);
+      } catch (IllegalStateException e) {
+        Files.deleteIfExists(temp);
+        throw new IOException(e.getMessage(), e);
+      } catch (IOException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+      Segment output = new Segment(new LsmSegment(target, id), firstId);
+
+      segmentLock.writeLock().lock();
+      try {
+        List<Segment> next = new ArrayList<>();
+        for (Segment segment : segments) {
+          if (segment.id() > id) {
+            next.add(segment);
+          }
+        }
+        next.add(output);
+        segments = List.copyOf(next);
+        for (Segment input : inputs) {
+          input.file.close();
+        }
+      } finally {
+        segmentLock.writeLock().unlock();
+      }
+      for (Segment input : inputs) {
+        Files.deleteIfExists(input.file.getFile());
+      }
+      synchronized (this) {
+        compactionCount++;
+      }
+      logger.info("LSM store compacted " + inputs.size() + " segments of " + directory);
+    }
+  }
+
+  /**
+   * Gets the number of segment files
+   *
+   * @return The segment count
+   */
+  public int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Gets the number of tables written to segments since the store was opened
+   *
+   * @return The flush count
+   */
+  public synchronized long getFlushCount() {
+    return flushCount;
+  }
+
+  /**
+   * Gets the number of merges since the store was opened
+   *
+   * @return The compaction count
+   */
+  public synchronized long getCompactionCount() {
+    return compactionCount;
+  }
+
+  /**
+   * Stops the background thread and closes the files
+   * <p>
+   * The in-memory table is not written to a segment: its log is replayed
+   * the next time the store is opened.
+   * </p>
+   *
+   * @throws IOException If a file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+    }
+    maintenance.shutdown();
+    try {
+      maintenance.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      log.force(false);
+      log.close();
+    }
+    segmentLock.writeLock().lock();
+    try {
+      for (Segment segment : segments) {
+        segment.file.close();
+      }
+    } finally {
+      segmentLock.writeLock().unlock();
+    }
+  }
+
+  private synchronized void write(String saveName, byte[] value) throws IOException {
+    ensureOpen();
+    if (saveName == null || saveName.isEmpty()) {
+      throw new IllegalArgumentException("Save name cannot be empty");
+    }
+    // Back-pressure: while a full table is still being written, wait for it
+    while (immutable != null && memtableBytes >= memtableLimit) {
+      waitForFlush();
+    }
+    long next = sequence + 1;
+    appendLog(saveName, next, value);
+    sequence = next;
+    LsmSegment.Record previous = memtable.put(saveName, new LsmSegment.Record(saveName, next, value));
+    memtableBytes += size(saveName, value) - (previous != null ? size(saveName, previous.value) : 0);
+    if (memtableBytes >= memtableLimit && immutable == null) {
+      rotate();
+    }
+  }
+
+  private LsmSegment.Record find(String saveName) throws IOException {
+    LsmSegment.Record record = memtable.get(saveName);
+    if (record != null) {
+      return record;
+    }
+    NavigableMap<String, LsmSegment.Record> frozen = immutable;
+    if (frozen != null) {
+      record = frozen.get(saveName);
+      if (record != null) {
+        return record;
+      }
+    }
+    segmentLock.readLock().lock();
+    try {
+      for (Segment segment : segments) {
+        record = segment.file.find(saveName);
+        if (record != null) {
+          return record;
+        }
+      }
+      return null;
+    } finally {
+      segmentLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Freezes the table and queues it to be written; called with the store locked
+   */
+  private Future<?> rotate() throws IOException {
+    immutable = memtable;
+    immutableLogs = memtableLogs;
+    memtable = new ConcurrentSkipListMap<>();
+    memtableBytes = 0;
+    log.force(false);
+    log.close();
+    memtableLogs = new ArrayList<>();
+    log = openLog();
+    return maintenance.submit(this::writeImmutable);
+  }
+
+  /**
+   * Writes the frozen table to a new segment, then drops its logs
+   */
+  private void writeImmutable() {
+    NavigableMap<String, LsmSegment.Record> frozen;
+    List<Path> logs;
+    long id;
+    synchronized (this) {
+      frozen = immutable;
+      logs = immutableLogs;
+      id = nextFileId++;
+    }
+    if (frozen == null) {
+      return;
+    }
+    Path target = directory.resolve(String.format("segment-%08d.sst", id));
+    Path temp = directory.resolve(target.getFileName() + ".tmp");
+    try {
+      LsmSegment.write(temp, frozen.values().iterator(), frozen.size());
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      // The segment must survive a crash before the logs it replaces are deleted
+      CharacterManagement.forceDirectory(directory);
+      Segment segment = new Segment(new LsmSegment(target, id), id);
+      segmentLock.writeLock().lock();
+      try {
+        List<Segment> next = new ArrayList<>();
+        next.add(segment);
+        next.addAll(segments);
+        segments = List.copyOf(next);
+      } finally {
+        segmentLock.writeLock().unlock();
+      }
+    } catch (IOException e) {
+      logger.severe("Cannot write LSM segment, retrying: " + e.getMessage());
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException ignored) {
+        // Left for the next attempt to replace
+      }
+      synchronized (this) {
+        if (!closed) {
+          maintenance.schedule(this::writeImmutable, FLUSH_RETRY_SECONDS, TimeUnit.SECONDS);
+        }
+      }
+      return;
+    }
+
+    synchronized (this) {
+      immutable = null;
+      immutableLogs = List.of();
+      flushCount++;
+      notifyAll();
+    }
+    for (Path logFile : logs) {
+      try {
+        Files.deleteIfExists(logFile);
+      } catch (IOException e) {
+        logger.warning("Cannot delete written LSM log " + logFile + ": " + e.getMessage());
+      }
+    }
+    scheduleCompaction();
+  }
+
+  private void scheduleCompaction() {
+    synchronized (this) {
+      if (closed || compactionQueued || segments.size() < COMPACTION_TRIGGER) {
+        return;
+      }
+      compactionQueued = true;
+    }
+    maintenance.execute(() -> {
+      synchronized (this) {
+        compactionQueued = false;
+      }
+      try {
+        compact();
+      } catch (IOException e) {
+        logger.severe("LSM compaction failed: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Merges the records of segments, newest first, keeping the newest record of each save
+   */
+  private static Iterator<LsmSegment.Record> merge(List<Segment> inputs) {
+    // Cursor: current record of one input and its rank (0 = newest)
+    record Cursor(LsmSegment.Record record, int rank, Iterator<LsmSegment.Record> rest) {
+    }
+    PriorityQueue<Cursor> queue = new PriorityQueue<>(
+        Comparator.comparing((Cursor cursor) -> cursor.record().key).thenComparingInt(Cursor::rank));
+    for (int i = 0; i < inputs.size(); i++) {
+      Iterator<LsmSegment.Record> records = inputs.get(i).file.iterator();
+      if (records.hasNext()) {
+        queue.add(new Cursor(records.next(), i, records));
+      }
+    }
+
+    return new Iterator<>() {
+      private LsmSegment.Record next = advance();
+
+      private LsmSegment.Record advance() {
+        while (!queue.isEmpty()) {
+          Cursor newest = queue.poll();
+          String key = newest.record().key;
+          refill(newest);
+          while (!queue.isEmpty() && queue.peek().record().key.equals(key)) {
+            refill(queue.poll());
+          }
+          // Every segment is merged, so nothing older can hide behind a removal
+          if (newest.record().value != null) {
+            return newest.record();
+          }
+        }
+        return null;
+      }
+
+      private void refill(Cursor cursor) {
+        if (cursor.rest().hasNext()) {
+          queue.add(new Cursor(cursor.rest().next(), cursor.rank(), cursor.rest()));
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public LsmSegment.Record next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        LsmSegment.Record current = next;
+        next = advance();
+        return current;
+      }
+    };
+  }
+
+  /**
+   * Loads the segment files, deleting the ones a merged segment replaced
+   */
+  private void openSegments() throws IOException {
+    List<Segment> found = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+      for (Path file : files) {
+        Matcher name = SEGMENT_NAME.matcher(file.getFileName().toString());
+        if (!name.matches()) {
+          if (file.getFileName().toString().endsWith(".tmp")) {
+            Files.deleteIfExists(file);
+          }
+          continue;
+        }
+        long id = Long.parseLong(name.group(1));
+        long firstId = name.group(2) != null ? Long.parseLong(name.group(2)) : id;
+        found.add(new Segment(new LsmSegment(file, id), firstId));
+        nextFileId = Math.max(nextFileId, id + 1);
+        sequence = Math.max(sequence, found.get(found.size() - 1).file.getMaxSequence());
+      }
+    }
+
+    // Newest first; of two segments with the same id, the merged one (wider range) first
+    found.sort(Comparator.comparingLong(Segment::id).reversed()
+        .thenComparingLong(segment -> segment.firstId));
+    List<Segment> kept = new ArrayList<>();
+    for (Segment segment : found) {
+      boolean replaced = false;
+      for (Segment newer : kept) {
+        if (segment.id() <= newer.id() && segment.id() >= newer.firstId) {
+          replaced = true;
+          break;
+        }
+      }
+      if (replaced) {
+        logger.info("Deleting LSM segment replaced by a merge: " + segment.file.getFile());
+        segment.file.close();
+        Files.deleteIfExists(segment.file.getFile());
+      } else {
+        kept.add(segment);
+      }
+    }
+    segments = List.copyOf(kept);
+  }
+
+  /**
+   * Replays the logs left by the previous run into the table
+   */
+  private void replayLogs() throws IOException {
+    TreeMap<Long, Path> logs = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "wal-*.log")) {
+      for (Path file : files) {
+        Matcher name = WAL_NAME.matcher(file.getFileName().toString());
+        if (name.matches()) {
+          logs.put(Long.parseLong(name.group(1)), file);
+        }
+      }
+    }
+    for (var entry : logs.entrySet()) {
+      replay(entry.getValue());
+      memtableLogs.add(entry.getValue());
+      nextFileId = Math.max(nextFileId, entry.getKey() + 1);
+    }
+  }
+
+  private void replay(Path file) throws IOException {
+    ByteBuffer data = CharacterManagement.readFully(file.toFile());
+    int valid = 0;
+    CRC32 crc = new CRC32();
+    try {
+      while (data.remaining() >= 8) {
+        int length = data.getInt();
+        int checksum = data.getInt();
+        if (length < 8 || length > data.remaining()) {
+          break;
+        }
+        ByteBuffer record = data.slice(data.position(), length);
+        crc.reset();
+        crc.update(record.duplicate());
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+        data.position(data.position() + length);
+        long recordSequence = record.getLong();
+        int keyLength = SaveCodec.getVarint(record);
+        byte[] key = new byte[keyLength];
+        record.get(key);
+        int valueLength = SaveCodec.getVarint(record) - 1;
+        byte[] value = null;
+        if (valueLength >= 0) {
+          value = new byte[valueLength];
+          record.get(value);
+        }
+        String saveName = new String(key, StandardCharsets.UTF_8);
+        LsmSegment.Record previous = memtable.put(saveName, new LsmSegment.Record(saveName, recordSequence,
+            value));
+        memtableBytes += size(saveName, value) - (previous != null ? size(saveName, previous.value) : 0);
+        sequence = Math.max(sequence, recordSequence);
+        valid = data.position();
+      }
+    } catch (BufferUnderflowException e) {
+      // A record cut short, handled below
+    }
+    if (valid < data.limit()) {
+      logger.warning("Dropping incomplete record at the end of LSM log " + file);
+      try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        truncate.truncate(valid);
+      }
+    }
+  }
+
+  private FileChannel openLog() throws IOException {
+    Path file = directory.resolve(String.format("wal-%08d.log", nextFileId++));
+    memtableLogs.add(file);
+    return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+  }
+
+  private void appendLog(String saveName, long recordSequence, byte[] value) throws IOException {
+    byte[] key = saveName.getBytes(StandardCharsets.UTF_8);
+    int valueLength = value != null ? value.length : 0;
+    ByteBuffer record = ByteBuffer.allocate(8 + 8 + 5 + key.length + 5 + valueLength);
+    record.position(8);
+    record.putLong(recordSequence);
+    SaveCodec.putVarint(record, key.length);
+    record.put(key);
+    SaveCodec.putVarint(record, value != null ? valueLength + 1 : 0);
+    if (value != null) {
+      record.put(value);
+    }
+    int length = record.position() - 8;
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), 8, length);
+    record.putInt(0, length).putInt(4, (int) crc.getValue());
+    record.flip();
+    while (record.hasRemaining()) {
+      log.write(record);
+    }
+  }
+
+  private void waitForFlush() throws IOException {
+    try {
+      wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the LSM store", e);
+    }
+    ensureOpen();
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("LSM store is closed");
+    }
+  }
+
+  private static long size(String saveName, byte[] value) {
+    return saveName.length() * 2L + (value != null ? value.length : 0) + RECORD_OVERHEAD;
+  }
+}
@@ -0,0 +1,415 @@
+package rpg.rpgIO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * LsmSegment - One sorted, immutable file of an LsmSaveStore
+ * <p>
+ * A segment holds records sorted by save name, followed by a sparse index
+ * (the name and offset of every 16th record) and a bloom filter of all the
+ * names, both loaded in memory when the segment is opened:
+ * <pre>
+ * magic "RPGL" (4 bytes), version (1 byte)
+ * records: name length (varint), name, sequence (8 bytes),
+ *          save length + 1 (varint, 0 = removed), save
+ * index: entry count (varint), then name length (varint), name, offset (8 bytes)
+ * bloom filter: hash count (varint), word count (varint), words (8 bytes each)
+ * footer: index offset, bloom offset, highest sequence (8 bytes each),
+ *         record count (4 bytes), magic "RPGL" (4 bytes)
+ * </pre>
+ * </p>
+ * <p>
+ * A lookup asks the bloom filter first, so most segments without the name
+ * are skipped without any read; otherwise the index gives the one block of
+ * at most 16 records to read with a single positional read.
+ * </p>
+ */
+final class LsmSegment implements Closeable {
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'L'};
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = MAGIC.length + 1;
+  private static final int FOOTER_SIZE = 8 + 8 + 8 + 4 + 4;
+  private static final int INDEX_INTERVAL = 16;
+  private static final int BLOOM_BITS_PER_KEY = 10;
+  private static final int BLOOM_HASHES = 7;
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  private final Path file;
+  private final long id;
+  private final FileChannel channel;
+  private final String[] indexKeys;
+  private final long[] indexOffsets;
+  private final long dataEnd;
+  private final long[] bloom;
+  private final int bloomHashes;
+  private final long maxSequence;
+  private final int recordCount;
+
+  /**
+   * Record - One record of a segment or memtable
+   * <p>
+   * A record with a null value marks a removed save.
+   * </p>
+   */
+  static final class Record {
+    final String key;
+    final long sequence;
+    final byte[] value;
+
+    Record(String key, long sequence, byte[] value) {
+      this.key = key;
+      this.sequence = sequence;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Opens a segment file
+   *
+   * @param file The segment file
+   * @param id The number of the segment; higher numbers hold newer records
+   * @throws IOException If the file cannot be read or is not a segment
+   */
+  LsmSegment(Path file, long id) throws IOException {
+    this.file = file;
+    this.id = id;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < HEADER_SIZE + FOOTER_SIZE) {
+        throw new IOException("Segment too short: " + file);
+      }
+      ByteBuffer footer = read(size - FOOTER_SIZE, FOOTER_SIZE);
+      long indexOffset = footer.getLong();
+      long bloomOffset = footer.getLong();
+      maxSequence = footer.getLong();
+      recordCount = footer.getInt();
+      for (byte b : MAGIC) {
+        if (footer.get() != b) {
+          throw new IOException("Not a segment: " + file);
+        }
+      }
+      if (indexOffset < HEADER_SIZE || bloomOffset < indexOffset || bloomOffset > size - FOOTER_SIZE) {
+        throw new IOException("Corrupted segment footer: " + file);
+      }
+
+      ByteBuffer meta = read(indexOffset, (int) (size - FOOTER_SIZE - indexOffset));
+      int entries = SaveCodec.getVarint(meta);
+      indexKeys = new String[entries];
+      indexOffsets = new long[entries];
+      for (int i = 0; i < entries; i++) {
+        indexKeys[i] = getKey(meta);
+        indexOffsets[i] = meta.getLong();
+      }
+      bloomHashes = SaveCodec.getVarint(meta);
+      bloom = new long[SaveCodec.getVarint(meta)];
+      for (int i = 0; i < bloom.length; i++) {
+        bloom[i] = meta.getLong();
+      }
+      dataEnd = indexOffset;
+    } catch (BufferUnderflowException e) {
+      channel.close();
+      throw new IOException("Corrupted segment: " + file, e);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Writes a segment file from records sorted by key
+   *
+   * @param file The file to write (replaced if it exists)
+   * @param records The records, sorted by key with one record per key
+   * @param expectedCount An upper bound of the record count, used to size the bloom filter
+   * @throws IOException If the file cannot be written
+   */
+  static void write(Path file, Iterator<Record> records, int expectedCount) throws IOException {
+    long[] bloom = new long[Math.max(1, (int) (((long) expectedCount * BLOOM_BITS_PER_KEY + 63) / 64))];
+    List<String> indexKeys = new ArrayList<>();
+    List<Long> indexOffsets = new ArrayList<>();
+    long maxSequence = 0;
+    int count = 0;
+
+    try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+      buffer.put(MAGIC).put((byte) VERSION);
+      long offset = HEADER_SIZE;
+
+      while (records.hasNext()) {
+        Record record = records.next();
+        byte[] key = record.key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = record.value != null ? record.value.length : 0;
+        int length = 5 + key.length + 8 + 5 + valueLength;
+        if (buffer.remaining() < length) {
+          drain(out, buffer);
+          if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(length);
+          }
+        }
+        if (count % INDEX_INTERVAL == 0) {
+          indexKeys.add(record.key);
+          indexOffsets.add(offset);
+        }
+        int start = buffer.position();
+        SaveCodec.putVarint(buffer, key.length);
+        buffer.put(key).putLong(record.sequence);
+        SaveCodec.putVarint(buffer, record.value != null ? valueLength + 1 : 0);
+        if (record.value != null) {
+          buffer.put(record.value);
+        }
+        offset += buffer.position() - start;
+        addToBloom(bloom, BLOOM_HASHES, key);
+        maxSequence = Math.max(maxSequence, record.sequence);
+        count++;
+      }
+      drain(out, buffer);
+
+      long indexOffset = offset;
+      ByteBuffer meta = ByteBuffer.allocate(5 + indexKeys.stream().mapToInt(k -> 5 + 4 * k.length() + 8).sum()
+          + 5 + 5 + bloom.length * 8 + FOOTER_SIZE);
+      SaveCodec.putVarint(meta, indexKeys.size());
+      for (int i = 0; i < indexKeys.size(); i++) {
+        byte[] key = indexKeys.get(i).getBytes(StandardCharsets.UTF_8);
+        SaveCodec.putVarint(meta, key.length);
+        meta.put(key).putLong(indexOffsets.get(i));
+      }
+      long bloomOffset = indexOffset + meta.position();
+      SaveCodec.putVarint(meta, BLOOM_HASHES);
+      SaveCodec.putVarint(meta, bloom.length);
+      for (long word : bloom) {
+        meta.putLong(word);
+      }
+      meta.putLong(indexOffset).putLong(bloomOffset).putLong(maxSequence).putInt(count).put(MAGIC);
+      meta.flip();
+      while (meta.hasRemaining()) {
+        out.write(meta);
+      }
+      out.force(true);
+    }
+  }
+
+  /**
+   * Finds the record of a key
+   *
+   * @param key The save name
+   * @return The record (a removal record if the save was removed), or null if the segment has none
+   * @throws IOException If the segment cannot be read
+   */
+  Record find(String key) throws IOException {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    if (indexKeys.length == 0 || !mightContain(bloom, bloomHashes, keyBytes)) {
+      return null;
+    }
+    int block = floorIndex(key);
+    if (block < 0) {
+      return null;
+    }
+    long start = indexOffsets[block];
+    long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : dataEnd;
+    ByteBuffer data = read(start, (int) (end - start));
+    while (data.hasRemaining()) {
+      Record record = readRecord(data);
+      int order = record.key.compareTo(key);
+      if (order == 0) {
+        return record;
+      }
+      if (order > 0) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads every record in key order
+   *
+   * @return An iterator over the records, reading the file sequentially
+   */
+  Iterator<Record> iterator() {
+    return new Iterator<>() {
+      private long position = HEADER_SIZE;
+      private ByteBuffer buffer;
+      private long bufferStart;
+
+      @Override
+      public boolean hasNext() {
+        return position < dataEnd;
+      }
+
+      @Override
+      public Record next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        try {
+          while (true) {
+            if (buffer != null) {
+              buffer.position((int) (position - bufferStart));
+              try {
+                Record record = readRecord(buffer);
+                position = bufferStart + buffer.position();
+                return record;
+              } catch (BufferUnderflowException | IOException e) {
+                if (bufferStart + buffer.limit() >= dataEnd) {
+                  throw new IOException("Corrupted segment record at " + position + ": " + file);
+                }
+              }
+            }
+            // The next record is not (fully) buffered: read from it on, with a larger buffer if needed
+            long wanted = Math.max(WRITE_BUFFER_SIZE, buffer != null ? buffer.capacity() * 2L : 0);
+            buffer = read(position, (int) Math.min(dataEnd - position, wanted));
+            bufferStart = position;
+          }
+        } catch (IOException e) {
+          throw new IllegalStateException(e.getMessage(), e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Gets the number of the segment
+   *
+   * @return The id; higher ids hold newer records
+   */
+  long getId() {
+    return id;
+  }
+
+  /**
+   * Gets the segment file
+   *
+   * @return The path of the file
+   */
+  Path getFile() {
+    return file;
+  }
+
+  /**
+   * Gets the highest sequence number in the segment
+   *
+   * @return The sequence number
+   */
+  long getMaxSequence() {
+    return maxSequence;
+  }
+
+  /**
+   * Gets the number of records in the segment
+   *
+   * @return The record count, removal records included
+   */
+  int getRecordCount() {
+    return recordCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private int floorIndex(String key) {
+    int low = 0;
+    int high = indexKeys.length - 1;
+    int floor = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (indexKeys[mid].compareTo(key) <= 0) {
+        floor = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return floor;
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Segment truncated: " + file);
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static Record readRecord(ByteBuffer data) throws IOException {
+    String key = getKey(data);
+    long sequence = data.getLong();
+    int length = SaveCodec.getVarint(data) - 1;
+    byte[] value = null;
+    if (length >= 0) {
+      value = new byte[length];
+      data.get(value);
+    }
+    return new Record(key, sequence, value);
+  }
+
+  private static String getKey(ByteBuffer data) throws IOException {
+    int length = SaveCodec.getVarint(data);
+    if (length < 0 || length > data.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    String key = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+    data.position(data.position() + length);
+    return key;
+  }
+
+  private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Hashes a key to 64 bits (FNV-1a followed by a final mix)
+   */
+  private static long hash(byte[] key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key) {
+      hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private static void addToBloom(long[] bloom, int hashes, byte[] key) {
+    long hash = hash(key);
+    long bits = bloom.length * 64L;
+    for (int i = 0; i < hashes; i++) {
+      long bit = Math.floorMod((hash >>> 32) + i * (hash & 0xFFFFFFFFL), bits);
+      bloom[(int) (bit >>> 6)] |= 1L << (bit & 63);
+    }
+  }
+
+  private static boolean mightContain(long[] bloom, int hashes, byte[] key) {
+    long hash = hash(key);
+    long bits = bloom.length * 64L;
+    for (int i = 0; i < hashes; i++) {
+      long bit = Math.floorMod((hash >>> 32) + i * (hash & 0xFFFFFFFFL), bits);
+      if ((bloom[(int) (bit >>> 6)] & (1L << (bit & 63))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
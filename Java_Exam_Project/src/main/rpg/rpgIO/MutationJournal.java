@@ -0,0 +1,808 @@
+package rpg.rpgIO;
+
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.CharacterChangeListener;
+import rpg.factory.CharacterFactory;
+import rpg.factory.Mage;
+import rpg.iterator.Inventory;
+import rpg.iterator.InventoryListener;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * MutationJournal - Write-ahead journal of character changes
+ * <p>
+ * A tracked character reports every change through its change listener and
+ * its inventory listener, and each change is appended to the journal as a
+ * small record instead of rewriting the whole character:
+ * <pre>
+ * length (int), sequence number (long), type (1 byte), key (varint length + UTF-8), then
+ *   FULL:          a SaveCodec image of the character (written when tracking starts)
+ *   STATS:         health, maxHealth, stamina, maxStamina, damage, money, level, mana, maxMana
+ *   ITEM_ADDED:    name, type, value, stat bonus
+ *   ITEM_EQUIPPED: name, type, value, stat bonus of the equipped item
+ *   ITEM_REMOVED:  name, type, value, stat bonus of the removed item
+ * </pre>
+ * </p>
+ * <p>
+ * Items are identified by their content rather than their position, since
+ * sorting the inventory reorders it without a record. Segments written by
+ * older versions may still hold position-based equip records, which are
+ * replayed as before.
+ * </p>
+ * <p>
+ * Characters are spread over shards by key; every shard has its own lock,
+ * sequence numbers, segment files and snapshot, so characters in different
+ * shards never contend. Records are buffered and reach the segment file when
+ * the buffer fills or on {@link #flush()}. A record that cannot be written
+ * breaks the shard's history, so later records of that shard are dropped
+ * and {@link #flush()} reports the failure until the next snapshot, which
+ * holds the full state again.
+ * </p>
+ * <p>
+ * {@link #snapshot()} captures the state of every changed shard, starts a
+ * new segment and writes the snapshot in the background; once the
+ * snapshot has replaced the previous one, the segments it covers are
+ * deleted. Opening a journal recovers every character from the last
+ * snapshot plus the records written after it, so recovery reads only the
+ * changes since the last snapshot.
+ * </p>
+ * <p>
+ * Characters are not thread-safe: {@link #track(String, Character)},
+ * {@link #untrack(String)} and {@link #snapshot()} must be called by the
+ * thread that changes the characters involved.
+ * </p>
+ */
+public class MutationJournal implements Closeable {
+
+  /** Default number of shards of a new journal */
+  public static final int DEFAULT_SHARDS = 8;
+
+  static final byte FULL = 1;
+  static final byte STATS = 2;
+  static final byte ITEM_ADDED = 3;
+  // Position-based equip record of older journals, only replayed
+  static final byte ITEM_EQUIPPED_AT = 4;
+  static final byte ITEM_EQUIPPED = 5;
+  static final byte ITEM_REMOVED = 6;
+
+  private static final byte[] SEGMENT_MAGIC = {'R', 'P', 'G', 'W'};
+  private static final byte[] SNAPSHOT_MAGIC = {'R', 'P', 'G', 'P'};
+  private static final int VERSION = 1;
+  private static final int RECORD_HEADER_SIZE = 4 + 8 + 1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long SEGMENT_SIZE = 4L * 1024 * 1024;
+  private static final String SNAPSHOT_FILE = "snapshot.snap";
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private final Path directory;
+  private final CharacterFactory factory;
+  private final FsyncPolicy policy;
+  private final Shard[] shards;
+  private final ExecutorService snapshotWriter;
+
+  /**
+   * Opens a journal with the default number of shards and the configured fsync policy
+   *
+   * @param directory The journal directory, created if missing
+   * @throws IOException If the journal cannot be read or created
+   */
+  public MutationJournal(Path directory) throws IOException {
+    this(directory, DEFAULT_SHARDS, FsyncPolicy.configured(), new CharacterFactory());
+  }
+
+  /**
+   * Opens a journal and recovers the characters it holds
+   * <p>
+   * An existing journal keeps the number of shards it was created with.
+   * </p>
+   *
+   * @param directory The journal directory, created if missing
+   * @param shardCount The number of shards of a new journal
+   * @param policy How hard {@link #flush()} and snapshots push data to the disk
+   * @param factory The factory used to recreate characters
+   * @throws IOException If the journal cannot be read or created
+   */
+  public MutationJournal(Path directory, int shardCount, FsyncPolicy policy, CharacterFactory factory)
+      throws IOException {
+    if (directory == null || policy == null || factory == null || shardCount < 1) {
+      throw new IllegalArgumentException(
+          "Directory, policy, factory and at least one shard are required");
+    }
+    this.directory = directory;
+    this.policy = policy;
+    this.factory = factory;
+    Files.createDirectories(directory);
+
+    int existing = 0;
+    while (Files.isDirectory(shardDirectory(existing))) {
+      existing++;
+    }
+    shards = new Shard[existing > 0 ? existing : shardCount];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = new Shard(i, shardDirectory(i));
+    }
+    snapshotWriter = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "journal-snapshot-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Gets the state of a character that is in the journal but not tracked
+   *
+   * @param key The key of the character
+   * @return A new character with the recorded state, or null if the journal has none
+   * @throws IOException If the recorded state cannot be decoded
+   */
+  public Character recover(String key) throws IOException {
+    ByteBuffer image = shardFor(key).image(key);
+    return image != null ? SaveCodec.decode(image, factory) : null;
+  }
+
+  /**
+   * Gets every character in the journal that is not tracked
+   *
+   * @return New characters with the recorded state, by key
+   * @throws IOException If a recorded state cannot be decoded
+   */
+  public Map<String, Character> recoverAll() throws IOException {
+    Map<String, Character> characters = new TreeMap<>();
+    for (Shard shard : shards) {
+      for (Map.Entry<String, ByteBuffer> image : shard.images().entrySet()) {
+        characters.put(image.getKey(), SaveCodec.decode(image.getValue(), factory));
+      }
+    }
+    return characters;
+  }
+
+  /**
+   * Starts recording the changes of a character
+   * <p>
+   * A full image of the character is recorded first; it replaces any state
+   * previously recorded with the same key.
+   * </p>
+   *
+   * @param key The key of the character, e.g. its save name
+   * @param character The character to track (Warrior or Mage)
+   * @throws IllegalArgumentException If the key is empty or the character is not supported
+   * @throws IllegalStateException If another character is tracked with the same key
+   */
+  public void track(String key, Character character) {
+    if (key == null || key.isEmpty() || !(character instanceof AbstractCharacter)) {
+      throw new IllegalArgumentException("A key and a supported character are required");
+    }
+    shardFor(key).track(key, (AbstractCharacter) character);
+  }
+
+  /**
+   * Stops recording the changes of a character
+   * <p>
+   * Its current state stays in the journal and goes into the next snapshot.
+   * </p>
+   *
+   * @param key The key of the character
+   * @return true if a character was tracked with this key
+   */
+  public boolean untrack(String key) {
+    return shardFor(key).untrack(key);
+  }
+
+  /**
+   * Snapshots every shard changed since its last snapshot
+   * <p>
+   * The state is captured before returning; writing the snapshots and
+   * deleting the segments they cover happens in the background.
+   * </p>
+   *
+   * @return A future completed when every snapshot has been written
+   */
+  public CompletableFuture<Void> snapshot() {
+    List<CompletableFuture<Void>> writes = new ArrayList<>();
+    for (Shard shard : shards) {
+      CompletableFuture<Void> write = shard.snapshot();
+      if (write != null) {
+        writes.add(write);
+      }
+    }
+    return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
+  }
+
+  /**
+   * Writes the buffered records to the segment files, forcing them as the fsync policy asks
+   *
+   * @throws IOException If a segment cannot be written, or a record could not be written
+   *         since the last snapshot
+   */
+  public void flush() throws IOException {
+    for (Shard shard : shards) {
+      shard.flush(true);
+    }
+  }
+
+  /**
+   * Gets the number of shards
+   *
+   * @return The shard count
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Gets the number of segment files on disk, over all shards
+   *
+   * @return The segment count
+   * @throws IOException If a shard directory cannot be listed
+   */
+  public int getSegmentCount() throws IOException {
+    int count = 0;
+    for (Shard shard : shards) {
+      count += shard.listSegments().size();
+    }
+    return count;
+  }
+
+  /**
+   * Waits for pending snapshots, flushes every shard and closes the journal
+   *
+   * @throws IOException If a segment cannot be written or closed
+   */
+  @Override
+  public void close() throws IOException {
+    snapshotWriter.close();
+    IOException failure = null;
+    for (Shard shard : shards) {
+      try {
+        shard.close();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private Shard shardFor(String key) {
+    return shards[Math.floorMod(key.hashCode(), shards.length)];
+  }
+
+  private Path shardDirectory(int index) {
+    return directory.resolve(String.format("shard-%02d", index));
+  }
+
+  /**
+   * One shard: its tracked characters, segments and snapshot
+   */
+  private final class Shard {
+    private final int index;
+    private final Path dir;
+    private final Map<String, Tracked> tracked = new HashMap<>();
+    private final Map<String, ByteBuffer> images = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer scratch = ByteBuffer.allocate(512);
+    private FileChannel segment;
+    private int segmentIndex;
+    private long segmentBytes;
+    private long sequence;
+    private boolean dirty;
+    // First failed write since the last snapshot; records are dropped while it is set
+    private IOException failure;
+
+    private Shard(int index, Path dir) throws IOException {
+      this.index = index;
+      this.dir = dir;
+      Files.createDirectories(dir);
+      recover();
+      segmentIndex++; // Never append to a segment that may end with a torn record
+    }
+
+    synchronized ByteBuffer image(String key) {
+      ByteBuffer image = images.get(key);
+      return image != null ? image.duplicate() : null;
+    }
+
+    synchronized Map<String, ByteBuffer> images() {
+      Map<String, ByteBuffer> copy = new HashMap<>();
+      images.forEach((key, image) -> copy.put(key, image.duplicate()));
+      return copy;
+    }
+
+    synchronized void track(String key, AbstractCharacter character) {
+      Tracked current = tracked.get(key);
+      if (current != null) {
+        if (current.character == character) {
+          return;
+        }
+        throw new IllegalStateException("Another character is tracked as " + key);
+      }
+      Tracked entry = new Tracked(this, key, character);
+      tracked.put(key, entry);
+      images.remove(key);
+
+      ByteBuffer image = SaveCodec.encode(character);
+      ByteBuffer payload = begin(FULL, entry.keyBytes, image.remaining());
+      payload.put(image);
+      append();
+
+      character.setChangeListener(entry);
+      Inventory inventory = character.getInventory();
+      if (inventory != null) {
+        inventory.setInventoryListener(entry);
+      }
+    }
+
+    synchronized boolean untrack(String key) {
+      Tracked entry = tracked.remove(key);
+      if (entry == null) {
+        return false;
+      }
+      entry.character.setChangeListener(null);
+      Inventory inventory = entry.character.getInventory();
+      if (inventory != null) {
+        inventory.setInventoryListener(null);
+      }
+      images.put(key, SaveCodec.encode(entry.character));
+      return true;
+    }
+
+    synchronized void appendStats(Tracked entry) {
+      AbstractCharacter c = entry.character;
+      ByteBuffer payload = begin(STATS, entry.keyBytes, 9 * 5);
+      SaveCodec.putVarint(payload, Math.max(0, c.getHealth()));
+      SaveCodec.putVarint(payload, Math.max(1, c.getMaxHealth()));
+      SaveCodec.putVarint(payload, Math.max(0, c.getStamina()));
+      SaveCodec.putVarint(payload, Math.max(1, c.getMaxStamina()));
+      SaveCodec.putVarint(payload, Math.max(0, c.getBaseDamage()));
+      SaveCodec.putVarint(payload, Math.max(0, c.getMoney()));
+      SaveCodec.putVarint(payload, Math.max(1, c.getLevel()));
+      SaveCodec.putVarint(payload, c instanceof Mage mage ? Math.max(0, mage.getMana()) : 0);
+      SaveCodec.putVarint(payload, c instanceof Mage mage ? Math.max(1, mage.getMaxMana()) : 1);
+      append();
+    }
+
+    synchronized void appendItem(Tracked entry, byte type, Item item) {
+      byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+      ByteBuffer payload = begin(type, entry.keyBytes, 5 + name.length + 1 + 2 * 5);
+      SaveCodec.putVarint(payload, name.length);
+      payload.put(name);
+      payload.put((byte) item.getType().ordinal());
+      SaveCodec.putVarint(payload, SaveCodec.zigzag(item.getValue()));
+      SaveCodec.putVarint(payload, SaveCodec.zigzag(item.getStatBonus()));
+      append();
+    }
+
+    /**
+     * Starts a record in the scratch buffer and returns it, positioned at the payload
+     */
+    private ByteBuffer begin(byte type, byte[] key, int maxPayload) {
+      int capacity = RECORD_HEADER_SIZE + 5 + key.length + maxPayload;
+      if (scratch.capacity() < capacity) {
+        scratch = ByteBuffer.allocate(Math.max(capacity, scratch.capacity() * 2));
+      }
+      scratch.clear();
+      scratch.putInt(0).putLong(++sequence).put(type);
+      SaveCodec.putVarint(scratch, key.length);
+      scratch.put(key);
+      return scratch;
+    }
+
+    /**
+     * Completes the record in the scratch buffer and appends it to the segment buffer
+     */
+    private void append() {
+      scratch.putInt(0, scratch.position() - 4);
+      scratch.flip();
+      dirty = true;
+      if (failure != null) {
+        return;
+      }
+      try {
+        if (buffer.remaining() < scratch.remaining()) {
+          flush(false);
+        }
+        if (buffer.remaining() < scratch.remaining()) {
+          write(scratch);
+        } else {
+          buffer.put(scratch);
+        }
+        if (segmentBytes + buffer.position() >= SEGMENT_SIZE) {
+          flush(false);
+          rollSegment();
+        }
+      } catch (IOException e) {
+        failure = e;
+        logger.severe("Cannot append to mutation journal shard " + index
+            + ", changes are not journaled until the next snapshot: " + e.getMessage());
+      }
+    }
+
+    synchronized void flush(boolean force) throws IOException {
+      if (failure != null) {
+        throw new IOException("Mutation journal shard " + index + " lost records", failure);
+      }
+      if (buffer.position() > 0) {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+      }
+      if (force && segment != null && policy != FsyncPolicy.NONE) {
+        segment.force(policy == FsyncPolicy.FULL);
+      }
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+      if (segment == null) {
+        openSegment();
+      }
+      while (data.hasRemaining()) {
+        segmentBytes += segment.write(data);
+      }
+    }
+
+    /**
+     * Captures the shard state, starts a new segment and queues the snapshot write
+     *
+     * @return The future of the write, or null if nothing changed since the last snapshot
+     */
+    synchronized CompletableFuture<Void> snapshot() {
+      if (!dirty) {
+        return null;
+      }
+      Map<String, ByteBuffer> state = new TreeMap<>();
+      images.forEach((key, image) -> state.put(key, image.duplicate()));
+      tracked.forEach((key, entry) -> state.put(key, SaveCodec.encode(entry.character)));
+      long covered = sequence;
+      int firstKept;
+      try {
+        if (failure == null) {
+          flush(false);
+        }
+        rollSegment();
+        firstKept = segmentIndex;
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+      // The snapshot holds the full state, so records lost before it no longer matter
+      buffer.clear();
+      failure = null;
+      dirty = false;
+      return CompletableFuture.runAsync(() -> {
+        try {
+          writeSnapshot(state, covered, firstKept);
+        } catch (IOException e) {
+          logger.severe("Cannot write snapshot of journal shard " + index + ": " + e.getMessage());
+          throw new UncheckedIOException(e);
+        }
+      }, snapshotWriter);
+    }
+
+    /**
+     * Writes a snapshot next to the current one, renames it over it and
+     * deletes the segments it covers
+     */
+    private void writeSnapshot(Map<String, ByteBuffer> state, long covered, int firstKept)
+        throws IOException {
+      Path temp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+      try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_MAGIC.length + 1 + 8 + 5);
+        header.put(SNAPSHOT_MAGIC).put((byte) VERSION).putLong(covered);
+        SaveCodec.putVarint(header, state.size());
+        writeFully(out, header.flip());
+        for (Map.Entry<String, ByteBuffer> entry : state.entrySet()) {
+          byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+          ByteBuffer image = entry.getValue();
+          ByteBuffer prefix = ByteBuffer.allocate(10 + key.length);
+          SaveCodec.putVarint(prefix, key.length);
+          prefix.put(key);
+          SaveCodec.putVarint(prefix, image.remaining());
+          writeFully(out, prefix.flip());
+          writeFully(out, image.duplicate());
+        }
+        if (policy != FsyncPolicy.NONE) {
+          out.force(true);
+        }
+      }
+      Files.move(temp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      for (Map.Entry<Integer, Path> old : listSegments().entrySet()) {
+        if (old.getKey() < firstKept) {
+          Files.deleteIfExists(old.getValue());
+        }
+      }
+      logger.fine("Journal shard " + index + " snapshot at record " + covered);
+    }
+
+    /**
+     * Loads the snapshot and replays the records written after it
+     */
+    private void recover() throws IOException {
+      Map<String, Character> characters = new HashMap<>();
+      long covered = 0;
+      Path snapshotFile = dir.resolve(SNAPSHOT_FILE);
+      if (Files.exists(snapshotFile)) {
+        ByteBuffer data = CharacterManagement.readFully(snapshotFile.toFile());
+        try {
+          if (!hasMagic(data, SNAPSHOT_MAGIC) || (data.get() & 0xFF) != VERSION) {
+            throw new IOException("Not a journal snapshot: " + snapshotFile);
+          }
+          covered = data.getLong();
+          int count = SaveCodec.getVarint(data);
+          for (int i = 0; i < count; i++) {
+            String key = getString(data);
+            int length = SaveCodec.getVarint(data);
+            if (length < 0 || length > data.remaining()) {
+              throw new IOException("Corrupted journal snapshot: " + snapshotFile);
+            }
+            ByteBuffer image = data.slice(data.position(), length);
+            data.position(data.position() + length);
+            characters.put(key, SaveCodec.decode(image, factory));
+          }
+        } catch (BufferUnderflowException e) {
+          throw new IOException("Corrupted journal snapshot: " + snapshotFile, e);
+        }
+      }
+      sequence = covered;
+
+      int replayed = 0;
+      Map<Integer, Path> segments = listSegments();
+      for (Map.Entry<Integer, Path> entry : segments.entrySet()) {
+        segmentIndex = Math.max(segmentIndex, entry.getKey());
+        replayed += replay(entry.getValue(), covered, characters);
+      }
+
+      for (Map.Entry<String, Character> entry : characters.entrySet()) {
+        images.put(entry.getKey(), SaveCodec.encode(entry.getValue()));
+      }
+      // Old segments are folded into the next snapshot
+      dirty = !segments.isEmpty();
+      if (!characters.isEmpty() || replayed > 0) {
+        logger.info("Journal shard " + index + " recovered " + characters.size() + " characters, "
+            + replayed + " records after the snapshot");
+      }
+    }
+
+    /**
+     * Applies the records of one segment that are newer than the snapshot
+     *
+     * @return The number of records applied
+     */
+    private int replay(Path file, long covered, Map<String, Character> characters) throws IOException {
+      ByteBuffer data = CharacterManagement.readFully(file.toFile());
+      if (!hasMagic(data, SEGMENT_MAGIC) || (data.get() & 0xFF) != VERSION) {
+        logger.warning("Skipping unreadable journal segment " + file);
+        return 0;
+      }
+      int applied = 0;
+      while (data.remaining() >= 4) {
+        int length = data.getInt();
+        if (length < RECORD_HEADER_SIZE - 4 || length > data.remaining()) {
+          logger.warning("Dropping incomplete record at the end of " + file);
+          break;
+        }
+        ByteBuffer record = data.slice(data.position(), length);
+        data.position(data.position() + length);
+        long recordSequence = record.getLong();
+        sequence = Math.max(sequence, recordSequence);
+        if (recordSequence <= covered) {
+          continue;
+        }
+        try {
+          apply(record, characters);
+          applied++;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+          logger.warning("Skipping bad journal record " + recordSequence + " in " + file);
+        }
+      }
+      return applied;
+    }
+
+    private void apply(ByteBuffer record, Map<String, Character> characters) throws IOException {
+      byte type = record.get();
+      String key = getString(record);
+      if (type == FULL) {
+        characters.put(key, SaveCodec.decode(record, factory));
+        return;
+      }
+      Character character = characters.get(key);
+      if (character == null) {
+        throw new IOException("Record for unknown character " + key);
+      }
+      switch (type) {
+        case STATS -> {
+          int[] v = new int[9];
+          for (int i = 0; i < v.length; i++) {
+            v[i] = SaveCodec.getVarint(record);
+          }
+          factory.applyStats(character, v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8]);
+        }
+        case ITEM_ADDED -> {
+          Item item = getItem(record);
+          OutputContext.runWith(NullOutput.INSTANCE, () -> character.addItem(item));
+        }
+        case ITEM_EQUIPPED -> {
+          Inventory inventory = ((AbstractCharacter) character).getInventory();
+          Item item = findItem(inventory, getItem(record));
+          OutputContext.runWith(NullOutput.INSTANCE, () -> inventory.equipItem(item));
+        }
+        case ITEM_EQUIPPED_AT -> {
+          Inventory inventory = ((AbstractCharacter) character).getInventory();
+          Item item = inventory.getAllItems().get(SaveCodec.getVarint(record));
+          OutputContext.runWith(NullOutput.INSTANCE, () -> inventory.equipItem(item));
+        }
+        case ITEM_REMOVED -> {
+          Inventory inventory = ((AbstractCharacter) character).getInventory();
+          Item removed = findItem(inventory, getItem(record));
+          Iterator<Item> items = inventory.iterator();
+          while (items.hasNext()) {
+            if (items.next() == removed) {
+              items.remove();
+              break;
+            }
+          }
+        }
+        default -> throw new IOException("Unknown journal record type: " + type);
+      }
+    }
+
+    /**
+     * Finds the inventory item with the same name, type, value and stat bonus
+     */
+    private Item findItem(Inventory inventory, Item recorded) throws IOException {
+      for (Item item : inventory) {
+        if (item.equals(recorded) && item.getValue() == recorded.getValue()
+            && item.getStatBonus() == recorded.getStatBonus()) {
+          return item;
+        }
+      }
+      throw new IOException("Item not in inventory: " + recorded.getName());
+    }
+
+    /**
+     * Creates the current segment file; segments are only created when a record is written
+     */
+    private void openSegment() throws IOException {
+      segment = FileChannel.open(dir.resolve(String.format("segment-%08d.wal", segmentIndex)),
+          StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      ByteBuffer header = ByteBuffer.allocate(SEGMENT_MAGIC.length + 1).put(SEGMENT_MAGIC)
+          .put((byte) VERSION).flip();
+      segmentBytes = 0;
+      write(header);
+    }
+
+    /**
+     * Closes the current segment; the next record starts a new one
+     */
+    private void rollSegment() throws IOException {
+      if (segment != null) {
+        segment.close();
+        segment = null;
+      }
+      segmentIndex++;
+    }
+
+    /**
+     * Lists the segment files of the shard by index
+     */
+    private Map<Integer, Path> listSegments() throws IOException {
+      Map<Integer, Path> segments = new TreeMap<>();
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "segment-*.wal")) {
+        for (Path file : files) {
+          String name = file.getFileName().toString();
+          try {
+            segments.put(Integer.parseInt(name.substring(8, name.length() - 4)), file);
+          } catch (NumberFormatException e) {
+            logger.warning("Ignoring unexpected journal file " + file);
+          }
+        }
+      }
+      return segments;
+    }
+
+    synchronized void close() throws IOException {
+      flush(true);
+      if (segment != null) {
+        segment.close();
+      }
+    }
+  }
+
+  /**
+   * Listener attached to one tracked character
+   */
+  private static final class Tracked implements CharacterChangeListener, InventoryListener {
+    private final Shard shard;
+    private final byte[] keyBytes;
+    private final AbstractCharacter character;
+
+    private Tracked(Shard shard, String key, AbstractCharacter character) {
+      this.shard = shard;
+      this.keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      this.character = character;
+    }
+
+    @Override
+    public void onStatsChanged(AbstractCharacter changed) {
+      shard.appendStats(this);
+    }
+
+    @Override
+    public void onItemAdded(Inventory inventory, Item item) {
+      shard.appendItem(this, ITEM_ADDED, item);
+    }
+
+    @Override
+    public void onItemEquipped(Inventory inventory, Item item) {
+      shard.appendItem(this, ITEM_EQUIPPED, item);
+    }
+
+    @Override
+    public void onItemRemoved(Inventory inventory, Item item) {
+      shard.appendItem(this, ITEM_REMOVED, item);
+    }
+  }
+
+  private static boolean hasMagic(ByteBuffer data, byte[] magic) {
+    if (data.remaining() < magic.length + 1) {
+      return false;
+    }
+    for (byte b : magic) {
+      if (data.get() != b) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+    while (data.hasRemaining()) {
+      channel.write(data);
+    }
+  }
+
+  private static Item getItem(ByteBuffer record) throws IOException {
+    String name = getString(record);
+    Item.ItemType type = Item.ItemType.values()[record.get() & 0xFF];
+    return new Item(name, type, SaveCodec.unzigzag(SaveCodec.getVarint(record)),
+        SaveCodec.unzigzag(SaveCodec.getVarint(record)));
+  }
+
+  private static String getString(ByteBuffer buffer) throws IOException {
+    int length = SaveCodec.getVarint(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IOException("Invalid string length in journal: " + length);
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,235 @@
+package rpg.rpgIO;
+
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RosterLoader - Loads every save of a directory or repository in parallel
+ * <p>
+ * Saves are read and decoded by a fixed number of worker threads fed from
+ * a bounded queue: when the queue is full the thread listing the saves
+ * decodes one itself, so a directory of a million saves never has more
+ * than a few dozen of them in memory at once. Each loaded character is
+ * passed to a consumer as soon as it is decoded, from the worker thread
+ * that decoded it, so the consumer must be thread-safe.
+ * </p>
+ * <p>
+ * Unlike CharacterManagement.loadCharacter, nothing is logged or printed
+ * per save and every character is built once; a single summary line is
+ * logged per load.
+ * </p>
+ */
+public class RosterLoader implements AutoCloseable {
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private final BulkTasks tasks;
+  private final CharacterFactory factory = new CharacterFactory();
+
+  /**
+   * Report - Outcome of a bulk load
+   */
+  public static final class Report {
+    private final long loaded;
+    private final long failed;
+    private final List<String> failedSaves;
+
+    private Report(long loaded, long failed, List<String> failedSaves) {
+      this.loaded = loaded;
+      this.failed = failed;
+      this.failedSaves = failedSaves;
+    }
+
+    /**
+     * Gets the number of characters passed to the consumer
+     *
+     * @return The loaded count
+     */
+    public long getLoaded() {
+      return loaded;
+    }
+
+    /**
+     * Gets the number of saves that could not be read or decoded
+     *
+     * @return The failed count
+     */
+    public long getFailed() {
+      return failed;
+    }
+
+    /**
+     * Gets the names of the first saves that failed (at most 100)
+     *
+     * @return The failed save names
+     */
+    public List<String> getFailedSaves() {
+      return failedSaves;
+    }
+  }
+
+  /**
+   * Creates a loader with one worker per available processor
+   */
+  public RosterLoader() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a loader
+   *
+   * @param parallelism The number of worker threads
+   */
+  public RosterLoader(int parallelism) {
+    tasks = new BulkTasks("roster-loader", parallelism, Level.FINE, "Bulk load skipped");
+  }
+
+  /**
+   * Loads every save of the game, from the repository if one is used or else from the save directory
+   *
+   * @param consumer Receives the save name and the loaded character
+   * @return The outcome of the load
+   * @throws IOException If the save directory or the repository cannot be listed
+   */
+  public Report loadSaves(BiConsumer<String, Character> consumer) throws IOException {
+    CharacterManagement.awaitSaves();
+    CharacterRepository store = CharacterManagement.getRepository();
+    if (store != null) {
+      return loadStore(store, consumer);
+    }
+    Path directory = CharacterManagement.saveDirectory();
+    if (!Files.isDirectory(directory)) {
+      return new Report(0, 0, List.of());
+    }
+    return loadDirectory(directory, CharacterManagement.fileExtension(), CharacterManagement.saveLayout(),
+        consumer);
+  }
+
+  /**
+   * Loads every save file of a directory
+   *
+   * @param directory The directory to read
+   * @param extension The extension of the save files, e.g. ".save"
+   * @param consumer Receives the save name and the loaded character
+   * @return The outcome of the load
+   * @throws IOException If the directory cannot be listed
+   */
+  public Report loadDirectory(Path directory, String extension, BiConsumer<String, Character> consumer)
+      throws IOException {
+    return loadDirectory(directory, extension, SaveLayout.FLAT, consumer);
+  }
+
+  /**
+   * Loads every save file of a save directory in the given layout
+   *
+   * @param directory The save directory to read
+   * @param extension The extension of the save files, e.g. ".save"
+   * @param layout Where the save files are placed in the directory
+   * @param consumer Receives the save name and the loaded character
+   * @return The outcome of the load
+   * @throws IOException If a directory cannot be listed
+   */
+  public Report loadDirectory(Path directory, String extension, SaveLayout layout,
+      BiConsumer<String, Character> consumer) throws IOException {
+    Load load = new Load(consumer);
+    try {
+      layout.forEachSave(directory, extension,
+          (saveName, file) -> load.submit(saveName, () -> CharacterManagement.readFully(file.toFile())));
+    } finally {
+      load.await();
+    }
+    return load.report(directory.toString());
+  }
+
+  /**
+   * Loads every save of a repository
+   * <p>
+   * Reading a save out of a slot store is a memory copy and an LSM store
+   * lookup is at most one positional read, so the repository is read by
+   * the workers themselves.
+   * </p>
+   *
+   * @param store The repository to read
+   * @param consumer Receives the save name and the loaded character
+   * @return The outcome of the load
+   * @throws IOException If the repository cannot be listed
+   */
+  public Report loadStore(CharacterRepository store, BiConsumer<String, Character> consumer)
+      throws IOException {
+    Load load = new Load(consumer);
+    try {
+      for (String key : store.keys()) {
+        load.submit(key, () -> {
+          ByteBuffer data = store.get(key);
+          if (data == null) {
+            throw new IOException("Save removed while loading: " + key);
+          }
+          return data;
+        });
+      }
+    } finally {
+      load.await();
+    }
+    return load.report(store.getFile().toString());
+  }
+
+  /**
+   * Stops the worker threads
+   */
+  @Override
+  public void close() {
+    tasks.close();
+  }
+
+  /**
+   * Reads the content of one save
+   */
+  @FunctionalInterface
+  private interface SaveSource {
+    ByteBuffer read() throws IOException;
+  }
+
+  /**
+   * State of one bulk load
+   */
+  private final class Load {
+    private final BiConsumer<String, Character> consumer;
+    private final BulkTasks.Batch batch = tasks.batch();
+    private final AtomicLong loaded = new AtomicLong();
+
+    private Load(BiConsumer<String, Character> consumer) {
+      if (consumer == null) {
+        throw new IllegalArgumentException("Consumer cannot be null");
+      }
+      this.consumer = consumer;
+    }
+
+    private void submit(String saveName, SaveSource source) {
+      batch.submit(saveName, () -> {
+        Character character = CharacterManagement.decodeSave(source.read(), factory);
+        consumer.accept(saveName, character);
+        loaded.incrementAndGet();
+      });
+    }
+
+    private void await() {
+      batch.await();
+    }
+
+    private Report report(String source) {
+      logger.info("Bulk load of " + source + ": " + loaded.get() + " characters, " + batch.getFailed()
+          + " failed, " + batch.elapsedMillis() + " ms");
+      return new Report(loaded.get(), batch.getFailed(), batch.getFailedSaves());
+    }
+  }
+}
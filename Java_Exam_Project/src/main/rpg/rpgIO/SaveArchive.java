@@ -0,0 +1,809 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * SaveArchive - Compressed storage for saves that are rarely loaded
+ * <p>
+ * Saves are small and look alike (same field order, same class names,
+ * same item names), so compressing each one alone gains little. The
+ * archive therefore compresses every save with a shared preset dictionary,
+ * trained once from sample saves when the archive is created and stored in
+ * its header: each save then only encodes how it differs from the typical
+ * save. The file layout is:
+ * <pre>
+ * magic "RPGA" (4 bytes), version (1 byte), dictionary length (varint), dictionary
+ * records: header checksum (4 bytes), key length (varint), key,
+ *          save length + 1 (varint, 0 = removed), compressed length (varint),
+ *          body checksum (4 bytes), raw deflate data
+ * </pre>
+ * The header checksum is the CRC-32C of the rest of the header, the body
+ * checksum the CRC-32C of the compressed data.
+ * </p>
+ * <p>
+ * Records are only appended; the key to record index is rebuilt in memory
+ * by one sequential pass over the record headers when the archive is
+ * opened, so reading a save afterwards is a hash lookup and a single
+ * positional read that checks the body checksum. A damaged header is
+ * told apart from a torn tail by looking for a valid record after it: if
+ * there is none, the record was cut short by a crash and is truncated,
+ * else the damaged bytes are skipped with an error in the log and the
+ * records after them are kept. The body of the last record is checked on
+ * open as well, since a crash may have torn it. {@link #compact()}
+ * rewrites the archive without removed or replaced records; archives of
+ * version 1, whose records have no checksums, are rewritten this way when
+ * they are opened.
+ * </p>
+ */
+public class SaveArchive implements Closeable {
+
+  /** Name of the archive file in the save directory */
+  public static final String FILE_NAME = "saves.archive";
+
+  /** Largest dictionary deflate can use */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'A'};
+  private static final int VERSION = 2;
+  private static final int GRAM_LENGTH = 8;
+  private static final int SEGMENT_LENGTH = 32;
+  private static final int MAX_KEY_LENGTH = 255;
+  private static final int MAX_RECORD_HEADER = 4 + 5 + MAX_KEY_LENGTH + 5 + 5 + 4;
+  private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private final Path file;
+  private FileChannel channel;
+  private final byte[] dictionary;
+  private final Map<String, Location> index = new HashMap<>();
+  private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+  private final Inflater inflater = new Inflater(true);
+  private final CRC32C crc = new CRC32C();
+  private long end;
+  private long liveBytes;
+
+  /**
+   * Where the compressed data of one save is
+   */
+  private static final class Location {
+    private final long offset;
+    private final int rawLength;
+    private final int compressedLength;
+    // CRC-32C of the compressed data, or -1 for records of version 1 archives
+    private final long checksum;
+
+    private Location(long offset, int rawLength, int compressedLength, long checksum) {
+      this.offset = offset;
+      this.rawLength = rawLength;
+      this.compressedLength = compressedLength;
+      this.checksum = checksum;
+    }
+  }
+
+  /**
+   * A record header read back from the file
+   */
+  private static final class RecordHeader {
+    private final String key;
+    private final Location location;
+    private final long end;
+
+    private RecordHeader(String key, Location location, long end) {
+      this.key = key;
+      this.location = location;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Opens an existing archive
+   *
+   * @param file The archive file
+   * @throws IOException If the file cannot be read or is not an archive
+   */
+  public SaveArchive(Path file) throws IOException {
+    this(file, null);
+  }
+
+  /**
+   * Opens an archive, creating it with the given dictionary if it does not exist
+   * <p>
+   * The dictionary of an existing archive is kept; the one passed here is
+   * only used for a new file.
+   * </p>
+   *
+   * @param file The archive file
+   * @param dictionary The preset dictionary for a new archive (see {@link #trainDictionary}), or null
+   * @throws IOException If the file cannot be created or read, or is not an archive
+   */
+  public SaveArchive(Path file, byte[] dictionary) throws IOException {
+    this.file = file;
+    boolean exists = Files.exists(file);
+    if (!exists && dictionary == null) {
+      throw new IOException("Save archive not found: " + file);
+    }
+    if (dictionary != null && dictionary.length > MAX_DICTIONARY_SIZE) {
+      throw new IllegalArgumentException("Dictionary too large: " + dictionary.length + " bytes");
+    }
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      if (exists && channel.size() > 0) {
+        int version = readVersion();
+        this.dictionary = readHeader();
+        scan(version);
+        if (version < VERSION) {
+          rewrite();
+          logger.info("Save archive upgraded to version " + VERSION + ": " + file);
+        }
+      } else if (dictionary == null) {
+        throw new IOException("Empty save archive: " + file);
+      } else {
+        this.dictionary = dictionary.clone();
+        writeHeader(channel, this.dictionary);
+        end = channel.size();
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    logger.info("Save archive opened: " + file + " (" + index.size() + " saves)");
+  }
+
+  /**
+   * Builds a preset dictionary from sample saves
+   * <p>
+   * Every 8-byte sequence is counted once per sample. The dictionary is then
+   * filled greedily with the sample segments whose sequences are found in
+   * the most samples, not counting sequences already in the dictionary, and
+   * the best segments go last: deflate reaches the end of the dictionary
+   * with the shortest distances.
+   * </p>
+   *
+   * @param samples Sample saves, e.g. the first saves to be archived (not modified)
+   * @param maxSize The maximum dictionary size (at most 32 KB)
+   * @return The dictionary, empty if the samples share nothing
+   */
+  public static byte[] trainDictionary(Collection<ByteBuffer> samples, int maxSize) {
+    int size = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+    Map<Long, Integer> counts = new HashMap<>();
+    Set<Long> seen = new HashSet<>();
+    for (ByteBuffer sample : samples) {
+      seen.clear();
+      for (int i = sample.position(); i + GRAM_LENGTH <= sample.limit(); i++) {
+        if (seen.add(sample.getLong(i))) {
+          counts.merge(sample.getLong(i), 1, Integer::sum);
+        }
+      }
+    }
+
+    // Candidate segments, best first; a score is recomputed when the segment is taken
+    PriorityQueue<Segment> candidates = new PriorityQueue<>();
+    for (ByteBuffer sample : samples) {
+      for (int i = sample.position(); i + SEGMENT_LENGTH <= sample.limit(); i += GRAM_LENGTH / 2) {
+        Segment segment = new Segment(sample, i);
+        segment.score = segment.score(counts);
+        if (segment.score > 0) {
+          candidates.add(segment);
+        }
+      }
+    }
+
+    List<Segment> chosen = new ArrayList<>();
+    int length = 0;
+    while (length + SEGMENT_LENGTH <= size && !candidates.isEmpty()) {
+      Segment best = candidates.poll();
+      int score = best.score(counts);
+      if (score <= 0) {
+        continue;
+      }
+      if (!candidates.isEmpty() && score < candidates.peek().score) {
+        best.score = score;
+        candidates.add(best);
+        continue;
+      }
+      for (int i = best.start; i + GRAM_LENGTH <= best.start + SEGMENT_LENGTH; i++) {
+        counts.remove(best.sample.getLong(i));
+      }
+      chosen.add(best);
+      length += SEGMENT_LENGTH;
+    }
+
+    ByteBuffer dictionary = ByteBuffer.allocate(length);
+    for (int i = chosen.size() - 1; i >= 0; i--) {
+      Segment segment = chosen.get(i);
+      dictionary.put(segment.sample.slice(segment.start, SEGMENT_LENGTH));
+    }
+    return dictionary.array();
+  }
+
+  /**
+   * A piece of a sample save that may go into the dictionary
+   */
+  private static final class Segment implements Comparable<Segment> {
+    private final ByteBuffer sample;
+    private final int start;
+    private int score;
+
+    private Segment(ByteBuffer sample, int start) {
+      this.sample = sample;
+      this.start = start;
+    }
+
+    /**
+     * Sums how many samples share each sequence of the segment
+     */
+    private int score(Map<Long, Integer> counts) {
+      int total = 0;
+      for (int i = start; i + GRAM_LENGTH <= start + SEGMENT_LENGTH; i++) {
+        Integer count = counts.get(sample.getLong(i));
+        if (count != null && count > 1) {
+          total += count;
+        }
+      }
+      return total;
+    }
+
+    @Override
+    public int compareTo(Segment other) {
+      return Integer.compare(other.score, score);
+    }
+  }
+
+  /**
+   * Stores a save, replacing the previous save with the same key
+   *
+   * @param key The save name (at most 255 UTF-8 bytes)
+   * @param data The save content, from its position to its limit (not modified)
+   * @throws IOException If the archive cannot be written
+   * @throws IllegalArgumentException If the key is empty or too long
+   */
+  public synchronized void put(String key, ByteBuffer data) throws IOException {
+    byte[] keyBytes = keyBytes(key);
+    byte[] compressed = compress(data.duplicate());
+    int rawLength = data.remaining();
+    long checksum = checksum(compressed);
+
+    ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_HEADER + compressed.length);
+    putHeader(record, keyBytes, rawLength + 1, compressed.length, checksum);
+    long bodyOffset = end + record.position();
+    record.put(compressed).flip();
+    append(record);
+    replace(key, new Location(bodyOffset, rawLength, compressed.length, checksum));
+  }
+
+  /**
+   * Stores many saves with one write
+   *
+   * @param saves The saves by key (not modified)
+   * @throws IOException If the archive cannot be written
+   */
+  public synchronized void putAll(Map<String, ByteBuffer> saves) throws IOException {
+    List<byte[]> records = new ArrayList<>();
+    Map<String, Location> written = new HashMap<>();
+    long offset = end;
+    int total = 0;
+    for (Map.Entry<String, ByteBuffer> save : saves.entrySet()) {
+      byte[] keyBytes = keyBytes(save.getKey());
+      byte[] compressed = compress(save.getValue().duplicate());
+      long checksum = checksum(compressed);
+      ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_HEADER + compressed.length);
+      putHeader(record, keyBytes, save.getValue().remaining() + 1, compressed.length, checksum);
+      written.put(save.getKey(), new Location(offset + record.position(), save.getValue().remaining(),
+          compressed.length, checksum));
+      record.put(compressed);
+      byte[] bytes = new byte[record.position()];
+      record.flip().get(bytes);
+      records.add(bytes);
+      offset += bytes.length;
+      total += bytes.length;
+    }
+
+    ByteBuffer batch = ByteBuffer.allocate(total);
+    for (byte[] record : records) {
+      batch.put(record);
+    }
+    append(batch.flip());
+    for (Map.Entry<String, Location> location : written.entrySet()) {
+      replace(location.getKey(), location.getValue());
+    }
+  }
+
+  /**
+   * Reads a save
+   *
+   * @param key The save name
+   * @return A heap buffer holding the save, or null if the archive has no save with this key
+   * @throws IOException If the archive cannot be read or the record is corrupted
+   */
+  public synchronized ByteBuffer get(String key) throws IOException {
+    Location location = index.get(key);
+    if (location == null) {
+      return null;
+    }
+    ByteBuffer compressed = readBody(location);
+    if (compressed == null) {
+      throw new IOException("Save archive truncated at " + key);
+    }
+    if (location.checksum >= 0 && checksum(compressed.array()) != location.checksum) {
+      throw new IOException("Corrupted archived save " + key + ": checksum mismatch");
+    }
+
+    byte[] raw = new byte[location.rawLength];
+    inflater.reset();
+    if (dictionary.length > 0) {
+      inflater.setDictionary(dictionary);
+    }
+    inflater.setInput(compressed.array());
+    try {
+      int read = 0;
+      while (read < raw.length) {
+        int inflated = inflater.inflate(raw, read, raw.length - read);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          break;
+        }
+        read += inflated;
+      }
+      if (read != raw.length) {
+        throw new IOException("Corrupted archived save " + key + ": " + read + " of " + raw.length
+            + " bytes");
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted archived save " + key + ": " + e.getMessage(), e);
+    }
+    return ByteBuffer.wrap(raw);
+  }
+
+  /**
+   * Removes a save from the archive
+   *
+   * @param key The save name
+   * @return true if a save was removed
+   * @throws IOException If the archive cannot be written
+   */
+  public synchronized boolean remove(String key) throws IOException {
+    if (!index.containsKey(key)) {
+      return false;
+    }
+    ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_HEADER);
+    putHeader(record, keyBytes(key), 0, 0, checksum(new byte[0]));
+    append(record.flip());
+    replace(key, null);
+    return true;
+  }
+
+  /**
+   * Checks whether a save is archived
+   *
+   * @param key The save name
+   * @return true if the archive holds a save with this key
+   */
+  public synchronized boolean contains(String key) {
+    return index.containsKey(key);
+  }
+
+  /**
+   * Gets the names of all archived saves, in alphabetical order
+   *
+   * @return A copy of the save names
+   */
+  public synchronized Set<String> keys() {
+    return new TreeSet<>(index.keySet());
+  }
+
+  /**
+   * Gets the number of archived saves
+   *
+   * @return The save count
+   */
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /**
+   * Gets the size of the archive file
+   *
+   * @return The size in bytes, removed and replaced records included
+   */
+  public synchronized long getFileSize() {
+    return end;
+  }
+
+  /**
+   * Gets the compressed size of the saves still in the archive
+   *
+   * @return The size in bytes, record headers excluded
+   */
+  public synchronized long getLiveBytes() {
+    return liveBytes;
+  }
+
+  /**
+   * Gets the length of the preset dictionary
+   *
+   * @return The dictionary length in bytes
+   */
+  public int getDictionarySize() {
+    return dictionary.length;
+  }
+
+  /**
+   * Gets the archive file
+   *
+   * @return The path of the archive
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Forces the archive to the disk
+   *
+   * @throws IOException If the archive cannot be forced
+   */
+  public synchronized void flush() throws IOException {
+    channel.force(false);
+  }
+
+  /**
+   * Rewrites the archive without removed or replaced records
+   * <p>
+   * The live records are copied to a temporary file that atomically
+   * replaces the archive. The compressed data is copied as is, after its
+   * checksum has been verified.
+   * </p>
+   *
+   * @throws IOException If the archive cannot be rewritten, or an archived save is damaged
+   */
+  public synchronized void compact() throws IOException {
+    rewrite();
+  }
+
+  /**
+   * Checks whether compacting the archive would reclaim much space
+   * <p>
+   * This is the case when the removed, replaced or damaged records take
+   * more room than the saves still in the archive, beyond the fixed cost
+   * of the header.
+   * </p>
+   *
+   * @return true if the archive should be compacted
+   */
+  public synchronized boolean needsCompaction() {
+    return end > 2 * liveBytes + MAX_DICTIONARY_SIZE + SCAN_BUFFER_SIZE;
+  }
+
+  /**
+   * Writes the live records to a temporary file in the current format and renames it over the archive
+   */
+  private void rewrite() throws IOException {
+    Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), FILE_NAME + "-", ".tmp");
+    Map<String, Location> moved = new HashMap<>();
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      writeHeader(out, dictionary);
+      long offset = out.size();
+      for (Map.Entry<String, Location> entry : index.entrySet()) {
+        Location location = entry.getValue();
+        ByteBuffer body = readBody(location);
+        long checksum = body != null ? checksum(body.array()) : -1;
+        if (body == null || (location.checksum >= 0 && checksum != location.checksum)) {
+          throw new IOException("Corrupted archived save " + entry.getKey() + ", not compacting " + file);
+        }
+        ByteBuffer header = ByteBuffer.allocate(MAX_RECORD_HEADER);
+        putHeader(header, keyBytes(entry.getKey()), location.rawLength + 1, location.compressedLength,
+            checksum);
+        offset += writeFully(out, header.flip(), offset);
+        moved.put(entry.getKey(), new Location(offset, location.rawLength, location.compressedLength,
+            checksum));
+        offset += writeFully(out, body, offset);
+      }
+      out.force(true);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+
+    long before = end;
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    FileChannel replaced = channel;
+    channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    replaced.close();
+    index.clear();
+    index.putAll(moved);
+    end = channel.size();
+    logger.info("Save archive compacted: " + before + " -> " + end + " bytes");
+  }
+
+  /**
+   * Closes the archive
+   *
+   * @throws IOException If the file cannot be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    deflater.end();
+    inflater.end();
+    channel.close();
+  }
+
+  private byte[] compress(ByteBuffer data) {
+    deflater.reset();
+    if (dictionary.length > 0) {
+      deflater.setDictionary(dictionary);
+    }
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] buffer = new byte[Math.max(64, data.remaining() + data.remaining() / 8 + 16)];
+    int length = 0;
+    while (!deflater.finished()) {
+      if (length == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      length += deflater.deflate(buffer, length, buffer.length - length);
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+
+  private void append(ByteBuffer record) throws IOException {
+    end += writeFully(channel, record, end);
+  }
+
+  private void replace(String key, Location location) {
+    Location previous = location != null ? index.put(key, location) : index.remove(key);
+    if (previous != null) {
+      liveBytes -= previous.compressedLength;
+    }
+    if (location != null) {
+      liveBytes += location.compressedLength;
+    }
+  }
+
+  /**
+   * Reads the format version of the archive
+   */
+  private int readVersion() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+    channel.read(header, 0);
+    header.flip();
+    if (header.remaining() < MAGIC.length + 1) {
+      throw new IOException("Not a save archive: " + file);
+    }
+    for (byte expected : MAGIC) {
+      if (header.get() != expected) {
+        throw new IOException("Not a save archive: " + file);
+      }
+    }
+    int version = header.get();
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported save archive version: " + version);
+    }
+    return version;
+  }
+
+  private byte[] readHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1 + 5);
+    channel.read(header, 0);
+    header.flip();
+    try {
+      header.position(MAGIC.length + 1);
+      int length = SaveCodec.getVarint(header);
+      if (length < 0 || length > MAX_DICTIONARY_SIZE) {
+        throw new IOException("Corrupted save archive header: " + file);
+      }
+      ByteBuffer dictionary = ByteBuffer.allocate(length);
+      long offset = header.position();
+      while (dictionary.hasRemaining()) {
+        if (channel.read(dictionary, offset + dictionary.position()) < 0) {
+          throw new IOException("Corrupted save archive header: " + file);
+        }
+      }
+      end = offset + length;
+      return dictionary.array();
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Corrupted save archive header: " + file, e);
+    }
+  }
+
+  private static void writeHeader(FileChannel out, byte[] dictionary) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1 + 5 + dictionary.length);
+    header.put(MAGIC).put((byte) VERSION);
+    SaveCodec.putVarint(header, dictionary.length);
+    header.put(dictionary).flip();
+    writeFully(out, header, 0);
+  }
+
+  /**
+   * Rebuilds the index from the record headers and drops a torn last record
+   *
+   * @param version The format version of the archive
+   */
+  private void scan(int version) throws IOException {
+    long size = channel.size();
+    long offset = end;
+    HeaderReader reader = new HeaderReader(version);
+
+    while (offset < size) {
+      RecordHeader header = reader.read(offset, size);
+      if (header != null && header.end == size && version > 1 && !bodyMatches(header.location)) {
+        header = null; // The last write was torn inside the compressed data
+      }
+      if (header == null) {
+        long next = version > 1 ? reader.find(offset + 1, size) : -1;
+        if (next < 0) {
+          break;
+        }
+        logger.severe("Save archive " + file + " is damaged between " + offset + " and " + next
+            + ", skipping the records in between");
+        offset = next;
+        continue;
+      }
+      replace(header.key, header.location.rawLength >= 0 ? header.location : null);
+      offset = header.end;
+    }
+
+    if (offset < size) {
+      logger.warning("Save archive " + file + " has a torn record at " + offset + ", truncating");
+      channel.truncate(offset);
+    }
+    end = offset;
+  }
+
+  /**
+   * Reads record headers through a buffer holding many of them
+   */
+  private final class HeaderReader {
+    private final int version;
+    private final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE).flip();
+    private long bufferStart;
+
+    private HeaderReader(int version) {
+      this.version = version;
+    }
+
+    /**
+     * Reads the record header at an offset
+     *
+     * @return The header, or null if no valid record starts at this offset
+     */
+    private RecordHeader read(long offset, long size) throws IOException {
+      if (offset < bufferStart || offset + MAX_RECORD_HEADER > bufferStart + buffer.limit()) {
+        buffer.clear();
+        channel.read(buffer, offset);
+        buffer.flip();
+        bufferStart = offset;
+      }
+      int start = (int) (offset - bufferStart);
+      buffer.position(start);
+      try {
+        int headerChecksum = version > 1 ? buffer.getInt() : 0;
+        int keyLength = SaveCodec.getVarint(buffer);
+        if (keyLength < 1 || keyLength > MAX_KEY_LENGTH) {
+          return null;
+        }
+        byte[] keyBytes = new byte[keyLength];
+        buffer.get(keyBytes);
+        int rawLength = SaveCodec.getVarint(buffer) - 1;
+        int compressedLength = SaveCodec.getVarint(buffer);
+        long bodyChecksum = -1;
+        if (version > 1) {
+          bodyChecksum = buffer.getInt() & 0xFFFFFFFFL;
+          crc.reset();
+          crc.update(buffer.array(), start + 4, buffer.position() - start - 4);
+          if ((int) crc.getValue() != headerChecksum) {
+            return null;
+          }
+        }
+        long body = bufferStart + buffer.position();
+        if (rawLength < -1 || compressedLength < 0 || body + compressedLength > size) {
+          return null;
+        }
+        return new RecordHeader(new String(keyBytes, StandardCharsets.UTF_8),
+            new Location(body, rawLength, compressedLength, bodyChecksum), body + compressedLength);
+      } catch (IOException | BufferUnderflowException e) {
+        return null;
+      }
+    }
+
+    /**
+     * Looks for the next valid record after a damaged one
+     *
+     * @return The offset of the next record, or -1 if the rest of the file holds none
+     */
+    private long find(long from, long size) throws IOException {
+      for (long offset = from; offset < size; offset++) {
+        if (read(offset, size) != null) {
+          return offset;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Reads the compressed data of a record
+   *
+   * @return A heap buffer holding the data, or null if the file ends first
+   */
+  private ByteBuffer readBody(Location location) throws IOException {
+    ByteBuffer body = ByteBuffer.allocate(location.compressedLength);
+    while (body.hasRemaining()) {
+      if (channel.read(body, location.offset + body.position()) < 0) {
+        return null;
+      }
+    }
+    return body.flip();
+  }
+
+  private boolean bodyMatches(Location location) throws IOException {
+    ByteBuffer body = readBody(location);
+    return body != null && checksum(body.array()) == location.checksum;
+  }
+
+  /**
+   * Writes a record header, its checksum covering everything after it
+   */
+  private void putHeader(ByteBuffer record, byte[] keyBytes, int savedLength, int compressedLength,
+      long bodyChecksum) {
+    int start = record.position();
+    record.putInt(0);
+    SaveCodec.putVarint(record, keyBytes.length);
+    record.put(keyBytes);
+    SaveCodec.putVarint(record, savedLength);
+    SaveCodec.putVarint(record, compressedLength);
+    record.putInt((int) bodyChecksum);
+    crc.reset();
+    crc.update(record.array(), start + 4, record.position() - start - 4);
+    record.putInt(start, (int) crc.getValue());
+  }
+
+  private long checksum(byte[] data) {
+    crc.reset();
+    crc.update(data, 0, data.length);
+    return crc.getValue();
+  }
+
+  private static int writeFully(FileChannel out, ByteBuffer data, long position) throws IOException {
+    int written = 0;
+    while (data.hasRemaining()) {
+      written += out.write(data, position + written);
+    }
+    return written;
+  }
+
+  private static byte[] keyBytes(String key) {
+    if (key == null || key.isEmpty()) {
+      throw new IllegalArgumentException("Save key cannot be empty");
+    }
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_KEY_LENGTH) {
+      throw new IllegalArgumentException("Save key too long: " + key);
+    }
+    return bytes;
+  }
+}
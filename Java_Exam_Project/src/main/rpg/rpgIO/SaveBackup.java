@@ -0,0 +1,443 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * SaveBackup - Streams a consistent copy of the save directory over a socket
+ * <p>
+ * {@link #snapshot(Path)} holds back the game's saves (see
+ * CharacterManagement.savePause) just long enough to hard-link every file
+ * of the save directory into a hidden snapshot directory and note its
+ * length. Save files are replaced by renaming, and stores only append to
+ * their logs and segments, so the links keep the content of that instant
+ * while the game goes on saving. The one file changed in place, a slot
+ * store, is flushed and copied instead.
+ * </p>
+ * <p>
+ * {@link #send(Snapshot, SocketChannel)} then streams the snapshot over a
+ * TCP or Unix-domain socket: a small header per file, then the file with
+ * FileChannel.transferTo, which the kernel sends straight from the page
+ * cache without copying it through the JVM. The receiver writes every file
+ * into a staging directory and renames it to the target only once the
+ * whole backup has arrived, so a broken connection never leaves a partial
+ * restore. Stream layout:
+ * <pre>
+ * "RPGB", version (1 byte)
+ * per file: path length (short, &gt; 0), relative path (UTF-8, '/' separated), length (long), bytes
+ * end:      0 (short), file count (int), total length (long)
+ * </pre>
+ * </p>
+ * <p>
+ * From the command line, with the game stopped or on a copy:
+ * {@code java rpg.rpgIO.SaveBackup receive <port|socket path> <target directory>} and
+ * {@code java rpg.rpgIO.SaveBackup export <host:port|socket path> [save directory]}
+ * </p>
+ */
+public final class SaveBackup {
+
+  /** Prefix of the hidden snapshot directories inside the save directory */
+  static final String SNAPSHOT_PREFIX = ".backup-";
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'B'};
+  private static final int VERSION = 1;
+  private static final int MAX_PATH_LENGTH = 4096;
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private SaveBackup() {
+  }
+
+  /**
+   * Snapshot - A frozen view of the save directory, deleted on close
+   */
+  public static final class Snapshot implements Closeable {
+    private final Path directory;
+    private final List<String> files;
+    private final List<Long> lengths;
+
+    private Snapshot(Path directory, List<String> files, List<Long> lengths) {
+      this.directory = directory;
+      this.files = files;
+      this.lengths = lengths;
+    }
+
+    /**
+     * Gets the number of files in the snapshot
+     *
+     * @return The file count
+     */
+    public int getFileCount() {
+      return files.size();
+    }
+
+    /**
+     * Gets the total length of the files in the snapshot
+     *
+     * @return The length in bytes
+     */
+    public long getLength() {
+      return lengths.stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Deletes the snapshot directory; the save files are not touched
+     *
+     * @throws IOException If the snapshot cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+      deleteTree(directory);
+    }
+  }
+
+  /**
+   * Exports the game's saves from the command line, or receives a backup
+   *
+   * @param args "export" with an address and optionally the save directory,
+   *     or "receive" with an address and a target directory
+   */
+  public static void main(String[] args) {
+    if (args.length < 2 || !(args[0].equals("export") || (args[0].equals("receive") && args.length > 2))) {
+      System.out.println("Usage: SaveBackup export <host:port|socket path> [save directory]");
+      System.out.println("       SaveBackup receive <port|socket path> <target directory>");
+      return;
+    }
+    try {
+      if (args[0].equals("export")) {
+        Path directory = args.length > 2 ? Path.of(args[2]) : CharacterManagement.saveDirectory();
+        long bytes = export(directory, parseAddress(args[1]));
+        System.out.println("Backup sent: " + bytes + " bytes");
+      } else {
+        SocketAddress address = parseAddress(args[1]);
+        try (ServerSocketChannel server = bind(address)) {
+          System.out.println("Waiting for a backup on " + args[1]);
+          Path restored = receive(server, Path.of(args[2]));
+          System.out.println("Backup restored to " + restored);
+        } finally {
+          if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+          }
+        }
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Backup failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Takes a snapshot of the game's save directory and sends it
+   *
+   * @param address A TCP address or a Unix-domain socket address of a receiver
+   * @return The number of bytes of files sent
+   * @throws IOException If the snapshot cannot be taken or the stream fails
+   */
+  public static long export(SocketAddress address) throws IOException {
+    return export(CharacterManagement.saveDirectory(), address);
+  }
+
+  /**
+   * Takes a snapshot of a save directory and sends it
+   *
+   * @param directory The save directory
+   * @param address A TCP address or a Unix-domain socket address of a receiver
+   * @return The number of bytes of files sent
+   * @throws IOException If the snapshot cannot be taken or the stream fails
+   */
+  public static long export(Path directory, SocketAddress address) throws IOException {
+    try (Snapshot snapshot = snapshot(directory);
+         SocketChannel channel = SocketChannel.open(address)) {
+      return send(snapshot, channel);
+    }
+  }
+
+  /**
+   * Takes a consistent snapshot of a save directory
+   * <p>
+   * Queued background saves are written first; then saves are held back
+   * while the files are linked.
+   * </p>
+   *
+   * @param directory The save directory
+   * @return The snapshot, to be closed once sent
+   * @throws IOException If the snapshot cannot be created
+   */
+  public static Snapshot snapshot(Path directory) throws IOException {
+    CharacterManagement.awaitSaves();
+    Path snapshotDir = directory.resolve(SNAPSHOT_PREFIX + System.currentTimeMillis());
+    Files.createDirectories(snapshotDir);
+    List<String> files = new ArrayList<>();
+    List<Long> lengths = new ArrayList<>();
+    SlotSaveStore slots = CharacterManagement.getSlotStore();
+    Path slotFile = slots != null ? slots.getFile().toAbsolutePath().normalize() : null;
+
+    Lock pause = CharacterManagement.savePause();
+    long start = System.nanoTime();
+    pause.lock();
+    try (Stream<Path> walk = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) walk.filter(SaveBackup::isBackedUp)::iterator) {
+        String relative = relativeName(directory, file);
+        Path link = snapshotDir.resolve(relative);
+        Files.createDirectories(link.getParent());
+        try {
+          if (file.toAbsolutePath().normalize().equals(slotFile)) {
+            slots.flush();
+            Files.copy(file, link);
+          } else {
+            link(file, link);
+          }
+        } catch (NoSuchFileException e) {
+          continue; // Deleted by a background merge while walking
+        }
+        files.add(relative);
+        lengths.add(Files.size(link));
+      }
+    } catch (IOException | RuntimeException e) {
+      deleteTree(snapshotDir);
+      throw e;
+    } finally {
+      pause.unlock();
+    }
+    logger.info("Backup snapshot of " + files.size() + " files taken in "
+        + (System.nanoTime() - start) / 1_000_000 + " ms");
+    return new Snapshot(snapshotDir, files, lengths);
+  }
+
+  /**
+   * Streams a snapshot to a connected socket
+   *
+   * @param snapshot The snapshot to send
+   * @param channel A connected TCP or Unix-domain socket
+   * @return The number of bytes of files sent
+   * @throws IOException If the stream fails
+   */
+  public static long send(Snapshot snapshot, SocketChannel channel) throws IOException {
+    writeFully(channel, ByteBuffer.allocate(MAGIC.length + 1).put(MAGIC).put((byte) VERSION).flip());
+    long total = 0;
+    for (int i = 0; i < snapshot.files.size(); i++) {
+      String relative = snapshot.files.get(i);
+      long length = snapshot.lengths.get(i);
+      byte[] name = relative.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer header = ByteBuffer.allocate(2 + name.length + 8);
+      header.putShort((short) name.length).put(name).putLong(length).flip();
+      writeFully(channel, header);
+
+      try (FileChannel file = FileChannel.open(snapshot.directory.resolve(relative), StandardOpenOption.READ)) {
+        long sent = 0;
+        while (sent < length) {
+          long count = file.transferTo(sent, length - sent, channel);
+          if (count <= 0 && file.size() <= sent) {
+            throw new IOException("Backup file shrank while sending: " + relative);
+          }
+          sent += count;
+        }
+      }
+      total += length;
+    }
+    writeFully(channel, ByteBuffer.allocate(2 + 4 + 8).putShort((short) 0).putInt(snapshot.files.size())
+        .putLong(total).flip());
+    logger.info("Backup sent: " + snapshot.files.size() + " files, " + total + " bytes");
+    return total;
+  }
+
+  /**
+   * Accepts one connection and restores the backup it carries
+   *
+   * @param server A bound server socket
+   * @param target The directory to restore to; must not exist yet
+   * @return The restored directory
+   * @throws IOException If the target exists or the backup is incomplete or malformed
+   */
+  public static Path receive(ServerSocketChannel server, Path target) throws IOException {
+    try (SocketChannel channel = server.accept()) {
+      return receive(channel, target);
+    }
+  }
+
+  /**
+   * Restores a backup from a connected socket
+   *
+   * @param channel A connected TCP or Unix-domain socket
+   * @param target The directory to restore to; must not exist yet
+   * @return The restored directory
+   * @throws IOException If the target exists or the backup is incomplete or malformed
+   */
+  public static Path receive(SocketChannel channel, Path target) throws IOException {
+    if (Files.exists(target)) {
+      throw new FileAlreadyExistsException(target.toString());
+    }
+    Path absolute = target.toAbsolutePath();
+    Path staging = absolute.resolveSibling(absolute.getFileName() + ".partial");
+    deleteTree(staging);
+    Files.createDirectories(staging);
+    try {
+      ByteBuffer header = readFully(channel, MAGIC.length + 1);
+      for (byte b : MAGIC) {
+        if (header.get() != b) {
+          throw new IOException("Not a save backup stream");
+        }
+      }
+      if ((header.get() & 0xFF) != VERSION) {
+        throw new IOException("Unsupported save backup version");
+      }
+
+      int files = 0;
+      long total = 0;
+      while (true) {
+        int nameLength = readFully(channel, 2).getShort() & 0xFFFF;
+        if (nameLength == 0) {
+          ByteBuffer end = readFully(channel, 4 + 8);
+          if (end.getInt() != files || end.getLong() != total) {
+            throw new IOException("Save backup is incomplete");
+          }
+          break;
+        }
+        if (nameLength > MAX_PATH_LENGTH) {
+          throw new IOException("Save backup path too long");
+        }
+        String relative = new String(readFully(channel, nameLength).array(), StandardCharsets.UTF_8);
+        long length = readFully(channel, 8).getLong();
+        Path file = staging.resolve(relative).normalize();
+        if (length < 0 || !file.startsWith(staging) || file.equals(staging)) {
+          throw new IOException("Invalid entry in save backup: " + relative);
+        }
+        Files.createDirectories(file.getParent());
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+          long received = 0;
+          while (received < length) {
+            long count = out.transferFrom(channel, received, length - received);
+            if (count <= 0) {
+              throw new IOException("Save backup ended in " + relative);
+            }
+            received += count;
+          }
+          out.force(false);
+        }
+        files++;
+        total += length;
+      }
+      Files.move(staging, absolute, StandardCopyOption.ATOMIC_MOVE);
+      logger.info("Backup restored to " + absolute + ": " + files + " files, " + total + " bytes");
+      return absolute;
+    } catch (IOException | RuntimeException e) {
+      deleteTree(staging);
+      throw e;
+    }
+  }
+
+  /**
+   * Parses "host:port" or a port as a TCP address, anything else as a Unix-domain socket path
+   *
+   * @param address The address text
+   * @return The socket address
+   */
+  static SocketAddress parseAddress(String address) {
+    int colon = address.lastIndexOf(':');
+    String port = colon >= 0 ? address.substring(colon + 1) : address;
+    if (!port.isEmpty() && port.chars().allMatch(Character::isDigit)) {
+      String host = colon > 0 ? address.substring(0, colon) : "localhost";
+      return new InetSocketAddress(host, Integer.parseInt(port));
+    }
+    return UnixDomainSocketAddress.of(address);
+  }
+
+  /**
+   * Opens a server socket on a TCP or Unix-domain address
+   *
+   * @param address The address to listen on
+   * @return The bound server socket
+   * @throws IOException If the address cannot be bound
+   */
+  public static ServerSocketChannel bind(SocketAddress address) throws IOException {
+    ServerSocketChannel server = address instanceof UnixDomainSocketAddress
+        ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+        : ServerSocketChannel.open();
+    try {
+      return server.bind(address);
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+  }
+
+  private static boolean isBackedUp(Path file) {
+    for (Path part : file) {
+      if (part.toString().startsWith(SNAPSHOT_PREFIX)) {
+        return false;
+      }
+    }
+    return Files.isRegularFile(file) && !file.getFileName().toString().endsWith(".tmp");
+  }
+
+  private static void link(Path file, Path link) throws IOException {
+    try {
+      Files.createLink(link, file);
+    } catch (UnsupportedOperationException | IOException e) {
+      if (e instanceof NoSuchFileException missing) {
+        throw missing;
+      }
+      Files.copy(file, link); // No hard links on this file system
+    }
+  }
+
+  private static String relativeName(Path directory, Path file) {
+    Path relative = directory.relativize(file);
+    StringBuilder name = new StringBuilder();
+    for (Path part : relative) {
+      if (name.length() > 0) {
+        name.append('/');
+      }
+      name.append(part);
+    }
+    return name.toString();
+  }
+
+  private static void writeFully(SocketChannel channel, ByteBuffer data) throws IOException {
+    while (data.hasRemaining()) {
+      channel.write(data);
+    }
+  }
+
+  private static ByteBuffer readFully(SocketChannel channel, int length) throws IOException {
+    ByteBuffer data = ByteBuffer.allocate(length);
+    while (data.hasRemaining()) {
+      if (channel.read(data) < 0) {
+        throw new IOException("Save backup ended early");
+      }
+    }
+    return data.flip();
+  }
+
+  private static void deleteTree(Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> walk = Files.walk(directory)) {
+      for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+}
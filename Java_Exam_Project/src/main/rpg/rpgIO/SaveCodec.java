@@ -0,0 +1,344 @@
+package rpg.rpgIO;
+
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factory.Mage;
+import rpg.iterator.Inventory;
+import rpg.iterator.Item;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * SaveCodec - Compact binary encoding of a character
+ * <p>
+ * Layout of version 2 (all numbers are unsigned LEB128 varints unless noted):
+ * <pre>
+ * magic "RPGS" (4 bytes), version (1 byte), class (1 byte: 0 warrior, 1 mage)
+ * name: length + UTF-8 bytes
+ * health, maxHealth, stamina, maxStamina, damage, money, level
+ * mana, maxMana (mages only)
+ * item count, then per item:
+ *   name: length + UTF-8 bytes, type (1 byte, ItemType ordinal),
+ *   value and stat bonus (zigzag varints), flags (1 byte, bit 0 = equipped)
+ * CRC-32C of everything before it (4 bytes, big-endian)
+ * </pre>
+ * Version 1 is the same layout without the checksum and still decodes.
+ * A version 2 save whose checksum does not match is rejected before any
+ * field is read, so a flipped bit can never load as a different character.
+ * </p>
+ * <p>
+ * A save is decoded in a single pass over one ByteBuffer, with no text
+ * parsing. Files that do not start with the magic are legacy Properties
+ * saves, which CharacterManagement still loads.
+ * </p>
+ */
+public final class SaveCodec {
+
+  /** Current version of the format */
+  public static final int VERSION = 2;
+
+  /** Length of the checksum at the end of a version 2 save */
+  static final int CHECKSUM_LENGTH = 4;
+
+  private static final int UNCHECKED_VERSION = 1;
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'S'};
+  private static final byte WARRIOR = 0;
+  private static final byte MAGE = 1;
+  private static final int FLAG_EQUIPPED = 1;
+
+  private SaveCodec() {
+  }
+
+  /**
+   * Checks whether a buffer starts with a binary save
+   *
+   * @param buffer The buffer to check (its position is not changed)
+   * @return true if the buffer holds a binary save, false for legacy saves
+   */
+  public static boolean isBinarySave(ByteBuffer buffer) {
+    if (buffer.remaining() < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Encodes a character, including its inventory and equipped items
+   *
+   * @param character The character to encode (Warrior or Mage)
+   * @return The encoded save, ready to be written
+   * @throws IllegalArgumentException If the character type is not supported
+   */
+  public static ByteBuffer encode(Character character) {
+    if (!(character instanceof AbstractCharacter source)) {
+      throw new IllegalArgumentException("Unsupported character for binary save");
+    }
+    Inventory inventory = source.getInventory();
+    List<Item> items = inventory != null ? inventory.getAllItems() : List.of();
+
+    byte[] name = character.getName().getBytes(StandardCharsets.UTF_8);
+    int capacity = MAGIC.length + 2 + 5 + name.length + 9 * 5 + 5 + CHECKSUM_LENGTH;
+    for (Item item : items) {
+      capacity += 5 + 3 * item.getName().length() + 2 + 2 * 5;
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(capacity);
+    buffer.put(MAGIC).put((byte) VERSION).put(character instanceof Mage ? MAGE : WARRIOR);
+    putVarint(buffer, name.length);
+    buffer.put(name);
+    putVarint(buffer, Math.max(0, character.getHealth()));
+    putVarint(buffer, Math.max(1, character.getMaxHealth()));
+    putVarint(buffer, Math.max(0, character.getStamina()));
+    putVarint(buffer, Math.max(1, character.getMaxStamina()));
+    putVarint(buffer, Math.max(0, character.getBaseDamage()));
+    putVarint(buffer, Math.max(0, character.getMoney()));
+    putVarint(buffer, Math.max(1, character.getLevel()));
+    if (character instanceof Mage mage) {
+      putVarint(buffer, Math.max(0, mage.getMana()));
+      putVarint(buffer, Math.max(1, mage.getMaxMana()));
+    }
+
+    putVarint(buffer, items.size());
+    for (Item item : items) {
+      byte[] itemName = item.getName().getBytes(StandardCharsets.UTF_8);
+      putVarint(buffer, itemName.length);
+      buffer.put(itemName);
+      buffer.put((byte) item.getType().ordinal());
+      putVarint(buffer, zigzag(item.getValue()));
+      putVarint(buffer, zigzag(item.getStatBonus()));
+      buffer.put((byte) (inventory.isEquipped(item) ? FLAG_EQUIPPED : 0));
+    }
+
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.array(), 0, buffer.position());
+    buffer.putInt((int) crc.getValue());
+    return buffer.flip();
+  }
+
+  /**
+   * Checks whether a buffer holds a binary save carrying a checksum
+   *
+   * @param buffer The buffer to check (its position is not changed)
+   * @return true for a version 2 save, false for older or legacy saves
+   */
+  public static boolean hasChecksum(ByteBuffer buffer) {
+    return isBinarySave(buffer) && buffer.remaining() > MAGIC.length
+        && (buffer.get(buffer.position() + MAGIC.length) & 0xFF) == VERSION;
+  }
+
+  /**
+   * Verifies the checksum of a version 2 save
+   * <p>
+   * The buffer is read in place; on a direct or mapped buffer the CRC-32C
+   * is computed by the processor's CRC instruction without copying.
+   * </p>
+   *
+   * @param buffer The buffer holding exactly the save, positioned at the magic (not modified)
+   * @return true if the checksum matches
+   */
+  public static boolean checksumMatches(ByteBuffer buffer) {
+    if (!hasChecksum(buffer) || buffer.remaining() < MAGIC.length + 2 + CHECKSUM_LENGTH) {
+      return false;
+    }
+    int end = buffer.limit() - CHECKSUM_LENGTH;
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(buffer.position(), end - buffer.position()));
+    return (int) crc.getValue() == buffer.getInt(end);
+  }
+
+  /**
+   * Decodes a binary save
+   * <p>
+   * The character is built once, and it and its items are restored
+   * quietly: no log lines or inventory messages are produced per save.
+   * </p>
+   *
+   * @param buffer The buffer holding the save, positioned at the magic
+   * @param factory The factory used to create the character
+   * @return The decoded character
+   * @throws IOException If the save is not a binary save, has an unknown version or is corrupted
+   */
+  public static Character decode(ByteBuffer buffer, CharacterFactory factory) throws IOException {
+    if (!isBinarySave(buffer)) {
+      throw new IOException("Not a binary save");
+    }
+    try {
+      int version = buffer.get(buffer.position() + MAGIC.length) & 0xFF;
+      if (version == VERSION) {
+        if (!checksumMatches(buffer)) {
+          throw new IOException("Save checksum mismatch");
+        }
+        buffer = buffer.slice(buffer.position(), buffer.remaining() - CHECKSUM_LENGTH);
+      } else if (version != UNCHECKED_VERSION) {
+        throw new IOException("Unsupported save version: " + version);
+      }
+      buffer.position(buffer.position() + MAGIC.length + 1);
+      byte type = buffer.get();
+      String name = getString(buffer);
+      int health = getVarint(buffer);
+      int maxHealth = getVarint(buffer);
+      int stamina = getVarint(buffer);
+      int maxStamina = getVarint(buffer);
+      int damage = getVarint(buffer);
+      int money = getVarint(buffer);
+      int level = getVarint(buffer);
+
+      Character character;
+      if (type == MAGE) {
+        int mana = getVarint(buffer);
+        int maxMana = getVarint(buffer);
+        character = factory.restoreCharacter("mage", name, health, maxHealth, stamina, maxStamina, damage,
+            money, level, mana, maxMana);
+      } else if (type == WARRIOR) {
+        character = factory.restoreCharacter("warrior", name, health, maxHealth, stamina, maxStamina,
+            damage, money, level, 0, 1);
+      } else {
+        throw new IOException("Unknown character class in save: " + type);
+      }
+
+      Item.ItemType[] types = Item.ItemType.values();
+      int itemCount = getVarint(buffer);
+      if (itemCount < 0 || itemCount > buffer.remaining()) {
+        throw new IOException("Invalid item count in save: " + itemCount);
+      }
+      Item[] items = new Item[itemCount];
+      boolean[] equipped = new boolean[itemCount];
+      for (int i = 0; i < itemCount; i++) {
+        String itemName = getString(buffer);
+        int itemType = buffer.get() & 0xFF;
+        if (itemType >= types.length) {
+          throw new IOException("Unknown item type in save: " + itemType);
+        }
+        int value = unzigzag(getVarint(buffer));
+        int statBonus = unzigzag(getVarint(buffer));
+        items[i] = new Item(itemName, types[itemType], value, statBonus);
+        equipped[i] = (buffer.get() & FLAG_EQUIPPED) != 0;
+      }
+
+      Inventory inventory = ((AbstractCharacter) character).getInventory();
+      if (inventory != null && itemCount > 0) {
+        OutputContext.runWith(NullOutput.INSTANCE, () -> {
+          for (int i = 0; i < items.length; i++) {
+            inventory.addItem(items[i]);
+            if (equipped[i]) {
+              inventory.equipItem(items[i]);
+            }
+          }
+        });
+      }
+      return character;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Corrupted binary save", e);
+    }
+  }
+
+  /**
+   * Reads the manifest entry of a binary save
+   * <p>
+   * Only the class, name and level are decoded; the rest of the save is
+   * not read.
+   * </p>
+   *
+   * @param saveName The save name
+   * @param buffer The buffer holding the save, positioned at the magic
+   * @param size The size of the save
+   * @param lastModified The modification time of the save in milliseconds
+   * @return The manifest entry of the save
+   * @throws IOException If the save is not a binary save, has an unknown version or is corrupted
+   */
+  static SaveManifest.Entry readEntry(String saveName, ByteBuffer buffer, long size, long lastModified)
+      throws IOException {
+    if (!isBinarySave(buffer)) {
+      throw new IOException("Not a binary save");
+    }
+    try {
+      buffer.position(buffer.position() + MAGIC.length);
+      int version = buffer.get() & 0xFF;
+      if (version != VERSION && version != UNCHECKED_VERSION) {
+        throw new IOException("Unsupported save version: " + version);
+      }
+      byte type = buffer.get();
+      if (type != WARRIOR && type != MAGE) {
+        throw new IOException("Unknown character class in save: " + type);
+      }
+      String name = getString(buffer);
+      for (int i = 0; i < 6; i++) {
+        getVarint(buffer); // health, maxHealth, stamina, maxStamina, damage, money
+      }
+      int level = getVarint(buffer);
+      return new SaveManifest.Entry(saveName, name, type == MAGE ? "Mage" : "Warrior", level, size,
+          lastModified);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Corrupted binary save", e);
+    }
+  }
+
+  /**
+   * Writes an unsigned LEB128 varint
+   */
+  static void putVarint(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Reads an unsigned LEB128 varint of at most 5 bytes
+   */
+  static int getVarint(ByteBuffer buffer) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in save");
+  }
+
+  private static String getString(ByteBuffer buffer) throws IOException {
+    int length = getVarint(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IOException("Invalid string length in save: " + length);
+    }
+    if (buffer.hasArray()) {
+      String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+          StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+      return value;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Maps a signed value to an unsigned one, so small negative values stay short as varints
+   */
+  static int zigzag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  /**
+   * Reverses {@link #zigzag(int)}
+   */
+  static int unzigzag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,285 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * SaveCommitLog - Makes a batch of save files durable with one force
+ * <p>
+ * CharacterManagement appends each batch of saves to this log and forces
+ * the log once as the fsync policy asks, then writes and renames the save
+ * files without forcing them or their directories, so a batch costs one
+ * force however many saves it holds. Deleted saves are logged as
+ * tombstones, records with an empty save. The file
+ * {@code SAVE_DIR/saves.commit} is laid out as:
+ * </p>
+ * <pre>
+ * header:  magic "RPGL", version (1 byte)
+ * records: length (4 bytes), CRC-32C of the rest (4 bytes),
+ *          save name length (varint), save name (UTF-8), encoded save (empty if deleted)
+ * </pre>
+ * <p>
+ * The save files renamed since the last checkpoint are remembered. Once
+ * the log is larger than {@link #CHECKPOINT_BYTES} and no batch is being
+ * written, they are forced with their directories, each once however often
+ * it was saved, and the log starts over. A log left by a crash is read back
+ * by CharacterManagement, which writes again every logged save whose file
+ * the crash lost or left different from its logged copy.
+ * </p>
+ */
+final class SaveCommitLog implements Closeable {
+
+  /** Name of the log file in the save directory */
+  static final String FILE_NAME = "saves.commit";
+
+  /** Size past which the save files are forced and the log emptied */
+  static final long CHECKPOINT_BYTES = 1024 * 1024;
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'L'};
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = MAGIC.length + 1;
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private final Path file;
+  private final FileChannel channel;
+  private final CRC32C crc = new CRC32C();
+  private final Set<Path> unforced = new LinkedHashSet<>();
+  private final Set<String> logged = new HashSet<>();
+  private long size;
+  private int writing;
+
+  /**
+   * Opens the log, creating it if it does not exist
+   * <p>
+   * A file that is not a commit log is started over.
+   * </p>
+   *
+   * @param file The log file
+   * @throws IOException If the file cannot be opened
+   */
+  SaveCommitLog(Path file) throws IOException {
+    this.file = file;
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        // Keep reading until the header is full or the file ends
+      }
+      header.flip();
+      boolean valid = false;
+      if (header.remaining() == HEADER_SIZE) {
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        valid = Arrays.equals(magic, MAGIC) && header.get() == VERSION;
+      }
+      if (valid) {
+        size = channel.size();
+      } else {
+        if (channel.size() > 0) {
+          logger.warning("Not a save commit log, starting it over: " + file);
+        }
+        reset();
+        CharacterManagement.forceDirectory(file.getParent());
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the saves in the log
+   * <p>
+   * Reading stops at the first record that is torn or does not match its
+   * checksum: nothing after it was acknowledged.
+   * </p>
+   *
+   * @return The latest logged copy of each save, by save name; empty for a deleted save
+   * @throws IOException If the log cannot be read
+   */
+  synchronized Map<String, ByteBuffer> read() throws IOException {
+    ByteBuffer data = CharacterManagement.readFully(file.toFile());
+    data.position(Math.min(HEADER_SIZE, data.limit()));
+    Map<String, ByteBuffer> saves = new LinkedHashMap<>();
+    while (data.remaining() >= RECORD_HEADER_SIZE) {
+      int length = data.getInt();
+      int checksum = data.getInt();
+      if (length < 1 || length > data.remaining()) {
+        break;
+      }
+      crc.reset();
+      crc.update(data.array(), data.arrayOffset() + data.position(), length);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      ByteBuffer record = data.slice(data.position(), length);
+      data.position(data.position() + length);
+      try {
+        int nameLength = SaveCodec.getVarint(record);
+        if (nameLength < 1 || nameLength > record.remaining()) {
+          break;
+        }
+        String saveName = new String(record.array(), record.arrayOffset() + record.position(),
+            nameLength, StandardCharsets.UTF_8);
+        record.position(record.position() + nameLength);
+        saves.remove(saveName); // Keeps the saves in the order of their latest copy
+        saves.put(saveName, record.slice());
+      } catch (IOException | BufferUnderflowException e) {
+        break;
+      }
+    }
+    return saves;
+  }
+
+  /**
+   * Appends a batch of saves and forces it to the disk as the fsync policy asks
+   * <p>
+   * The caller then writes the save files and must call
+   * {@link #written(Collection)}, even if writing them failed.
+   * </p>
+   *
+   * @param saves The save names and their encoded saves (not modified)
+   * @param policy How hard the log is forced: not at all, its data, or its data and metadata
+   * @throws IOException If the batch cannot be logged
+   */
+  synchronized void append(Map<String, ByteBuffer> saves, FsyncPolicy policy) throws IOException {
+    if (size > CHECKPOINT_BYTES && writing == 0) {
+      checkpoint(Set.of());
+    }
+    writeRecords(saves, policy);
+    logged.addAll(saves.keySet());
+    writing++;
+  }
+
+  /**
+   * Logs deleted saves and forces them to the disk, so a log left by a crash does not bring them back
+   *
+   * @param saveNames The names of the deleted saves; those not logged since the last checkpoint are skipped
+   * @throws IOException If the deletions cannot be logged
+   */
+  synchronized void delete(Collection<String> saveNames) throws IOException {
+    Map<String, ByteBuffer> tombstones = new LinkedHashMap<>();
+    for (String saveName : saveNames) {
+      if (logged.contains(saveName)) {
+        tombstones.put(saveName, ByteBuffer.allocate(0));
+      }
+    }
+    if (!tombstones.isEmpty()) {
+      writeRecords(tombstones, FsyncPolicy.DATA);
+    }
+  }
+
+  private void writeRecords(Map<String, ByteBuffer> saves, FsyncPolicy policy) throws IOException {
+    int total = 0;
+    for (Map.Entry<String, ByteBuffer> save : saves.entrySet()) {
+      // A char takes at most 3 bytes in UTF-8, the name length at most 5
+      total += RECORD_HEADER_SIZE + 5 + save.getKey().length() * 3 + save.getValue().remaining();
+    }
+    ByteBuffer batch = ByteBuffer.allocate(total);
+    for (Map.Entry<String, ByteBuffer> save : saves.entrySet()) {
+      byte[] name = save.getKey().getBytes(StandardCharsets.UTF_8);
+      int start = batch.position();
+      batch.position(start + RECORD_HEADER_SIZE);
+      SaveCodec.putVarint(batch, name.length);
+      batch.put(name).put(save.getValue().duplicate());
+      int length = batch.position() - start - RECORD_HEADER_SIZE;
+      crc.reset();
+      crc.update(batch.array(), start + RECORD_HEADER_SIZE, length);
+      batch.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+    }
+    batch.flip();
+    try {
+      long position = size;
+      while (batch.hasRemaining()) {
+        position += channel.write(batch, position);
+      }
+      if (policy != FsyncPolicy.NONE) {
+        channel.force(policy == FsyncPolicy.FULL);
+      }
+      size = position;
+    } catch (IOException e) {
+      channel.truncate(size); // Drop the part of the batch that was written
+      throw e;
+    }
+  }
+
+  /**
+   * Remembers the save files of a logged batch once they are renamed
+   *
+   * @param files The save files renamed, possibly fewer than the batch if writing failed
+   */
+  synchronized void written(Collection<Path> files) {
+    unforced.addAll(files);
+    writing--;
+  }
+
+  /**
+   * Forces the given save files and those renamed since the last checkpoint, then empties the log
+   * <p>
+   * The directories of the files are forced too, so their renames are
+   * durable before the log holding their saves is emptied. Files deleted
+   * since they were saved are skipped.
+   * </p>
+   *
+   * @param files More save files to force, e.g. the intact files of a log left by a crash
+   * @throws IOException If a file cannot be forced or the log cannot be emptied
+   */
+  synchronized void checkpoint(Collection<Path> files) throws IOException {
+    unforced.addAll(files);
+    Set<Path> dirs = new LinkedHashSet<>();
+    for (Path saved : unforced) {
+      try (FileChannel out = FileChannel.open(saved, StandardOpenOption.WRITE)) {
+        out.force(false);
+      } catch (NoSuchFileException e) {
+        // Deleted, moved to the archive or quarantined since it was saved
+      }
+      dirs.add(saved.getParent());
+    }
+    for (Path dir : dirs) {
+      CharacterManagement.forceDirectory(dir);
+    }
+    logger.fine("Save commit log checkpoint: " + unforced.size() + " files forced");
+    unforced.clear();
+    reset();
+  }
+
+  /**
+   * Closes the log file
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private void reset() throws IOException {
+    channel.truncate(0);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put((byte) VERSION).flip();
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+    // The new length must be durable, or old records could reappear after the next batch
+    channel.force(true);
+    size = HEADER_SIZE;
+    logged.clear();
+  }
+}
@@ -0,0 +1,439 @@
+package rpg.rpgIO;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SaveHistory - Every version of every save, stored by what changed
+ * <p>
+ * Saved contents are objects named by their SHA-256, so a content saved
+ * twice (an unchanged character, or the same character under two names)
+ * is stored once. A new content is stored as a delta from the previous
+ * version of the same save: the byte ranges it shares with it are copied
+ * by reference and only the changed bytes are written. Every
+ * {@code snapshotInterval} links a full copy is stored instead, so a
+ * version is rebuilt from at most that many objects.
+ * </p>
+ * <p>
+ * Layout of the history directory:
+ * <pre>
+ * objects/ab/abcd...   one object per content:
+ *                        type (1 byte: 0 full, 1 delta), chain depth (varint), then
+ *                        full:  the save
+ *                        delta: base hash (32 bytes), base length, target length (varints),
+ *                               then ops: (length &lt;&lt; 1 | 1) + base offset = copy,
+ *                                         (length &lt;&lt; 1) + bytes = insert
+ * versions/NAME.log    "RPGH", version (1 byte), then one 44-byte record per version:
+ *                        time (long, ms), length (int), content hash (32 bytes)
+ * </pre>
+ * Objects are written to a temporary file and renamed, and a version is
+ * appended to its log only once its object exists, so a crash never
+ * leaves a version that cannot be rebuilt; a record cut short at the end
+ * of a log is ignored and overwritten. A rebuilt version is checked
+ * against its hash.
+ * </p>
+ */
+public class SaveHistory {
+
+  /** Default number of versions between two full copies */
+  public static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'H'};
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = MAGIC.length + 1;
+  private static final int HASH_LENGTH = 32;
+  private static final int RECORD_SIZE = 8 + 4 + HASH_LENGTH;
+  private static final byte FULL = 0;
+  private static final byte DELTA = 1;
+  private static final int MIN_MATCH = 8;
+  private static final HexFormat HEX = HexFormat.of();
+
+  private final Path objects;
+  private final Path versions;
+  private final int snapshotInterval;
+
+  /**
+   * Version - One recorded version of a save
+   */
+  public static final class Version {
+    private final int number;
+    private final long time;
+    private final int length;
+    private final String hash;
+
+    private Version(int number, long time, int length, String hash) {
+      this.number = number;
+      this.time = time;
+      this.length = length;
+      this.hash = hash;
+    }
+
+    /**
+     * Gets the version number, starting at 1 for the first save
+     *
+     * @return The version number
+     */
+    public int getNumber() {
+      return number;
+    }
+
+    /**
+     * Gets when the version was saved
+     *
+     * @return The time in milliseconds since the epoch
+     */
+    public long getTime() {
+      return time;
+    }
+
+    /**
+     * Gets the length of the save
+     *
+     * @return The length in bytes
+     */
+    public int getLength() {
+      return length;
+    }
+
+    /**
+     * Gets the SHA-256 of the save, which names its object
+     *
+     * @return The hash in lowercase hex
+     */
+    public String getHash() {
+      return hash;
+    }
+  }
+
+  /**
+   * Opens a history with the default snapshot interval
+   *
+   * @param directory The history directory, created on first write
+   */
+  public SaveHistory(Path directory) {
+    this(directory, DEFAULT_SNAPSHOT_INTERVAL);
+  }
+
+  /**
+   * Opens a history
+   *
+   * @param directory The history directory, created on first write
+   * @param snapshotInterval The longest delta chain; 1 stores every content in full
+   */
+  public SaveHistory(Path directory, int snapshotInterval) {
+    if (directory == null || snapshotInterval < 1) {
+      throw new IllegalArgumentException("History directory and a positive snapshot interval are required");
+    }
+    this.objects = directory.resolve("objects");
+    this.versions = directory.resolve("versions");
+    this.snapshotInterval = snapshotInterval;
+  }
+
+  /**
+   * Records a new version of a save
+   *
+   * @param saveName The sanitized save name
+   * @param data The encoded save (not modified)
+   * @param force true to force the object and the log to the disk
+   * @return The number of the new version
+   * @throws IOException If the version cannot be written
+   */
+  public synchronized int record(String saveName, ByteBuffer data, boolean force) throws IOException {
+    byte[] content = new byte[data.remaining()];
+    data.get(data.position(), content);
+    byte[] hash = sha256(content);
+
+    Path log = versions.resolve(saveName + ".log");
+    List<Version> previous = readLog(log);
+    if (!Files.exists(objectPath(hash))) {
+      writeObject(hash, encodeObject(content, previous.isEmpty() ? null : previous.get(previous.size() - 1)),
+          force);
+    }
+
+    Files.createDirectories(versions);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      long end = HEADER_SIZE + (long) previous.size() * RECORD_SIZE;
+      if (previous.isEmpty()) {
+        channel.write(ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put((byte) VERSION).flip(), 0);
+      }
+      // Overwrites a record cut short by a crash, if any
+      channel.truncate(end);
+      ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE)
+          .putLong(System.currentTimeMillis()).putInt(content.length).put(hash).flip();
+      while (record.hasRemaining()) {
+        channel.write(record, end + record.position());
+      }
+      if (force) {
+        channel.force(false);
+      }
+    }
+    return previous.size() + 1;
+  }
+
+  /**
+   * Lists the versions of a save
+   *
+   * @param saveName The sanitized save name
+   * @return The versions, oldest first; empty if the save has no history
+   * @throws IOException If the log cannot be read
+   */
+  public List<Version> versions(String saveName) throws IOException {
+    return readLog(versions.resolve(saveName + ".log"));
+  }
+
+  /**
+   * Rebuilds a version of a save
+   *
+   * @param saveName The sanitized save name
+   * @param number The version number, from 1
+   * @return The save as it was written, or null if there is no such version
+   * @throws IOException If an object is missing or the rebuilt save does not match its hash
+   */
+  public ByteBuffer load(String saveName, int number) throws IOException {
+    List<Version> all = versions(saveName);
+    if (number < 1 || number > all.size()) {
+      return null;
+    }
+    byte[] hash = HEX.parseHex(all.get(number - 1).getHash());
+    byte[] content = rebuild(hash);
+    if (!Arrays.equals(sha256(content), hash)) {
+      throw new IOException("Save history object does not match its hash: " + HEX.formatHex(hash));
+    }
+    return ByteBuffer.wrap(content);
+  }
+
+  /**
+   * Rebuilds a content by following its delta chain down to a full copy
+   */
+  private byte[] rebuild(byte[] hash) throws IOException {
+    List<ByteBuffer> deltas = new ArrayList<>();
+    byte[] content = null;
+    while (content == null) {
+      ByteBuffer object = readObject(hash);
+      try {
+        byte type = object.get();
+        SaveCodec.getVarint(object); // depth
+        if (type == FULL) {
+          content = new byte[object.remaining()];
+          object.get(content);
+        } else if (type == DELTA) {
+          hash = new byte[HASH_LENGTH];
+          object.get(hash);
+          deltas.add(object);
+        } else {
+          throw new IOException("Bad save history object: " + HEX.formatHex(hash));
+        }
+      } catch (BufferUnderflowException e) {
+        throw new IOException("Truncated save history object: " + HEX.formatHex(hash), e);
+      }
+    }
+    for (int i = deltas.size() - 1; i >= 0; i--) {
+      content = applyDelta(content, deltas.get(i));
+    }
+    return content;
+  }
+
+  /**
+   * Encodes a content as a full copy or as a delta from the previous version
+   */
+  private ByteBuffer encodeObject(byte[] content, Version base) throws IOException {
+    if (base != null) {
+      byte[] baseHash = HEX.parseHex(base.getHash());
+      int depth = depth(baseHash) + 1;
+      if (depth < snapshotInterval) {
+        byte[] baseContent = rebuild(baseHash);
+        ByteBuffer delta = ByteBuffer.allocate(1 + 5 + HASH_LENGTH + 10 + content.length * 2 + 16);
+        delta.put(DELTA);
+        SaveCodec.putVarint(delta, depth);
+        delta.put(baseHash);
+        encodeDelta(baseContent, content, delta);
+        // A delta that saves nothing is not worth a longer chain
+        if (delta.position() < content.length) {
+          return delta.flip();
+        }
+      }
+    }
+    ByteBuffer full = ByteBuffer.allocate(1 + 5 + content.length);
+    full.put(FULL);
+    SaveCodec.putVarint(full, 0);
+    return full.put(content).flip();
+  }
+
+  /**
+   * Writes the ops turning base into target: copies of runs of at least 8 shared bytes, inserts otherwise
+   */
+  static void encodeDelta(byte[] base, byte[] target, ByteBuffer out) {
+    SaveCodec.putVarint(out, base.length);
+    SaveCodec.putVarint(out, target.length);
+    Map<Long, Integer> index = new HashMap<>();
+    for (int i = 0; i + MIN_MATCH <= base.length; i++) {
+      index.putIfAbsent(key(base, i), i);
+    }
+
+    int literalStart = 0;
+    int pos = 0;
+    while (pos + MIN_MATCH <= target.length) {
+      Integer match = index.get(key(target, pos));
+      if (match == null) {
+        pos++;
+        continue;
+      }
+      int length = 0;
+      while (match + length < base.length && pos + length < target.length
+          && base[match + length] == target[pos + length]) {
+        length++;
+      }
+      if (length < MIN_MATCH) {
+        pos++; // Hash collision on the key
+        continue;
+      }
+      insert(target, literalStart, pos, out);
+      SaveCodec.putVarint(out, length << 1 | 1);
+      SaveCodec.putVarint(out, match);
+      pos += length;
+      literalStart = pos;
+    }
+    insert(target, literalStart, target.length, out);
+  }
+
+  /**
+   * Applies the ops of a delta to its base
+   */
+  static byte[] applyDelta(byte[] base, ByteBuffer delta) throws IOException {
+    try {
+      if (SaveCodec.getVarint(delta) != base.length) {
+        throw new IOException("Save history delta does not match its base");
+      }
+      byte[] target = new byte[SaveCodec.getVarint(delta)];
+      int pos = 0;
+      while (delta.hasRemaining()) {
+        int op = SaveCodec.getVarint(delta);
+        int length = op >>> 1;
+        if (pos + length > target.length) {
+          throw new IOException("Save history delta overflows its target");
+        }
+        if ((op & 1) != 0) {
+          int offset = SaveCodec.getVarint(delta);
+          System.arraycopy(base, offset, target, pos, length);
+        } else {
+          delta.get(target, pos, length);
+        }
+        pos += length;
+      }
+      if (pos != target.length) {
+        throw new IOException("Save history delta is incomplete");
+      }
+      return target;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Corrupted save history delta", e);
+    }
+  }
+
+  private static void insert(byte[] target, int from, int to, ByteBuffer out) {
+    if (to > from) {
+      SaveCodec.putVarint(out, (to - from) << 1);
+      out.put(target, from, to - from);
+    }
+  }
+
+  private static long key(byte[] bytes, int offset) {
+    long key = 0;
+    for (int i = 0; i < MIN_MATCH; i++) {
+      key = key << 8 | (bytes[offset + i] & 0xFF);
+    }
+    return key;
+  }
+
+  private int depth(byte[] hash) throws IOException {
+    ByteBuffer object = readObject(hash);
+    try {
+      object.get();
+      return SaveCodec.getVarint(object);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated save history object: " + HEX.formatHex(hash), e);
+    }
+  }
+
+  private void writeObject(byte[] hash, ByteBuffer object, boolean force) throws IOException {
+    Path target = objectPath(hash);
+    Path dir = target.getParent();
+    Files.createDirectories(dir);
+    Path temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        while (object.hasRemaining()) {
+          channel.write(object);
+        }
+        if (force) {
+          channel.force(false);
+        }
+      }
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+  }
+
+  private ByteBuffer readObject(byte[] hash) throws IOException {
+    Path file = objectPath(hash);
+    if (!Files.exists(file)) {
+      throw new IOException("Missing save history object: " + HEX.formatHex(hash));
+    }
+    return CharacterManagement.readFully(file.toFile());
+  }
+
+  private Path objectPath(byte[] hash) {
+    String name = HEX.formatHex(hash);
+    return objects.resolve(name.substring(0, 2)).resolve(name);
+  }
+
+  private static List<Version> readLog(Path log) throws IOException {
+    if (!Files.exists(log)) {
+      return new ArrayList<>();
+    }
+    ByteBuffer data = CharacterManagement.readFully(log.toFile());
+    if (data.remaining() < HEADER_SIZE) {
+      return new ArrayList<>(); // Cut short before its first record
+    }
+    for (byte b : MAGIC) {
+      if (data.get() != b) {
+        throw new IOException("Not a save history log: " + log);
+      }
+    }
+    if ((data.get() & 0xFF) != VERSION) {
+      throw new IOException("Unsupported save history log version: " + log);
+    }
+    List<Version> all = new ArrayList<>();
+    byte[] hash = new byte[HASH_LENGTH];
+    while (data.remaining() >= RECORD_SIZE) {
+      long time = data.getLong();
+      int length = data.getInt();
+      data.get(hash);
+      all.add(new Version(all.size() + 1, time, length, HEX.formatHex(hash)));
+    }
+    return all;
+  }
+
+  private static byte[] sha256(byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
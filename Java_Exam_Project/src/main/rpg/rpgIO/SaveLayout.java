@@ -0,0 +1,138 @@
+package rpg.rpgIO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * SaveLayout - Where the save files are placed inside the save directory
+ * <p>
+ * The layout is chosen with the {@code game.save.layout} property
+ * ({@code flat} or {@code sharded}); the default is {@code flat}. Existing
+ * saves are moved from one layout to the other with SaveLayoutMigration.
+ * </p>
+ */
+public enum SaveLayout {
+
+  /** Every save file directly in the save directory */
+  FLAT,
+
+  /**
+   * Every save file two directories down, e.g. {@code 3f/a0/hero.save}
+   * <p>
+   * The directories are the first two bytes of the CRC-32 of the save
+   * name, in hex, so each level has at most 256 entries and the saves are
+   * spread evenly over 65536 leaf directories.
+   * </p>
+   */
+  SHARDED;
+
+  private static final int SHARD_NAME_LENGTH = 2;
+
+  /**
+   * Gets the layout configured with the {@code game.save.layout} property
+   *
+   * @return The configured layout, or FLAT if the property is missing or unknown
+   */
+  public static SaveLayout configured() {
+    String value = System.getProperty("game.save.layout", "flat");
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return FLAT;
+    }
+  }
+
+  /**
+   * Gets the path of a save file, without touching the file system
+   *
+   * @param directory The save directory
+   * @param saveName The sanitized save name
+   * @param extension The extension of the save files, e.g. ".save"
+   * @return The path of the save file
+   */
+  public Path resolve(Path directory, String saveName, String extension) {
+    String fileName = saveName + extension;
+    if (this == FLAT) {
+      return directory.resolve(fileName);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(saveName.getBytes(StandardCharsets.UTF_8));
+    int hash = (int) crc.getValue();
+    return directory.resolve(hex(hash >>> 24)).resolve(hex(hash >>> 16)).resolve(fileName);
+  }
+
+  /**
+   * Gets the number of directory levels between the save directory and a save file
+   *
+   * @return 0 for FLAT, 2 for SHARDED
+   */
+  public int getDepth() {
+    return this == FLAT ? 0 : 2;
+  }
+
+  /**
+   * Visits every save file of the directory in this layout
+   * <p>
+   * Only directories a sharded layout could have created are entered, so
+   * other folders in the save directory are ignored.
+   * </p>
+   *
+   * @param directory The save directory
+   * @param extension The extension of the save files, e.g. ".save"
+   * @param action Receives the save name and the path of each save file
+   * @throws IOException If a directory cannot be listed
+   */
+  public void forEachSave(Path directory, String extension, BiConsumer<String, Path> action)
+      throws IOException {
+    visit(directory, extension, getDepth(), action);
+  }
+
+  /**
+   * Checks whether a directory name is one this layout creates
+   *
+   * @param name The directory name
+   * @return true for a two-digit lowercase hex name
+   */
+  static boolean isShardName(String name) {
+    if (name.length() != SHARD_NAME_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void visit(Path directory, String extension, int depth, BiConsumer<String, Path> action)
+      throws IOException {
+    if (depth == 0) {
+      try (DirectoryStream<Path> saves = Files.newDirectoryStream(directory, "*" + extension)) {
+        for (Path saveFile : saves) {
+          String fileName = saveFile.getFileName().toString();
+          action.accept(fileName.substring(0, fileName.length() - extension.length()), saveFile);
+        }
+      }
+      return;
+    }
+    try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory,
+        entry -> isShardName(entry.getFileName().toString()) && Files.isDirectory(entry))) {
+      for (Path shard : shards) {
+        visit(shard, extension, depth - 1, action);
+      }
+    }
+  }
+
+  private static String hex(int value) {
+    return new String(new char[] {Character.forDigit((value >>> 4) & 0xF, 16),
+        Character.forDigit(value & 0xF, 16)});
+  }
+}
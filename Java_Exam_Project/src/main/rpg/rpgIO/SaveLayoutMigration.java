@@ -0,0 +1,117 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * SaveLayoutMigration - Moves existing save files to another SaveLayout
+ * <p>
+ * Every save file is renamed to its place in the target layout, inside
+ * the same save directory, so no save is copied and each move is atomic.
+ * A migration stopped half way leaves every save readable from its old or
+ * new place and simply completes when it is run again. Shard directories
+ * left empty by a migration to the flat layout are removed.
+ * </p>
+ * <p>
+ * Run it while the game is stopped:
+ * {@code java rpg.rpgIO.SaveLayoutMigration saves sharded}
+ * </p>
+ */
+public class SaveLayoutMigration {
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private SaveLayoutMigration() {
+  }
+
+  /**
+   * Migrates a save directory from the command line
+   *
+   * @param args The save directory, the target layout ("flat" or "sharded") and optionally the extension
+   */
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.out.println("Usage: SaveLayoutMigration <save directory> <flat|sharded> [extension]");
+      return;
+    }
+    try {
+      SaveLayout target = SaveLayout.valueOf(args[1].trim().toUpperCase(Locale.ROOT));
+      String extension = args.length > 2 ? args[2] : ".save";
+      int moved = migrate(Path.of(args[0]), extension, target);
+      System.out.println(moved + " saves moved to the " + target.name().toLowerCase(Locale.ROOT)
+          + " layout");
+    } catch (IllegalArgumentException e) {
+      System.out.println("Unknown layout: " + args[1]);
+    } catch (IOException e) {
+      System.out.println("Migration failed: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Moves every save file of a directory to its place in a layout
+   * <p>
+   * Save files are found in any layout, so a directory holding both flat
+   * and sharded saves (e.g. after an interrupted migration) is handled.
+   * </p>
+   *
+   * @param directory The save directory
+   * @param extension The extension of the save files, e.g. ".save"
+   * @param target The layout to move the saves to
+   * @return The number of save files moved
+   * @throws IOException If a directory cannot be listed or a save cannot be moved
+   */
+  public static int migrate(Path directory, String extension, SaveLayout target) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return 0;
+    }
+    List<Path> saveFiles = new ArrayList<>();
+    List<String> saveNames = new ArrayList<>();
+    for (SaveLayout layout : SaveLayout.values()) {
+      if (layout != target) {
+        layout.forEachSave(directory, extension, (saveName, saveFile) -> {
+          saveNames.add(saveName);
+          saveFiles.add(saveFile);
+        });
+      }
+    }
+
+    int moved = 0;
+    for (int i = 0; i < saveFiles.size(); i++) {
+      Path destination = target.resolve(directory, saveNames.get(i), extension);
+      Files.createDirectories(destination.getParent());
+      Files.move(saveFiles.get(i), destination, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      moved++;
+    }
+    if (target == SaveLayout.FLAT) {
+      removeEmptyShards(directory, SaveLayout.SHARDED.getDepth());
+    }
+    logger.info("Moved " + moved + " saves of " + directory + " to the " + target + " layout");
+    return moved;
+  }
+
+  private static void removeEmptyShards(Path directory, int depth) throws IOException {
+    if (depth == 0) {
+      return;
+    }
+    try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory,
+        entry -> SaveLayout.isShardName(entry.getFileName().toString()) && Files.isDirectory(entry))) {
+      for (Path shard : shards) {
+        removeEmptyShards(shard, depth - 1);
+        try (DirectoryStream<Path> left = Files.newDirectoryStream(shard)) {
+          if (!left.iterator().hasNext()) {
+            Files.delete(shard);
+          }
+        }
+      }
+    }
+  }
+}
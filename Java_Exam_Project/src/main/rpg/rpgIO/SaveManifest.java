@@ -0,0 +1,682 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * SaveManifest - Index of the saves in the save directory
+ * <p>
+ * The manifest keeps, for every save file, the character name, class and
+ * level together with the file size and modification time, so the load menu
+ * can list the saves without opening them or scanning the directory. It is
+ * stored in one file of the save directory and read with a single
+ * sequential read:
+ * <pre>
+ * magic "RPGM" (4 bytes), version (1 byte)
+ * records: length (varint), type (1 byte: 1 put, 2 remove), save name,
+ *          then for puts: character name, class, level (varint),
+ *          size and modification time (8 bytes each)
+ * </pre>
+ * </p>
+ * <p>
+ * Every save appends one record with a single write, so an update is never
+ * half applied: a record cut short by a crash is dropped when the manifest
+ * is read. When the records outnumber the saves, the manifest is compacted
+ * into a temporary file that atomically replaces it. A missing or corrupted
+ * manifest is rebuilt by scanning the directory once.
+ * </p>
+ * <p>
+ * Files added, changed or deleted outside the game are picked up by
+ * {@link #startWatching()}, which repairs their entries from a WatchService.
+ * </p>
+ */
+public class SaveManifest implements Closeable {
+
+  /** Name of the manifest file in the save directory */
+  public static final String FILE_NAME = "saves.manifest";
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'M'};
+  private static final int VERSION = 1;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final int MIN_COMPACTION_RECORDS = 1024;
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  /**
+   * Entry - What the manifest knows about one save
+   */
+  public static final class Entry {
+    private final String saveName;
+    private final String characterName;
+    private final String characterClass;
+    private final int level;
+    private final long size;
+    private final long lastModified;
+
+    /**
+     * Creates an entry
+     *
+     * @param saveName The save name (file name without extension)
+     * @param characterName The name of the saved character
+     * @param characterClass The class of the character ("Warrior" or "Mage")
+     * @param level The level of the character
+     * @param size The size of the save file in bytes
+     * @param lastModified The modification time of the save file in milliseconds
+     */
+    public Entry(String saveName, String characterName, String characterClass, int level, long size,
+        long lastModified) {
+      this.saveName = saveName;
+      this.characterName = characterName;
+      this.characterClass = characterClass;
+      this.level = level;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Gets the save name
+     *
+     * @return The save name (file name without extension)
+     */
+    public String getSaveName() {
+      return saveName;
+    }
+
+    /**
+     * Gets the name of the saved character
+     *
+     * @return The character name
+     */
+    public String getCharacterName() {
+      return characterName;
+    }
+
+    /**
+     * Gets the class of the saved character
+     *
+     * @return "Warrior" or "Mage"
+     */
+    public String getCharacterClass() {
+      return characterClass;
+    }
+
+    /**
+     * Gets the level of the saved character
+     *
+     * @return The level
+     */
+    public int getLevel() {
+      return level;
+    }
+
+    /**
+     * Gets the size of the save
+     *
+     * @return The size in bytes
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Gets the modification time of the save
+     *
+     * @return The time in milliseconds since the epoch
+     */
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    @Override
+    public String toString() {
+      return saveName + " - " + characterName + " (" + characterClass + ", level " + level + ")";
+    }
+  }
+
+  private final Path directory;
+  private final String extension;
+  private final SaveLayout layout;
+  private final Path file;
+  private final Map<String, Entry> entries = new TreeMap<>();
+  private FileChannel channel;
+  private int records;
+  private WatchService watcher;
+  // Saves recorded while a rebuild walks the directory, null when no rebuild runs
+  private Set<String> touched;
+  private int rebuilding;
+
+  /**
+   * Opens the manifest of a save directory, rebuilding it if it is missing or corrupted
+   *
+   * @param directory The save directory (created if missing)
+   * @param extension The extension of the save files, e.g. ".save"
+   * @throws IOException If the manifest can neither be read nor rebuilt
+   */
+  public SaveManifest(Path directory, String extension) throws IOException {
+    this(directory, extension, SaveLayout.FLAT);
+  }
+
+  /**
+   * Opens the manifest of a save directory whose saves use the given layout
+   *
+   * @param directory The save directory
+   * @param extension The extension of the save files, e.g. ".save"
+   * @param layout Where the save files are placed in the directory
+   * @throws IOException If the manifest can neither be read nor rebuilt
+   */
+  public SaveManifest(Path directory, String extension, SaveLayout layout) throws IOException {
+    if (directory == null || extension == null || extension.isEmpty() || layout == null) {
+      throw new IllegalArgumentException("Save directory, extension and layout are required");
+    }
+    this.directory = directory;
+    this.extension = extension;
+    this.layout = layout;
+    this.file = directory.resolve(FILE_NAME);
+    Files.createDirectories(directory);
+
+    boolean loaded = false;
+    if (Files.exists(file)) {
+      try {
+        loaded = load();
+      } catch (IOException e) {
+        logger.warning("Cannot read save manifest, rebuilding it: " + e.getMessage());
+      }
+    }
+    if (loaded) {
+      channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    } else {
+      replaceEntries(scan());
+    }
+  }
+
+  /**
+   * Gets all entries, ordered by save name
+   *
+   * @return A copy of the entries
+   */
+  public synchronized List<Entry> getEntries() {
+    return new ArrayList<>(entries.values());
+  }
+
+  /**
+   * Gets the entry of a save
+   *
+   * @param saveName The save name
+   * @return The entry, or null if the manifest has no such save
+   */
+  public synchronized Entry get(String saveName) {
+    return entries.get(saveName);
+  }
+
+  /**
+   * Records a save
+   *
+   * @param entry The entry of the save, replacing any entry with the same save name
+   * @throws IOException If the manifest cannot be written
+   */
+  public synchronized void put(Entry entry) throws IOException {
+    append(encode(PUT, entry.getSaveName(), entry));
+    entries.put(entry.getSaveName(), entry);
+    if (touched != null) {
+      touched.add(entry.getSaveName());
+    }
+    compactIfNeeded();
+  }
+
+  /**
+   * Forgets a save
+   *
+   * @param saveName The save name
+   * @return true if the manifest had an entry for this save
+   * @throws IOException If the manifest cannot be written
+   */
+  public synchronized boolean remove(String saveName) throws IOException {
+    if (!entries.containsKey(saveName)) {
+      return false;
+    }
+    append(encode(REMOVE, saveName, null));
+    entries.remove(saveName);
+    if (touched != null) {
+      touched.add(saveName);
+    }
+    compactIfNeeded();
+    return true;
+  }
+
+  /**
+   * Brings the entry of one save up to date with its file
+   * <p>
+   * Nothing is read when the file size and modification time still match
+   * the entry. A file that is gone, or cannot be read as a save, loses its
+   * entry.
+   * </p>
+   *
+   * @param saveName The save name
+   * @throws IOException If the manifest cannot be written
+   */
+  public synchronized void refresh(String saveName) throws IOException {
+    Path saveFile = layout.resolve(directory, saveName, extension);
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(saveFile, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      remove(saveName);
+      return;
+    }
+    Entry current = entries.get(saveName);
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    if (current != null && current.getSize() == attributes.size()
+        && current.getLastModified() == lastModified) {
+      return;
+    }
+    Entry entry = readEntry(saveName, saveFile);
+    if (entry != null) {
+      put(entry);
+    } else {
+      remove(saveName);
+    }
+  }
+
+  /**
+   * Rebuilds the manifest by reading every save file in the directory
+   * <p>
+   * The directory is walked without holding the manifest lock, so saves
+   * are not blocked while every file is read. Saves recorded during the
+   * walk are newer than what the walk read, so their entries are kept.
+   * </p>
+   *
+   * @throws IOException If the directory cannot be listed or the manifest cannot be written
+   */
+  public void rebuild() throws IOException {
+    synchronized (this) {
+      if (rebuilding++ == 0) {
+        touched = new HashSet<>();
+      }
+    }
+    try {
+      Map<String, Entry> scanned = scan();
+      synchronized (this) {
+        for (String saveName : touched) {
+          Entry entry = entries.get(saveName);
+          if (entry != null) {
+            scanned.put(saveName, entry);
+          } else {
+            scanned.remove(saveName);
+          }
+        }
+        replaceEntries(scanned);
+      }
+    } finally {
+      synchronized (this) {
+        if (--rebuilding == 0) {
+          touched = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts repairing the manifest when save files change outside the game
+   * <p>
+   * A daemon thread waits on a WatchService for the save directory and
+   * refreshes the entry of every save file created, modified or deleted. If
+   * events were lost, the whole manifest is rebuilt. In a sharded layout
+   * every shard directory is watched as well, including the ones created
+   * later.
+   * </p>
+   *
+   * @throws IOException If the directory cannot be watched
+   */
+  public void startWatching() throws IOException {
+    WatchService service;
+    synchronized (this) {
+      if (watcher != null) {
+        return;
+      }
+      service = directory.getFileSystem().newWatchService();
+      watcher = service;
+    }
+    register(service, directory);
+    Thread.ofPlatform().daemon().name("save-manifest-watcher").start(() -> watch(service));
+  }
+
+  /**
+   * Stops watching the directory and closes the manifest file
+   *
+   * @throws IOException If the manifest file cannot be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (watcher != null) {
+      watcher.close();
+    }
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  private void watch(WatchService service) {
+    try {
+      while (true) {
+        WatchKey key = service.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          try {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              rebuild();
+              continue;
+            }
+            String fileName = event.context().toString();
+            Path parent = (Path) key.watchable();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && SaveLayout.isShardName(fileName)
+                && shardDepth(parent) < layout.getDepth()
+                && Files.isDirectory(parent.resolve(fileName))) {
+              watchShard(service, parent.resolve(fileName));
+            } else if (fileName.endsWith(extension)) {
+              refresh(fileName.substring(0, fileName.length() - extension.length()));
+            }
+          } catch (IOException e) {
+            logger.warning("Cannot repair save manifest: " + e.getMessage());
+          }
+        }
+        if (!key.reset()) {
+          logger.warning("Save directory is no longer watched: " + directory);
+          return;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // The manifest was closed
+    }
+  }
+
+  /**
+   * Watches a directory and, in a sharded layout, the shard directories below it
+   */
+  private void register(WatchService service, Path dir) throws IOException {
+    dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    if (shardDepth(dir) < layout.getDepth()) {
+      try (DirectoryStream<Path> shards = Files.newDirectoryStream(dir,
+          entry -> SaveLayout.isShardName(entry.getFileName().toString()) && Files.isDirectory(entry))) {
+        for (Path shard : shards) {
+          register(service, shard);
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts watching a shard directory created after the watcher started
+   * <p>
+   * Saves may have been written into it before it was registered, so they
+   * are refreshed once.
+   * </p>
+   */
+  private void watchShard(WatchService service, Path shard) throws IOException {
+    register(service, shard);
+    try (Stream<Path> files = Files.walk(shard, layout.getDepth() - shardDepth(shard) + 1)) {
+      for (Path saveFile : files.toList()) {
+        String fileName = saveFile.getFileName().toString();
+        if (fileName.endsWith(extension)) {
+          refresh(fileName.substring(0, fileName.length() - extension.length()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the entry of every save file in the directory
+   *
+   * @return The entries keyed by save name
+   */
+  private Map<String, Entry> scan() throws IOException {
+    Map<String, Entry> scanned = new TreeMap<>();
+    layout.forEachSave(directory, extension, (saveName, saveFile) -> {
+      Entry entry = readEntry(saveName, saveFile);
+      if (entry != null) {
+        scanned.put(saveName, entry);
+      }
+    });
+    return scanned;
+  }
+
+  /**
+   * Replaces all entries and rewrites the manifest file with them
+   */
+  private void replaceEntries(Map<String, Entry> scanned) throws IOException {
+    entries.clear();
+    entries.putAll(scanned);
+    compact();
+    logger.info("Save manifest rebuilt: " + entries.size() + " saves");
+  }
+
+  /**
+   * Gets how many shard levels a directory is below the save directory
+   */
+  private int shardDepth(Path dir) {
+    return dir.equals(directory) ? 0 : directory.relativize(dir).getNameCount();
+  }
+
+  /**
+   * Reads the manifest file
+   *
+   * @return false if the file is not a manifest and must be rebuilt
+   */
+  private boolean load() throws IOException {
+    ByteBuffer data = CharacterManagement.readFully(file.toFile());
+    if (data.remaining() < MAGIC.length + 1) {
+      return false;
+    }
+    for (byte b : MAGIC) {
+      if (data.get() != b) {
+        return false;
+      }
+    }
+    if ((data.get() & 0xFF) != VERSION) {
+      return false;
+    }
+
+    int valid = data.position();
+    try {
+      while (data.hasRemaining()) {
+        int length = SaveCodec.getVarint(data);
+        if (length < 1 || length > data.remaining()) {
+          break;
+        }
+        ByteBuffer record = data.slice(data.position(), length);
+        data.position(data.position() + length);
+        byte type = record.get();
+        String saveName = getString(record);
+        if (type == PUT) {
+          entries.put(saveName, new Entry(saveName, getString(record), getString(record),
+              SaveCodec.getVarint(record), record.getLong(), record.getLong()));
+        } else if (type == REMOVE) {
+          entries.remove(saveName);
+        } else {
+          throw new IOException("Unknown manifest record type: " + type);
+        }
+        records++;
+        valid = data.position();
+      }
+    } catch (BufferUnderflowException e) {
+      // A record cut short, handled below
+    }
+
+    if (valid < data.limit()) {
+      logger.warning("Dropping incomplete record at the end of the save manifest");
+      try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        truncate.truncate(valid);
+      }
+    }
+    logger.info("Save manifest loaded: " + entries.size() + " saves");
+    return true;
+  }
+
+  /**
+   * Reads the manifest entry of a save file
+   *
+   * @return The entry, or null if the file cannot be read as a save
+   */
+  private Entry readEntry(String saveName, Path saveFile) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(saveFile, BasicFileAttributes.class);
+      ByteBuffer data = CharacterManagement.readFully(saveFile.toFile());
+      return summarize(saveName, data, attributes.size(), attributes.lastModifiedTime().toMillis());
+    } catch (IOException e) {
+      logger.warning("Cannot read save " + saveFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Builds the manifest entry of a save from its content
+   *
+   * @param saveName The save name
+   * @param data The content of the save (its position is not changed)
+   * @param size The size of the save
+   * @param lastModified The modification time of the save in milliseconds
+   * @return The entry
+   * @throws IOException If the content is not a valid save
+   */
+  static Entry summarize(String saveName, ByteBuffer data, long size, long lastModified)
+      throws IOException {
+    if (SaveCodec.isBinarySave(data)) {
+      return SaveCodec.readEntry(saveName, data.duplicate(), size, lastModified);
+    }
+    Properties props = new Properties();
+    byte[] bytes = new byte[data.remaining()];
+    data.duplicate().get(bytes);
+    props.load(new ByteArrayInputStream(bytes));
+    String name = props.getProperty("name");
+    String type = props.getProperty("type");
+    if (name == null || type == null) {
+      throw new IOException("Missing name or type in save " + saveName);
+    }
+    int level;
+    try {
+      level = Integer.parseInt(props.getProperty("level", "1"));
+    } catch (NumberFormatException e) {
+      level = 1;
+    }
+    return new Entry(saveName, name, type, level, size, lastModified);
+  }
+
+  private ByteBuffer encode(byte type, String saveName, Entry entry) {
+    byte[] save = saveName.getBytes(StandardCharsets.UTF_8);
+    byte[] name =
+        entry != null ? entry.getCharacterName().getBytes(StandardCharsets.UTF_8) : new byte[0];
+    byte[] characterClass =
+        entry != null ? entry.getCharacterClass().getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+    ByteBuffer body = ByteBuffer.allocate(
+        1 + 15 + save.length + name.length + characterClass.length + 5 + 16);
+    body.put(type);
+    putBytes(body, save);
+    if (entry != null) {
+      putBytes(body, name);
+      putBytes(body, characterClass);
+      SaveCodec.putVarint(body, Math.max(0, entry.getLevel()));
+      body.putLong(entry.getSize());
+      body.putLong(entry.getLastModified());
+    }
+    body.flip();
+
+    ByteBuffer record = ByteBuffer.allocate(5 + body.remaining());
+    SaveCodec.putVarint(record, body.remaining());
+    record.put(body);
+    return record.flip();
+  }
+
+  /**
+   * Appends one record with a single write
+   */
+  private void append(ByteBuffer record) throws IOException {
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+    records++;
+  }
+
+  private void compactIfNeeded() throws IOException {
+    if (records > Math.max(MIN_COMPACTION_RECORDS, 2 * entries.size())) {
+      compact();
+    }
+  }
+
+  /**
+   * Writes the live entries to a temporary file and atomically replaces the manifest with it
+   * <p>
+   * The current file stays open until the move succeeds, so a failed
+   * compaction leaves the manifest usable and appends keep going to it.
+   * </p>
+   */
+  private void compact() throws IOException {
+    Path temp = directory.resolve(FILE_NAME + ".tmp");
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1).put(MAGIC).put((byte) VERSION).flip();
+      out.write(header);
+      for (Entry entry : entries.values()) {
+        ByteBuffer record = encode(PUT, entry.getSaveName(), entry);
+        while (record.hasRemaining()) {
+          out.write(record);
+        }
+      }
+      out.force(true);
+    }
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    FileChannel replaced = channel;
+    channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    records = entries.size();
+    if (replaced != null) {
+      replaced.close();
+    }
+  }
+
+  private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+    SaveCodec.putVarint(buffer, bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String getString(ByteBuffer buffer) throws IOException {
+    int length = SaveCodec.getVarint(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IOException("Invalid string length in save manifest: " + length);
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,594 @@
+package rpg.rpgIO;
+
+import rpg.logger.GameLogger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * SlotSaveStore - Keeps every save in one preallocated, memory-mapped file
+ * <p>
+ * The file is a small header followed by fixed-size slots:
+ * <pre>
+ * header (64 bytes): magic "RPGSLOTS", version, slot size, slot count
+ * slot run: payload length (int, 0 = free), run length in slots (short),
+ *           key length (1 byte), generation (long), CRC-32C (int), key (UTF-8), payload
+ * </pre>
+ * A save that does not fit in one slot takes a run of adjacent slots. Used
+ * slots are tracked in a free-slot bitmap, rebuilt from the slot headers
+ * when the store is opened, together with the key to slot index.
+ * </p>
+ * <p>
+ * The whole file is mapped, so a save or a load is a copy to or from the
+ * mapping and no system call is made. A save is never written over its
+ * previous copy: every put goes to a free run with a higher generation,
+ * and the run it replaces stays allocated until the next {@link #flush()}
+ * has forced the new one to the disk. The operating system may write the
+ * mapped pages back in any order, so after a crash a run can be torn even
+ * though its length is set; the checksum over the run detects that, and
+ * the store falls back to the newest intact run of the key. When no run is
+ * large enough, replaced runs are released by a flush, then the file grows
+ * to at least twice its slot count and is mapped again.
+ * </p>
+ * <p>
+ * Stores written by the first version, without generations and checksums,
+ * are rewritten in the current layout when opened.
+ * </p>
+ */
+public class SlotSaveStore implements CharacterRepository {
+
+  /** Default size of a slot, enough for a character with a small inventory */
+  public static final int DEFAULT_SLOT_SIZE = 512;
+
+  /** Default number of slots of a new store */
+  public static final int DEFAULT_SLOT_COUNT = 64;
+
+  private static final byte[] MAGIC = {'R', 'P', 'G', 'S', 'L', 'O', 'T', 'S'};
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 64;
+  private static final int SLOT_HEADER_SIZE = 19;
+  private static final int VERSION_1_SLOT_HEADER_SIZE = 7;
+  private static final int MAX_KEY_LENGTH = 255;
+  private static final int MAX_RUN_LENGTH = Short.MAX_VALUE;
+
+  private static final Logger logger = GameLogger.getLogger();
+
+  private final Path file;
+  private final FileChannel channel;
+  private final int slotSize;
+  private final BitSet usedSlots = new BitSet();
+  private final Map<String, Integer> index = new HashMap<>();
+  private final Map<String, Long> versions = new HashMap<>();
+  private final List<Integer> replacedRuns = new ArrayList<>();
+  private final CRC32C crc = new CRC32C();
+  private long lastVersion;
+  private long generation;
+  private MappedByteBuffer map;
+  private int slotCount;
+
+  /**
+   * Opens a store with the default slot size and slot count
+   *
+   * @param file The store file, created if missing
+   * @throws IOException If the file cannot be opened or is not a slot store
+   */
+  public SlotSaveStore(Path file) throws IOException {
+    this(file, DEFAULT_SLOT_SIZE, DEFAULT_SLOT_COUNT);
+  }
+
+  /**
+   * Opens a store
+   * <p>
+   * The slot size and slot count are only used to create a new file; an
+   * existing file keeps the values written in its header.
+   * </p>
+   *
+   * @param file The store file, created if missing
+   * @param slotSize The size of a slot in bytes for a new file
+   * @param initialSlots The number of slots of a new file
+   * @throws IOException If the file cannot be opened or is not a slot store
+   * @throws IllegalArgumentException If the slot size or slot count are too small
+   */
+  public SlotSaveStore(Path file, int slotSize, int initialSlots) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("Store file cannot be null");
+    }
+    if (slotSize < 64 || initialSlots < 1) {
+      throw new IllegalArgumentException("Slot size must be at least 64 and slot count at least 1");
+    }
+    this.file = file;
+    if (Files.exists(file) && storedVersion(file) == 1) {
+      upgradeVersion1(file);
+    }
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        this.slotSize = slotSize;
+        this.slotCount = initialSlots;
+        remap();
+        map.put(0, MAGIC);
+        map.putInt(8, VERSION);
+        map.putInt(12, slotSize);
+        map.putInt(16, initialSlots);
+        logger.info("Slot store created: " + file + " (" + initialSlots + " slots of " + slotSize
+            + " bytes)");
+      } else {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || !hasMagic(header)) {
+          throw new IOException("Not a slot store: " + file);
+        }
+        if (header.getInt(8) != VERSION) {
+          throw new IOException("Unsupported slot store version: " + header.getInt(8));
+        }
+        this.slotSize = header.getInt(12);
+        this.slotCount = header.getInt(16);
+        if (this.slotSize < 64 || this.slotCount < 1
+            || channel.size() < HEADER_SIZE + (long) this.slotSize * this.slotCount) {
+          throw new IOException("Corrupted slot store header: " + file);
+        }
+        remap();
+        rebuildIndex();
+        logger.info("Slot store opened: " + file + " (" + index.size() + " saves)");
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the version in the header of an existing store file
+   *
+   * @param file The store file
+   * @return The version, or 0 if the file is not a slot store
+   * @throws IOException If the file cannot be read
+   */
+  private static int storedVersion(Path file) throws IOException {
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+      in.read(header, 0);
+      return header.remaining() == 0 && hasMagic(header) ? header.getInt(8) : 0;
+    }
+  }
+
+  /**
+   * Rewrites a first-version store in the current layout
+   * <p>
+   * The saves are copied into a new store next to the file, which then
+   * replaces it atomically, so a crash leaves either the old or the new file.
+   * </p>
+   *
+   * @param file The store file
+   * @throws IOException If the store cannot be read or rewritten
+   */
+  private static void upgradeVersion1(Path file) throws IOException {
+    Map<String, ByteBuffer> saves = new LinkedHashMap<>();
+    int slotSize;
+    int slotCount;
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer old = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+      old.order(ByteOrder.LITTLE_ENDIAN);
+      slotSize = old.getInt(12);
+      slotCount = old.getInt(16);
+      if (slotSize < 64 || slotCount < 1 || in.size() < HEADER_SIZE + (long) slotSize * slotCount) {
+        throw new IOException("Corrupted slot store header: " + file);
+      }
+      int slot = 0;
+      while (slot < slotCount) {
+        int offset = HEADER_SIZE + slot * slotSize;
+        int length = old.getInt(offset);
+        int run = old.getShort(offset + 4) & 0xFFFF;
+        int keyLength = old.get(offset + 6) & 0xFF;
+        if (length <= 0 || run < 1 || slot + run > slotCount
+            || VERSION_1_SLOT_HEADER_SIZE + keyLength + length > run * slotSize) {
+          slot++;
+          continue;
+        }
+        byte[] key = new byte[keyLength];
+        old.get(offset + VERSION_1_SLOT_HEADER_SIZE, key);
+        byte[] payload = new byte[length];
+        old.get(offset + VERSION_1_SLOT_HEADER_SIZE + keyLength, payload);
+        // The first version kept the first of two duplicate runs
+        saves.putIfAbsent(new String(key, StandardCharsets.UTF_8), ByteBuffer.wrap(payload));
+        slot += run;
+      }
+    }
+
+    Path upgraded = file.resolveSibling(file.getFileName() + ".upgrade");
+    Files.deleteIfExists(upgraded);
+    try (SlotSaveStore store = new SlotSaveStore(upgraded, slotSize, slotCount)) {
+      for (Map.Entry<String, ByteBuffer> save : saves.entrySet()) {
+        store.put(save.getKey(), save.getValue());
+      }
+    }
+    Files.move(upgraded, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    logger.info("Slot store upgraded to version " + VERSION + ": " + file + " (" + saves.size() + " saves)");
+  }
+
+  /**
+   * Stores a save, replacing the previous save with the same key
+   *
+   * @param key The save name (at most 255 UTF-8 bytes)
+   * @param data The save content, from its position to its limit (not modified)
+   * @throws IOException If the store cannot grow
+   * @throws IllegalArgumentException If the key is empty or too long, or the data is empty
+   */
+  public synchronized void put(String key, ByteBuffer data) throws IOException {
+    byte[] keyBytes = keyBytes(key);
+    int length = data.remaining();
+    if (length == 0) {
+      throw new IllegalArgumentException("Save data cannot be empty");
+    }
+    int slotsNeeded = slotsFor(keyBytes.length, length);
+    if (slotsNeeded > MAX_RUN_LENGTH) {
+      throw new IllegalArgumentException("Save too large for the slot store: " + length + " bytes");
+    }
+
+    // Copy on write: the previous run stays intact until the next flush
+    int slot = allocate(slotsNeeded);
+    writeRun(slot, slotsNeeded, ++generation, keyBytes, data);
+    Integer previous = index.put(key, slot);
+    versions.put(key, ++lastVersion);
+    if (previous != null) {
+      replacedRuns.add(previous);
+    }
+  }
+
+  /**
+   * Reads a save
+   *
+   * @param key The save name
+   * @return A heap buffer holding a copy of the save, or null if there is no save with this key
+   */
+  public synchronized ByteBuffer get(String key) {
+    Integer slot = index.get(key);
+    if (slot == null) {
+      return null;
+    }
+    int offset = slotOffset(slot);
+    int length = map.getInt(offset);
+    int keyLength = map.get(offset + 6) & 0xFF;
+    byte[] bytes = new byte[length];
+    map.get(offset + SLOT_HEADER_SIZE + keyLength, bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  /**
+   * Removes a save and frees its slots
+   *
+   * @param key The save name
+   * @return true if a save was removed
+   */
+  public synchronized boolean remove(String key) {
+    Integer slot = index.remove(key);
+    if (slot == null) {
+      return false;
+    }
+    versions.remove(key);
+    // Released by the next flush, together with any older run of the key
+    replacedRuns.add(slot);
+    return true;
+  }
+
+  /**
+   * Checks whether a save exists
+   *
+   * @param key The save name
+   * @return true if the store holds a save with this key
+   */
+  public synchronized boolean contains(String key) {
+    return index.containsKey(key);
+  }
+
+  /**
+   * Gets the version of a save
+   * <p>
+   * The version changes every time the save is written through this
+   * store, so a reader can tell whether a copy it kept is still current.
+   * Saves not written since the store was opened have version 0.
+   * </p>
+   *
+   * @param key The save name
+   * @return The version, or -1 if there is no save with this key
+   */
+  public synchronized long getVersion(String key) {
+    if (!index.containsKey(key)) {
+      return -1;
+    }
+    return versions.getOrDefault(key, 0L);
+  }
+
+  /**
+   * Gets the length of a save without copying it
+   *
+   * @param key The save name
+   * @return The length in bytes, or -1 if there is no save with this key
+   */
+  public synchronized int getLength(String key) {
+    Integer slot = index.get(key);
+    if (slot == null) {
+      return -1;
+    }
+    return map.getInt(slotOffset(slot));
+  }
+
+  /**
+   * Gets the names of all saves, in alphabetical order
+   *
+   * @return A copy of the save names
+   */
+  public synchronized Set<String> keys() {
+    return new TreeSet<>(index.keySet());
+  }
+
+  /**
+   * Gets the number of slots in the file
+   *
+   * @return The slot count
+   */
+  public synchronized int getSlotCount() {
+    return slotCount;
+  }
+
+  /**
+   * Gets the number of slots not used by any save
+   *
+   * @return The free slot count
+   */
+  public synchronized int getFreeSlots() {
+    return slotCount - usedSlots.cardinality();
+  }
+
+  /**
+   * Gets the size of a slot
+   *
+   * @return The slot size in bytes
+   */
+  public int getSlotSize() {
+    return slotSize;
+  }
+
+  /**
+   * Gets the store file
+   *
+   * @return The path of the store file
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Forces the mapped pages to the disk, then releases the replaced runs
+   * <p>
+   * The new runs are durable before the runs they replace are freed. A
+   * second force makes the release durable, so removed saves stay removed.
+   * </p>
+   */
+  public synchronized void flush() {
+    map.force();
+    if (!replacedRuns.isEmpty()) {
+      for (int slot : replacedRuns) {
+        free(slot);
+      }
+      replacedRuns.clear();
+      map.force();
+    }
+  }
+
+  /**
+   * Flushes the store and closes its file
+   *
+   * @throws IOException If the file cannot be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel.isOpen()) {
+      flush();
+      channel.close();
+    }
+  }
+
+  /**
+   * Finds a run of free slots, growing the file if none is large enough
+   *
+   * @param slotsNeeded The length of the run
+   * @return The first slot of the run, marked as used
+   * @throws IOException If the file cannot grow
+   */
+  private int allocate(int slotsNeeded) throws IOException {
+    int start = findFreeRun(slotsNeeded);
+    if (start < 0 && !replacedRuns.isEmpty()) {
+      flush();
+      start = findFreeRun(slotsNeeded);
+    }
+    if (start < 0) {
+      grow(slotsNeeded);
+      start = findFreeRun(slotsNeeded);
+    }
+    usedSlots.set(start, start + slotsNeeded);
+    return start;
+  }
+
+  private int findFreeRun(int slotsNeeded) {
+    int start = usedSlots.nextClearBit(0);
+    while (start + slotsNeeded <= slotCount) {
+      int next = usedSlots.nextSetBit(start);
+      if (next < 0 || next - start >= slotsNeeded) {
+        return start;
+      }
+      start = usedSlots.nextClearBit(next);
+    }
+    return -1;
+  }
+
+  /**
+   * Grows the file to at least twice its slot count and maps it again
+   *
+   * @param slotsNeeded The length of the run that did not fit
+   * @throws IOException If the file cannot grow
+   */
+  private void grow(int slotsNeeded) throws IOException {
+    long target = Math.max(2L * slotCount, (long) slotCount + slotsNeeded);
+    long maxSlots = (Integer.MAX_VALUE - HEADER_SIZE) / slotSize;
+    if (target > maxSlots) {
+      if ((long) slotCount + slotsNeeded > maxSlots) {
+        throw new IOException("Slot store is full: " + file);
+      }
+      target = maxSlots;
+    }
+    map.force();
+    slotCount = (int) target;
+    remap();
+    map.putInt(16, slotCount);
+    logger.info("Slot store grown to " + slotCount + " slots: " + file);
+  }
+
+  /**
+   * Maps the whole file for the current slot count, extending the file if needed
+   */
+  private void remap() throws IOException {
+    long size = HEADER_SIZE + (long) slotSize * slotCount;
+    if (channel.size() < size) {
+      // Writing the last byte extends the file; the gap reads as zeros, i.e. free slots
+      channel.write(ByteBuffer.allocate(1), size - 1);
+    }
+    map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    map.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Rebuilds the bitmap and the index from the slot headers
+   * <p>
+   * Runs whose checksum does not match were torn by a crash and are
+   * dropped. When a key has several intact runs, left by updates not yet
+   * flushed, the one with the highest generation wins.
+   * </p>
+   */
+  private void rebuildIndex() {
+    Map<String, Long> generations = new HashMap<>();
+    int slot = 0;
+    while (slot < slotCount) {
+      int offset = slotOffset(slot);
+      int length = map.getInt(offset);
+      if (length <= 0) {
+        slot++;
+        continue;
+      }
+      int run = map.getShort(offset + 4) & 0xFFFF;
+      int keyLength = map.get(offset + 6) & 0xFF;
+      if (run < 1 || slot + run > slotCount || slotsFor(keyLength, length) > run
+          || checksum(offset, keyLength, length) != map.getInt(offset + 15)) {
+        logger.warning("Discarding corrupted slot " + slot + " of " + file);
+        map.putInt(offset, 0);
+        slot++;
+        continue;
+      }
+      byte[] key = new byte[keyLength];
+      map.get(offset + SLOT_HEADER_SIZE, key);
+      String name = new String(key, StandardCharsets.UTF_8);
+      long runGeneration = map.getLong(offset + 7);
+      generation = Math.max(generation, runGeneration);
+      Integer previous = index.get(name);
+      if (previous != null) {
+        // Duplicate left by an update not yet flushed: keep the newer run
+        if (generations.get(name) > runGeneration) {
+          map.putInt(offset, 0);
+          slot++;
+          continue;
+        }
+        free(previous);
+      }
+      index.put(name, slot);
+      generations.put(name, runGeneration);
+      usedSlots.set(slot, slot + run);
+      slot += run;
+    }
+  }
+
+  /**
+   * Writes a save into a run; the checksum and then the length are written
+   * last, so a run is never seen as used before its content is complete
+   */
+  private void writeRun(int slot, int run, long runGeneration, byte[] key, ByteBuffer data) {
+    int offset = slotOffset(slot);
+    int length = data.remaining();
+    map.putShort(offset + 4, (short) run);
+    map.put(offset + 6, (byte) key.length);
+    map.putLong(offset + 7, runGeneration);
+    map.put(offset + SLOT_HEADER_SIZE, key);
+    map.put(offset + SLOT_HEADER_SIZE + key.length, data, data.position(), length);
+    map.putInt(offset + 15, checksum(offset, key.length, length));
+    map.putInt(offset, length);
+  }
+
+  /**
+   * Computes the checksum of a run: run length, key length, generation, key and payload
+   */
+  private int checksum(int offset, int keyLength, int length) {
+    crc.reset();
+    crc.update(map.slice(offset + 4, 11));
+    crc.update(map.slice(offset + SLOT_HEADER_SIZE, keyLength + length));
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      crc.update(length >>> shift);
+    }
+    return (int) crc.getValue();
+  }
+
+  private void free(int slot) {
+    int run = runLength(slot);
+    map.putInt(slotOffset(slot), 0);
+    usedSlots.clear(slot, slot + run);
+  }
+
+  private int runLength(int slot) {
+    return map.getShort(slotOffset(slot) + 4) & 0xFFFF;
+  }
+
+  private int slotsFor(int keyLength, int length) {
+    return (SLOT_HEADER_SIZE + keyLength + length + slotSize - 1) / slotSize;
+  }
+
+  private int slotOffset(int slot) {
+    return HEADER_SIZE + slot * slotSize;
+  }
+
+  private static byte[] keyBytes(String key) {
+    if (key == null || key.isEmpty()) {
+      throw new IllegalArgumentException("Save key cannot be empty");
+    }
+    byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_KEY_LENGTH) {
+      throw new IllegalArgumentException("Save key too long: " + key);
+    }
+    return bytes;
+  }
+
+  private static boolean hasMagic(ByteBuffer header) {
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (header.get(i) != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,6 +1,7 @@
 package rpg.rpgSecurity;
 
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.io.FileNotFoundException;
@@ -42,7 +43,7 @@ public class ExceptionHandler {
         logger.log(Level.SEVERE, "Error: " + e.getMessage(), e);
 
         // Show only a safe message to the user
-        System.out.println(userMessage);
+        OutputContext.get().println(userMessage);
     }
 
     /**
@@ -60,11 +61,11 @@ public class ExceptionHandler {
         
         // Provide more specific messages based on exception type
         if (e instanceof FileNotFoundException) {
-            System.out.println("File not found. Check the filename.");
+            OutputContext.get().println("File not found. Check the filename.");
         } else if (e instanceof IOException) {
-            System.out.println("File access problem. Check permissions.");
+            OutputContext.get().println("File access problem. Check permissions.");
         } else {
-            System.out.println("Error during save/load. Please try again.");
+            OutputContext.get().println("Error during save/load. Please try again.");
         }
     }
 
@@ -79,7 +80,7 @@ public class ExceptionHandler {
      */
     public static void handleCharacterError(Exception e) {
         logger.log(Level.WARNING, "Character error: " + e.getMessage(), e);
-        System.out.println("Error in character creation. Check the entered data.");
+        OutputContext.get().println("Error in character creation. Check the entered data.");
     }
 
     /**
@@ -93,7 +94,7 @@ public class ExceptionHandler {
      */
     public static void handleInventoryError(Exception e) {
         logger.log(Level.WARNING, "Inventory error: " + e.getMessage(), e);
-        System.out.println("Inventory operation failed.");
+        OutputContext.get().println("Inventory operation failed.");
     }
 
     /**
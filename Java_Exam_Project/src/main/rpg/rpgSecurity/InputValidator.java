@@ -1,6 +1,7 @@
 package rpg.rpgSecurity;
 
 import rpg.logger.GameLogger;
+import rpg.output.OutputContext;
 import java.util.logging.Logger;
 
 /**
@@ -47,7 +48,7 @@ public class InputValidator {
 
     if (input == null || input.trim().isEmpty()) {
       logger.warning("Character name validation failed: empty name");
-      System.out.println("Name cannot be empty!");
+      OutputContext.get().println("Name cannot be empty!");
       return null;
     }
 
@@ -56,13 +57,13 @@ public class InputValidator {
 
       if (name.length() < 2) {
         logger.warning("Character name validation failed: too short");
-        System.out.println("Name too short!");
+        OutputContext.get().println("Name too short!");
         return null;
       }
 
       if (name.length() > 20) {
         logger.warning("Character name validation failed: too long");
-        System.out.println("Name too long!");
+        OutputContext.get().println("Name too long!");
         return null;
       }
 
@@ -70,7 +71,7 @@ public class InputValidator {
       return name;
     } catch (Exception e) {
       logger.severe("Error validating character name: " + e.getMessage());
-      System.out.println("Name validation error!");
+      OutputContext.get().println("Name validation error!");
       return null;
     }
   }
@@ -91,7 +92,7 @@ public class InputValidator {
 
     if (input == null || input.trim().isEmpty()) {
       logger.warning("Menu choice validation failed: empty input");
-      System.out.println("Please enter a number!");
+      OutputContext.get().println("Please enter a number!");
       return null;
     }
 
@@ -100,7 +101,7 @@ public class InputValidator {
 
       if (choice < 0 || choice > max) {
         logger.warning("Menu choice validation failed: out of range (" + choice + ")");
-        System.out.println("Choose between 0 and " + max + "!");
+        OutputContext.get().println("Choose between 0 and " + max + "!");
         return null;
       }
 
@@ -108,11 +109,11 @@ public class InputValidator {
       return choice;
     } catch (NumberFormatException e) {
       logger.warning("Menu choice validation failed: not a number");
-      System.out.println("That's not a number!");
+      OutputContext.get().println("That's not a number!");
       return null;
     } catch (Exception e) {
       logger.severe("Error validating menu choice: " + e.getMessage());
-      System.out.println("Input validation error!");
+      OutputContext.get().println("Input validation error!");
       return null;
     }
   }
@@ -168,7 +169,7 @@ public class InputValidator {
 
     if (input == null || input.trim().isEmpty()) {
       logger.warning("Filename validation failed: empty filename");
-      System.out.println("Filename cannot be empty!");
+      OutputContext.get().println("Filename cannot be empty!");
       return null;
     }
 
@@ -177,7 +178,7 @@ public class InputValidator {
 
       if (name.length() > 30) {
         logger.warning("Filename validation failed: too long");
-        System.out.println("Filename too long!");
+        OutputContext.get().println("Filename too long!");
         return null;
       }
 
@@ -185,7 +186,7 @@ public class InputValidator {
       name = sanitizeFilename(name);
       if (name.isEmpty()) {
         logger.warning("Filename validation failed: invalid characters");
-        System.out.println("Invalid filename!");
+        OutputContext.get().println("Invalid filename!");
         return null;
       }
 
@@ -194,7 +195,7 @@ public class InputValidator {
       return result;
     } catch (Exception e) {
       logger.severe("Error validating filename: " + e.getMessage());
-      System.out.println("Filename validation error!");
+      OutputContext.get().println("Filename validation error!");
       return null;
     }
   }
@@ -0,0 +1,103 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.AsyncSaver;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.FsyncPolicy;
+import org.junit.Test;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * AsyncSaverTest - Tests for the background saver
+ * <p>
+ * A burst of saves of the same name must end with the latest snapshot on
+ * disk, leave no temporary files behind and never write more often than
+ * it was asked to.
+ * </p>
+ */
+public class AsyncSaverTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Tests that a burst of saves ends with the latest snapshot
+     */
+    @Test
+    public void testBurstKeepsLatestSnapshot() throws Exception {
+        logger.info("Testing coalesced background saves");
+        CharacterFactory factory = new CharacterFactory();
+        List<CompletableFuture<Path>> futures = new ArrayList<>();
+
+        try (AsyncSaver saver = new AsyncSaver(FsyncPolicy.NONE)) {
+            for (int money = 0; money < 50; money++) {
+                Character hero = factory.createCustomCharacter("warrior", "Burst", 100, 100, 50, 50, 10,
+                        money, 2);
+                futures.add(saver.save(hero, "async_burst"));
+            }
+            saver.flush();
+
+            for (CompletableFuture<Path> future : futures) {
+                assertTrue(future.isDone());
+                assertTrue(Files.exists(future.get()));
+            }
+            assertEquals(50, saver.getRequestedSaves());
+            assertTrue(saver.getWrittenSaves() >= 1);
+            assertTrue(saver.getWrittenSaves() <= saver.getRequestedSaves());
+        }
+
+        Character loaded = CharacterManagement.loadCharacter("async_burst");
+        assertNotNull(loaded);
+        assertEquals(49, loaded.getMoney());
+
+        Path dir = Path.of(System.getProperty("game.save.dir"));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    /**
+     * Tests that invalid saves fail at once and a closed saver refuses saves
+     */
+    @Test
+    public void testInvalidAndClosedSavesFail() {
+        logger.info("Testing refused background saves");
+        Character hero = new CharacterFactory().createCharacter("mage", "Refused");
+        AsyncSaver saver = new AsyncSaver(FsyncPolicy.DATA);
+
+        assertTrue(saver.save(hero, "   ").isCompletedExceptionally());
+        assertTrue(saver.save(null, "name").isCompletedExceptionally());
+
+        saver.close();
+        CompletableFuture<Path> late = saver.save(hero, "refused");
+        try {
+            late.get();
+            fail("A closed saver must refuse saves");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+    }
+}
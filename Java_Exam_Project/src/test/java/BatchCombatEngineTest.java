@@ -0,0 +1,86 @@
+import rpg.combat.BatchCombatEngine;
+import rpg.combat.MatchupCalculator;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.factoryMonster.MonsterFactory;
+import rpg.logger.GameLogger;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.*;
+
+import java.util.logging.Logger;
+
+/**
+ * BatchCombatEngineTest - Tests for the structure-of-arrays combat engine
+ * <p>
+ * The batch engine must follow the same rules as the object-based combat:
+ * its win rate over many encounters is compared with the exact odds of the
+ * MatchupCalculator, and exported state is checked against the objects.
+ * </p>
+ */
+public class BatchCombatEngineTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory characterFactory;
+    private MonsterFactory monsterFactory;
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() {
+        characterFactory = new CharacterFactory();
+        monsterFactory = new MonsterFactory();
+    }
+
+    /**
+     * Tests that the batch win rate matches the exact matchup odds
+     */
+    @Test
+    public void testWinRateMatchesExactOdds() {
+        logger.info("Testing batch engine win rate");
+        Character warrior = characterFactory.createCustomCharacter("warrior", "Batch", 30, 120, 100, 100, 6, 0, 1);
+        AbstractMonster troll = monsterFactory.createMonster("troll");
+
+        BatchCombatEngine engine = new BatchCombatEngine(20000);
+        for (int i = 0; i < 20000; i++) {
+            engine.add(warrior, troll, i);
+        }
+        int turnsRun = engine.runToCompletion(1000);
+
+        int wins = 0;
+        int longest = 0;
+        for (int i = 0; i < engine.size(); i++) {
+            assertNotEquals(BatchCombatEngine.ONGOING, engine.getStatus(i));
+            longest = Math.max(longest, engine.getTurns(i));
+            if (engine.getStatus(i) == BatchCombatEngine.HERO_WON) {
+                wins++;
+            }
+        }
+
+        double expected = new MatchupCalculator().calculate(warrior, "troll").getWinProbability();
+        assertEquals(expected, wins / 20000.0, 0.02);
+        assertEquals(longest, turnsRun);
+        assertEquals(0, engine.runToCompletion(1000));
+    }
+
+    /**
+     * Tests that exporting writes the encounter state back to the objects
+     */
+    @Test
+    public void testExportUpdatesObjects() {
+        logger.info("Testing batch engine export");
+        Character mage = characterFactory.createCharacter("mage", "Export");
+        AbstractMonster goblin = monsterFactory.createMonster("goblin");
+
+        BatchCombatEngine engine = new BatchCombatEngine(1);
+        int lane = engine.add(mage, goblin, 99L);
+        engine.tick();
+        engine.exportTo(lane, mage, goblin);
+
+        assertEquals(engine.getHeroHealth(lane), mage.getHealth());
+        assertEquals(engine.getMonsterHealth(lane), goblin.getHealth());
+        assertEquals(117, mage.getStamina());
+    }
+}
@@ -0,0 +1,138 @@
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.output.BufferedOutput;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import rpg.rpgIO.CharacterCache;
+import rpg.rpgIO.CharacterManagement;
+import org.junit.Test;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * CharacterCacheTest - Tests for the cache of loaded characters
+ * <p>
+ * A cached character must only be returned while its save is unchanged,
+ * always as a copy, and the cache must stay within its size budget.
+ * </p>
+ */
+public class CharacterCacheTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Tests hits, stale stamps and defensive copies
+     */
+    @Test
+    public void testHitsAreCopiesAndStampsAreChecked() {
+        logger.info("Testing character cache lookups");
+        CharacterCache cache = new CharacterCache(1024);
+        Character hero = new CharacterFactory().createCharacter("mage", "Cached");
+
+        assertNull(cache.get("cached", 10, 100));
+        cache.put("cached", hero, 10, 100);
+
+        Character first = cache.get("cached", 10, 100);
+        assertNotNull(first);
+        assertNotSame(hero, first);
+        first.takeDamage(25);
+
+        Character second = cache.get("cached", 10, 100);
+        assertEquals(hero.getHealth(), second.getHealth());
+        assertNotSame(first, second);
+
+        assertNull(cache.get("cached", 11, 100));
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * Tests that copying a cached character with items prints nothing
+     */
+    @Test
+    public void testCopiesAreSilent() {
+        logger.info("Testing silent cache copies");
+        CharacterCache cache = new CharacterCache(1024);
+        Character hero = new CharacterFactory().createCharacter("warrior", "Equipaggiato");
+        Item sword = new Item("Spada", Item.ItemType.WEAPON, 50, 5);
+        OutputContext.runWith(NullOutput.INSTANCE, () -> {
+            hero.addItem(sword);
+            hero.equipItem(sword);
+        });
+
+        BufferedOutput output = new BufferedOutput();
+        Character copy = OutputContext.callWith(output, () -> {
+            cache.put("equipped", hero, 1, 100);
+            return cache.get("equipped", 1, 100);
+        });
+        assertNotNull(copy);
+        assertEquals(5, ((AbstractCharacter) copy).getInventory().getTotalStatBonus());
+        assertEquals("", output.getText());
+    }
+
+    /**
+     * Tests that the least recently used saves are evicted first
+     */
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        logger.info("Testing character cache eviction");
+        CharacterCache cache = new CharacterCache(300);
+        CharacterFactory factory = new CharacterFactory();
+
+        cache.put("a", factory.createCharacter("warrior", "Alpha"), 1, 100);
+        cache.put("b", factory.createCharacter("warrior", "Beta"), 1, 100);
+        cache.put("c", factory.createCharacter("warrior", "Gamma"), 1, 100);
+        assertNotNull(cache.get("a", 1, 100));
+        cache.put("d", factory.createCharacter("warrior", "Delta"), 1, 100);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(300, cache.getCachedBytes());
+        assertNull(cache.get("b", 1, 100));
+        assertNotNull(cache.get("a", 1, 100));
+        assertNotNull(cache.get("d", 1, 100));
+
+        cache.put("huge", factory.createCharacter("warrior", "Huge"), 1, 301);
+        assertNull(cache.get("huge", 1, 301));
+    }
+
+    /**
+     * Tests that loadCharacter answers repeated loads from the cache and sees new saves
+     */
+    @Test
+    public void testLoadCharacterUsesCache() {
+        logger.info("Testing cached loads");
+        CharacterFactory factory = new CharacterFactory();
+        CharacterCache cache = CharacterManagement.getCache();
+        assertTrue(CharacterManagement.saveCharacter(
+                factory.createCustomCharacter("warrior", "Ricaricato", 80, 100, 40, 50, 9, 5, 2), "cache_reload"));
+
+        Character first = CharacterManagement.loadCharacter("cache_reload");
+        long hits = cache.getHits();
+        Character second = CharacterManagement.loadCharacter("cache_reload");
+        assertEquals(hits + 1, cache.getHits());
+        assertNotSame(first, second);
+        assertEquals(5, second.getMoney());
+
+        assertTrue(CharacterManagement.saveCharacter(
+                factory.createCustomCharacter("warrior", "Ricaricato", 80, 100, 40, 50, 9, 99, 2), "cache_reload"));
+        assertEquals(99, CharacterManagement.loadCharacter("cache_reload").getMoney());
+    }
+}
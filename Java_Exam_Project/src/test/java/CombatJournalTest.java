@@ -0,0 +1,133 @@
+import rpg.combat.CombatJournal;
+import rpg.combat.CombatReplayer;
+import rpg.combat.CombatSystem;
+import rpg.combat.JournalRecord;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factoryMonster.AbstractMonster;
+import rpg.factoryMonster.MonsterFactory;
+import rpg.logger.GameLogger;
+import rpg.random.RandomService;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
+
+/**
+ * CombatJournalTest - Tests for the binary combat journal and its replayer
+ * <p>
+ * Fights are recorded the same way DungeonExplorer records them, written to
+ * a journal file and replayed; a tampered journal must be detected.
+ * </p>
+ */
+public class CombatJournalTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory characterFactory;
+    private MonsterFactory monsterFactory;
+    private Path journalFile;
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        characterFactory = new CharacterFactory();
+        monsterFactory = new MonsterFactory();
+        journalFile = Files.createTempFile("combat", ".journal");
+    }
+
+    /**
+     * Removes the journal file after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(journalFile);
+    }
+
+    /**
+     * Tests that recorded fights replay exactly, and that tampering is detected
+     */
+    @Test
+    public void testReplayMatchesJournal() throws IOException {
+        logger.info("Testing combat journal replay");
+        Character warrior = characterFactory.createCharacter("warrior", "Journal");
+
+        // Small blocks, so that the journal is flushed several times
+        try (CombatJournal journal = new CombatJournal(journalFile, 8)) {
+            for (long stream = 0; stream < 3; stream++) {
+                fight(journal, characterFactory.createCopy(warrior), stream);
+            }
+        }
+
+        List<JournalRecord> records = CombatJournal.read(journalFile);
+        assertEquals(JournalRecord.FIGHT_START, records.get(0).getType());
+        assertEquals(JournalRecord.FIGHT_END, records.get(records.size() - 1).getType());
+
+        CombatReplayer.Report report = new CombatReplayer().replay(journalFile, warrior, "goblin");
+        assertEquals(3, report.getReplayedFights());
+        assertTrue(report.getMismatches().toString(), report.isConsistent());
+
+        // Change the damage of the first attack
+        byte[] bytes = Files.readAllBytes(journalFile);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int attack = 2 * JournalRecord.SIZE;
+        buffer.putInt(attack + 12, buffer.getInt(attack + 12) + 1);
+        Files.write(journalFile, bytes);
+
+        report = new CombatReplayer().replay(journalFile, warrior, "goblin");
+        assertFalse(report.isConsistent());
+        assertEquals(1, report.getMismatches().size());
+    }
+
+    /**
+     * Tests that an in-memory journal keeps only its most recent records
+     */
+    @Test
+    public void testInMemoryJournalIsRing() {
+        logger.info("Testing in-memory journal ring");
+        CombatJournal journal = new CombatJournal(4);
+        Character mage = characterFactory.createCharacter("mage", "Ring");
+        AbstractMonster troll = monsterFactory.createMonster("troll");
+
+        journal.beginFight(1L, 0L, new RandomService(1L).streamFor(0), mage, troll);
+        for (int i = 0; i < 5; i++) {
+            journal.recordAttack(JournalRecord.HERO, i, 100 - i);
+        }
+
+        List<JournalRecord> records = journal.getRecords();
+        assertEquals(7, journal.getRecordCount());
+        assertEquals(4, records.size());
+        assertEquals(1, records.get(0).getDamage());
+        assertEquals(4, records.get(3).getDamage());
+        assertEquals(5, records.get(3).getTurn());
+    }
+
+    /**
+     * Runs a journaled fight with the same turn order as DungeonExplorer
+     */
+    private void fight(CombatJournal journal, Character hero, long stream) {
+        AbstractMonster monster = monsterFactory.createMonster("goblin");
+        CombatSystem combatSystem = new CombatSystem();
+        combatSystem.setJournal(journal);
+        RandomGenerator random = journal.beginFight(42L, stream, new RandomService(42L).streamFor(stream),
+                hero, monster);
+
+        while (hero.isAlive() && monster.isAlive()) {
+            combatSystem.executeAttack(hero, monster, random);
+            if (monster.isAlive()) {
+                combatSystem.executeMonsterAttack(monster, hero, random);
+            }
+        }
+        journal.endFight(hero.isAlive());
+    }
+}
@@ -0,0 +1,99 @@
+import rpg.combat.CombatSimulator;
+import rpg.combat.SimulationResult;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.*;
+
+import java.util.logging.Logger;
+
+/**
+ * CombatSimulatorTest - Integration tests for the headless combat simulator
+ * <p>
+ * These tests run real fights between copies of a character and monsters
+ * created by the MonsterFactory, and verify that the aggregated statistics
+ * are consistent and that the template character is never modified.
+ * </p>
+ */
+public class CombatSimulatorTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private CombatSimulator simulator;
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() {
+        factory = new CharacterFactory();
+        simulator = new CombatSimulator().withRecordedCurves(5);
+    }
+
+    /**
+     * Tests that a simulation produces consistent statistics
+     * <p>
+     * Every fight must appear once in the turn distribution, the win rate
+     * must be a probability and the requested number of health curves must
+     * be recorded, each starting from the template's full health.
+     * </p>
+     */
+    @Test
+    public void testSimulationStatistics() {
+        logger.info("Testing combat simulation statistics");
+        Character warrior = factory.createCharacter("warrior", "Sim");
+
+        SimulationResult result = simulator.simulate(warrior, "goblin", 600);
+
+        assertEquals(600, result.getFights());
+        assertTrue(result.getWinRate() >= 0.0 && result.getWinRate() <= 1.0);
+
+        long counted = 0;
+        for (long fights : result.getTurnDistribution()) {
+            counted += fights;
+        }
+        assertEquals(600, counted);
+
+        assertEquals(5, result.getHpCurves().size());
+        assertEquals(warrior.getMaxHealth(), result.getHpCurves().get(0).getCharacterHealth()[0]);
+    }
+
+    /**
+     * Tests that the template character is not modified by the simulation
+     */
+    @Test
+    public void testTemplateIsNotModified() {
+        logger.info("Testing that simulation leaves the template untouched");
+        Character mage = factory.createCharacter("mage", "Template");
+        int health = mage.getHealth();
+        int stamina = mage.getStamina();
+
+        simulator.simulate(mage, "troll", 300);
+
+        assertEquals(health, mage.getHealth());
+        assertEquals(stamina, mage.getStamina());
+    }
+
+    /**
+     * Tests that two simulations with the same seed give identical results
+     * <p>
+     * Each fight draws from its own random stream derived from the master
+     * seed, so results must not depend on how fights are spread across threads.
+     * </p>
+     */
+    @Test
+    public void testSeededSimulationIsReproducible() {
+        logger.info("Testing seeded simulation reproducibility");
+        Character warrior = factory.createCharacter("warrior", "Seeded");
+
+        SimulationResult first = new CombatSimulator().withSeed(42).simulate(warrior, "troll", 1000);
+        SimulationResult second = new CombatSimulator().withSeed(42).simulate(warrior, "troll", 1000);
+
+        assertEquals(first.getWins(), second.getWins());
+        assertArrayEquals(first.getTurnDistribution(), second.getTurnDistribution());
+        assertArrayEquals(first.getDamageDealtDistribution(), second.getDamageDealtDistribution());
+        assertArrayEquals(first.getDamageTakenDistribution(), second.getDamageTakenDistribution());
+    }
+}
@@ -0,0 +1,111 @@
+import rpg.builder.ConcreteDungeonBuilder;
+import rpg.builder.Dungeon;
+import rpg.builder.ExplorationExecutor;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.output.BufferedOutput;
+import rpg.random.RandomService;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * ExplorationExecutorTest - Tests for concurrent dungeon explorations
+ * <p>
+ * Many sessions run at once on virtual threads; each one must only see
+ * its own input and output, and a seeded executor must produce the same
+ * results whatever the interleaving of the sessions.
+ * </p>
+ */
+public class ExplorationExecutorTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private static final int SESSIONS = 200;
+    private CharacterFactory factory;
+    private Dungeon dungeon;
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() {
+        factory = new CharacterFactory();
+        dungeon = new ConcreteDungeonBuilder().reset().setName("Test Cave").setMonsterType("goblin").build();
+    }
+
+    /**
+     * Tests that sessions keep their own output and are reproducible
+     */
+    @Test
+    public void testConcurrentSessionsAreIsolatedAndReproducible() throws Exception {
+        logger.info("Testing concurrent exploration sessions");
+        List<Boolean> first = runSessions(new ArrayList<>());
+        List<BufferedOutput> outputs = new ArrayList<>();
+        List<Boolean> second = runSessions(outputs);
+
+        assertEquals(first, second);
+        for (int i = 0; i < SESSIONS; i++) {
+            String text = outputs.get(i).getText();
+            assertTrue(text.contains("You are exploring Test Cave"));
+            assertTrue(text.contains(second.get(i) ? "You won!" : "You have been defeated!"));
+        }
+    }
+
+    /**
+     * Tests that a character cannot explore two dungeons at once
+     */
+    @Test
+    public void testCharacterCannotJoinTwoSessions() throws Exception {
+        logger.info("Testing duplicate exploration session");
+        Character warrior = factory.createCharacter("warrior", "Busy");
+        // The first session waits for its commands until they are written below
+        PipedOutputStream commands = new PipedOutputStream();
+        InputStream input = new PipedInputStream(commands);
+
+        try (ExplorationExecutor executor = new ExplorationExecutor(new RandomService(1L))) {
+            CompletableFuture<Boolean> session = executor.submit(warrior, dungeon, input, null);
+            try {
+                executor.submit(warrior, dungeon, new ByteArrayInputStream(new byte[0]), null);
+                fail("Second session for the same character should be rejected");
+            } catch (IllegalStateException expected) {
+                assertEquals(1, executor.getActiveSessions());
+            }
+            commands.write("\n".repeat(100).getBytes());
+            commands.close();
+            session.get();
+            assertEquals(0, executor.getActiveSessions());
+        }
+    }
+
+    /**
+     * Runs one session per character and collects the results in submission order
+     */
+    private List<Boolean> runSessions(List<BufferedOutput> outputs) throws Exception {
+        List<CompletableFuture<Boolean>> sessions = new ArrayList<>();
+        try (ExplorationExecutor executor = new ExplorationExecutor(new RandomService(2024L))) {
+            for (int i = 0; i < SESSIONS; i++) {
+                Character character = factory.createCharacter(i % 2 == 0 ? "warrior" : "mage", "Player" + i);
+                BufferedOutput output = new BufferedOutput();
+                outputs.add(output);
+                InputStream input = new ByteArrayInputStream("\n".repeat(100).getBytes());
+                sessions.add(executor.submit(character, dungeon, input, output));
+            }
+        }
+
+        List<Boolean> results = new ArrayList<>();
+        for (CompletableFuture<Boolean> session : sessions) {
+            results.add(session.get());
+        }
+        return results;
+    }
+}
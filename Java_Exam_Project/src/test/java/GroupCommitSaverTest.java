@@ -0,0 +1,162 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.FsyncPolicy;
+import rpg.rpgIO.GroupCommitSaver;
+import rpg.rpgIO.SlotSaveStore;
+import org.junit.Test;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * GroupCommitSaverTest - Tests for the group-commit saver
+ * <p>
+ * Concurrent saves must all be durable when their callers return, and
+ * the store must be forced once per batch rather than once per save.
+ * </p>
+ */
+public class GroupCommitSaverTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Restores file saves after each test
+     */
+    @After
+    public void tearDown() {
+        CharacterManagement.setRepository(null);
+    }
+
+    /**
+     * Tests that concurrent saves share forces and are all stored
+     */
+    @Test
+    public void testConcurrentSavesShareForces() throws Exception {
+        logger.info("Testing group commit into a slot store");
+        Path storeFile = Files.createTempFile("group", ".slots");
+        Files.delete(storeFile);
+        AtomicInteger forces = new AtomicInteger();
+        int threads = 8;
+        int savesPerThread = 40;
+
+        try (SlotSaveStore store = new SlotSaveStore(storeFile) {
+                @Override
+                public synchronized void flush() {
+                    forces.incrementAndGet();
+                    super.flush();
+                }
+            };
+             GroupCommitSaver saver = new GroupCommitSaver(FsyncPolicy.DATA, 5, 64)) {
+            CharacterManagement.setRepository(store);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                results.add(pool.submit(() -> {
+                    CharacterFactory factory = new CharacterFactory();
+                    boolean all = true;
+                    for (int i = 0; i < savesPerThread; i++) {
+                        Character hero = factory.createCharacter("warrior", "Group" + thread);
+                        all &= saver.commit(hero, "group_" + thread + "_" + i);
+                    }
+                    return all;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+            pool.shutdown();
+
+            assertEquals(threads * savesPerThread, store.keys().size());
+            assertEquals(threads * savesPerThread, saver.getCommittedSaves());
+            assertEquals(saver.getBatches(), forces.get());
+            assertTrue("Saves were not batched: " + forces.get() + " forces",
+                    forces.get() < threads * savesPerThread);
+        } finally {
+            Files.deleteIfExists(storeFile);
+        }
+    }
+
+    /**
+     * Tests that a batch of save files is renamed into place and loads back
+     */
+    @Test
+    public void testBatchOfSaveFiles() throws Exception {
+        logger.info("Testing group commit of save files");
+        CharacterFactory factory = new CharacterFactory();
+        List<Future<Path>> files = new ArrayList<>();
+        try (GroupCommitSaver saver = new GroupCommitSaver(FsyncPolicy.FULL, 50, 16)) {
+            for (int i = 0; i < 5; i++) {
+                files.add(saver.save(factory.createCharacter("mage", "Batched" + i), "group_file_" + i));
+            }
+            // The same save again joins the queued one
+            saver.save(factory.createCharacter("mage", "Renamed"), "group_file_0");
+            for (Future<Path> file : files) {
+                assertTrue(Files.exists(file.get()));
+            }
+            assertEquals(6, saver.getRequestedSaves());
+            assertEquals(5, saver.getCommittedSaves());
+            assertEquals(1, saver.getBatches());
+        }
+
+        Character loaded = CharacterManagement.loadCharacter("group_file_0");
+        assertNotNull(loaded);
+        assertEquals("Renamed", loaded.getName());
+        for (Future<Path> file : files) {
+            Files.deleteIfExists(file.get());
+        }
+    }
+
+    /**
+     * Tests that a DATA batch of save files is made durable through the commit log
+     */
+    @Test
+    public void testDataBatchIsLogged() throws Exception {
+        logger.info("Testing the save commit log");
+        CharacterFactory factory = new CharacterFactory();
+        Path log = Path.of(System.getProperty("game.save.dir"), "saves.commit");
+        List<Future<Path>> files = new ArrayList<>();
+        try (GroupCommitSaver saver = new GroupCommitSaver(FsyncPolicy.DATA, 50, 16)) {
+            for (int i = 0; i < 4; i++) {
+                files.add(saver.save(factory.createCharacter("warrior", "Logged" + i), "logged_file_" + i));
+            }
+            long saved = 0;
+            for (Future<Path> file : files) {
+                saved += Files.size(file.get());
+            }
+            assertEquals(1, saver.getBatches());
+            assertTrue(Files.size(log) > saved);
+        }
+
+        Character loaded = CharacterManagement.loadCharacter("logged_file_3");
+        assertNotNull(loaded);
+        assertEquals("Logged3", loaded.getName());
+        for (Future<Path> file : files) {
+            Files.deleteIfExists(file.get());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import rpg.combat.InitiativeScheduler;
+import rpg.logger.GameLogger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.logging.Logger;
+
+/**
+ * InitiativeSchedulerTest - Tests for the initiative scheduler of horde fights
+ * <p>
+ * Turn order must follow speed, and removed combatants must never act
+ * again, even with hundreds of combatants in the heap.
+ * </p>
+ */
+public class InitiativeSchedulerTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    /**
+     * Tests that faster combatants act proportionally more often
+     */
+    @Test
+    public void testTurnOrderFollowsSpeed() {
+        logger.info("Testing initiative turn order");
+        InitiativeScheduler scheduler = new InitiativeScheduler(2);
+        int fast = scheduler.add(20);
+        int slow = scheduler.add(10);
+
+        int[] actions = new int[2];
+        for (int i = 0; i < 300; i++) {
+            actions[scheduler.next()]++;
+        }
+
+        assertEquals(200, actions[fast]);
+        assertEquals(100, actions[slow]);
+    }
+
+    /**
+     * Tests that removed combatants are skipped lazily in large encounters
+     */
+    @Test
+    public void testRemovedCombatantsNeverAct() {
+        logger.info("Testing lazy removal of combatants");
+        InitiativeScheduler scheduler = new InitiativeScheduler(1);
+        for (int i = 0; i < 500; i++) {
+            scheduler.add(6 + i % 7);
+        }
+        for (int id = 0; id < 500; id += 2) {
+            scheduler.remove(id);
+        }
+        scheduler.remove(0);
+
+        assertEquals(250, scheduler.getActiveCount());
+        long lastTime = 0;
+        for (int i = 0; i < 5000; i++) {
+            int id = scheduler.next();
+            assertTrue("Removed combatant acted: " + id, id % 2 == 1);
+            assertTrue(scheduler.getTime() >= lastTime);
+            lastTime = scheduler.getTime();
+        }
+
+        for (int id = 1; id < 500; id += 2) {
+            scheduler.remove(id);
+        }
+        assertEquals(-1, scheduler.next());
+    }
+}
@@ -0,0 +1,178 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.IntegrityScanner;
+import rpg.rpgIO.SaveCodec;
+import rpg.rpgIO.SaveLayout;
+import rpg.rpgIO.SlotSaveStore;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * IntegrityScannerTest - Tests for the parallel save integrity scanner
+ * <p>
+ * Intact saves must pass, saves without a checksum must be decoded, and
+ * corrupt saves must be reported and, when asked, moved out of the way.
+ * </p>
+ */
+public class IntegrityScannerTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path directory;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Creates an empty save directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        directory = Files.createTempDirectory("integrity");
+    }
+
+    /**
+     * Removes the save directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests scanning a directory, then quarantining its corrupt saves
+     */
+    @Test
+    public void testScanAndQuarantineDirectory() throws IOException {
+        logger.info("Testing integrity scan of a save directory");
+        for (int i = 0; i < 50; i++) {
+            Files.write(directory.resolve("hero" + i + ".save"),
+                    bytes(SaveCodec.encode(factory.createCharacter("warrior", "Hero" + i))));
+        }
+        // Large enough to be memory-mapped
+        Character hoarder = factory.createCharacter("mage", "Hoarder");
+        for (int i = 0; i < 3000; i++) {
+            hoarder.addItem(new Item("Gemma numero " + i, Item.ItemType.MISC, i, 1));
+        }
+        byte[] large = bytes(SaveCodec.encode(hoarder));
+        assertTrue(large.length >= 64 * 1024);
+        Files.write(directory.resolve("hoarder.save"), large);
+
+        byte[] flipped = bytes(SaveCodec.encode(factory.createCharacter("mage", "Flipped")));
+        flipped[flipped.length / 2] ^= 0x10;
+        Files.write(directory.resolve("flipped.save"), flipped);
+        large[large.length / 3] ^= 0x01;
+        Files.write(directory.resolve("torn.save"), large);
+        Files.writeString(directory.resolve("legacy.save"),
+                "name=Vecchio\ntype=Warrior\nhealth=30\nmaxHealth=80\nstamina=20\nmaxStamina=120\n"
+                        + "damage=6\nmoney=12\nlevel=4\n");
+        Files.writeString(directory.resolve("garbage.save"), "name");
+
+        try (IntegrityScanner scanner = new IntegrityScanner(4)) {
+            IntegrityScanner.Report report = scanner.scanDirectory(directory, ".save", SaveLayout.FLAT, null);
+            assertEquals(55, report.getScanned());
+            assertEquals(51, report.getValid());
+            assertEquals(1, report.getUnverified());
+            assertEquals(3, report.getCorrupt());
+            assertEquals(0, report.getQuarantined());
+            assertTrue(report.getCorruptSaves().containsAll(List.of("flipped", "torn", "garbage")));
+
+            Path quarantine = directory.resolve(IntegrityScanner.QUARANTINE_DIR);
+            report = scanner.scanDirectory(directory, ".save", SaveLayout.FLAT, quarantine);
+            assertEquals(3, report.getQuarantined());
+            assertTrue(Files.exists(quarantine.resolve("flipped.save")));
+            assertFalse(Files.exists(directory.resolve("torn.save")));
+
+            report = scanner.scanDirectory(directory, ".save", SaveLayout.FLAT, quarantine);
+            assertEquals(52, report.getScanned());
+            assertEquals(0, report.getCorrupt());
+        }
+    }
+
+    /**
+     * Tests that a corrupt save in a repository is copied out and removed
+     */
+    @Test
+    public void testQuarantineRepository() throws IOException {
+        logger.info("Testing integrity scan of a slot store");
+        Path quarantine = directory.resolve(IntegrityScanner.QUARANTINE_DIR);
+        try (SlotSaveStore store = new SlotSaveStore(directory.resolve("characters.slots"));
+             IntegrityScanner scanner = new IntegrityScanner(2)) {
+            for (int i = 0; i < 20; i++) {
+                store.put("slot" + i, SaveCodec.encode(factory.createCharacter("warrior", "Slot" + i)));
+            }
+            byte[] bad = bytes(SaveCodec.encode(factory.createCharacter("warrior", "Bad")));
+            bad[bad.length - 1] ^= 0x40;
+            store.put("bad", ByteBuffer.wrap(bad));
+
+            IntegrityScanner.Report report = scanner.scanRepository(store, quarantine);
+            assertEquals(21, report.getScanned());
+            assertEquals(20, report.getValid());
+            assertEquals(1, report.getQuarantined());
+            assertFalse(store.contains("bad"));
+            assertArrayEquals(bad, Files.readAllBytes(quarantine.resolve("bad.save")));
+        }
+    }
+
+    /**
+     * Tests that a game save quarantined by scanSaves leaves the save list
+     */
+    @Test
+    public void testQuarantinedGameSaveIsForgotten() throws IOException {
+        logger.info("Testing quarantine of a game save");
+        assertTrue(CharacterManagement.saveCharacter(factory.createCharacter("warrior", "Guasto"), "quarantine_me"));
+        assertNotNull(CharacterManagement.loadCharacter("quarantine_me"));
+        Path saves = Path.of(System.getProperty("game.save.dir"));
+        Path file;
+        try (Stream<Path> files = Files.walk(saves)) {
+            file = files.filter(path -> path.getFileName().toString().equals("quarantine_me.save"))
+                    .findFirst().orElseThrow();
+        }
+        byte[] data = Files.readAllBytes(file);
+        data[data.length / 2] ^= 0x20;
+        Files.write(file, data);
+
+        try (IntegrityScanner scanner = new IntegrityScanner(2)) {
+            assertTrue(scanner.scanSaves(true).getCorruptSaves().contains("quarantine_me"));
+        }
+        assertFalse(Files.exists(file));
+        assertTrue(CharacterManagement.listSaves().stream()
+                .noneMatch(entry -> entry.getSaveName().equals("quarantine_me")));
+        assertNull(CharacterManagement.loadCharacter("quarantine_me"));
+    }
+
+    private static byte[] bytes(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+}
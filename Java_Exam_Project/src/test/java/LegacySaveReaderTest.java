@@ -0,0 +1,134 @@
+import rpg.factory.Character;
+import rpg.factory.Mage;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import org.junit.Test;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * LegacySaveReaderTest - Tests for the fast legacy save reader
+ * <p>
+ * Legacy saves must load with the same values whether they are read by
+ * the fast reader or, for unusual layouts, by Properties.
+ * </p>
+ */
+public class LegacySaveReaderTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Tests saves written by Properties.store, with and without escapes
+     */
+    @Test
+    public void testStoredSaves() throws IOException {
+        logger.info("Testing legacy saves written by Properties.store");
+        Properties mage = mageProperties("Merlino");
+        Mage plain = (Mage) load("legacy_fast", mage);
+        assertEquals("Merlino", plain.getName());
+        assertEquals(35, plain.getHealth());
+        assertEquals(90, plain.getMaxHealth());
+        assertEquals(12, plain.getMana());
+        assertEquals(70, plain.getMaxMana());
+        assertEquals(7, plain.getBaseDamage());
+
+        Mage escaped = (Mage) load("legacy_escaped", mageProperties("Sir:André"));
+        assertEquals("Sir:André", escaped.getName());
+        assertEquals(12, escaped.getMana());
+
+        mage.remove("maxMana");
+        Mage noMaxMana = (Mage) load("legacy_partial", mage);
+        assertEquals(50, noMaxMana.getMana());
+        assertEquals(50, noMaxMana.getMaxMana());
+    }
+
+    /**
+     * Tests hand-written saves that only Properties understands
+     */
+    @Test
+    public void testUnusualLayouts() throws IOException {
+        logger.info("Testing unusual legacy layouts");
+        Character spaced = loadText("legacy_spaced",
+                "! old comment\r\nname=Spazio\r\ntype=Warrior\r\nhealth = 30\r\nmaxHealth:80\r\nlevel=2\r\n");
+        assertEquals("Spazio", spaced.getName());
+        assertEquals(30, spaced.getHealth());
+        assertEquals(80, spaced.getMaxHealth());
+        assertEquals(2, spaced.getLevel());
+
+        Character crlf = loadText("legacy_crlf",
+                "#Character Save\r\nname=Ritorno\r\ntype=Warrior\r\nhealth=44\r\nmaxHealth=90\r\nmoney=+7\r\n");
+        assertEquals(44, crlf.getHealth());
+        assertEquals(7, crlf.getMoney());
+
+        Character overflow = loadText("legacy_overflow",
+                "name=Grande\ntype=Warrior\nhealth=20\nmoney=99999999999\n");
+        assertNotNull(overflow);
+        assertEquals("Grande", overflow.getName());
+        assertNotEquals(20, overflow.getHealth());
+    }
+
+    private static Properties mageProperties(String name) {
+        Properties props = new Properties();
+        props.setProperty("name", name);
+        props.setProperty("type", "Mage");
+        props.setProperty("health", "35");
+        props.setProperty("maxHealth", "90");
+        props.setProperty("stamina", "20");
+        props.setProperty("maxStamina", "110");
+        props.setProperty("damage", "7");
+        props.setProperty("money", "250");
+        props.setProperty("level", "5");
+        props.setProperty("mana", "12");
+        props.setProperty("maxMana", "70");
+        return props;
+    }
+
+    private static Character load(String saveName, Properties props) throws IOException {
+        File file = saveFile(saveName);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            props.store(out, "Character Save");
+        }
+        return loadAndDelete(saveName, file);
+    }
+
+    private static Character loadText(String saveName, String text) throws IOException {
+        File file = saveFile(saveName);
+        Files.writeString(file.toPath(), text, StandardCharsets.ISO_8859_1);
+        return loadAndDelete(saveName, file);
+    }
+
+    private static File saveFile(String saveName) {
+        File dir = new File(System.getProperty("game.save.dir"));
+        dir.mkdirs();
+        return new File(dir, saveName + ".save");
+    }
+
+    private static Character loadAndDelete(String saveName, File file) {
+        try {
+            Character character = CharacterManagement.loadCharacter(saveName);
+            assertNotNull(character);
+            return character;
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.LsmSaveStore;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * LsmSaveStoreTest - Tests for the log-structured save store
+ * <p>
+ * Saves must be found whether they are in the log, in segments or in a
+ * merged segment, removals must stay removed, and a reopened store must
+ * see everything written before it was closed.
+ * </p>
+ */
+public class LsmSaveStoreTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path storeDir;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        storeDir = Files.createTempDirectory("characters-lsm");
+    }
+
+    /**
+     * Restores file saves and removes the store directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        CharacterManagement.setRepository(null);
+        try (Stream<Path> files = Files.walk(storeDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Tests updates and removals across the log, segments and a reopen
+     */
+    @Test
+    public void testSavesSurviveFlushAndReopen() throws IOException {
+        logger.info("Testing LSM store flush and reopen");
+        try (LsmSaveStore store = new LsmSaveStore(storeDir)) {
+            store.put("hero", bytes(10, 'a'));
+            store.put("mage", bytes(20, 'b'));
+            long version = store.getVersion("hero");
+            store.flushMemtable();
+            assertEquals(1, store.getSegmentCount());
+
+            // Newer values in the table hide the segment
+            store.put("hero", bytes(30, 'c'));
+            assertTrue(store.getVersion("hero") > version);
+            assertTrue(store.remove("mage"));
+            assertFalse(store.remove("mage"));
+            store.put("rogue", bytes(5, 'd'));
+
+            assertEquals(bytes(30, 'c'), store.get("hero"));
+            assertNull(store.get("mage"));
+            assertEquals(-1, store.getVersion("mage"));
+            assertEquals(Set.of("hero", "rogue"), store.keys());
+        }
+
+        // The last writes are only in the log and are replayed
+        try (LsmSaveStore store = new LsmSaveStore(storeDir)) {
+            assertEquals(Set.of("hero", "rogue"), store.keys());
+            assertEquals(bytes(30, 'c'), store.get("hero"));
+            assertEquals(bytes(5, 'd'), store.get("rogue"));
+            assertFalse(store.contains("mage"));
+            store.put("paladin", bytes(8, 'e'));
+            assertTrue(store.getVersion("paladin") > store.getVersion("hero"));
+        }
+    }
+
+    /**
+     * Tests that merging segments keeps the newest saves and drops removals
+     */
+    @Test
+    public void testCompactionKeepsNewestSaves() throws IOException {
+        logger.info("Testing LSM store compaction");
+        try (LsmSaveStore store = new LsmSaveStore(storeDir, 4096)) {
+            for (int round = 0; round < 5; round++) {
+                // Saves removed in earlier rounds are not written again
+                for (int i = round; i < 50; i++) {
+                    store.put("save" + i, bytes(20 + round, (char) ('a' + round)));
+                }
+                store.remove("save" + round);
+                store.flushMemtable();
+            }
+            store.compact();
+            assertEquals(1, store.getSegmentCount());
+            assertTrue(store.getCompactionCount() >= 1);
+            assertEquals(45, store.keys().size());
+            assertEquals(bytes(24, 'e'), store.get("save49"));
+            assertNull(store.get("save3"));
+        }
+
+        try (LsmSaveStore store = new LsmSaveStore(storeDir)) {
+            assertEquals(1, store.getSegmentCount());
+            assertEquals(45, store.keys().size());
+            assertEquals(bytes(24, 'e'), store.get("save10"));
+            assertFalse(store.contains("save0"));
+        }
+        try (Stream<Path> files = Files.list(storeDir)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".sst")).count());
+        }
+    }
+
+    /**
+     * Tests that a record cut short at the end of the log is dropped
+     */
+    @Test
+    public void testTornLogTailIsDropped() throws IOException {
+        logger.info("Testing LSM store torn log recovery");
+        try (LsmSaveStore store = new LsmSaveStore(storeDir)) {
+            store.put("hero", bytes(10, 'a'));
+            store.put("mage", bytes(200, 'b'));
+        }
+        List<Path> logs;
+        try (Stream<Path> files = Files.list(storeDir)) {
+            logs = files.filter(file -> file.toString().endsWith(".log") && file.toFile().length() > 0)
+                    .collect(Collectors.toList());
+        }
+        assertEquals(1, logs.size());
+        try (FileChannel channel = FileChannel.open(logs.get(0), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 50);
+        }
+
+        try (LsmSaveStore store = new LsmSaveStore(storeDir)) {
+            assertEquals(bytes(10, 'a'), store.get("hero"));
+            assertNull(store.get("mage"));
+            store.put("mage", bytes(15, 'c'));
+        }
+        try (LsmSaveStore store = new LsmSaveStore(storeDir)) {
+            assertEquals(bytes(15, 'c'), store.get("mage"));
+        }
+    }
+
+    /**
+     * Tests that CharacterManagement saves into and loads from the store
+     */
+    @Test
+    public void testCharacterManagementUsesRepository() throws IOException {
+        logger.info("Testing character saves through the LSM store");
+        try (LsmSaveStore store = new LsmSaveStore(storeDir)) {
+            CharacterManagement.setRepository(store);
+
+            Character mage = factory.createCharacter("mage", "Logged");
+            assertTrue(CharacterManagement.saveCharacter(mage, "logged"));
+            assertTrue(store.contains("logged"));
+            assertArrayEquals(new String[] {"logged"}, CharacterManagement.listSaveFiles());
+
+            Character loaded = CharacterManagement.loadCharacter("logged");
+            assertNotNull(loaded);
+            assertEquals("Logged", loaded.getName());
+            long hits = CharacterManagement.getCache().getHits();
+            assertNotNull(CharacterManagement.loadCharacter("logged"));
+            assertEquals(hits + 1, CharacterManagement.getCache().getHits());
+            assertNull(CharacterManagement.loadCharacter("missing"));
+        }
+    }
+
+    private static ByteBuffer bytes(int length, char fill) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) fill);
+        return ByteBuffer.wrap(data);
+    }
+}
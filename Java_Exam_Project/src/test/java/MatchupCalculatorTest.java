@@ -0,0 +1,91 @@
+import rpg.combat.CombatSimulator;
+import rpg.combat.MatchupCalculator;
+import rpg.combat.MatchupOdds;
+import rpg.combat.SimulationResult;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.*;
+
+import java.util.logging.Logger;
+
+/**
+ * MatchupCalculatorTest - Tests for the exact matchup calculator
+ * <p>
+ * The exact odds are compared with a seeded Monte Carlo simulation of the
+ * same matchup: with enough fights the simulated win rate and average fight
+ * length must be close to the computed values.
+ * </p>
+ */
+public class MatchupCalculatorTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private MatchupCalculator calculator;
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() {
+        factory = new CharacterFactory();
+        calculator = new MatchupCalculator();
+    }
+
+    /**
+     * Tests that exact odds agree with a simulation of the same matchup
+     */
+    @Test
+    public void testOddsMatchSimulation() {
+        logger.info("Testing exact odds against simulation");
+        Character mage = factory.createCustomMage("Odds", 20, 80, 120, 120, 4, 0, 1, 20, 50);
+
+        MatchupOdds odds = calculator.calculate(mage, "troll");
+        SimulationResult simulated = new CombatSimulator().withSeed(7).simulate(mage, "troll", 20000);
+
+        assertTrue(odds.getWinProbability() > 0.0 && odds.getWinProbability() < 1.0);
+        assertEquals(odds.getWinProbability(), simulated.getWinRate(), 0.02);
+        assertEquals(odds.getExpectedTurns(), simulated.getAverageTurns(), 0.1);
+    }
+
+    /**
+     * Tests that repeated queries with the same stats hit the cache
+     */
+    @Test
+    public void testResultsAreCachedPerStatKey() {
+        logger.info("Testing matchup cache");
+        Character first = factory.createCharacter("warrior", "First");
+        Character second = factory.createCharacter("warrior", "Second");
+
+        MatchupOdds odds = calculator.calculate(first, "goblin");
+
+        assertSame(odds, calculator.calculate(second, "goblin"));
+        assertEquals(1, calculator.getCacheSize());
+    }
+
+    /**
+     * Tests that large stats are solved without deep recursion
+     */
+    @Test
+    public void testLargeHealthDoesNotOverflow() {
+        logger.info("Testing matchup with a very large health pool");
+        Character tank = factory.createCustomCharacter("warrior", "Tank", 20000, 20000, 0, 100, 8, 0, 1);
+
+        MatchupOdds odds = calculator.calculate(tank, "goblin");
+
+        // Without stamina the warrior never attacks, so only the goblin's hits count
+        assertEquals(0.0, odds.getWinProbability(), 0.0);
+        assertTrue(odds.getExpectedTurns() > 3000);
+    }
+
+    /**
+     * Tests that an unknown monster type is rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownMonsterIsRejected() {
+        logger.info("Testing matchup against an unknown monster");
+        calculator.calculate(factory.createCharacter("mage", "Curioso"), "dragon");
+    }
+}
@@ -0,0 +1,187 @@
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factory.Mage;
+import rpg.iterator.Inventory;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.output.NullOutput;
+import rpg.output.OutputContext;
+import rpg.random.RandomService;
+import rpg.rpgIO.FsyncPolicy;
+import rpg.rpgIO.MutationJournal;
+import rpg.strategy.SortByNameStrategy;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * MutationJournalTest - Tests for the character mutation journal
+ * <p>
+ * Changes recorded by the journal must rebuild the same characters after a
+ * restart, with or without a snapshot in between, and a snapshot must let
+ * the journal drop the segments it covers.
+ * </p>
+ */
+public class MutationJournalTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path directory;
+
+    /**
+     * Creates an empty journal directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        directory = Files.createTempDirectory("rpg-journal");
+    }
+
+    /**
+     * Removes the journal directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests that replaying the journal rebuilds every change
+     */
+    @Test
+    public void testReplayRebuildsCharacters() throws IOException {
+        logger.info("Testing mutation journal replay");
+        Character warrior = factory.createCharacter("warrior", "Walter");
+        Character mage = factory.createCharacter("mage", "Mira");
+        Item sword = new Item("Spada", Item.ItemType.WEAPON, 50, 5);
+
+        try (MutationJournal journal = new MutationJournal(directory, 4, FsyncPolicy.NONE, factory)) {
+            journal.track("walter", warrior);
+            journal.track("mira", mage);
+            OutputContext.runWith(NullOutput.INSTANCE, () -> {
+                warrior.takeDamage(17);
+                warrior.train();
+                warrior.addItem(sword);
+                warrior.equipItem(sword);
+                warrior.restoreStamina(-7);
+                mage.attack(new RandomService(3L).streamFor(0));
+                mage.takeDamage(4);
+            });
+        }
+
+        try (MutationJournal journal = new MutationJournal(directory, 4, FsyncPolicy.NONE, factory)) {
+            assertSameState(warrior, journal.recover("walter"));
+            assertSameState(mage, journal.recover("mira"));
+            assertEquals(2, journal.recoverAll().size());
+            assertNull(journal.recover("nobody"));
+        }
+    }
+
+    /**
+     * Tests that equipping after a sort and removing through the iterator replay the same items
+     */
+    @Test
+    public void testReplayFollowsItemsNotPositions() throws IOException {
+        logger.info("Testing mutation journal item identity");
+        Character warrior = factory.createCharacter("warrior", "Ivar");
+        Item axe = new Item("Ascia", Item.ItemType.WEAPON, 80, 9);
+        Item club = new Item("Zappa", Item.ItemType.WEAPON, 5, 1);
+
+        try (MutationJournal journal = new MutationJournal(directory, 1, FsyncPolicy.NONE, factory)) {
+            journal.track("ivar", warrior);
+            Inventory inventory = ((AbstractCharacter) warrior).getInventory();
+            OutputContext.runWith(NullOutput.INSTANCE, () -> {
+                warrior.addItem(club);
+                warrior.addItem(axe);
+                inventory.setSortStrategy(new SortByNameStrategy());
+                inventory.sort();
+                warrior.equipItem(axe);
+                Iterator<Item> items = inventory.iterator();
+                while (items.hasNext()) {
+                    if (items.next() == club) {
+                        items.remove();
+                    }
+                }
+            });
+        }
+
+        try (MutationJournal journal = new MutationJournal(directory, 1, FsyncPolicy.NONE, factory)) {
+            Character recovered = journal.recover("ivar");
+            assertSameState(warrior, recovered);
+            Inventory inventory = ((AbstractCharacter) recovered).getInventory();
+            assertTrue(inventory.isEquipped(axe));
+            assertFalse(inventory.getAllItems().contains(club));
+        }
+    }
+
+    /**
+     * Tests that a snapshot removes the covered segments and recovery replays only the tail
+     */
+    @Test
+    public void testSnapshotTruncatesSegments() throws Exception {
+        logger.info("Testing mutation journal snapshots");
+        Character warrior = factory.createCharacter("warrior", "Sasha");
+        Character retired = factory.createCharacter("mage", "Old");
+
+        try (MutationJournal journal = new MutationJournal(directory, 2, FsyncPolicy.DATA, factory)) {
+            journal.track("sasha", warrior);
+            journal.track("old", retired);
+            OutputContext.runWith(NullOutput.INSTANCE, () -> retired.takeDamage(10));
+            assertTrue(journal.untrack("old"));
+            OutputContext.runWith(NullOutput.INSTANCE, () -> {
+                retired.takeDamage(10); // No longer recorded
+                for (int i = 0; i < 20; i++) {
+                    warrior.takeDamage(1);
+                }
+            });
+
+            journal.snapshot().get();
+            assertEquals(0, journal.getSegmentCount());
+
+            OutputContext.runWith(NullOutput.INSTANCE, () -> warrior.train());
+            journal.flush();
+            assertEquals(1, journal.getSegmentCount());
+        }
+
+        try (MutationJournal journal = new MutationJournal(directory, 8, FsyncPolicy.DATA, factory)) {
+            assertEquals(2, journal.getShardCount());
+            assertSameState(warrior, journal.recover("sasha"));
+            assertEquals(retired.getHealth() + 10, journal.recover("old").getHealth());
+        }
+    }
+
+    private static void assertSameState(Character expected, Character actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getHealth(), actual.getHealth());
+        assertEquals(expected.getMaxHealth(), actual.getMaxHealth());
+        assertEquals(expected.getStamina(), actual.getStamina());
+        assertEquals(expected.getMaxStamina(), actual.getMaxStamina());
+        assertEquals(expected.getBaseDamage(), actual.getBaseDamage());
+        assertEquals(expected.getMoney(), actual.getMoney());
+        assertEquals(expected.getLevel(), actual.getLevel());
+        if (expected instanceof Mage mage) {
+            assertEquals(mage.getMana(), ((Mage) actual).getMana());
+            assertEquals(mage.getMaxMana(), ((Mage) actual).getMaxMana());
+        }
+        AbstractCharacter source = (AbstractCharacter) expected;
+        AbstractCharacter copy = (AbstractCharacter) actual;
+        assertEquals(source.getInventory().getSize(), copy.getInventory().getSize());
+        assertEquals(source.getInventory().getTotalStatBonus(), copy.getInventory().getTotalStatBonus());
+    }
+}
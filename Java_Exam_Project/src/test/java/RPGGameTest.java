@@ -195,4 +195,35 @@ public class RPGGameTest {
             fail("Dungeon builder failed");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that derived stats follow equipment changes and training
+     * <p>
+     * The effective damage must include the bonus of equipped items, must
+     * replace the bonus of an item of the same type when a new one is
+     * equipped, and must include the damage gained by training.
+     * </p>
+     */
+    @Test
+    public void testDerivedStatsFollowEquipment() {
+        logger.info("Testing derived character stats");
+        Warrior warrior = (Warrior) factory.createCharacter("warrior", "Stats");
+        int baseDamage = warrior.getBaseDamage();
+
+        Item sword = new Item("Sword", Item.ItemType.WEAPON, 20, 3);
+        Item axe = new Item("Big Axe", Item.ItemType.WEAPON, 30, 5);
+        warrior.addItem(sword);
+        warrior.addItem(axe);
+
+        warrior.equipItem(sword);
+        assertEquals(baseDamage + 3, warrior.getStats().getEffectiveDamage());
+
+        warrior.equipItem(axe);
+        assertEquals(5, warrior.getStats().getEquipmentBonus());
+        assertEquals(baseDamage + 5, warrior.getStats().getEffectiveDamage());
+
+        warrior.train();
+        assertEquals(warrior.getBaseDamage() + 5, warrior.getStats().getEffectiveDamage());
+        assertEquals(50, warrior.getInventory().getTotalValue());
+    }
+}
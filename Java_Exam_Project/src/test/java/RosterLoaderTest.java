@@ -0,0 +1,135 @@
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factory.Mage;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.RosterLoader;
+import rpg.rpgIO.SaveCodec;
+import rpg.rpgIO.SlotSaveStore;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * RosterLoaderTest - Tests for the parallel bulk loader
+ * <p>
+ * Every valid save of a directory or slot store must reach the consumer
+ * exactly once, and broken saves must be reported instead of stopping the
+ * load.
+ * </p>
+ */
+public class RosterLoaderTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path directory;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Creates an empty save directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        directory = Files.createTempDirectory("rpg-roster");
+    }
+
+    /**
+     * Removes the save directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests loading a directory with binary, legacy and broken saves
+     */
+    @Test
+    public void testLoadDirectory() throws IOException {
+        logger.info("Testing bulk load of a save directory");
+        for (int i = 0; i < 200; i++) {
+            Character hero = i % 2 == 0
+                    ? factory.createCustomCharacter("warrior", "Hero" + i, 50, 100, 30, 50, 8, i, 3)
+                    : factory.createCustomMage("Mage" + i, 40, 80, 60, 120, 4, i, 2, 10, 60);
+            hero.addItem(new Item("Anello", Item.ItemType.MISC, 3, 1));
+            Files.write(directory.resolve("hero" + i + ".save"), bytes(SaveCodec.encode(hero)));
+        }
+        Files.writeString(directory.resolve("legacy.save"),
+                "name=Vecchio\ntype=Mage\nhealth=30\nmaxHealth=80\nstamina=20\nmaxStamina=120\n"
+                        + "damage=6\nmoney=12\nlevel=4\nmana=7\nmaxMana=70\n");
+        Files.writeString(directory.resolve("broken.save"), "RPGS garbage");
+        Files.writeString(directory.resolve("readme.txt"), "ignored");
+
+        Map<String, Character> roster = new ConcurrentHashMap<>();
+        RosterLoader.Report report;
+        try (RosterLoader loader = new RosterLoader(4)) {
+            report = loader.loadDirectory(directory, ".save", roster::put);
+        }
+
+        assertEquals(201, report.getLoaded());
+        assertEquals(1, report.getFailed());
+        assertEquals("broken", report.getFailedSaves().get(0));
+        assertEquals(201, roster.size());
+        assertEquals(37, roster.get("hero37").getMoney());
+        assertEquals(1, ((AbstractCharacter) roster.get("hero37")).getInventory().getSize());
+
+        Mage legacy = (Mage) roster.get("legacy");
+        assertEquals("Vecchio", legacy.getName());
+        assertEquals(4, legacy.getLevel());
+        assertEquals(7, legacy.getMana());
+    }
+
+    /**
+     * Tests loading a slot store
+     */
+    @Test
+    public void testLoadStore() throws IOException {
+        logger.info("Testing bulk load of a slot store");
+        Map<String, Character> roster = new ConcurrentHashMap<>();
+        try (SlotSaveStore store = new SlotSaveStore(directory.resolve("characters.slots"));
+             RosterLoader loader = new RosterLoader(2)) {
+            for (int i = 0; i < 30; i++) {
+                store.put("slot" + i, SaveCodec.encode(factory.createCharacter("warrior", "Slot" + i)));
+            }
+            RosterLoader.Report report = loader.loadStore(store, roster::put);
+            assertEquals(30, report.getLoaded());
+            assertEquals(0, report.getFailed());
+        }
+        assertEquals("Slot12", roster.get("slot12").getName());
+    }
+
+    private static byte[] bytes(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+}
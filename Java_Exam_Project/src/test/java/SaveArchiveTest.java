@@ -0,0 +1,258 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.SaveArchive;
+import rpg.rpgIO.SaveCodec;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * SaveArchiveTest - Tests for the compressed save archive
+ * <p>
+ * Archived saves must read back byte for byte after the archive is
+ * reopened or compacted, take much less space than the save files, and
+ * move back to the save directory when they are loaded.
+ * </p>
+ */
+public class SaveArchiveTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private Path directory;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Creates an empty directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rpg-archive");
+    }
+
+    /**
+     * Removes the directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests that legacy text saves shrink and read back unchanged
+     */
+    @Test
+    public void testCompressesAndReadsBack() throws IOException {
+        logger.info("Testing save archive compression");
+        Map<String, ByteBuffer> saves = new LinkedHashMap<>();
+        long rawBytes = 0;
+        for (int i = 0; i < 2000; i++) {
+            String text = "#Character Save\n#Mon Jan 01 12:00:00 CET 2024\nname=Hero" + i
+                    + "\ntype=" + (i % 3 == 0 ? "Mage" : "Warrior") + "\nhealth=" + (40 + i % 60)
+                    + "\nmaxHealth=100\nstamina=" + (i % 50) + "\nmaxStamina=50\ndamage=" + (5 + i % 7)
+                    + "\nmoney=" + (i * 13 % 1000) + "\nlevel=" + (1 + i % 20) + "\n";
+            saves.put("hero" + i, ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)));
+            rawBytes += text.length();
+        }
+
+        List<ByteBuffer> samples = new ArrayList<>(saves.values()).subList(0, 200);
+        Path file = directory.resolve(SaveArchive.FILE_NAME);
+        try (SaveArchive archive = new SaveArchive(file, SaveArchive.trainDictionary(samples, 4096))) {
+            archive.putAll(saves);
+            assertEquals(2000, archive.size());
+            logger.info("Archived " + rawBytes + " bytes into " + archive.getFileSize());
+            assertTrue(archive.getFileSize() * 3 < rawBytes);
+        }
+
+        try (SaveArchive archive = new SaveArchive(file)) {
+            assertEquals(2000, archive.size());
+            for (String key : List.of("hero0", "hero777", "hero1999")) {
+                assertEquals(saves.get(key).rewind(), archive.get(key));
+            }
+            assertNull(archive.get("nobody"));
+        }
+    }
+
+    /**
+     * Tests removal, replacement, compaction and a torn last record
+     */
+    @Test
+    public void testRemoveCompactAndTornTail() throws IOException {
+        logger.info("Testing save archive maintenance");
+        CharacterFactory factory = new CharacterFactory();
+        Path file = directory.resolve(SaveArchive.FILE_NAME);
+        ByteBuffer mage = SaveCodec.encode(factory.createCharacter("mage", "Merlino"));
+        ByteBuffer warrior = SaveCodec.encode(factory.createCharacter("warrior", "Conan"));
+
+        try (SaveArchive archive = new SaveArchive(file, SaveArchive.trainDictionary(List.of(mage, warrior), 1024))) {
+            archive.put("a", mage);
+            archive.put("b", warrior);
+            archive.put("a", warrior);
+            assertTrue(archive.remove("b"));
+            assertFalse(archive.remove("b"));
+            long before = archive.getFileSize();
+            archive.compact();
+            assertTrue(archive.getFileSize() < before);
+            assertEquals(warrior.rewind(), archive.get("a"));
+            archive.put("c", mage);
+        }
+
+        long size = Files.size(file);
+        try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 2);
+        }
+        try (SaveArchive archive = new SaveArchive(file)) {
+            assertEquals(1, archive.size());
+            assertTrue(archive.contains("a"));
+            assertFalse(archive.contains("c"));
+        }
+    }
+
+    /**
+     * Tests that damage in the middle is skipped while a torn last body is truncated
+     */
+    @Test
+    public void testDamagedRecordsAreSkippedOrTruncated() throws IOException {
+        logger.info("Testing save archive damage handling");
+        CharacterFactory factory = new CharacterFactory();
+        Path file = directory.resolve(SaveArchive.FILE_NAME);
+        ByteBuffer mage = SaveCodec.encode(factory.createCharacter("mage", "Merlino"));
+        ByteBuffer warrior = SaveCodec.encode(factory.createCharacter("warrior", "Conan"));
+        long[] bounds = new long[4];
+        try (SaveArchive archive = new SaveArchive(file, SaveArchive.trainDictionary(List.of(mage, warrior), 1024))) {
+            bounds[0] = archive.getFileSize();
+            archive.put("first", mage);
+            bounds[1] = archive.getFileSize();
+            archive.put("second", warrior);
+            bounds[2] = archive.getFileSize();
+            archive.put("third", mage);
+            bounds[3] = archive.getFileSize();
+        }
+
+        // The last body torn by a crash: the file keeps its size
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x01;
+        // A bit flipped in the key of the second record
+        bytes[(int) bounds[1] + 5] ^= 0x04;
+        Files.write(file, bytes);
+
+        try (SaveArchive archive = new SaveArchive(file)) {
+            assertEquals(1, archive.size());
+            assertEquals(mage.rewind(), archive.get("first"));
+            assertEquals(bounds[2], archive.getFileSize());
+            archive.put("third", mage);
+        }
+
+        // A bit flipped in the compressed data of the first record
+        bytes = Files.readAllBytes(file);
+        bytes[(int) bounds[1] - 1] ^= 0x01;
+        Files.write(file, bytes);
+        try (SaveArchive archive = new SaveArchive(file)) {
+            assertEquals(2, archive.size());
+            assertEquals(mage.rewind(), archive.get("third"));
+            try {
+                archive.get("first");
+                fail("Damaged save read");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("checksum"));
+            }
+        }
+    }
+
+    /**
+     * Tests that an archive written without checksums is upgraded when opened
+     */
+    @Test
+    public void testUpgradesVersion1Archive() throws IOException {
+        logger.info("Testing save archive upgrade");
+        ByteBuffer save = SaveCodec.encode(new CharacterFactory().createCharacter("warrior", "Antico"));
+        byte[] raw = new byte[save.remaining()];
+        save.duplicate().get(raw);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] compressed = new byte[raw.length + 64];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+
+        ByteBuffer old = ByteBuffer.allocate(64 + length);
+        old.put(new byte[] {'R', 'P', 'G', 'A', 1, 0});
+        old.put((byte) 3).put("old".getBytes(StandardCharsets.UTF_8));
+        putVarint(old, raw.length + 1);
+        putVarint(old, length);
+        old.put(compressed, 0, length).flip();
+        Path file = directory.resolve(SaveArchive.FILE_NAME);
+        try (var channel = Files.newByteChannel(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(old);
+        }
+
+        try (SaveArchive archive = new SaveArchive(file)) {
+            assertEquals(save.rewind(), archive.get("old"));
+        }
+        assertEquals(2, Files.readAllBytes(file)[4]);
+        try (SaveArchive archive = new SaveArchive(file)) {
+            assertEquals(save.rewind(), archive.get("old"));
+        }
+    }
+
+    /**
+     * Tests moving a save to the archive and loading it back
+     */
+    @Test
+    public void testArchiveAndLoadBack() {
+        logger.info("Testing archived save loading");
+        Character hero = new CharacterFactory().createCustomCharacter("warrior", "Dormiente", 70, 100, 20, 50, 9, 321, 6);
+        hero.addItem(new Item("Scudo", Item.ItemType.ARMOR, 4, 30));
+        assertTrue(CharacterManagement.saveCharacter(hero, "archive_cold"));
+
+        assertEquals(1, CharacterManagement.archiveSaves(List.of("archive_cold", "archive_missing")));
+        assertFalse(List.of(CharacterManagement.listSaveFiles()).contains("archive_cold"));
+
+        Character loaded = CharacterManagement.loadCharacter("archive_cold");
+        assertNotNull(loaded);
+        assertEquals(321, loaded.getMoney());
+        assertTrue(List.of(CharacterManagement.listSaveFiles()).contains("archive_cold"));
+        assertFalse(CharacterManagement.restoreSave("archive_cold"));
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,190 @@
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.SaveBackup;
+import rpg.rpgIO.SaveCodec;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * SaveBackupTest - Tests for streaming save backups over sockets
+ * <p>
+ * A backup must arrive byte for byte, must show the saves as they were
+ * when the snapshot was taken, and a malformed stream must never leave
+ * files behind on the receiving side.
+ * </p>
+ */
+public class SaveBackupTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path directory;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Creates an empty working directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        directory = Files.createTempDirectory("backup");
+    }
+
+    /**
+     * Removes the working directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests a TCP backup that must match the snapshot, not later saves
+     */
+    @Test
+    public void testBackupOverTcpIsPointInTime() throws Exception {
+        logger.info("Testing save backup over TCP");
+        Path saves = Files.createDirectories(directory.resolve("saves"));
+        for (int i = 0; i < 20; i++) {
+            Files.write(saves.resolve("hero" + i + ".save"),
+                    bytes(SaveCodec.encode(factory.createCharacter("warrior", "Hero" + i))));
+        }
+        Files.createDirectories(saves.resolve("ab"));
+        Files.write(saves.resolve("ab/sharded.save"), bytes(SaveCodec.encode(factory.createCharacter("mage", "Shard"))));
+        byte[] original = Files.readAllBytes(saves.resolve("hero0.save"));
+        Files.writeString(saves.resolve("wal.log"), "before");
+
+        Path target = directory.resolve("restored");
+        try (ServerSocketChannel server = SaveBackup.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             SaveBackup.Snapshot snapshot = SaveBackup.snapshot(saves)) {
+            // Replaced, appended and created after the snapshot
+            Files.write(saves.resolve("hero0.save.tmp"), bytes(SaveCodec.encode(factory.createCharacter("mage", "Other"))));
+            Files.move(saves.resolve("hero0.save.tmp"), saves.resolve("hero0.save"),
+                    StandardCopyOption.REPLACE_EXISTING);
+            Files.writeString(saves.resolve("wal.log"), " and after", StandardOpenOption.APPEND);
+            Files.writeString(saves.resolve("late.save"), "late");
+
+            CompletableFuture<Path> received = CompletableFuture.supplyAsync(() -> receive(server, target));
+            long sent;
+            try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                sent = SaveBackup.send(snapshot, channel);
+            }
+            assertEquals(target.toAbsolutePath(), received.get());
+            assertEquals(snapshot.getLength(), sent);
+            assertEquals(22, snapshot.getFileCount());
+        }
+
+        assertArrayEquals(original, Files.readAllBytes(target.resolve("hero0.save")));
+        assertEquals("before", Files.readString(target.resolve("wal.log")));
+        assertArrayEquals(Files.readAllBytes(saves.resolve("ab/sharded.save")),
+                Files.readAllBytes(target.resolve("ab/sharded.save")));
+        assertFalse(Files.exists(target.resolve("late.save")));
+        try (Stream<Path> files = Files.list(saves)) {
+            assertTrue(files.noneMatch(path -> path.getFileName().toString().startsWith(".backup-")));
+        }
+    }
+
+    /**
+     * Tests exporting over a Unix-domain socket
+     */
+    @Test
+    public void testExportOverUnixSocket() throws Exception {
+        logger.info("Testing save backup over a Unix-domain socket");
+        Path saves = Files.createDirectories(directory.resolve("saves"));
+        for (int i = 0; i < 5; i++) {
+            Files.write(saves.resolve("mage" + i + ".save"),
+                    bytes(SaveCodec.encode(factory.createCharacter("mage", "Mage" + i))));
+        }
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(directory.resolve("backup.sock"));
+        Path target = directory.resolve("restored");
+        try (ServerSocketChannel server = SaveBackup.bind(address)) {
+            CompletableFuture<Path> received = CompletableFuture.supplyAsync(() -> receive(server, target));
+            SaveBackup.export(saves, address);
+            received.get();
+        }
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(Files.readAllBytes(saves.resolve("mage" + i + ".save")),
+                    Files.readAllBytes(target.resolve("mage" + i + ".save")));
+        }
+    }
+
+    /**
+     * Tests that a path escaping the target is rejected and nothing is left behind
+     */
+    @Test
+    public void testRejectsPathTraversal() throws Exception {
+        logger.info("Testing save backup path validation");
+        Path target = directory.resolve("restored");
+        byte[] name = "../escaped.save".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer stream = ByteBuffer.allocate(64);
+        stream.put(new byte[] {'R', 'P', 'G', 'B', 1}).putShort((short) name.length).put(name).putLong(4)
+                .put(new byte[] {1, 2, 3, 4}).flip();
+
+        try (ServerSocketChannel server = SaveBackup.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            CompletableFuture<Path> received = CompletableFuture.supplyAsync(() -> receive(server, target));
+            try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+                while (stream.hasRemaining()) {
+                    channel.write(stream);
+                }
+            }
+            try {
+                received.get();
+                fail("Path traversal accepted");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause().getMessage().contains("Invalid entry"));
+            }
+        }
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(directory.resolve("restored.partial")));
+        assertFalse(Files.exists(directory.resolve("escaped.save")));
+    }
+
+    private static Path receive(ServerSocketChannel server, Path target) {
+        try {
+            return SaveBackup.receive(server, target);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,163 @@
+import rpg.factory.AbstractCharacter;
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.factory.Mage;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.SaveCodec;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * SaveCodecTest - Tests for the binary save format
+ * <p>
+ * Saves must keep the whole character, including its inventory and
+ * equipped items, and legacy Properties saves must still load.
+ * </p>
+ */
+public class SaveCodecTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() {
+        factory = new CharacterFactory();
+    }
+
+    /**
+     * Tests that a geared mage survives an encode/decode round trip
+     */
+    @Test
+    public void testRoundTripKeepsInventory() throws IOException {
+        logger.info("Testing binary save round trip");
+        Character mage = factory.createCustomMage("Zoë", 37, 80, 90, 120, 4, 1234, 7, 15, 50);
+        Item staff = new Item("Bastone di Frassino", Item.ItemType.WEAPON, 80, 6);
+        Item robe = new Item("Robe", Item.ItemType.ARMOR, 40, 2);
+        Item cursed = new Item("Cursed Ring", Item.ItemType.MISC, 5, -3);
+        mage.addItem(staff);
+        mage.addItem(robe);
+        mage.addItem(cursed);
+        mage.equipItem(staff);
+
+        Character loaded = SaveCodec.decode(SaveCodec.encode(mage), factory);
+
+        assertTrue(loaded instanceof Mage);
+        assertEquals("Zoë", loaded.getName());
+        assertEquals(37, loaded.getHealth());
+        assertEquals(120, loaded.getMaxStamina());
+        assertEquals(1234, loaded.getMoney());
+        assertEquals(7, loaded.getLevel());
+        assertEquals(15, ((Mage) loaded).getMana());
+        assertEquals(50, ((Mage) loaded).getMaxMana());
+
+        AbstractCharacter restored = (AbstractCharacter) loaded;
+        assertEquals(3, restored.getInventory().getSize());
+        assertEquals(-3, restored.getInventory().getAllItems().get(2).getStatBonus());
+        assertTrue(restored.getInventory().isEquipped(staff));
+        assertFalse(restored.getInventory().isEquipped(robe));
+        assertEquals(((AbstractCharacter) mage).getStats().getEffectiveDamage(),
+                restored.getStats().getEffectiveDamage());
+    }
+
+    /**
+     * Tests that truncated saves are rejected instead of loading half a character
+     */
+    @Test(expected = IOException.class)
+    public void testTruncatedSaveIsRejected() throws IOException {
+        Character warrior = factory.createCharacter("warrior", "Cut");
+        warrior.addItem(new Item("Sword", Item.ItemType.WEAPON, 10, 2));
+        ByteBuffer data = SaveCodec.encode(warrior);
+        data.limit(data.limit() - 3);
+        SaveCodec.decode(data, factory);
+    }
+
+    /**
+     * Tests that a save with a flipped bit fails its checksum instead of loading
+     */
+    @Test
+    public void testFlippedBitIsRejected() {
+        Character warrior = factory.createCustomCharacter("warrior", "Flip", 50, 100, 30, 50, 8, 250, 3);
+        ByteBuffer data = SaveCodec.encode(warrior);
+        assertTrue(SaveCodec.checksumMatches(data));
+
+        // Money 250 -> 251 still decodes as a valid field, only the checksum catches it
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        int money = bytes.length - 4 - 4; // Before the checksum, item count, level and the 2-byte money
+        bytes[money] ^= 1;
+        ByteBuffer flipped = ByteBuffer.wrap(bytes);
+        assertFalse(SaveCodec.checksumMatches(flipped));
+        try {
+            SaveCodec.decode(flipped, factory);
+            fail("Corrupted save was decoded");
+        } catch (IOException e) {
+            assertEquals("Save checksum mismatch", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that saves go through the binary codec and legacy saves still load
+     */
+    @Test
+    public void testLegacyAndBinarySavesLoad() throws IOException {
+        logger.info("Testing legacy save fallback");
+        File dir = new File(System.getProperty("game.save.dir"));
+        dir.mkdirs();
+
+        Properties props = new Properties();
+        props.setProperty("name", "Vecchio");
+        props.setProperty("type", "Warrior");
+        props.setProperty("health", "42");
+        props.setProperty("maxHealth", "120");
+        props.setProperty("stamina", "50");
+        props.setProperty("maxStamina", "100");
+        props.setProperty("damage", "9");
+        props.setProperty("money", "300");
+        props.setProperty("level", "3");
+        File legacy = new File(dir, "legacy_test.save");
+        try (FileOutputStream out = new FileOutputStream(legacy)) {
+            props.store(out, "Character Save");
+        }
+
+        try {
+            Character old = CharacterManagement.loadCharacter("legacy_test");
+            assertNotNull(old);
+            assertEquals("Vecchio", old.getName());
+            assertEquals(42, old.getHealth());
+            assertEquals(3, old.getLevel());
+
+            old.addItem(new Item("Axe", Item.ItemType.WEAPON, 20, 4));
+            assertTrue(CharacterManagement.saveCharacter(old, "legacy_test"));
+            Character reloaded = CharacterManagement.loadCharacter("legacy_test");
+            assertEquals(1, ((AbstractCharacter) reloaded).getInventory().getSize());
+            assertEquals(42, reloaded.getHealth());
+        } finally {
+            legacy.delete();
+        }
+    }
+}
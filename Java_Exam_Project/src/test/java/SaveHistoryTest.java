@@ -0,0 +1,160 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.SaveCodec;
+import rpg.rpgIO.SaveHistory;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * SaveHistoryTest - Tests for the delta-encoded save history
+ * <p>
+ * Every version must rebuild exactly, identical contents must be stored
+ * once, and the history must grow with the changes rather than with the
+ * size of the saves.
+ * </p>
+ */
+public class SaveHistoryTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path directory;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Creates an empty history directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        directory = Files.createTempDirectory("history");
+    }
+
+    /**
+     * Removes the history directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        CharacterManagement.setHistory(null);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests that every version rebuilds and deltas keep the history small
+     */
+    @Test
+    public void testVersionsRebuildFromDeltas() throws IOException {
+        logger.info("Testing save history delta chains");
+        SaveHistory history = new SaveHistory(directory, 8);
+        long savedBytes = 0;
+        for (int version = 1; version <= 40; version++) {
+            // Only the money changes, plus a trophy every ten versions
+            Character hero = factory.createCustomCharacter("warrior", "Storico", 50, 100, 30, 50, 8,
+                    version * 7, 3);
+            for (int i = 0; i < 30; i++) {
+                hero.addItem(new Item("Reliquia " + i, Item.ItemType.MISC, 10 + i, 1));
+            }
+            for (int trophy = 10; trophy <= version; trophy += 10) {
+                hero.addItem(new Item("Trofeo " + trophy, Item.ItemType.MISC, trophy, 2));
+            }
+            ByteBuffer data = SaveCodec.encode(hero);
+            savedBytes += data.remaining();
+            assertEquals(version, history.record("storico", data, false));
+        }
+
+        List<SaveHistory.Version> versions = history.versions("storico");
+        assertEquals(40, versions.size());
+        for (SaveHistory.Version version : versions) {
+            Character loaded = SaveCodec.decode(history.load("storico", version.getNumber()), factory);
+            assertEquals(version.getNumber() * 7, loaded.getMoney());
+        }
+        assertNull(history.load("storico", 41));
+        assertNull(history.load("missing", 1));
+
+        long storedBytes = objectBytes();
+        assertTrue("History too large: " + storedBytes + " of " + savedBytes,
+                storedBytes * 3 < savedBytes);
+    }
+
+    /**
+     * Tests that identical contents are stored once
+     */
+    @Test
+    public void testIdenticalContentsAreStoredOnce() throws IOException {
+        logger.info("Testing save history deduplication");
+        SaveHistory history = new SaveHistory(directory);
+        ByteBuffer data = SaveCodec.encode(factory.createCharacter("mage", "Gemello"));
+        history.record("first", data, true);
+        long objects = objectCount();
+        history.record("first", data, true);
+        history.record("second", data, true);
+
+        assertEquals(objects, objectCount());
+        assertEquals(2, history.versions("first").size());
+        assertEquals(history.versions("first").get(0).getHash(), history.versions("second").get(0).getHash());
+        assertEquals(data, history.load("second", 1));
+    }
+
+    /**
+     * Tests rolling a character back through CharacterManagement
+     */
+    @Test
+    public void testCharacterManagementRollsBack() {
+        logger.info("Testing rollback through CharacterManagement");
+        CharacterManagement.setHistory(new SaveHistory(directory));
+        assertTrue(CharacterManagement.saveCharacter(
+                factory.createCustomMage("Ritorno", 40, 80, 60, 120, 4, 100, 2, 10, 60), "history_rollback"));
+        assertTrue(CharacterManagement.saveCharacter(
+                factory.createCustomMage("Ritorno", 40, 80, 60, 120, 4, 5, 2, 10, 60), "history_rollback"));
+
+        try {
+            assertEquals(2, CharacterManagement.listVersions("history_rollback").size());
+            assertEquals(100, CharacterManagement.loadVersion("history_rollback", 1).getMoney());
+            assertEquals(5, CharacterManagement.loadCharacter("history_rollback").getMoney());
+            assertNull(CharacterManagement.loadVersion("history_rollback", 3));
+        } finally {
+            new File(System.getProperty("game.save.dir"), "history_rollback.save").delete();
+        }
+    }
+
+    private long objectBytes() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.resolve("objects"))) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private long objectCount() throws IOException {
+        try (Stream<Path> files = Files.walk(directory.resolve("objects"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.RosterLoader;
+import rpg.rpgIO.SaveCodec;
+import rpg.rpgIO.SaveLayout;
+import rpg.rpgIO.SaveLayoutMigration;
+import rpg.rpgIO.SaveManifest;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * SaveLayoutTest - Tests for the sharded save layout and its migration
+ * <p>
+ * Sharded save paths must be computed from the save name alone, and a
+ * migration must move every save without losing or duplicating any.
+ * </p>
+ */
+public class SaveLayoutTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private Path directory;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Creates an empty save directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rpg-layout");
+    }
+
+    /**
+     * Removes the save directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests that sharded paths are stable and two levels deep
+     */
+    @Test
+    public void testShardedPaths() {
+        logger.info("Testing sharded save paths");
+        Path path = SaveLayout.SHARDED.resolve(directory, "hero", ".save");
+        assertEquals(path, SaveLayout.SHARDED.resolve(directory, "hero", ".save"));
+        assertEquals(3, directory.relativize(path).getNameCount());
+        assertTrue(path.getParent().getFileName().toString().matches("[0-9a-f]{2}"));
+        assertEquals(directory.resolve("hero.save"), SaveLayout.FLAT.resolve(directory, "hero", ".save"));
+    }
+
+    /**
+     * Tests migrating a flat directory to the sharded layout and back
+     */
+    @Test
+    public void testMigrationBothWays() throws IOException {
+        logger.info("Testing save layout migration");
+        CharacterFactory factory = new CharacterFactory();
+        for (int i = 0; i < 300; i++) {
+            ByteBuffer data = SaveCodec.encode(factory.createCharacter("warrior", "Eroe" + i));
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            Files.write(directory.resolve("hero" + i + ".save"), bytes);
+        }
+        Files.createDirectory(directory.resolve("backup"));
+
+        assertEquals(300, SaveLayoutMigration.migrate(directory, ".save", SaveLayout.SHARDED));
+        assertFalse(Files.exists(directory.resolve("hero7.save")));
+        assertTrue(Files.exists(SaveLayout.SHARDED.resolve(directory, "hero7", ".save")));
+        assertEquals(0, SaveLayoutMigration.migrate(directory, ".save", SaveLayout.SHARDED));
+
+        try (SaveManifest manifest = new SaveManifest(directory, ".save", SaveLayout.SHARDED)) {
+            assertEquals(300, manifest.getEntries().size());
+            assertEquals("Eroe42", manifest.get("hero42").getCharacterName());
+        }
+        Map<String, Character> roster = new ConcurrentHashMap<>();
+        try (RosterLoader loader = new RosterLoader(2)) {
+            assertEquals(300, loader.loadDirectory(directory, ".save", SaveLayout.SHARDED, roster::put).getLoaded());
+        }
+        assertEquals("Eroe299", roster.get("hero299").getName());
+
+        assertEquals(300, SaveLayoutMigration.migrate(directory, ".save", SaveLayout.FLAT));
+        assertTrue(Files.exists(directory.resolve("hero7.save")));
+        try (Stream<Path> left = Files.list(directory)) {
+            assertTrue(left.allMatch(path -> path.getFileName().toString().endsWith(".save")
+                    || path.getFileName().toString().equals("backup")
+                    || path.getFileName().toString().equals(SaveManifest.FILE_NAME)));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.SaveCodec;
+import rpg.rpgIO.SaveManifest;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * SaveManifestTest - Tests for the save manifest
+ * <p>
+ * The manifest must list saves with their class and level, survive being
+ * reopened, drop a record cut short by a crash and notice save files
+ * changed outside the game.
+ * </p>
+ */
+public class SaveManifestTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path directory;
+
+    /**
+     * Creates an empty save directory before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        directory = Files.createTempDirectory("rpg-manifest");
+    }
+
+    /**
+     * Removes the save directory after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Tests rebuilding from the directory, updates and reopening
+     */
+    @Test
+    public void testManifestSurvivesReopen() throws IOException {
+        logger.info("Testing save manifest rebuild and reopen");
+        writeSave("aria", factory.createCustomMage("Aria", 50, 80, 60, 100, 4, 10, 5, 20, 40));
+        Files.writeString(directory.resolve("old.save"), "name=Vecchio\ntype=Warrior\nlevel=3\n");
+        Files.writeString(directory.resolve("notes.txt"), "not a save");
+
+        try (SaveManifest manifest = new SaveManifest(directory, ".save")) {
+            List<SaveManifest.Entry> entries = manifest.getEntries();
+            assertEquals(2, entries.size());
+            assertEquals("Aria", entries.get(0).getCharacterName());
+            assertEquals("Mage", entries.get(0).getCharacterClass());
+            assertEquals(5, entries.get(0).getLevel());
+            assertEquals("Warrior", entries.get(1).getCharacterClass());
+            assertEquals(3, entries.get(1).getLevel());
+
+            manifest.put(new SaveManifest.Entry("bruno", "Bruno", "Warrior", 9, 42L, 1L));
+            assertTrue(manifest.remove("old"));
+        }
+
+        // A record cut short by a crash is dropped
+        Files.write(directory.resolve(SaveManifest.FILE_NAME), new byte[] {40, 1, 3},
+                StandardOpenOption.APPEND);
+
+        try (SaveManifest manifest = new SaveManifest(directory, ".save")) {
+            List<SaveManifest.Entry> entries = manifest.getEntries();
+            assertEquals(2, entries.size());
+            assertEquals("aria", entries.get(0).getSaveName());
+            assertEquals(9, manifest.get("bruno").getLevel());
+            assertNull(manifest.get("old"));
+        }
+    }
+
+    /**
+     * Tests that the watcher repairs the manifest when a save appears outside the game
+     */
+    @Test
+    public void testWatcherPicksUpExternalSaves() throws Exception {
+        logger.info("Testing save manifest watcher");
+        try (SaveManifest manifest = new SaveManifest(directory, ".save")) {
+            manifest.startWatching();
+            writeSave("copied",
+                    factory.createCustomCharacter("warrior", "Copied", 90, 100, 40, 50, 8, 0, 4));
+
+            long deadline = System.currentTimeMillis() + 15000;
+            while (manifest.get("copied") == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertNotNull("watcher did not pick up the new save", manifest.get("copied"));
+            assertEquals(4, manifest.get("copied").getLevel());
+
+            Files.delete(directory.resolve("copied.save"));
+            while (manifest.get("copied") != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertNull(manifest.get("copied"));
+        }
+    }
+
+    private void writeSave(String saveName, Character character) throws IOException {
+        ByteBuffer data = SaveCodec.encode(character);
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        Files.write(directory.resolve(saveName + ".save"), bytes);
+    }
+}
@@ -0,0 +1,191 @@
+import rpg.factory.Character;
+import rpg.factory.CharacterFactory;
+import rpg.iterator.Item;
+import rpg.logger.GameLogger;
+import rpg.rpgIO.CharacterManagement;
+import rpg.rpgIO.SaveCodec;
+import rpg.rpgIO.SlotSaveStore;
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import org.junit.BeforeClass;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * SlotSaveStoreTest - Tests for the memory-mapped slot store
+ * <p>
+ * Saves must survive updates, growth of the file and reopening the store,
+ * and CharacterManagement must be able to save to and load from it.
+ * </p>
+ */
+public class SlotSaveStoreTest {
+
+    private static final Logger logger = GameLogger.getLogger();
+    private CharacterFactory factory;
+    private Path storeFile;
+
+    /**
+     * Points the save directory to a temporary folder for the whole test run
+     */
+    @BeforeClass
+    public static void setUpSaveDirectory() {
+        if (System.getProperty("game.save.dir") == null) {
+            System.setProperty("game.save.dir",
+                    new File(System.getProperty("java.io.tmpdir"), "rpg-test-saves").getPath());
+        }
+    }
+
+    /**
+     * Sets up the test environment before each test
+     */
+    @Before
+    public void setUp() throws IOException {
+        factory = new CharacterFactory();
+        storeFile = Files.createTempFile("characters", ".slots");
+        Files.delete(storeFile);
+    }
+
+    /**
+     * Restores file saves and removes the store file after each test
+     */
+    @After
+    public void tearDown() throws IOException {
+        CharacterManagement.setSlotStore(null);
+        Files.deleteIfExists(storeFile);
+    }
+
+    /**
+     * Tests copy-on-write updates, growth and reopening
+     */
+    @Test
+    public void testSavesSurviveGrowthAndReopen() throws IOException {
+        logger.info("Testing slot store growth and reopen");
+        try (SlotSaveStore store = new SlotSaveStore(storeFile, 64, 2)) {
+            store.put("hero", bytes(10, 'a'));
+            assertEquals(1, store.getFreeSlots());
+
+            // Written to a new slot; the old one is released by the flush
+            store.put("hero", bytes(20, 'b'));
+            assertEquals(0, store.getFreeSlots());
+            assertEquals(bytes(20, 'b'), store.get("hero"));
+            store.flush();
+            assertEquals(1, store.getFreeSlots());
+
+            // Needs three slots: the file grows and the old slot is freed
+            store.put("hero", bytes(150, 'c'));
+            store.put("mage", bytes(30, 'd'));
+            assertTrue(store.getSlotCount() >= 4);
+            assertTrue(store.remove("mage"));
+            assertFalse(store.remove("mage"));
+            store.put("rogue", bytes(5, 'e'));
+        }
+
+        try (SlotSaveStore store = new SlotSaveStore(storeFile)) {
+            assertEquals(64, store.getSlotSize());
+            assertEquals(Set.of("hero", "rogue"), store.keys());
+            assertEquals(bytes(150, 'c'), store.get("hero"));
+            assertEquals(bytes(5, 'e'), store.get("rogue"));
+            assertNull(store.get("mage"));
+        }
+    }
+
+    /**
+     * Tests recovery from a crash between an update and the next flush
+     */
+    @Test
+    public void testTornUpdateFallsBackToPreviousRun() throws IOException {
+        logger.info("Testing slot store crash recovery");
+        Path intact = Files.createTempFile("intact", ".slots");
+        Path torn = Files.createTempFile("torn", ".slots");
+        try (SlotSaveStore store = new SlotSaveStore(storeFile, 64, 4)) {
+            store.put("hero", bytes(20, 'a'));
+            store.flush();
+            store.put("hero", bytes(20, 'b'));
+
+            // Images of the file as a crash before the next flush could leave it
+            Files.copy(storeFile, intact, StandardCopyOption.REPLACE_EXISTING);
+            byte[] image = Files.readAllBytes(storeFile);
+            image[64 + 64 + 19 + 4 + 10] ^= 0x01; // Payload of the new run, in slot 1
+            Files.write(torn, image);
+        }
+
+        try (SlotSaveStore store = new SlotSaveStore(intact)) {
+            assertEquals(bytes(20, 'b'), store.get("hero"));
+            assertEquals(3, store.getFreeSlots());
+        } finally {
+            Files.deleteIfExists(intact);
+        }
+        try (SlotSaveStore store = new SlotSaveStore(torn)) {
+            assertEquals(bytes(20, 'a'), store.get("hero"));
+        } finally {
+            Files.deleteIfExists(torn);
+        }
+    }
+
+    /**
+     * Tests that a store in the first layout is upgraded when opened
+     */
+    @Test
+    public void testUpgradesVersion1Store() throws IOException {
+        logger.info("Testing slot store upgrade");
+        ByteBuffer file = ByteBuffer.allocate(64 + 64 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        file.put(new byte[] {'R', 'P', 'G', 'S', 'L', 'O', 'T', 'S'}).putInt(1).putInt(64).putInt(4);
+        file.position(64);
+        file.putInt(30).putShort((short) 1).put((byte) 4).put("hero".getBytes(StandardCharsets.UTF_8))
+                .put(bytes(30, 'v'));
+        Files.write(storeFile, file.array());
+
+        try (SlotSaveStore store = new SlotSaveStore(storeFile)) {
+            assertEquals(64, store.getSlotSize());
+            assertEquals(Set.of("hero"), store.keys());
+            assertEquals(bytes(30, 'v'), store.get("hero"));
+            store.put("mage", bytes(5, 'm'));
+        }
+        try (SlotSaveStore store = new SlotSaveStore(storeFile)) {
+            assertEquals(Set.of("hero", "mage"), store.keys());
+        }
+    }
+
+    /**
+     * Tests that CharacterManagement saves into and loads from the store
+     */
+    @Test
+    public void testCharacterManagementUsesStore() throws IOException {
+        logger.info("Testing character saves through the slot store");
+        try (SlotSaveStore store = new SlotSaveStore(storeFile)) {
+            CharacterManagement.setSlotStore(store);
+
+            Character warrior = factory.createCharacter("warrior", "Slotted");
+            warrior.addItem(new Item("Spada", Item.ItemType.WEAPON, 50, 5));
+            assertTrue(CharacterManagement.saveCharacter(warrior, "slotted"));
+
+            assertTrue(store.contains("slotted"));
+            assertEquals(SaveCodec.encode(warrior), store.get("slotted"));
+            assertArrayEquals(new String[] {"slotted"}, CharacterManagement.listSaveFiles());
+
+            Character loaded = CharacterManagement.loadCharacter("slotted");
+            assertNotNull(loaded);
+            assertEquals("Slotted", loaded.getName());
+            assertEquals(warrior.getMaxHealth(), loaded.getMaxHealth());
+            assertNull(CharacterManagement.loadCharacter("missing"));
+        }
+    }
+
+    private static ByteBuffer bytes(int length, char fill) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) fill);
+        return ByteBuffer.wrap(data);
+    }
+}